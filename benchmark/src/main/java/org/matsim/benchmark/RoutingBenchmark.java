@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoutingBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.AStarLandmarksFactory;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.FastRouterType;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the least cost path calculators on the network of the benchmark scenario, for random trips and for
+ * long trips only, where the bidirectional and goal-directed searches should gain most.
+ * <br>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.RoutingBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RoutingBenchmark {
+
+	private static final int TRIPS = 200;
+
+	@Param({ "Dijkstra", "FastDijkstra", "AStarLandmarks", "FastAStarLandmarks", "Bidirectional", "BidirectionalALT" })
+	public String router;
+
+	@Param({ "0", "15000" })
+	public double minimumBeelineDistance;
+
+	private LeastCostPathCalculator calculator;
+	private final List<Node[]> trips = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).parse(ConfigGroup.getInputFileURL(config.getContext(), config.network().getInputFile()));
+
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(config.planCalcScore());
+		this.calculator = createFactory(this.router).createPathCalculator(network, travelTime, travelTime);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		while (this.trips.size() < TRIPS) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			if (CoordUtils.calcEuclideanDistance(from.getCoord(), to.getCoord()) >= this.minimumBeelineDistance) {
+				this.trips.add(new Node[] { from, to });
+			}
+		}
+	}
+
+	private static LeastCostPathCalculatorFactory createFactory(final String router) {
+		switch (router) {
+		case "Dijkstra":
+			return new DijkstraFactory();
+		case "FastDijkstra":
+			return new FastDijkstraFactory();
+		case "AStarLandmarks":
+			return new AStarLandmarksFactory();
+		case "FastAStarLandmarks":
+			return new FastAStarLandmarksFactory();
+		case "Bidirectional":
+			return new FastDijkstraFactory(false, FastRouterType.BIDIRECTIONAL);
+		case "BidirectionalALT":
+			return new FastAStarLandmarksFactory(FastRouterType.BIDIRECTIONAL);
+		default:
+			throw new IllegalArgumentException("unknown router " + router);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRIPS)
+	public void route(final Blackhole blackhole) {
+		for (Node[] trip : this.trips) {
+			Path path = this.calculator.calcLeastCostPath(trip[0], trip[1], 8 * 3600, null, null);
+			blackhole.consume(path);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(RoutingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
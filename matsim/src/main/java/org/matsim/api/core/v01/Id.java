@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,7 +41,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -58,21 +59,65 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
-		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+		return (Id<T>) getCache(type).getOrCreate(key);
+	}
+
+	/**
+	 * @return the already existing id with the given key and type, or <code>null</code> if no such id was created so far.
+	 * In contrast to {@link #create(String, Class)}, this never creates a new id.
+	 */
+	public static <T> Id<T> get(final String key, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? null : (Id<T>) idCache.ids.get(key);
+	}
+
+	/**
+	 * @return the id of the given type with the given {@link #index()}
+	 * @throws IndexOutOfBoundsException if no id of this type has the index
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		// read count before the array, so the array is at least as new as the count
+		int count = idCache == null ? 0 : idCache.count;
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("There is no id of type " + type.getName() + " with index " + index);
 		}
-		
-		return (Id<T>) id;
+		return (Id<T>) idCache.byIndex[index];
 	}
-	
+
+	/**
+	 * @return the number of ids created so far for the given type. All ids of this type have an {@link #index()}
+	 * smaller than this number.
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.count;
+	}
+
+	private static IdCache getCache(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			synchronized (cache) {
+				idCache = cache.get(type);
+				if (idCache == null) {
+					idCache = new IdCache(type);
+					cache.put(type, idCache);
+				}
+			}
+		}
+		return idCache;
+	}
+
+	/**
+	 * @return a dense index of this id. Indices are assigned per type in the order the ids are created, starting at 0.
+	 * They are not stable between runs and should thus never be written to any output, but they can be used to
+	 * store data per id in arrays, see {@link IdMap} and {@link IdSet}.
+	 */
+	public abstract int index();
+
+	/*package*/ abstract Class<?> getType();
+
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -113,9 +158,23 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
+		private final Class<?> type;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index, final Class<?> type) {
 			this.id = id;
+			this.index = index;
+			this.type = type;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
+		}
+
+		@Override
+		/*package*/ Class<?> getType() {
+			return this.type;
 		}
 
 		@Override
@@ -129,6 +188,44 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * All ids of one type, by key and by index. Lookups of existing ids do not lock, only the creation of new ids
+	 * is synchronized so that every key gets exactly one id and one index.
+	 */
+	private static class IdCache {
+
+		private final Class<?> type;
+		private final Map<String, Id<?>> ids = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] byIndex = new Id<?>[16];
+		private volatile int count = 0;
+
+		IdCache(final Class<?> type) {
+			this.type = type;
+		}
+
+		Id<?> getOrCreate(final String key) {
+			Id<?> id = this.ids.get(key);
+			if (id == null) {
+				synchronized (this) {
+					id = this.ids.get(key);
+					if (id == null) {
+						int index = this.count;
+						id = new IdImpl<Object>(key, index, this.type);
+						Id<?>[] array = this.byIndex;
+						if (index == array.length) {
+							array = Arrays.copyOf(array, array.length * 2);
+						}
+						array[index] = id;
+						this.byIndex = array;
+						this.count = index + 1;
+						this.ids.put(key, id);
+					}
+				}
+			}
+			return id;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
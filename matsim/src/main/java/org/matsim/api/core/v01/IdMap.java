@@ -0,0 +1,269 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link Id}s as keys, storing the values in an array at the position given by {@link Id#index()}.
+ * Compared to a {@link java.util.HashMap}, no entry objects are created and a lookup is a plain array access,
+ * so this map uses much less memory and is faster if it contains a large part of all ids of its type.
+ * <br>
+ * The map iterates in the order of the ids' indices, i.e. in the order the ids were created, and not in the order
+ * the entries were added. Like {@link java.util.HashMap}, it is not thread-safe.
+ * <br>
+ * Keys created for another type, but with the same string, are considered equal, as in {@link Id#equals(Object)}.
+ *
+ * @param <T> the type of the ids
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final Class<T> idClass;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.data = new Object[initialCapacity];
+	}
+
+	/**
+	 * @return the index of the key in this map, or -1 if it is no id of this map's type or does not exist.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		if (id.getType() != this.idClass) {
+			id = Id.get(id.toString(), this.idClass);
+			if (id == null) {
+				return -1;
+			}
+		}
+		return id.index();
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = indexOf(key);
+		Object[] array = this.data;
+		return index >= 0 && index < array.length && array[index] != null;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		Object[] array = this.data;
+		if (index < 0 || index >= array.length) {
+			return null;
+		}
+		return unmask(array[index]);
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = (key.getType() == this.idClass ? key : Id.create(key.toString(), this.idClass)).index();
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, Math.max(Id.getNumberOfIds(this.idClass), this.data.length * 2)));
+		}
+		Object old = this.data[index];
+		this.data[index] = value == null ? NULL_VALUE : value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return removeIndex(index);
+	}
+
+	private V removeIndex(final int index) {
+		Object old = this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V unmask(final Object value) {
+		return value == NULL_VALUE ? null : (V) value;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new AbstractSet<Map.Entry<Id<T>, V>>() {
+			@Override
+			public Iterator<Map.Entry<Id<T>, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size;
+			}
+
+			@Override
+			public void clear() {
+				IdMap.this.clear();
+			}
+		};
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+
+		private int expectedModCount = IdMap.this.modCount;
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Object[] array = IdMap.this.data;
+			do {
+				this.next++;
+			} while (this.next < array.length && array[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return new IdEntry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeIndex(this.current);
+			this.current = -1;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private class IdEntry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+
+		IdEntry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return Id.get(this.index, IdMap.this.idClass);
+		}
+
+		@Override
+		public V getValue() {
+			return unmask(IdMap.this.data[this.index]);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			V old = getValue();
+			IdMap.this.data[this.index] = value == null ? NULL_VALUE : value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Object value = getValue();
+			return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Id}s, stored as a bit set over {@link Id#index()}. This needs one bit per id of the type,
+ * compared to an entry object per element in a {@link java.util.HashSet}.
+ * <br>
+ * The set iterates in the order the ids were created. Like {@link java.util.HashSet}, it is not thread-safe.
+ *
+ * @param <T> the type of the ids
+ *
+ * @see IdMap
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final BitSet bits;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.bits = new BitSet(Id.getNumberOfIds(idClass));
+	}
+
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		if (id.getType() != this.idClass) {
+			id = Id.get(id.toString(), this.idClass);
+			if (id == null) {
+				return -1;
+			}
+		}
+		return id.index();
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.bits.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = (id.getType() == this.idClass ? id : Id.create(id.toString(), this.idClass)).index();
+		if (this.bits.get(index)) {
+			return false;
+		}
+		this.bits.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0 || !this.bits.get(index)) {
+			return false;
+		}
+		this.bits.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.bits.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+			private int expectedModCount = IdSet.this.modCount;
+			private int next = IdSet.this.bits.nextSetBit(0);
+			private int current = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.bits.nextSetBit(this.current + 1);
+				return Id.get(this.current, IdSet.this.idClass);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				IdSet.this.bits.clear(this.current);
+				IdSet.this.size--;
+				IdSet.this.modCount++;
+				this.current = -1;
+				this.expectedModCount = IdSet.this.modCount;
+			}
+		};
+	}
+
+}
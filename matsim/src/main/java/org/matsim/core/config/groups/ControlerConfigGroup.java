@@ -37,9 +37,11 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, SharedGraphDijkstra, FastAStarLandmarks, CCH}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, binary}
+
+	public enum PlansFileFormat {xml, binary}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -47,12 +49,14 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_FILE = "landmarksFile";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String PLANS_FILE_FORMAT = "plansFileFormat";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
@@ -67,6 +71,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
+	private String landmarksFile = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -76,6 +81,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval=10;
 	private int writePlansInterval=10;
+	private Set<PlansFileFormat> plansFileFormats = Collections.unmodifiableSet(EnumSet.of(PlansFileFormat.xml));
 	private Set<String> snapshotFormat = Collections.emptySet();
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -91,14 +97,25 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.SharedGraphDijkstra
+				+ " (like " + RoutingAlgorithmType.FastDijkstra + ", but all routing threads and modes share one graph of the network),"
+				+ " " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or " + RoutingAlgorithmType.CCH
+				+ " (customizable contraction hierarchies: slow preprocessing once per network, then very fast queries with the link costs"
+				+ " of the travel time bin of the departure, ignoring how they change during the trip).");
+		map.put(LANDMARKS_FILE, "Optional file to keep the landmarks of the " + RoutingAlgorithmType.AStarLandmarks + " and "
+				+ RoutingAlgorithmType.FastAStarLandmarks + " routers between runs: read if it exists and fits the network, written otherwise.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, binary (much faster to read, "
+				+ "see EventWriterBinary; can be converted to xml by reading it with MatsimEventsReader into an EventWriterXML)."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
 				"written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(PLANS_FILE_FORMAT, "Default="+PlansFileFormat.xml+"; Specifies the file format for writing the plans in the iterations. Currently supported: xml, "
+				+ "binary (the whole scenario with network, facilities, vehicles and population in one file that is much faster to read, "
+				+ "see ScenarioBinaryWriter; it can be given as network, facilities, vehicles and plans input file to continue from that iteration)."
+				+ IOUtils.NATIVE_NEWLINE+ "\t\t" + "Multiple values can be specified separated by commas (',').");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0; "); // TODO: add description
@@ -164,6 +181,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_FILE )
+	public String getLandmarksFile() {
+		return this.landmarksFile;
+	}
+
+	@StringSetter( LANDMARKS_FILE )
+	public void setLandmarksFile(final String landmarksFile) {
+		this.landmarksFile = landmarksFile;
+	}
+
 	@StringGetter( RUNID )
 	public String getRunId() {
 		return this.runId;
@@ -229,6 +256,41 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.eventsFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(eventsFileFormats));
 	}
 
+	@StringGetter( PLANS_FILE_FORMAT )
+	private String getPlansFileFormatAsString() {
+		boolean isFirst = true;
+		StringBuilder str = new StringBuilder();
+		for (PlansFileFormat format : this.plansFileFormats) {
+			if (!isFirst) {
+				str.append(',');
+			}
+			str.append(format.toString());
+			isFirst = false;
+		}
+		return str.toString();
+	}
+
+	@StringSetter( PLANS_FILE_FORMAT )
+	private void setPlansFileFormats( final String value ) {
+		String[] parts = StringUtils.explode(value, ',');
+		Set<PlansFileFormat> formats = EnumSet.noneOf(PlansFileFormat.class);
+		for (String part : parts) {
+			String trimmed = part.trim();
+			if (trimmed.length() > 0) {
+				formats.add(PlansFileFormat.valueOf(trimmed));
+			}
+		}
+		this.plansFileFormats = formats;
+	}
+
+	public Set<PlansFileFormat> getPlansFileFormats() {
+		return this.plansFileFormats;
+	}
+
+	public void setPlansFileFormats(final Set<PlansFileFormat> plansFileFormats) {
+		this.plansFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(plansFileFormats));
+	}
+
 	@StringSetter( SNAPSHOT_FORMAT )
 	private void setSnapshotFormats( final String value ) {
 		String[] parts = StringUtils.explode(value, ',');
@@ -37,10 +37,16 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String LOAD_BALANCED_REPLANNING = "loadBalancedReplanning";
+	private static final String PARALLEL_SCORING = "parallelScoring";
+	private static final String PARALLEL_PLAN_SELECTION = "parallelPlanSelection";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean loadBalancedReplanning = false;
+	private boolean parallelScoring = false;
+	private boolean parallelPlanSelection = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +54,16 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(LOAD_BALANCED_REPLANNING, "If true, the threads of the replanning modules take the next plan whenever they are done with one, "
+				+ "instead of handling a fixed share of the plans, so a few expensive plans do not leave the other threads idle. "
+				+ "Which thread handles which plan then depends on timing, so runs are only reproducible if the modules do not "
+				+ "draw random numbers per thread, as e.g. the randomized routing does.");
+		map.put(PARALLEL_SCORING, "If true, the agents are scored in numberOfThreads threads while the events are handled, each thread "
+				+ "scoring a fixed share of the agents.  The scores are the same as with a single thread, but scoring functions "
+				+ "of different agents must not share state that is not thread-safe.");
+		map.put(PARALLEL_PLAN_SELECTION, "If true, the replanning strategies are chosen and the plans selected in numberOfThreads threads, "
+				+ "each agent drawing from its own random stream.  The results do not depend on the number of threads, "
+				+ "but differ from the ones of the serial selection, and the plan selectors must be thread-safe.");
 		return map ;
 	}
 
@@ -81,4 +97,31 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 
+	@StringGetter( LOAD_BALANCED_REPLANNING )
+	public boolean isLoadBalancedReplanning() {
+		return this.loadBalancedReplanning;
+	}
+	@StringSetter( LOAD_BALANCED_REPLANNING )
+	public void setLoadBalancedReplanning(final boolean loadBalancedReplanning) {
+		this.loadBalancedReplanning = loadBalancedReplanning;
+	}
+
+	@StringGetter( PARALLEL_SCORING )
+	public boolean isParallelScoring() {
+		return this.parallelScoring;
+	}
+	@StringSetter( PARALLEL_SCORING )
+	public void setParallelScoring(final boolean parallelScoring) {
+		this.parallelScoring = parallelScoring;
+	}
+
+	@StringGetter( PARALLEL_PLAN_SELECTION )
+	public boolean isParallelPlanSelection() {
+		return this.parallelPlanSelection;
+	}
+	@StringSetter( PARALLEL_PLAN_SELECTION )
+	public void setParallelPlanSelection(final boolean parallelPlanSelection) {
+		this.parallelPlanSelection = parallelPlanSelection;
+	}
+
 }
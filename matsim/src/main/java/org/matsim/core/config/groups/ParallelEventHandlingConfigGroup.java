@@ -45,6 +45,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 	
+	private final static String PER_THREAD_BUFFERS = "perThreadBuffers"; 
+	private Boolean perThreadBuffers = false;
+	
 	private boolean locked = false;
 
 	public ParallelEventHandlingConfigGroup() {
@@ -60,6 +63,10 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(PER_THREAD_BUFFERS, "If enabled, every thread that creates events writes them into its own ring buffer, from which the "
+				+ NUMBER_OF_THREADS + " events handling threads read them without locking.  Takes " + SYNCHRONIZE_ON_SIMSTEPS + " into account. "
+				+ "Events/sec and queue depths of the events handling threads are written to the log after each iteration. "
+				+ "This feature is still experimental!");
 		return comments;
 	}
 
@@ -127,6 +134,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( PER_THREAD_BUFFERS )
+	public Boolean getPerThreadBuffers() {
+		return this.perThreadBuffers;
+	}
+
+	@StringSetter( PER_THREAD_BUFFERS )
+	public void setPerThreadBuffers(Boolean perThreadBuffers) {
+		if ( !this.locked ) {
+			this.perThreadBuffers = perThreadBuffers;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+	
 	public void makeLocked() {
 		this.locked = true;
 	}
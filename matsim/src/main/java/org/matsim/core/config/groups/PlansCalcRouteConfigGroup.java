@@ -78,6 +78,17 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 
 	// ---
 
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize" ;
+	private int routeCacheSize = 0 ;
+
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize" ;
+	private double routeCacheTimeBinSize = 900. ;
+
+	private static final String BATCHING_TRIPS_BY_ORIGIN = "batchingTripsByOrigin" ;
+	private boolean batchingTripsByOrigin = false ;
+
+	// ---
+
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
 		public static final String SET_TYPE = "teleportedModeParameters";
 
@@ -379,6 +390,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			setTeleportedModeSpeed(key.substring(TELEPORTED_MODE_SPEEDS.length()), Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_FREESPEED_FACTORS)) {
 			setTeleportedModeFreespeedFactor(key.substring(TELEPORTED_MODE_FREESPEED_FACTORS.length()), Double.parseDouble(value));
+		} else if (ROUTE_CACHE_SIZE.equals(key)) {
+			setRouteCacheSize(Integer.parseInt(value));
+		} else if (ROUTE_CACHE_TIME_BIN_SIZE.equals(key)) {
+			setRouteCacheTimeBinSize(Double.parseDouble(value));
+		} else if (BATCHING_TRIPS_BY_ORIGIN.equals(key)) {
+			setBatchingTripsByOrigin(Boolean.parseBoolean(value));
 		} else {
 			throw new IllegalArgumentException(key);
 		}
@@ -388,6 +405,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	public final Map<String, String> getParams() {
 		Map<String, String> map = super.getParams();
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray(new String[this.networkModes.size()])));
+		map.put( ROUTE_CACHE_SIZE, Integer.toString(this.routeCacheSize) );
+		map.put( ROUTE_CACHE_TIME_BIN_SIZE, Double.toString(this.routeCacheTimeBinSize) );
+		map.put( BATCHING_TRIPS_BY_ORIGIN, Boolean.toString(this.batchingTripsByOrigin) );
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -413,6 +433,15 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	        map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(ROUTE_CACHE_SIZE, "maximum number of network routes shared between agents with the same origin link, destination link "
+				+ "and departure time bin.  The cache ignores person-specific travel disutilities (e.g. " + RANDOMNESS + ") "
+				+ "and is cleared after every mobsim.  0 (the default) switches the cache off.") ;
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, "size of the departure time bins of the route cache, in seconds.") ;
+		map.put(BATCHING_TRIPS_BY_ORIGIN, "if true, the trips of a network mode with the same origin link and departure time are routed "
+				+ "with one search when the routing of a load balanced replanning is split into trips (see global.loadBalancedReplanning). "
+				+ "The search uses the travel disutility of one of the persons, so this requires that the disutilities do not depend on "
+				+ "the person; it is ignored if " + RANDOMNESS + " is not 0 or if plans.activityDurationInterpretation is "
+				+ "minOfDurationAndEndTime.") ;
 		return map;
 	}
 
@@ -512,4 +541,33 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	public int getRouteCacheSize() {
+		return this.routeCacheSize;
+	}
+	/**
+	 * Routes of network modes are cached and shared between agents if the size is positive; see
+	 * {@link org.matsim.core.router.RouteCache}.
+	 */
+	public void setRouteCacheSize(int routeCacheSize) {
+		this.routeCacheSize = routeCacheSize;
+	}
+
+	public double getRouteCacheTimeBinSize() {
+		return this.routeCacheTimeBinSize;
+	}
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+
+	public boolean isBatchingTripsByOrigin() {
+		return this.batchingTripsByOrigin;
+	}
+	/**
+	 * Trips with the same origin and departure time are routed with one search, see
+	 * {@link org.matsim.core.router.TripRoutingPipeline}.
+	 */
+	public void setBatchingTripsByOrigin(boolean batchingTripsByOrigin) {
+		this.batchingTripsByOrigin = batchingTripsByOrigin;
+	}
+
 }
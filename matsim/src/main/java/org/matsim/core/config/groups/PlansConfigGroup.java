@@ -37,6 +37,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public static enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+
+	public static enum PlanElementsStorage { objects, compact }
+	public static enum UnselectedPlansStorage { memory, disk }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
@@ -87,6 +90,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
 		"activityStartTime. default=false") ;
 
+		comments.put(PLAN_ELEMENTS_STORAGE, "Defines how activities and legs of the plans are stored in memory. " +
+				PlanElementsStorage.objects + ": one object per activity and leg (default). " +
+				PlanElementsStorage.compact + ": the activities and legs of a plan are stored in primitive arrays; " +
+				"activity and leg objects are only created when they are accessed, and are dropped again before every mobsim. " +
+				"Needs much less memory for large populations. Does not affect the routes, see " + NETWORK_ROUTE_TYPE + ".");
+
+		comments.put(UNSELECTED_PLANS_STORAGE, "Defines where the plans which are not selected are kept between the iterations. " +
+				UnselectedPlansStorage.memory + ": with the persons (default). " +
+				UnselectedPlansStorage.disk + ": in binary files in the tmp directory of the output, so only the selected plans are in memory " +
+				"during the mobsim and scoring.  Replanning and writing the plans load the plans of " + UNSELECTED_PLANS_PARTITION_SIZE +
+				" persons at a time.  Listeners which look at all plans, e.g. the score statistics, then only see the selected ones.");
+		comments.put(UNSELECTED_PLANS_PARTITION_SIZE, "The number of persons whose plans are loaded at once if the unselected plans are kept on disk.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -178,6 +194,45 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	// ---
+
+	private static final String PLAN_ELEMENTS_STORAGE = "planElementsStorage";
+	private PlanElementsStorage planElementsStorage = PlanElementsStorage.objects;
+	@StringGetter(PLAN_ELEMENTS_STORAGE)
+	public PlanElementsStorage getPlanElementsStorage() {
+		return this.planElementsStorage;
+	}
+	@StringSetter(PLAN_ELEMENTS_STORAGE)
+	public void setPlanElementsStorage(final PlanElementsStorage planElementsStorage) {
+		this.planElementsStorage = planElementsStorage;
+	}
+
+	// ---
+
+	private static final String UNSELECTED_PLANS_STORAGE = "unselectedPlansStorage";
+	private UnselectedPlansStorage unselectedPlansStorage = UnselectedPlansStorage.memory;
+	@StringGetter(UNSELECTED_PLANS_STORAGE)
+	public UnselectedPlansStorage getUnselectedPlansStorage() {
+		return this.unselectedPlansStorage;
+	}
+	@StringSetter(UNSELECTED_PLANS_STORAGE)
+	public void setUnselectedPlansStorage(final UnselectedPlansStorage unselectedPlansStorage) {
+		this.unselectedPlansStorage = unselectedPlansStorage;
+	}
+
+	private static final String UNSELECTED_PLANS_PARTITION_SIZE = "unselectedPlansPartitionSize";
+	private int unselectedPlansPartitionSize = 100000;
+	@StringGetter(UNSELECTED_PLANS_PARTITION_SIZE)
+	public int getUnselectedPlansPartitionSize() {
+		return this.unselectedPlansPartitionSize;
+	}
+	@StringSetter(UNSELECTED_PLANS_PARTITION_SIZE)
+	public void setUnselectedPlansPartitionSize(final int unselectedPlansPartitionSize) {
+		this.unselectedPlansPartitionSize = unselectedPlansPartitionSize;
+	}
+
+	// ---
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
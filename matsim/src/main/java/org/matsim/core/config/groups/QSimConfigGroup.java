@@ -262,6 +262,26 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(USING_WORK_STEALING, "If true, the active nodes and links of every qsim runner are split into chunks in every time step, "
+				+ "and runners that are done with their own chunks process the remaining chunks of the others.  Reduces the time that "
+				+ "runners wait for the slowest one.  Only works together with " + USING_THREADPOOL + "=true.  Default: false.") ;
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetworkPartitioning np : NetworkPartitioning.values() ) {
+				stb.append(" ").append( np.toString() ) ;
+			}
+			map.put(NETWORK_PARTITIONING, "Defines how nodes (and their out-links) are distributed over the qsim runners.  "
+					+ NetworkPartitioning.roundRobin + " hands them out one after the other; " + NetworkPartitioning.spatial
+					+ " assigns connected regions of the network to the same runner, which keeps the number of links between "
+					+ "runners small.  Default: " + NetworkPartitioning.roundRobin + ".  Options:" + stb ) ;
+		}
+		map.put(USING_LINK_LOADS_FOR_NETWORK_PARTITIONING, "If true, nodes are weighted by the number of vehicles that entered their "
+				+ "out-links in the previous iteration when the network is partitioned.  Only has an effect with "
+				+ NETWORK_PARTITIONING + "=" + NetworkPartitioning.spatial + ".  Default: false." ) ;
+		map.put(USING_DETERMINISTIC_NETSIM, "If true, the network part of the qsim produces the same results (including the order of the "
+				+ "events) independent of " + NUMBER_OF_THREADS + ".  For this, the events and agent state changes that are generated "
+				+ "by nodes and links are collected during the time step and passed on in a fixed order at its end.  Note that the "
+				+ "results differ from those with this switch set to false, even for one thread.  Default: false." ) ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -513,6 +533,52 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	// ---
+	private static final String USING_WORK_STEALING = "usingWorkStealing" ;
+	private boolean usingWorkStealing = false ;
+	@StringGetter(USING_WORK_STEALING)
+	public boolean isUsingWorkStealing() {
+		return this.usingWorkStealing ;
+	}
+	@StringSetter(USING_WORK_STEALING)
+	public void setUsingWorkStealing( boolean val ) {
+		this.usingWorkStealing = val ;
+	}
+	// ---
+	private static final String USING_DETERMINISTIC_NETSIM = "usingDeterministicNetsim" ;
+	private boolean usingDeterministicNetsim = false ;
+	@StringGetter(USING_DETERMINISTIC_NETSIM)
+	public boolean isUsingDeterministicNetsim() {
+		return this.usingDeterministicNetsim ;
+	}
+	@StringSetter(USING_DETERMINISTIC_NETSIM)
+	public void setUsingDeterministicNetsim( boolean val ) {
+		this.usingDeterministicNetsim = val ;
+	}
+	// ---
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+	public static enum NetworkPartitioning { roundRobin, spatial } ;
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning val ) {
+		this.networkPartitioning = val ;
+	}
+	// ---
+	private static final String USING_LINK_LOADS_FOR_NETWORK_PARTITIONING = "usingLinkLoadsForNetworkPartitioning" ;
+	private boolean usingLinkLoadsForNetworkPartitioning = false ;
+	@StringGetter(USING_LINK_LOADS_FOR_NETWORK_PARTITIONING)
+	public boolean isUsingLinkLoadsForNetworkPartitioning() {
+		return this.usingLinkLoadsForNetworkPartitioning ;
+	}
+	@StringSetter(USING_LINK_LOADS_FOR_NETWORK_PARTITIONING)
+	public void setUsingLinkLoadsForNetworkPartitioning( boolean val ) {
+		this.usingLinkLoadsForNetworkPartitioning = val ;
+	}
+	// ---
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -38,7 +38,10 @@ import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.NetworkChangeEventsWriter;
 import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+import org.matsim.core.population.io.UnselectedPlansStore;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.counts.Counts;
@@ -109,6 +112,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	@Inject
 	private OutputDirectoryHierarchy controlerIO;
 
+	@Inject(optional = true)
+	private UnselectedPlansStore unselectedPlansStore = null;
+
 	@Inject
 	private Map<Class<?>,AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 
@@ -297,7 +303,14 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		final String inputCRS = config.plans().getInputCRS();
 		final String internalCRS = config.global().getCoordinateSystem();
 
-		if ( inputCRS == null ) {
+		if ( unselectedPlansStore != null ) {
+			final CoordinateTransformation transformation = inputCRS == null ? new IdentityTransformation() :
+					TransformationFactory.getCoordinateTransformation( internalCRS, inputCRS );
+			final StreamingPopulationWriter writer = new StreamingPopulationWriter(transformation);
+			writer.putAttributeConverters( attributeConverters );
+			unselectedPlansStore.writePopulation(writer, controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
+		}
+		else if ( inputCRS == null ) {
 			final PopulationWriter writer = new PopulationWriter(population, network);
 			writer.putAttributeConverters( attributeConverters );
 			writer.write(controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
@@ -20,8 +20,12 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationWriter;
@@ -30,11 +34,16 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+import org.matsim.core.population.io.UnselectedPlansStore;
+import org.matsim.core.scenario.ScenarioBinaryWriter;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.utils.objectattributes.AttributeConverter;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
@@ -53,8 +62,11 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Config config;
 	@Inject private Network network;
 	@Inject private Population population;
+	@Inject private Scenario scenario;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject(optional = true) private UnselectedPlansStore unselectedPlansStore = null;
+	@Inject private Map<Class<?>,AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 	private int writePlansInterval ;
 
 	private int writeMoreUntilIteration;
@@ -73,25 +85,44 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 		if ( writingPlansAtAll && (regularWritePlans || earlyIteration) ) {
 			stopwatch.beginOperation("dump all plans");
 			log.info("dumping plans...");
-			final String inputCRS = config.plans().getInputCRS();
-			final String internalCRS = config.global().getCoordinateSystem();
-
-			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+			if ( config.controler().getPlansFileFormats().contains( ControlerConfigGroup.PlansFileFormat.xml ) ) {
+				dumpXml( event.getIteration() );
 			}
-			else {
-				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
-
-				final CoordinateTransformation transformation =
-						TransformationFactory.getCoordinateTransformation(
-								internalCRS,
-								inputCRS );
-
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+			if ( config.controler().getPlansFileFormats().contains( ControlerConfigGroup.PlansFileFormat.binary ) ) {
+				ScenarioBinaryWriter writer = new ScenarioBinaryWriter( scenario );
+				writer.putAttributeConverters( attributeConverters );
+				writer.setNumberOfThreads( config.global().getNumberOfThreads() );
+				writer.write( controlerIO.getIterationFilename(event.getIteration(), "scenario.bin"), unselectedPlansStore );
 			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	private void dumpXml( final int iteration ) {
+		final String inputCRS = config.plans().getInputCRS();
+		final String internalCRS = config.global().getCoordinateSystem();
+
+		if ( unselectedPlansStore != null ) {
+			final CoordinateTransformation transformation = inputCRS == null ? new IdentityTransformation() :
+					TransformationFactory.getCoordinateTransformation( internalCRS, inputCRS );
+			final StreamingPopulationWriter writer = new StreamingPopulationWriter(transformation);
+			writer.putAttributeConverters( attributeConverters );
+			unselectedPlansStore.writePopulation(writer, controlerIO.getIterationFilename(iteration, "plans.xml.gz"));
+		}
+		else if ( inputCRS == null ) {
+			new PopulationWriter(population, network).write(controlerIO.getIterationFilename(iteration, "plans.xml.gz"));
+		}
+		else {
+			log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
+
+			final CoordinateTransformation transformation =
+					TransformationFactory.getCoordinateTransformation(
+							internalCRS,
+							inputCRS );
+
+			new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(iteration, "plans.xml.gz"));
+		}
+	}
+
 }
@@ -23,6 +23,7 @@ package org.matsim.core.controler.corelisteners;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.controler.events.ReplanningEvent;
 import org.matsim.core.controler.listener.ReplanningListener;
+import org.matsim.core.population.io.UnselectedPlansStore;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.replanning.StrategyManager;
 
@@ -45,6 +46,9 @@ final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
 	private final Provider<ReplanningContext> replanningContextProvider;
 	private Population population;
 	private StrategyManager strategyManager;
+
+	@Inject(optional = true)
+	private UnselectedPlansStore unselectedPlansStore = null;
 	
 	@Inject
 	PlansReplanningImpl(StrategyManager strategyManager, Population pop, Provider<ReplanningContext> replanningContextProvider) {
@@ -55,7 +59,14 @@ final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
 
 	@Override
 	public void notifyReplanning(final ReplanningEvent event) {
-		strategyManager.run(population, event.getIteration(), replanningContextProvider.get());
+		if (unselectedPlansStore == null) {
+			strategyManager.run(population, event.getIteration(), replanningContextProvider.get());
+		} else {
+			// only the plans of one partition are in memory at a time:
+			final ReplanningContext replanningContext = replanningContextProvider.get();
+			unselectedPlansStore.forEachPartition(persons ->
+					strategyManager.run(persons, population.getPersonAttributes(), event.getIteration(), replanningContext));
+		}
 	}
 
 }
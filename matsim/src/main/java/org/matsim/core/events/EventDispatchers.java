@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventDispatchers.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Creates the objects through which the events managers call the <code>handleEvent</code> methods of the event handlers.
+ * <p></p>
+ * For every pair of handler and <code>handleEvent</code> method, a small class is generated at runtime (with the same
+ * mechanism that the JVM uses for lambdas) that does nothing but cast the event and call the method on the handler.
+ * Since every such class only ever sees one receiver type, the JIT can inline the call, which is not possible with
+ * {@link Method#invoke(Object, Object...)} or with a central <code>if/instanceof</code> cascade once there are many
+ * handlers and event types.  This works for all event types, including the ones defined in contribs.
+ * <p></p>
+ * If no such class can be generated (e.g. because the handler interface is not accessible from this package, or is loaded by
+ * a class loader that is not visible from here), the method is called by reflection, as before.
+ */
+/*package*/ final class EventDispatchers {
+
+	private static final Logger log = Logger.getLogger(EventDispatchers.class);
+
+	/*package*/ interface EventDispatcher {
+		/**
+		 * Passes the event to the handler.  Exceptions thrown by the handler are passed on unchanged.
+		 */
+		void dispatch(Event event) throws Exception;
+	}
+
+	private static final MethodType SAM_TYPE = MethodType.methodType(void.class, Event.class);
+
+	private EventDispatchers() {
+	}
+
+	/*package*/ static EventDispatcher create(final EventHandler handler, final Method method) {
+		EventDispatcher dispatcher = tryToGenerateDispatcher(handler, method);
+		if (dispatcher == null) {
+			dispatcher = new ReflectiveDispatcher(handler, method);
+		}
+		return dispatcher;
+	}
+
+	private static EventDispatcher tryToGenerateDispatcher(final EventHandler handler, final Method method) {
+		Class<?> handlerInterface = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+		if (method.getReturnType() != void.class || Modifier.isStatic(method.getModifiers())
+				|| !Event.class.isAssignableFrom(eventClass)
+				|| !isVisible(handlerInterface) || !isVisible(eventClass)) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "dispatch",
+					MethodType.methodType(EventDispatcher.class, handlerInterface), SAM_TYPE, target,
+					MethodType.methodType(void.class, eventClass));
+			return (EventDispatcher) site.getTarget().invoke(handler);
+		} catch (Throwable e) {
+			log.debug("could not generate dispatcher for " + method + ", using reflection instead: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The generated classes are defined in the class loader of this class, so they can only refer to classes that this
+	 * class loader can see.
+	 */
+	private static boolean isVisible(final Class<?> klass) {
+		try {
+			return Class.forName(klass.getName(), false, EventDispatchers.class.getClassLoader()) == klass;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static final class ReflectiveDispatcher implements EventDispatcher {
+		private final EventHandler handler;
+		private final Method method;
+
+		ReflectiveDispatcher(final EventHandler handler, final Method method) {
+			this.handler = handler;
+			this.method = method;
+		}
+
+		@Override
+		public void dispatch(final Event event) throws Exception {
+			try {
+				this.method.invoke(this.handler, event);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw (Exception) cause;
+			}
+		}
+	}
+
+}
@@ -13,6 +13,8 @@ public class EventsManagerModule extends AbstractModule {
 	public void install() {
 		if (getConfig().parallelEventHandling().getOneThreadPerHandler() != null && getConfig().parallelEventHandling().getOneThreadPerHandler()) {
 			bindEventsManager().to(ParallelEventsManager.class).asEagerSingleton();
+		} else if (getConfig().parallelEventHandling().getPerThreadBuffers() != null && getConfig().parallelEventHandling().getPerThreadBuffers()) {
+			bindEventsManager().to(RingBufferParallelEventsManagerImpl.class).asEagerSingleton();
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (getConfig().parallelEventHandling().getSynchronizeOnSimSteps() != null && getConfig().parallelEventHandling().getSynchronizeOnSimSteps()) {
 				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).asEagerSingleton();
@@ -0,0 +1,467 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.Attributes;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.  The events are created by the same code as in
+ * {@link EventsReaderXMLv1}, so the handlers get exactly the same events as when reading the corresponding xml file.
+ * Custom event mappers can be added in the same way.
+ * <p></p>
+ * The reader can be restricted to a time window and/or to the events that refer to some ids.  Blocks of the file that
+ * cannot contain such events are skipped without decompressing their events, so that e.g. reading the peak hour of a
+ * large file takes only a fraction of the time needed to read the whole file.
+ *
+ * @see EventWriterBinary for the format
+ * @see EventsUtils#readEvents(String, double, double, org.matsim.core.events.handler.EventHandler...)
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	private final EventsReaderXMLv1 delegate;
+
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private Set<String> ids = null;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt; toTime</code> are read.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * Only events that have at least one attribute whose value is in the given set are read, e.g. all events of some
+	 * persons, vehicles or links.  <code>null</code> reads all events.
+	 */
+	public void setIdFilter(final Set<String> ids) {
+		this.ids = ids == null ? null : new HashSet<>(ids);
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper<? extends Event> cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("reading binary events from " + filename);
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		BlockParser parser = new BlockParser(stream);
+		try {
+			parser.readHeader();
+			long blocks = 0;
+			long skippedBlocks = 0;
+			while (parser.readBlockHeader()) {
+				blocks++;
+				parser.readDictionaryPart();
+				boolean wanted = parser.maxTime >= this.fromTime && parser.minTime < this.toTime;
+				if (wanted && this.ids != null) {
+					wanted = parser.readIndexPart();
+				} else {
+					parser.skipPart();
+				}
+				if (wanted) {
+					parser.readEventPart();
+				} else {
+					parser.skipPart();
+					skippedBlocks++;
+				}
+			}
+			if (skippedBlocks > 0) {
+				log.info("skipped " + skippedBlocks + " of " + blocks + " blocks.");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			parser.inflater.end();
+		}
+	}
+
+	private static final class Schema {
+		final String type;
+		final String[] keys;
+
+		Schema(String type, String[] keys) {
+			this.type = type;
+			this.keys = keys;
+		}
+	}
+
+	private final class BlockParser {
+		private final DataInputStream in;
+		private final Inflater inflater = new Inflater();
+		private final List<String> dictionary = new ArrayList<>();
+		private final List<Schema> schemas = new ArrayList<>();
+
+		private int eventsInBlock;
+		private double minTime;
+		private double maxTime;
+		private final Set<Integer> requestedEntries = new HashSet<>();
+		private final Set<Integer> requestedHashes = new HashSet<>();
+		private boolean requestsDoubles = false;
+		private byte[] compressed = new byte[1024];
+		private byte[] data = new byte[1024];
+		private int pos;
+
+		BlockParser(InputStream stream) {
+			this.in = new DataInputStream(stream);
+			Set<String> ids = EventsReaderBinary.this.ids;
+			if (ids != null) {
+				for (String id : ids) {
+					this.requestedHashes.add(id.hashCode());
+					this.requestsDoubles |= EventWriterBinary.isWrittenAsDouble(id);
+				}
+			}
+		}
+
+		void readHeader() throws IOException {
+			int magic = this.in.readInt();
+			if (magic != EventWriterBinary.MAGIC) {
+				throw new IllegalArgumentException("not a binary events file.");
+			}
+			int version = this.in.readInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("unsupported version of binary events file: " + version);
+			}
+		}
+
+		/**
+		 * @return false if the end of the file is reached.
+		 */
+		boolean readBlockHeader() throws IOException {
+			this.eventsInBlock = this.in.readInt();
+			if (this.eventsInBlock == 0) {
+				return false;
+			}
+			this.minTime = this.in.readDouble();
+			this.maxTime = this.in.readDouble();
+			return true;
+		}
+
+		void readDictionaryPart() throws IOException {
+			inflatePart();
+			int newEntries = readVarInt();
+			Set<String> ids = EventsReaderBinary.this.ids;
+			for (int i = 0; i < newEntries; i++) {
+				String entry = readString();
+				if (ids != null && ids.contains(entry)) {
+					this.requestedEntries.add(this.dictionary.size());
+				}
+				this.dictionary.add(entry);
+			}
+			int newSchemas = readVarInt();
+			for (int i = 0; i < newSchemas; i++) {
+				String type = this.dictionary.get(readVarInt()).intern();
+				String[] keys = new String[readVarInt()];
+				for (int k = 0; k < keys.length; k++) {
+					keys[k] = this.dictionary.get(readVarInt()).intern();
+				}
+				this.schemas.add(new Schema(type, keys));
+			}
+		}
+
+		/**
+		 * @return true if the events of the block may refer to at least one of the requested ids, be it as a dictionary
+		 * entry, as a double or as a string that is not in the dictionary
+		 */
+		boolean readIndexPart() throws IOException {
+			inflatePart();
+			if (containsAny(this.requestedEntries)) {
+				return true;
+			}
+			boolean hasDoubleValues = readVarInt() != 0;
+			if (hasDoubleValues && this.requestsDoubles) {
+				return true;
+			}
+			return containsAny(this.requestedHashes);
+		}
+
+		/* reads a sorted, delta-encoded list; the rest of the list is not read once a value is found */
+		private boolean containsAny(Set<Integer> values) {
+			int count = readVarInt();
+			int value = 0;
+			for (int i = 0; i < count; i++) {
+				value += readVarInt();
+				if (values.contains(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void skipPart() throws IOException {
+			this.in.readInt(); // raw length
+			int compressedLength = this.in.readInt();
+			if (this.in.skipBytes(compressedLength) != compressedLength) {
+				throw new EOFException("binary events file is truncated.");
+			}
+		}
+
+		void readEventPart() throws IOException {
+			inflatePart();
+			int n = this.eventsInBlock;
+			int[] schemaOfEvent = new int[n];
+			int[] eventsPerSchema = new int[this.schemas.size()];
+			for (int i = 0; i < n; i++) {
+				int s = readVarInt();
+				schemaOfEvent[i] = s;
+				eventsPerSchema[s]++;
+			}
+			double[] times = new double[n];
+			long previousTime = 0;
+			for (int i = 0; i < n; i++) {
+				long code = readVarLong();
+				if ((code & 1) == 0) {
+					long zigZag = code >>> 1;
+					previousTime += (zigZag >>> 1) ^ -(zigZag & 1);
+					times[i] = previousTime;
+				} else {
+					times[i] = Double.longBitsToDouble(readLong());
+				}
+			}
+			String[][][] values = new String[eventsPerSchema.length][][];
+			for (int s = 0; s < eventsPerSchema.length; s++) {
+				int count = eventsPerSchema[s];
+				if (count > 0) {
+					Schema schema = this.schemas.get(s);
+					String[][] columns = new String[schema.keys.length][count];
+					for (String[] column : columns) {
+						for (int i = 0; i < count; i++) {
+							column[i] = readValue();
+						}
+					}
+					values[s] = columns;
+				}
+			}
+
+			int[] nextEventOfSchema = new int[eventsPerSchema.length];
+			EventAttributes atts = new EventAttributes();
+			double from = EventsReaderBinary.this.fromTime;
+			double to = EventsReaderBinary.this.toTime;
+			Set<String> ids = EventsReaderBinary.this.ids;
+			for (int i = 0; i < n; i++) {
+				int s = schemaOfEvent[i];
+				Schema schema = this.schemas.get(s);
+				atts.set(schema.keys, values[s], nextEventOfSchema[s]++);
+				if (times[i] >= from && times[i] < to && (ids == null || atts.hasValueIn(ids))) {
+					EventsReaderBinary.this.delegate.startEvent(times[i], schema.type, atts);
+				}
+			}
+		}
+
+		private void inflatePart() throws IOException {
+			int rawLength = this.in.readInt();
+			int compressedLength = this.in.readInt();
+			if (this.compressed.length < compressedLength) {
+				this.compressed = new byte[compressedLength];
+			}
+			if (this.data.length < rawLength) {
+				this.data = new byte[rawLength];
+			}
+			this.in.readFully(this.compressed, 0, compressedLength);
+			this.inflater.reset();
+			this.inflater.setInput(this.compressed, 0, compressedLength);
+			try {
+				int inflated = 0;
+				while (inflated < rawLength) {
+					int count = this.inflater.inflate(this.data, inflated, rawLength - inflated);
+					if (count == 0 && (this.inflater.finished() || this.inflater.needsInput())) {
+						throw new IOException("binary events file is corrupt.");
+					}
+					inflated += count;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			}
+			this.pos = 0;
+		}
+
+		private String readValue() {
+			long code = readVarLong();
+			switch ((int) (code & 3)) {
+			case EventWriterBinary.VALUE_DICTIONARY:
+				return this.dictionary.get((int) (code >>> 2));
+			case EventWriterBinary.VALUE_DOUBLE:
+				return Double.toString(Double.longBitsToDouble(readLong()));
+			case EventWriterBinary.VALUE_STRING:
+				return readString();
+			default:
+				return "null"; // the same as in xml files
+			}
+		}
+
+		private int readVarInt() {
+			return (int) readVarLong();
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[this.pos++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		private long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (this.data[this.pos++] & 0xFF);
+			}
+			return value;
+		}
+
+		private String readString() {
+			int length = readVarInt();
+			String s = new String(this.data, this.pos, length, StandardCharsets.UTF_8);
+			this.pos += length;
+			return s;
+		}
+	}
+
+	/**
+	 * The attributes of one event, i.e. one row of the columns of a schema.
+	 */
+	private static final class EventAttributes implements Attributes {
+		private String[] keys;
+		private String[][] columns;
+		private int row;
+
+		void set(String[] keys, String[][] columns, int row) {
+			this.keys = keys;
+			this.columns = columns;
+			this.row = row;
+		}
+
+		boolean hasValueIn(Set<String> set) {
+			for (String[] column : this.columns) {
+				if (set.contains(column[this.row])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int getLength() {
+			return this.keys.length;
+		}
+
+		@Override
+		public String getURI(int index) {
+			return "";
+		}
+
+		@Override
+		public String getLocalName(int index) {
+			return index < 0 || index >= this.keys.length ? null : this.keys[index];
+		}
+
+		@Override
+		public String getQName(int index) {
+			return getLocalName(index);
+		}
+
+		@Override
+		public String getType(int index) {
+			return index < 0 || index >= this.keys.length ? null : "CDATA";
+		}
+
+		@Override
+		public String getValue(int index) {
+			return index < 0 || index >= this.keys.length ? null : this.columns[index][this.row];
+		}
+
+		@Override
+		public int getIndex(String uri, String localName) {
+			return getIndex(localName);
+		}
+
+		@Override
+		public int getIndex(String qName) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i].equals(qName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(String uri, String localName) {
+			return getType(getIndex(localName));
+		}
+
+		@Override
+		public String getType(String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(String uri, String localName) {
+			return getValue(getIndex(localName));
+		}
+
+		@Override
+		public String getValue(String qName) {
+			return getValue(getIndex(qName));
+		}
+	}
+
+}
@@ -0,0 +1,419 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderXMLPipelined.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads xml events files in a pipeline of threads:
+ * <ol>
+ * <li>one thread reads (and decompresses) the file,</li>
+ * <li>one thread runs the SAX parser and collects the attributes of the events in batches,</li>
+ * <li>a pool of threads creates the event objects, one batch per task (with the same code as {@link EventsReaderXMLv1}),</li>
+ * <li>the calling thread passes the events to the events manager.</li>
+ * </ol>
+ * The stages are connected by bounded queues, so that memory consumption does not depend on the size of the file.  The
+ * batches are passed on in the order in which they were parsed, so the handlers get the events in exactly the same order
+ * and from the same (the calling) thread as with the single-threaded reader.
+ * <p></p>
+ * This is normally used through {@link MatsimEventsReader#setNumberOfThreads(int)}.
+ */
+public final class EventsReaderXMLPipelined implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(EventsReaderXMLPipelined.class);
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int CHUNKS_IN_QUEUE = 16;
+	private static final int EVENTS_PER_BATCH = 1000;
+
+	private static final byte[] END_OF_STREAM = new byte[0];
+	private static final Future<List<Event>> END_OF_EVENTS = new FinishedFuture(null);
+
+	private final EventsManager events;
+	private final int numberOfCreationThreads;
+	private final Map<String, CustomEventMapper<?>> customEventMappers = new HashMap<>();
+
+	/**
+	 * @param numberOfCreationThreads the number of threads that create the event objects; in addition, two threads for
+	 * reading and parsing are used.
+	 */
+	public EventsReaderXMLPipelined(final EventsManager events, final int numberOfCreationThreads) {
+		if (numberOfCreationThreads < 1) {
+			throw new IllegalArgumentException("at least one thread is needed to create the events, but got " + numberOfCreationThreads);
+		}
+		this.events = events;
+		this.numberOfCreationThreads = numberOfCreationThreads;
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper<?> cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to parse events from file " + filename + " with " + this.numberOfCreationThreads + " threads for event creation ...");
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		new Pipeline(stream).run();
+	}
+
+	private final class Pipeline {
+		private final InputStream stream;
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNKS_IN_QUEUE);
+		private final BlockingQueue<Future<List<Event>>> batches;
+		private final ExecutorService creationPool;
+		private final ThreadLocal<BatchCreator> creators = new ThreadLocal<>();
+		private volatile Throwable failure = null;
+		private volatile boolean stopped = false;
+
+		Pipeline(InputStream stream) {
+			this.stream = stream;
+			this.batches = new ArrayBlockingQueue<>(4 * EventsReaderXMLPipelined.this.numberOfCreationThreads);
+			this.creationPool = Executors.newFixedThreadPool(EventsReaderXMLPipelined.this.numberOfCreationThreads, new DaemonThreadFactory("EventsCreator"));
+		}
+
+		void run() {
+			Thread readerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					readChunks();
+				}
+			}, "EventsFileReader");
+			Thread parserThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					parse();
+				}
+			}, "EventsParser");
+			readerThread.setDaemon(true);
+			parserThread.setDaemon(true);
+			readerThread.start();
+			parserThread.start();
+			try {
+				dispatch();
+			} finally {
+				this.stopped = true;
+				readerThread.interrupt();
+				parserThread.interrupt();
+				this.creationPool.shutdownNow();
+			}
+		}
+
+		/* stage 1 */
+		private void readChunks() {
+			try {
+				while (true) {
+					byte[] chunk = new byte[CHUNK_SIZE];
+					int length = 0;
+					int count = 0;
+					while (length < CHUNK_SIZE && (count = this.stream.read(chunk, length, CHUNK_SIZE - length)) >= 0) {
+						length += count;
+					}
+					if (length > 0) {
+						this.chunks.put(length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length));
+					}
+					if (count < 0) {
+						this.chunks.put(END_OF_STREAM);
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				// the pipeline is stopped
+			} catch (Throwable e) {
+				this.failure = e;
+				try {
+					this.chunks.put(END_OF_STREAM);
+				} catch (InterruptedException e2) {
+					// the pipeline is stopped
+				}
+			}
+		}
+
+		/* stage 2 */
+		private void parse() {
+			try {
+				BatchingParser parser = new BatchingParser(this);
+				parser.parse(new ChunkInputStream(this));
+				parser.submitBatch();
+				this.batches.put(END_OF_EVENTS);
+			} catch (Throwable e) {
+				if (!this.stopped) {
+					if (this.failure == null) {
+						this.failure = e;
+					}
+					try {
+						this.batches.put(new FinishedFuture(null)); // tells the dispatcher to stop with the failure
+					} catch (InterruptedException e2) {
+						// the pipeline is stopped
+					}
+				}
+			}
+		}
+
+		/* stage 3, in the pool */
+		void submit(final List<Attributes> batch) throws InterruptedException {
+			this.batches.put(this.creationPool.submit(new Callable<List<Event>>() {
+				@Override
+				public List<Event> call() {
+					BatchCreator creator = Pipeline.this.creators.get();
+					if (creator == null) {
+						creator = new BatchCreator(EventsReaderXMLPipelined.this.customEventMappers);
+						Pipeline.this.creators.set(creator);
+					}
+					return creator.create(batch);
+				}
+			}));
+		}
+
+		/* stage 4, in the calling thread */
+		private void dispatch() {
+			try {
+				while (true) {
+					Future<List<Event>> future = this.batches.take();
+					if (future == END_OF_EVENTS) {
+						return;
+					}
+					List<Event> batch = future.get();
+					if (batch == null) {
+						throw new RuntimeException("problem reading events", this.failure);
+					}
+					for (Event event : batch) {
+						EventsReaderXMLPipelined.this.events.processEvent(event);
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("problem creating events", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Passes the chunks of the reader thread to the SAX parser.
+	 */
+	private static final class ChunkInputStream extends InputStream {
+		private final Pipeline pipeline;
+		private byte[] chunk = null;
+		private int pos = 0;
+
+		ChunkInputStream(Pipeline pipeline) {
+			this.pipeline = pipeline;
+		}
+
+		private boolean nextChunk() throws IOException {
+			if (this.chunk == END_OF_STREAM) {
+				return false;
+			}
+			try {
+				this.chunk = this.pipeline.chunks.take();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			this.pos = 0;
+			if (this.chunk == END_OF_STREAM) {
+				if (this.pipeline.failure != null) {
+					throw new IOException(this.pipeline.failure);
+				}
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if ((this.chunk == null || this.pos == this.chunk.length) && !nextChunk()) {
+				return -1;
+			}
+			return this.chunk[this.pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if ((this.chunk == null || this.pos == this.chunk.length) && !nextChunk()) {
+				return -1;
+			}
+			int count = Math.min(len, this.chunk.length - this.pos);
+			System.arraycopy(this.chunk, this.pos, b, off, count);
+			this.pos += count;
+			return count;
+		}
+	}
+
+	/**
+	 * Copies the attributes of the event tags and hands them on in batches.
+	 */
+	private static final class BatchingParser extends MatsimXmlParser {
+		private final Pipeline pipeline;
+		private List<Attributes> batch = new ArrayList<>(EVENTS_PER_BATCH);
+
+		BatchingParser(Pipeline pipeline) {
+			this.pipeline = pipeline;
+			this.setValidating(false); // events-files have no DTD, thus they cannot validate
+		}
+
+		@Override
+		public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+			if (EventsReaderXMLv1.EVENT.equals(name)) {
+				this.batch.add(new AttributesImpl(atts));
+				if (this.batch.size() == EVENTS_PER_BATCH) {
+					submitBatch();
+				}
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+			// ignore characters, see EventsReaderXMLv1
+		}
+
+		@Override
+		public void endTag(final String name, final String content, final Stack<String> context) {
+		}
+
+		void submitBatch() {
+			if (this.batch.isEmpty()) {
+				return;
+			}
+			try {
+				this.pipeline.submit(this.batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.batch = new ArrayList<>(EVENTS_PER_BATCH);
+		}
+	}
+
+	/**
+	 * Creates the events of a batch.  Every thread of the pool has its own instance.
+	 */
+	private static final class BatchCreator {
+		private final EventsReaderXMLv1 reader;
+		private List<Event> created;
+
+		@SuppressWarnings({ "rawtypes" })
+		BatchCreator(Map<String, CustomEventMapper<?>> customEventMappers) {
+			this.reader = new EventsReaderXMLv1(event -> this.created.add(event));
+			for (Map.Entry<String, CustomEventMapper<?>> e : customEventMappers.entrySet()) {
+				this.reader.addCustomEventMapper(e.getKey(), (CustomEventMapper) e.getValue());
+			}
+		}
+
+		List<Event> create(List<Attributes> batch) {
+			this.created = new ArrayList<>(batch.size());
+			for (Attributes atts : batch) {
+				this.reader.startTag(EventsReaderXMLv1.EVENT, atts, null);
+			}
+			List<Event> result = this.created;
+			this.created = null;
+			return result;
+		}
+	}
+
+	private static final class FinishedFuture implements Future<List<Event>> {
+		private final List<Event> value;
+
+		FinishedFuture(List<Event> value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			return true;
+		}
+
+		@Override
+		public List<Event> get() {
+			return this.value;
+		}
+
+		@Override
+		public List<Event> get(long timeout, java.util.concurrent.TimeUnit unit) {
+			return this.value;
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, this.prefix + "-" + this.count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -1,9 +1,16 @@
 package org.matsim.core.events;
 
+import java.util.Locale;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.Injector;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
 
 public class EventsUtils {
 
@@ -26,6 +33,8 @@ public class EventsUtils {
     		return events;
     	} else if (events instanceof ParallelEventsManager) {
     		return events;
+    	} else if (events instanceof RingBufferParallelEventsManagerImpl) {
+    		return events;
     	}
     	else if (events instanceof SynchronizedEventsManagerImpl) {
     		return events;
@@ -33,4 +42,39 @@ public class EventsUtils {
     		return new SynchronizedEventsManagerImpl(events);
     	}
     }
-}
\ No newline at end of file
+
+    /**
+     * Passes the events with <code>fromTime &lt;= time &lt; toTime</code> of the given events file to the handlers.
+     * <p></p>
+     * Binary events files (see {@link EventWriterBinary}) contain an index, so only the part of the file around the time
+     * window is decoded.  Xml files have to be parsed completely.
+     */
+    public static void readEvents(final String filename, final double fromTime, final double toTime, final EventHandler... handlers) {
+        final EventsManager events = createEventsManager();
+        for (EventHandler handler : handlers) {
+            events.addHandler(handler);
+        }
+        if (filename.toLowerCase(Locale.ROOT).endsWith(EventWriterBinary.FILE_ENDING)) {
+            EventsReaderBinary reader = new EventsReaderBinary(events);
+            reader.setTimeWindow(fromTime, toTime);
+            reader.readFile(filename);
+        } else {
+            Logger.getLogger(EventsUtils.class).warn("reading a time window from " + filename + " requires parsing the whole file. "
+                    + "Consider converting it to the binary format with org.matsim.run.ConvertEventsFile.");
+            EventsManager allEvents = createEventsManager();
+            allEvents.addHandler(new BasicEventHandler() {
+                @Override
+                public void handleEvent(Event event) {
+                    if (event.getTime() >= fromTime && event.getTime() < toTime) {
+                        events.processEvent(event);
+                    }
+                }
+
+                @Override
+                public void reset(int iteration) {
+                }
+            });
+            new MatsimEventsReader(allEvents).readFile(filename);
+        }
+    }
+}
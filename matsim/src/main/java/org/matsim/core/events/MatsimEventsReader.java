@@ -27,6 +27,7 @@ import java.util.Stack;
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -41,6 +42,7 @@ public class MatsimEventsReader implements MatsimReader {
 
 	private final static Logger log = Logger.getLogger(MatsimEventsReader.class);
 	private final EventsManager events;
+	private int numberOfThreads = 1;
 
 	/**
 	 * Creates a new reader for MATSim events files.
@@ -51,6 +53,16 @@ public class MatsimEventsReader implements MatsimReader {
 		this.events = events;
 	}
 
+	/**
+	 * With more than one thread, xml events files are read with {@link EventsReaderXMLPipelined}, which reads, parses
+	 * and creates the events in separate threads.  The handlers are still called from the calling thread, in the order
+	 * of the file.  Two of the threads are used for reading and parsing, the remaining ones (at least one) for the
+	 * creation of the event objects.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Parses the specified events file.
 	 *
@@ -59,8 +71,12 @@ public class MatsimEventsReader implements MatsimReader {
 	@Override
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
-		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
+		if ((lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) && this.numberOfThreads > 1) {
+			createPipelinedReader().readFile(filename);
+		} else if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(EventWriterBinary.FILE_ENDING)) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -69,7 +85,15 @@ public class MatsimEventsReader implements MatsimReader {
 	}
 
 	public void readStream(final InputStream stream) {
-		new XmlEventsReader(this.events).parse(stream);
+		if (this.numberOfThreads > 1) {
+			createPipelinedReader().readStream(stream);
+		} else {
+			new XmlEventsReader(this.events).parse(stream);
+		}
+	}
+
+	private EventsReaderXMLPipelined createPipelinedReader() {
+		return new EventsReaderXMLPipelined(this.events, Math.max(1, this.numberOfThreads - 2));
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
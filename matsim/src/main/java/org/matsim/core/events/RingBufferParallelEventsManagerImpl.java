@@ -0,0 +1,421 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that handles the events in separate threads without any locks on the way from the
+ * mobsim to the handlers.
+ * <p></p>
+ * Every thread that creates events writes them into its own, preallocated ring buffer.  Every event gets a sequence
+ * number from a global counter (an atomic increment, no lock).  The events handling threads, each of which serves a subset
+ * of the handlers, read all ring buffers and process the events in the order of their sequence numbers, i.e. in the order
+ * in which they were created, exactly as with a single shared queue.  A ring buffer slot is re-used once all events handling
+ * threads have read it; if a ring buffer is full, the thread that creates events waits.
+ * <p></p>
+ * With <code>synchronizeOnSimSteps</code>, {@link #afterSimStep(double)} waits until all events of the time step have been
+ * processed (as {@link SimStepParallelEventsManagerImpl}); otherwise the events are processed while the mobsim continues.
+ * <p></p>
+ * For every events handling thread, the number of processed events per second and the queue depth (number of events
+ * created but not yet processed by that thread, sampled at the end of every time step) are logged after the iteration.
+ * <p></p>
+ * Note that an event handler that creates more than one ring buffer full of events within one call to handleEvent will
+ * block forever.
+ */
+class RingBufferParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferParallelEventsManagerImpl.class);
+
+	/*package*/ static final int DEFAULT_BUFFER_CAPACITY = 1 << 14;
+
+	private static final int SPINS_BEFORE_YIELD = 100;
+	private static final int YIELDS_BEFORE_PARK = 1000;
+	private static final long PARK_NANOS = 20000;
+	// busy spinning only makes sense if the thread we wait for can run at the same time
+	private static final boolean SPINNING = Runtime.getRuntime().availableProcessors() > 1;
+
+	private final int numOfThreads;
+	private final int bufferCapacity;
+	private final boolean synchronizeOnSimSteps;
+
+	private final EventsManagerImpl delegate = new EventsManagerImpl();
+	private final EventsManagerImpl[] eventsManagers;
+	private final List<List<EventHandler>> handlersPerThread = new ArrayList<>();
+	private int handlerCount = 0;
+
+	/*
+	 * Everything that belongs to one iteration; null while the events are processed in the calling thread, i.e. outside
+	 * of initProcessing() / finishProcessing().
+	 */
+	private volatile Round round = null;
+
+	private final ThreadLocal<ProducerBuffer> producerBuffers = new ThreadLocal<>();
+
+	@Inject
+	RingBufferParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, DEFAULT_BUFFER_CAPACITY,
+				config.getSynchronizeOnSimSteps() == null || config.getSynchronizeOnSimSteps());
+	}
+
+	/**
+	 * @param numOfThreads number of events handling threads
+	 * @param bufferCapacity capacity of the ring buffer of every thread that creates events; rounded up to a power of two
+	 * @param synchronizeOnSimSteps if all events of a time step are processed before {@link #afterSimStep(double)} returns
+	 */
+	public RingBufferParallelEventsManagerImpl(int numOfThreads, int bufferCapacity, boolean synchronizeOnSimSteps) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be positive, but is " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		this.bufferCapacity = Integer.highestOneBit(Math.max(bufferCapacity - 1, 1)) << 1;
+		this.synchronizeOnSimSteps = synchronizeOnSimSteps;
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			this.eventsManagers[i] = new EventsManagerImpl();
+			this.handlersPerThread.add(new ArrayList<EventHandler>());
+		}
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		Round r = this.round;
+		if (r == null) {
+			this.delegate.processEvent(event);
+			return;
+		}
+		ProducerBuffer buffer = this.producerBuffers.get();
+		if (buffer == null || buffer.round != r) {
+			// first event of this thread in this iteration
+			buffer = new ProducerBuffer(r, this.bufferCapacity, this.numOfThreads);
+			r.buffers.add(buffer);
+			this.producerBuffers.set(buffer);
+		}
+		buffer.add(event);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+		int i = this.handlerCount % this.numOfThreads;
+		this.eventsManagers[i].addHandler(handler);
+		this.handlersPerThread.get(i).add(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.eventsManagers[i].removeHandler(handler);
+			this.handlersPerThread.get(i).remove(handler);
+		}
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		Round r = new Round(this.numOfThreads);
+		for (int i = 0; i < this.numOfThreads; i++) {
+			r.consumers[i] = new Consumer(r, i, this.eventsManagers[i]);
+			Thread thread = new Thread(r.consumers[i]);
+			thread.setDaemon(true);
+			thread.setName(RingBufferParallelEventsManagerImpl.class.getSimpleName() + "_" + i);
+			r.threads[i] = thread;
+		}
+		this.round = r;
+		for (Thread thread : r.threads) thread.start();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		Round r = this.round;
+		if (r == null) {
+			this.delegate.afterSimStep(time);
+			return;
+		}
+		long created = r.sequence.get();
+		for (Consumer consumer : r.consumers) {
+			consumer.sampleQueueDepth(created);
+		}
+		if (this.synchronizeOnSimSteps) {
+			waitUntilAllProcessed(r);
+		} else {
+			r.checkException();
+		}
+	}
+
+	/*
+	 * In some cases events are created after this method has been called.  These are processed in the calling thread.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		Round r = this.round;
+		if (r != null) {
+			Throwable throwable = null;
+			try {
+				waitUntilAllProcessed(r);
+			} catch (RuntimeException e) {
+				throwable = e;
+			}
+			r.stopped = true;
+			for (Thread thread : r.threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			this.round = null;
+			logStatistics(r);
+			if (throwable != null) {
+				this.delegate.finishProcessing();
+				for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+				throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+			}
+		}
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+	}
+
+	/*
+	 * Event handlers may create additional events, so we loop until no new events are created.
+	 */
+	private static void waitUntilAllProcessed(Round r) {
+		long target;
+		do {
+			target = r.sequence.get();
+			for (int i = 0; i < r.consumers.length; i++) {
+				Consumer consumer = r.consumers[i];
+				if (consumer.processed < target) {
+					// the thread may be parked since it ran out of events; wake it up rather than waiting for the park to time out
+					LockSupport.unpark(r.threads[i]);
+				}
+				int idle = 0;
+				while (consumer.processed < target) {
+					r.checkException();
+					idle = backOff(idle);
+				}
+			}
+			r.checkException();
+		} while (r.sequence.get() != target);
+	}
+
+	private void logStatistics(Round r) {
+		double seconds = (System.nanoTime() - r.startNanos) / 1e9;
+		log.info("processed " + r.sequence.get() + " events in " + seconds + " seconds with " + this.numOfThreads + " events handling thread(s).");
+		for (Consumer consumer : r.consumers) {
+			StringBuilder handlers = new StringBuilder();
+			for (EventHandler handler : this.handlersPerThread.get(consumer.index)) {
+				handlers.append(' ').append(handler.getClass().getSimpleName());
+			}
+			log.info("events handling thread #" + consumer.index + ":" + handlers
+					+ "; events/sec: " + (seconds > 0 ? (long) (consumer.processed / seconds) : consumer.processed)
+					+ "; queue depth: avg " + (consumer.depthSamples > 0 ? consumer.depthSum / consumer.depthSamples : 0)
+					+ ", max " + consumer.maxDepth);
+		}
+	}
+
+	/**
+	 * Spins first, then yields, then parks for a short time.
+	 *
+	 * @return the new idle count
+	 */
+	private static int backOff(int idle) {
+		if (SPINNING && idle < SPINS_BEFORE_YIELD) {
+			// busy spin
+		} else if (idle < SPINS_BEFORE_YIELD + YIELDS_BEFORE_PARK) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return idle + 1;
+	}
+
+	private static final class Round {
+		private final AtomicLong sequence = new AtomicLong(0);
+		private final CopyOnWriteArrayList<ProducerBuffer> buffers = new CopyOnWriteArrayList<>();
+		private final Consumer[] consumers;
+		private final Thread[] threads;
+		private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+		private final long startNanos = System.nanoTime();
+		private volatile boolean stopped = false;
+
+		Round(int numOfThreads) {
+			this.consumers = new Consumer[numOfThreads];
+			this.threads = new Thread[numOfThreads];
+		}
+
+		void checkException() {
+			Throwable throwable = this.hadException.get();
+			if (throwable != null) {
+				throw new RuntimeException("Exception while processing events.", throwable);
+			}
+		}
+	}
+
+	/*
+	 * Single producer (the thread that owns it), several consumers (all events handling threads).
+	 */
+	private static final class ProducerBuffer {
+		private final Round round;
+		private final Event[] events;
+		private final long[] sequences;
+		private final int mask;
+		// per consumer: number of events of this buffer that it has read
+		private final AtomicLongArray consumed;
+		// number of events that were written into this buffer; the volatile write publishes the event
+		private volatile long published = 0;
+		// only used by the producer
+		private long minConsumed = 0;
+
+		ProducerBuffer(Round round, int capacity, int numOfConsumers) {
+			this.round = round;
+			this.events = new Event[capacity];
+			this.sequences = new long[capacity];
+			this.mask = capacity - 1;
+			this.consumed = new AtomicLongArray(numOfConsumers);
+		}
+
+		void add(Event event) {
+			long tail = this.published;
+			if (tail - this.minConsumed >= this.events.length) {
+				int idle = 0;
+				while (tail - (this.minConsumed = computeMinConsumed()) >= this.events.length) {
+					this.round.checkException();
+					idle = backOff(idle);
+				}
+			}
+			int slot = (int) (tail & this.mask);
+			// the sequence number is taken only after there is space, so that the consumers never wait for a full buffer
+			this.sequences[slot] = this.round.sequence.incrementAndGet();
+			this.events[slot] = event;
+			this.published = tail + 1;
+		}
+
+		private long computeMinConsumed() {
+			long min = Long.MAX_VALUE;
+			for (int i = 0; i < this.consumed.length(); i++) {
+				min = Math.min(min, this.consumed.get(i));
+			}
+			return min;
+		}
+	}
+
+	private static final class Consumer implements Runnable {
+		private final Round round;
+		private final int index;
+		private final EventsManager eventsManager;
+		// sequence number of the last processed event
+		private volatile long processed = 0;
+
+		// statistics; only written by the thread calling afterSimStep
+		private long depthSum = 0;
+		private long depthSamples = 0;
+		private long maxDepth = 0;
+
+		Consumer(Round round, int index, EventsManager eventsManager) {
+			this.round = round;
+			this.index = index;
+			this.eventsManager = eventsManager;
+		}
+
+		void sampleQueueDepth(long created) {
+			long depth = created - this.processed;
+			this.depthSum += depth;
+			this.depthSamples++;
+			this.maxDepth = Math.max(this.maxDepth, depth);
+		}
+
+		@Override
+		public void run() {
+			try {
+				long expected = 1;
+				int lastBuffer = 0;
+				int idle = 0;
+				while (true) {
+					List<ProducerBuffer> buffers = this.round.buffers;
+					int found = -1;
+					// the next event is often in the same buffer as the last one:
+					if (lastBuffer < buffers.size() && hasNext(buffers.get(lastBuffer), expected)) {
+						found = lastBuffer;
+					} else {
+						for (int i = 0; i < buffers.size(); i++) {
+							if (hasNext(buffers.get(i), expected)) {
+								found = i;
+								break;
+							}
+						}
+					}
+					if (found < 0) {
+						if (this.round.stopped && this.round.sequence.get() < expected) {
+							break;
+						}
+						idle = backOff(idle);
+						continue;
+					}
+					idle = 0;
+					lastBuffer = found;
+					ProducerBuffer buffer = buffers.get(found);
+					long position = buffer.consumed.get(this.index);
+					Event event = buffer.events[(int) (position & buffer.mask)];
+					buffer.consumed.lazySet(this.index, position + 1);
+					this.eventsManager.processEvent(event);
+					this.processed = expected;
+					expected++;
+				}
+			} catch (Throwable e) {
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				this.round.hadException.compareAndSet(null, e);
+				return;
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+
+		private boolean hasNext(ProducerBuffer buffer, long expected) {
+			long position = buffer.consumed.get(this.index);
+			return position < buffer.published && buffer.sequences[(int) (position & buffer.mask)] == expected;
+		}
+	}
+
+}
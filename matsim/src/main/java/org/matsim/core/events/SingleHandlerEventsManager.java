@@ -20,7 +20,6 @@
 
 package org.matsim.core.events;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,45 +27,9 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
-import org.matsim.api.core.v01.events.ActivityEndEvent;
-import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
-import org.matsim.api.core.v01.events.LinkEnterEvent;
-import org.matsim.api.core.v01.events.LinkLeaveEvent;
-import org.matsim.api.core.v01.events.PersonArrivalEvent;
-import org.matsim.api.core.v01.events.PersonDepartureEvent;
-import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
-import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
-import org.matsim.api.core.v01.events.PersonMoneyEvent;
-import org.matsim.api.core.v01.events.PersonStuckEvent;
-import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
-import org.matsim.api.core.v01.events.VehicleAbortsEvent;
-import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
-import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
-import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
-import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
-import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
-import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
-import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
-import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
-import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
-import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
-import org.matsim.core.api.experimental.events.handler.TeleportationArrivalEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
-import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.EventDispatchers.EventDispatcher;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -82,32 +45,12 @@ public class SingleHandlerEventsManager implements EventsManager {
 	/*
 	 * This cannot be just a map<Class, Method> since we need to differentiate between
 	 * a) Class is handled the first time, therefore we have to check whether the Handler can handle it (no HandlerInfo object)
-	 * b) Class cannot be handled (HandlerInfo with empty Method field)
+	 * b) Class cannot be handled (HandlerInfo with empty dispatcher field)
 	 */
 	private final Map<Class<?>, HandlerInfo> methodToHandle = new HashMap<Class<?>, HandlerInfo>();
 
 	private final EventHandler eventHandler;
 	
-	private final boolean isLeaveLinkHandler;
-	private final boolean isLinkEnterHandler; 
-	private final boolean isWait2LinkHandler;
-	private final boolean isPersonArrivalHandler;
-	private final boolean isPersonDepatureHandler;
-	private final boolean isActivityEndHandler;
-	private final boolean isActivityStartHandler;
-	private final boolean isTeleportationArrivalHandler;
-	private final boolean isTransitDriverStartsHandler;
-	private final boolean isPersonStuckHandler;
-	private final boolean isPersonMoneyHandler;
-	private final boolean isAgentWaitingForPtHandler;
-	private final boolean isPersonEntersVehicleHandler;
-	private final boolean isPersonLeavesVehicleHandler;
-	private final boolean isVehicleDepartsAtFacilityHandler;
-	private final boolean isVehicleArrivesAtFacilityHandler;
-	private final boolean isVehicleLeavesTrafficHandler;
-	private final boolean isVehicleAbortsHandler;
-	private final boolean isBasicEventHandler;
-	
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
@@ -116,63 +59,6 @@ public class SingleHandlerEventsManager implements EventsManager {
 	public SingleHandlerEventsManager(EventHandler eventHandler) {
 		this.eventHandler = eventHandler;
 		
-		if (this.eventHandler instanceof LinkLeaveEventHandler) this.isLeaveLinkHandler = true;
-		else this.isLeaveLinkHandler = false;
-		
-		if (this.eventHandler instanceof LinkEnterEventHandler) this.isLinkEnterHandler = true;
-		else this.isLinkEnterHandler = false;
-
-		if (this.eventHandler instanceof VehicleEntersTrafficEventHandler) this.isWait2LinkHandler = true;
-		else this.isWait2LinkHandler = false;
-
-		if (this.eventHandler instanceof PersonArrivalEventHandler) this.isPersonArrivalHandler = true;
-		else this.isPersonArrivalHandler = false;
-
-		if (this.eventHandler instanceof PersonDepartureEventHandler) this.isPersonDepatureHandler = true;
-		else this.isPersonDepatureHandler = false;
-
-		if (this.eventHandler instanceof ActivityEndEventHandler) this.isActivityEndHandler = true;
-		else this.isActivityEndHandler = false;
-
-		if (this.eventHandler instanceof ActivityStartEventHandler) this.isActivityStartHandler = true;
-		else this.isActivityStartHandler = false;
-
-		if (this.eventHandler instanceof TeleportationArrivalEventHandler) this.isTeleportationArrivalHandler = true;
-		else this.isTeleportationArrivalHandler = false;
-		
-		if (this.eventHandler instanceof TransitDriverStartsEventHandler) this.isTransitDriverStartsHandler = true;
-		else this.isTransitDriverStartsHandler = false;
-
-		if (this.eventHandler instanceof PersonStuckEventHandler) this.isPersonStuckHandler = true;
-		else this.isPersonStuckHandler = false;
-
-		if (this.eventHandler instanceof PersonMoneyEventHandler) this.isPersonMoneyHandler = true;
-		else this.isPersonMoneyHandler = false;
-
-		if (this.eventHandler instanceof AgentWaitingForPtEventHandler) this.isAgentWaitingForPtHandler = true;
-		else this.isAgentWaitingForPtHandler = false;
-
-		if (this.eventHandler instanceof PersonEntersVehicleEventHandler) this.isPersonEntersVehicleHandler = true;
-		else this.isPersonEntersVehicleHandler = false;
-
-		if (this.eventHandler instanceof PersonLeavesVehicleEventHandler) this.isPersonLeavesVehicleHandler = true;
-		else this.isPersonLeavesVehicleHandler = false;
-
-		if (this.eventHandler instanceof VehicleDepartsAtFacilityEventHandler) this.isVehicleDepartsAtFacilityHandler = true;
-		else this.isVehicleDepartsAtFacilityHandler = false;
-
-		if (this.eventHandler instanceof VehicleArrivesAtFacilityEventHandler) this.isVehicleArrivesAtFacilityHandler = true;
-		else this.isVehicleArrivesAtFacilityHandler = false;
-		
-		if (this.eventHandler instanceof VehicleLeavesTrafficEventHandler) this.isVehicleLeavesTrafficHandler = true;
-		else this.isVehicleLeavesTrafficHandler = false;
-
-		if (this.eventHandler instanceof VehicleAbortsEventHandler) this.isVehicleAbortsHandler = true;
-		else this.isVehicleAbortsHandler = false;
-		
-		if (this.eventHandler instanceof BasicEventHandler) this.isBasicEventHandler = true;
-		else this.isBasicEventHandler = false;
-
 		// identify the implemented Handler Interfaces
 		Set<Class<?>> addedHandlers = new HashSet<Class<?>>();
 		Class<?> test = eventHandler.getClass();
@@ -191,9 +77,9 @@ public class SingleHandlerEventsManager implements EventsManager {
 	}
 	
 	static private class HandlerInfo {
-		protected final Method method;
-		protected HandlerInfo(final Method method) {
-			this.method = method;
+		protected final EventDispatcher dispatcher;
+		protected HandlerInfo(final EventDispatcher dispatcher) {
+			this.dispatcher = dispatcher;
 		}
 	}
 
@@ -258,52 +144,47 @@ public class SingleHandlerEventsManager implements EventsManager {
 	}
 	
 	private void computeEvent(final Event event) {
-		if (callHandlerFast(event)) return;
+		EventDispatcher dispatcher = this.getHandlersForClass(event.getClass());
+		if (dispatcher == null) return;
 		try {
-			Method method = this.getHandlersForClass(event.getClass());
-			if (method != null) method.invoke(this.eventHandler, event);
-		} catch (IllegalArgumentException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		} catch (InvocationTargetException e) {
+			dispatcher.dispatch(event);
+		} catch (Exception e) {
 			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
 		}
 	}
 	
-	private Method getHandlersForClass(final Class<?> eventClass) {
+	private EventDispatcher getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		
 		HandlerInfo info = this.methodToHandle.get(eventClass);
-		if (info != null) return info.method;
+		if (info != null) return info.dispatcher;
 
-		Method method = null;
+		EventDispatcher dispatcher = null;
 		
 		// first search in class-hierarchy
 		while (klass != Object.class) {
 			info = this.methodToHandle.get(klass);
 			if (info != null) {
-				method = info.method;
+				dispatcher = info.dispatcher;
 				break;
 			}
 			klass = klass.getSuperclass();
 		}
 		
 		// second search in implemented interfaces if no method was found yet
-		if (method == null) {
+		if (dispatcher == null) {
 			for (Class<?> intfc : getAllInterfaces(eventClass)) {
 				info = this.methodToHandle.get(intfc);
 				if (info != null) {
-					method = info.method;
+					dispatcher = info.dispatcher;
 					break;
 				}
 			}			
 		}
 
-		info = new HandlerInfo(method);
-		this.methodToHandle.put(eventClass, new HandlerInfo(info.method));
+		this.methodToHandle.put(eventClass, new HandlerInfo(dispatcher));
 		
-		return method;
+		return dispatcher;
 	}
 	
 	private void addHandlerInterfaces(final Class<?> handlerClass) {
@@ -315,7 +196,7 @@ public class SingleHandlerEventsManager implements EventsManager {
 					Class<?> eventClass = params[0];
 					log.info("    > " + eventClass.getName());
 					if (!this.methodToHandle.containsKey(eventClass)) {
-						HandlerInfo info = new HandlerInfo(method);
+						HandlerInfo info = new HandlerInfo(EventDispatchers.create(this.eventHandler, method));
 						this.methodToHandle.put(eventClass, info);
 					}
 				}
@@ -338,68 +219,4 @@ public class SingleHandlerEventsManager implements EventsManager {
 		}
 		return intfs;
 	}
-
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Event ev) {
-		Class<?> klass = ev.getClass(); 
-		if (this.isLeaveLinkHandler && klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler) this.eventHandler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (this.isLinkEnterHandler && klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler) this.eventHandler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (this.isWait2LinkHandler && klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler) this.eventHandler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (this.isPersonArrivalHandler && klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler) this.eventHandler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (this.isPersonDepatureHandler && klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler) this.eventHandler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (this.isActivityEndHandler && klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler) this.eventHandler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (this.isActivityStartHandler && klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler) this.eventHandler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (this.isTeleportationArrivalHandler && klass == TeleportationArrivalEvent.class) {
-			((TeleportationArrivalEventHandler) this.eventHandler).handleEvent((TeleportationArrivalEvent)ev);
-			return true;
-		} else if (this.isTransitDriverStartsHandler && klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) this.eventHandler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (this.isPersonStuckHandler && klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler) this.eventHandler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (this.isPersonMoneyHandler && klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler) this.eventHandler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (this.isAgentWaitingForPtHandler && klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler) this.eventHandler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (this.isPersonEntersVehicleHandler && klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler) this.eventHandler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (this.isPersonLeavesVehicleHandler && klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler) this.eventHandler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (this.isVehicleDepartsAtFacilityHandler && klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) this.eventHandler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (this.isVehicleArrivesAtFacilityHandler && klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) this.eventHandler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (this.isVehicleLeavesTrafficHandler && klass == VehicleLeavesTrafficEvent.class) {
-			((VehicleLeavesTrafficEventHandler) this.eventHandler).handleEvent((VehicleLeavesTrafficEvent) ev);
-			return true;
-		} else if (this.isVehicleAbortsHandler && klass == VehicleAbortsEvent.class) {
-			((VehicleAbortsEventHandler) this.eventHandler).handleEvent((VehicleAbortsEvent) ev);
-			return true;
-		} else if (this.isBasicEventHandler && klass == Event.class) {
-			((BasicEventHandler) this.eventHandler).handleEvent(ev);
-			return true;
-		}
-		return false;
-	}
-}
\ No newline at end of file
+}
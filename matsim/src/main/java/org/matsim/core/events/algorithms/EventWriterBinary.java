@@ -0,0 +1,491 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format that can be read much faster than xml, see
+ * {@link org.matsim.core.events.EventsReaderBinary}.  {@link org.matsim.core.events.MatsimEventsReader} recognizes
+ * such files by the ending {@value #FILE_ENDING}.
+ * <p></p>
+ * The events are written in blocks of (by default) {@value #DEFAULT_EVENTS_PER_BLOCK} events.  Within a block,
+ * <ul>
+ * <li>all strings (event types, attribute names, and attribute values such as ids) are replaced by indices into a dictionary
+ * that grows over the whole file; every block only contains the dictionary entries that it adds;</li>
+ * <li>the times are delta-encoded;</li>
+ * <li>the attribute values are stored column by column, separately for every "schema" (event type plus list of attribute names),
+ * so that similar values are next to each other;</li>
+ * <li>the dictionary part and the event part are compressed separately with {@link Deflater}.  The dictionary part can thus be
+ * read without decoding the events, e.g. to jump to a later block.</li>
+ * </ul>
+ * Every block also serves as an index entry: it starts with the earliest and the latest time of its events, and has a (separately
+ * compressed) index of all attribute values of its events: the sorted list of the dictionary entries they refer to, whether
+ * there are values stored as doubles, and the sorted hash codes of the values that are stored as strings outside of the
+ * dictionary.  Readers can thus skip blocks that are outside of a time window or that do not contain a given id, see
+ * {@link org.matsim.core.events.EventsReaderBinary#setTimeWindow(double, double)}.
+ * <p></p>
+ * The file layout is:
+ * <pre>
+ * int MAGIC, int VERSION
+ * per block: int numberOfEvents (&gt; 0), double minTime, double maxTime,
+ *            int rawLength, int compressedLength, byte[] dictionary part,
+ *            int rawLength, int compressedLength, byte[] index part,
+ *            int rawLength, int compressedLength, byte[] event part
+ * int 0
+ * </pre>
+ * Reading a file gives the same events (with the same attributes in the same order) as reading the xml file that
+ * {@link EventWriterXML} writes for the same events.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final String FILE_ENDING = ".events.bin";
+
+	public static final int MAGIC = 0x4D455642; // "MEVB"
+	public static final int VERSION = 2;
+
+	public static final int DEFAULT_EVENTS_PER_BLOCK = 1 << 16;
+
+	/** values of attributes are encoded as a varint; the two lowest bits say what follows */
+	public static final int VALUE_NULL = 0;
+	public static final int VALUE_DICTIONARY = 1; // index in the upper bits
+	public static final int VALUE_DOUBLE = 2; // 8 bytes follow
+	public static final int VALUE_STRING = 3; // string follows, not added to the dictionary
+
+	/* strings that are longer than this are not added to the dictionary, they are hardly ever repeated */
+	private static final int MAX_DICTIONARY_STRING_LENGTH = 64;
+	private static final int MAX_DICTIONARY_SIZE = 1 << 26;
+
+	private static final String ATTRIBUTE_TIME = "time";
+	private static final String ATTRIBUTE_TYPE = "type";
+
+	private final DataOutputStream out;
+	private final int eventsPerBlock;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final Map<String, List<Schema>> schemasByType = new HashMap<>();
+	private final List<Schema> schemas = new ArrayList<>();
+
+	/* the current block */
+	private final List<String> newDictionaryEntries = new ArrayList<>();
+	private final List<Schema> newSchemas = new ArrayList<>();
+	private final Bytes schemaColumn = new Bytes();
+	private final Bytes timeColumn = new Bytes();
+	private int eventsInBlock = 0;
+	private double minTime;
+	private double maxTime;
+	private long previousTime;
+	private int[] referencedEntries = new int[1024];
+	private int numberOfReferencedEntries = 0;
+	private boolean hasDoubleValues = false;
+	private int[] stringValueHashes = new int[16];
+	private int numberOfStringValues = 0;
+
+	private final Bytes blockBuffer = new Bytes();
+	private byte[] compressBuffer = new byte[1024];
+
+	private static final class Schema {
+		private final int index;
+		private final int typeIndex;
+		private final String[] keys;
+		private final int[] keyIndices;
+		private final Bytes[] columns;
+		private int eventsInBlock = 0;
+
+		Schema(int index, int typeIndex, String[] keys, int[] keyIndices) {
+			this.index = index;
+			this.typeIndex = typeIndex;
+			this.keys = keys;
+			this.keyIndices = keyIndices;
+			this.columns = new Bytes[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				this.columns[i] = new Bytes();
+			}
+		}
+	}
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(outfilename), DEFAULT_EVENTS_PER_BLOCK);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int eventsPerBlock) {
+		if (eventsPerBlock <= 0) {
+			throw new IllegalArgumentException("eventsPerBlock must be positive, but is " + eventsPerBlock);
+		}
+		this.out = new DataOutputStream(stream);
+		this.eventsPerBlock = eventsPerBlock;
+		try {
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+		String type = attributes.get(ATTRIBUTE_TYPE);
+		Schema schema = getSchema(type, attributes);
+
+		double time = event.getTime();
+		if (this.eventsInBlock == 0) {
+			this.minTime = time;
+			this.maxTime = time;
+			this.previousTime = 0;
+		} else {
+			this.minTime = Math.min(this.minTime, time);
+			this.maxTime = Math.max(this.maxTime, time);
+		}
+		if (time == Math.rint(time) && Math.abs(time) < (1L << 52)) {
+			long t = (long) time;
+			this.timeColumn.writeVarLong(zigZag(t - this.previousTime) << 1);
+			this.previousTime = t;
+		} else {
+			this.timeColumn.writeVarLong(1);
+			this.timeColumn.writeLong(Double.doubleToRawLongBits(time));
+		}
+
+		this.schemaColumn.writeVarInt(schema.index);
+		int k = 0;
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			String key = e.getKey();
+			if (isTimeOrType(key)) {
+				continue;
+			}
+			writeValue(schema.columns[k], e.getValue());
+			k++;
+		}
+		schema.eventsInBlock++;
+		this.eventsInBlock++;
+		if (this.eventsInBlock == this.eventsPerBlock) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventsInBlock > 0) {
+				writeBlock();
+			}
+			this.out.writeInt(0);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.deflater.end();
+		}
+	}
+
+	private static boolean isTimeOrType(final String key) {
+		return ATTRIBUTE_TIME.equals(key) || ATTRIBUTE_TYPE.equals(key);
+	}
+
+	private Schema getSchema(final String type, final Map<String, String> attributes) {
+		List<Schema> candidates = this.schemasByType.get(type);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			this.schemasByType.put(type, candidates);
+		}
+		for (Schema schema : candidates) {
+			if (matches(schema, attributes)) {
+				return schema;
+			}
+		}
+		List<String> keys = new ArrayList<>(attributes.size());
+		for (String key : attributes.keySet()) {
+			if (!isTimeOrType(key)) {
+				keys.add(key);
+			}
+		}
+		int[] keyIndices = new int[keys.size()];
+		for (int i = 0; i < keyIndices.length; i++) {
+			keyIndices[i] = getDictionaryIndex(keys.get(i), true);
+		}
+		Schema schema = new Schema(this.schemas.size(), getDictionaryIndex(type, true), keys.toArray(new String[keys.size()]), keyIndices);
+		this.schemas.add(schema);
+		candidates.add(schema);
+		this.newSchemas.add(schema);
+		return schema;
+	}
+
+	private static boolean matches(final Schema schema, final Map<String, String> attributes) {
+		int k = 0;
+		for (String key : attributes.keySet()) {
+			if (isTimeOrType(key)) {
+				continue;
+			}
+			if (k == schema.keys.length || !key.equals(schema.keys[k])) {
+				return false;
+			}
+			k++;
+		}
+		return k == schema.keys.length;
+	}
+
+	/**
+	 * @return the index of the string in the dictionary, or -1 if it should not be added to the dictionary.
+	 */
+	private int getDictionaryIndex(final String value, final boolean force) {
+		Integer index = this.dictionary.get(value);
+		if (index != null) {
+			return index;
+		}
+		if (!force && (value.length() > MAX_DICTIONARY_STRING_LENGTH || this.dictionary.size() >= MAX_DICTIONARY_SIZE)) {
+			return -1;
+		}
+		int newIndex = this.dictionary.size();
+		this.dictionary.put(value, newIndex);
+		this.newDictionaryEntries.add(value);
+		return newIndex;
+	}
+
+	private void writeValue(final Bytes column, final String value) {
+		if (value == null) {
+			column.writeVarInt(VALUE_NULL);
+			return;
+		}
+		if (isWrittenAsDouble(value)) {
+			column.writeVarInt(VALUE_DOUBLE);
+			column.writeLong(Double.doubleToRawLongBits(Double.parseDouble(value)));
+			this.hasDoubleValues = true;
+			return;
+		}
+		int index = getDictionaryIndex(value, false);
+		if (index >= 0) {
+			column.writeVarLong(((long) index << 2) | VALUE_DICTIONARY);
+			if (this.numberOfReferencedEntries == this.referencedEntries.length) {
+				this.referencedEntries = Arrays.copyOf(this.referencedEntries, this.referencedEntries.length * 2);
+			}
+			this.referencedEntries[this.numberOfReferencedEntries++] = index;
+		} else {
+			column.writeVarInt(VALUE_STRING);
+			column.writeString(value);
+			if (this.numberOfStringValues == this.stringValueHashes.length) {
+				this.stringValueHashes = Arrays.copyOf(this.stringValueHashes, this.stringValueHashes.length * 2);
+			}
+			this.stringValueHashes[this.numberOfStringValues++] = value.hashCode();
+		}
+	}
+
+	/**
+	 * @return true if the value is written as a double, i.e. if it is read as exactly the same string again by
+	 * {@link Double#toString(double)}. Such values are not in the dictionary, and the index of a block only says
+	 * whether it contains doubles at all.
+	 */
+	public static boolean isWrittenAsDouble(final String value) {
+		if (!looksLikeDouble(value)) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false; // not a number, e.g. an id like "1.2.3"
+		}
+	}
+
+	/* ids are often integers, and should go to the dictionary; so only values with a decimal point or exponent are candidates */
+	private static boolean looksLikeDouble(final String value) {
+		int len = value.length();
+		if (len == 0 || len > 25) {
+			return false;
+		}
+		boolean hasPointOrExponent = false;
+		for (int i = 0; i < len; i++) {
+			char c = value.charAt(i);
+			if (c == '.' || c == 'E') {
+				hasPointOrExponent = true;
+			} else if (!((c >= '0' && c <= '9') || c == '-')) {
+				return false;
+			}
+		}
+		return hasPointOrExponent;
+	}
+
+	private void writeBlock() {
+		try {
+			this.out.writeInt(this.eventsInBlock);
+			this.out.writeDouble(this.minTime);
+			this.out.writeDouble(this.maxTime);
+
+			// dictionary part
+			Bytes b = this.blockBuffer;
+			b.reset();
+			b.writeVarInt(this.newDictionaryEntries.size());
+			for (String s : this.newDictionaryEntries) {
+				b.writeString(s);
+			}
+			b.writeVarInt(this.newSchemas.size());
+			for (Schema schema : this.newSchemas) {
+				b.writeVarInt(schema.typeIndex);
+				b.writeVarInt(schema.keyIndices.length);
+				for (int keyIndex : schema.keyIndices) {
+					b.writeVarInt(keyIndex);
+				}
+			}
+			writeCompressed(b);
+
+			// index part: referenced dictionary entries, whether there are doubles, hash codes of the other strings
+			b.reset();
+			writeSortedDistinct(b, this.referencedEntries, this.numberOfReferencedEntries);
+			b.writeVarInt(this.hasDoubleValues ? 1 : 0);
+			writeSortedDistinct(b, this.stringValueHashes, this.numberOfStringValues);
+			writeCompressed(b);
+
+			// event part
+			b.reset();
+			b.write(this.schemaColumn);
+			b.write(this.timeColumn);
+			for (Schema schema : this.schemas) {
+				if (schema.eventsInBlock > 0) {
+					for (Bytes column : schema.columns) {
+						b.write(column);
+						column.reset();
+					}
+					schema.eventsInBlock = 0;
+				}
+			}
+			writeCompressed(b);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.newDictionaryEntries.clear();
+		this.newSchemas.clear();
+		this.schemaColumn.reset();
+		this.timeColumn.reset();
+		this.numberOfReferencedEntries = 0;
+		this.hasDoubleValues = false;
+		this.numberOfStringValues = 0;
+		this.eventsInBlock = 0;
+	}
+
+	/* sorted and delta-encoded; the deltas of negative values wrap around, which the reader undoes by adding them up as ints */
+	private static void writeSortedDistinct(final Bytes b, final int[] values, final int length) {
+		Arrays.sort(values, 0, length);
+		int distinct = 0;
+		for (int i = 0; i < length; i++) {
+			if (i == 0 || values[i] != values[i - 1]) {
+				distinct++;
+			}
+		}
+		b.writeVarInt(distinct);
+		int previous = 0;
+		for (int i = 0; i < length; i++) {
+			if (i == 0 || values[i] != values[i - 1]) {
+				b.writeVarInt(values[i] - previous);
+				previous = values[i];
+			}
+		}
+	}
+
+	private void writeCompressed(final Bytes b) throws IOException {
+		this.deflater.reset();
+		this.deflater.setInput(b.data, 0, b.size);
+		this.deflater.finish();
+		int compressedLength = 0;
+		while (!this.deflater.finished()) {
+			if (compressedLength == this.compressBuffer.length) {
+				this.compressBuffer = Arrays.copyOf(this.compressBuffer, this.compressBuffer.length * 2);
+			}
+			compressedLength += this.deflater.deflate(this.compressBuffer, compressedLength, this.compressBuffer.length - compressedLength);
+		}
+		this.out.writeInt(b.size);
+		this.out.writeInt(compressedLength);
+		this.out.write(this.compressBuffer, 0, compressedLength);
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * A minimal growable byte array, to avoid the synchronization and the exceptions of the java.io streams.
+	 */
+	private static final class Bytes {
+		private byte[] data = new byte[256];
+		private int size = 0;
+
+		void reset() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + additional));
+			}
+		}
+
+		void writeVarInt(int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeLong(long value) {
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.data[this.size++] = (byte) (value >>> shift);
+			}
+		}
+
+		void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		void write(Bytes other) {
+			ensureCapacity(other.size);
+			System.arraycopy(other.data, 0, this.data, this.size, other.size);
+			this.size += other.size;
+		}
+	}
+
+}
@@ -21,6 +21,7 @@
 package org.matsim.core.gbl;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -58,6 +59,10 @@ public abstract class MatsimRandom {
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
+	/** generators replacing the global one in some threads, see {@link #setRandomForCurrentThread(Random)} */
+	private static final ThreadLocal<Random> threadRandoms = new ThreadLocal<>();
+	private static final AtomicInteger threadRandomCount = new AtomicInteger(0);
+
 	/** Resets the random number generator with a default random seed. */
 	public static void reset() {
 		reset(DEFAULT_RANDOM_SEED);
@@ -74,9 +79,34 @@ public abstract class MatsimRandom {
 //		prepareRNG(random);
 	}
 	public static Random getRandom() {
+		if (threadRandomCount.get() > 0) {
+			Random threadRandom = threadRandoms.get();
+			if (threadRandom != null) {
+				return threadRandom;
+			}
+		}
 		return random;
 	}
 
+	/**
+	 * Lets {@link #getRandom()} return the given generator in the current thread, until this is called again with
+	 * <code>null</code>. This way, code drawing from the global generator, e.g. plan selectors, can be run in
+	 * several threads with a deterministic random stream each.
+	 */
+	public static void setRandomForCurrentThread(final Random rng) {
+		Random old = threadRandoms.get();
+		if (old == null && rng != null) {
+			threadRandomCount.incrementAndGet();
+		} else if (old != null && rng == null) {
+			threadRandomCount.decrementAndGet();
+		}
+		if (rng == null) {
+			threadRandoms.remove();
+		} else {
+			threadRandoms.set(rng);
+		}
+	}
+
 	/** Returns an instance of a random number generator, which can be used
 	 * locally, e.g. in threads.
 	 *
@@ -39,6 +39,8 @@ import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.mobsim.qsim.interfaces.*;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.pt.TransitQSimEngine;
+import org.matsim.core.mobsim.qsim.qnetsimengine.CanonicalOrderBuffer;
+import org.matsim.core.mobsim.qsim.qnetsimengine.CanonicalOrderEventsManager;
 import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
@@ -137,7 +139,17 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		// global mutable data.
 
 		@Override
-		public synchronized void arrangeNextAgentState(MobsimAgent agent) {
+		public synchronized void arrangeNextAgentState(final MobsimAgent agent) {
+			if (CanonicalOrderBuffer.isBuffering()) {
+				// called from a QNetsimEngineRunner with the deterministic netsim; the agent is handled at the end of the time step
+				CanonicalOrderBuffer.bufferAction(new Runnable() {
+					@Override
+					public void run() {
+						QSim.this.arrangeNextAgentAction(agent);
+					}
+				});
+				return;
+			}
 			QSim.this.arrangeNextAgentAction(agent);
 		}
 
@@ -196,11 +208,15 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	}
 	public QSim(final Scenario sc, EventsManager events ) {
 		this.scenario = sc;
+		EventsManager eventsManager = events;
 		if (sc.getConfig().qsim().getNumberOfThreads() > 1) {
-			this.events = EventsUtils.getParallelFeedableInstance(events);
-		} else {
-			this.events = events;
+			eventsManager = EventsUtils.getParallelFeedableInstance(eventsManager);
+		}
+		if (sc.getConfig().qsim().isUsingDeterministicNetsim()) {
+			// events created by the nodes and links are buffered and passed on in a fixed order, see CanonicalOrderBuffer
+			eventsManager = new CanonicalOrderEventsManager(eventsManager);
 		}
+		this.events = eventsManager;
 		this.listenerManager = new MobsimListenerManager(this);
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer(sc.getConfig().qsim().getTimeStepSize());
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CanonicalOrderBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * Collects what the nodes and links produce during a time step of the {@link QNetsimEngine} (events and agent state
+ * changes) and passes it on at the end of the time step, in an order that does not depend on the number of threads
+ * or on which thread processed which node or link.  See {@link org.matsim.core.config.groups.QSimConfigGroup#isUsingDeterministicNetsim()}.
+ * <p></p>
+ * The runners enclose every call to the <code>doSimStep</code> of a node or link with {@link #begin(int, Id)} and
+ * {@link #end(Segment)}.  In between, everything that the current thread hands to {@link #bufferEvent(Event)} or
+ * {@link #bufferAction(Runnable)} is recorded for that node or link.  At the end of the time step, the recorded segments are
+ * sorted by phase (nodes before links) and by the id of the node or link, and are replayed from the main thread.
+ */
+public final class CanonicalOrderBuffer {
+
+	/*package*/ static final int NODES_PHASE = 0;
+	/*package*/ static final int LINKS_PHASE = 1;
+
+	/*
+	 * Every thread has one segment that it currently writes to.  Only segments that actually received something are handed
+	 * over to the queue (and replaced by a fresh one), so that nodes or links without output do not cost an allocation.
+	 */
+	private static final ThreadLocal<Segment> currentSegment = new ThreadLocal<>();
+
+	/*package*/ static final class Segment {
+		private int phase;
+		private Id<?> elementId;
+		private boolean recording = false;
+		private final List<Object> items = new ArrayList<>();
+	}
+
+	private static final Comparator<Segment> SEGMENT_COMPARATOR = new Comparator<Segment>() {
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public int compare(Segment s1, Segment s2) {
+			if (s1.phase != s2.phase) {
+				return Integer.compare(s1.phase, s2.phase);
+			}
+			return ((Id) s1.elementId).compareTo(s2.elementId);
+		}
+	};
+
+	private final Queue<Segment> completedSegments = new ConcurrentLinkedQueue<>();
+
+	/*package*/ CanonicalOrderBuffer() {
+	}
+
+	/**
+	 * @return true if the current thread is processing a node or link whose output is buffered.
+	 */
+	public static boolean isBuffering() {
+		Segment segment = currentSegment.get();
+		return segment != null && segment.recording;
+	}
+
+	/**
+	 * @return true if the event was buffered; false if the caller has to process it itself.
+	 */
+	public static boolean bufferEvent(Event event) {
+		Segment segment = currentSegment.get();
+		if (segment != null && segment.recording) {
+			segment.items.add(event);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the action was buffered and will be run from the main thread at the end of the time step;
+	 * false if the caller has to run it itself.
+	 */
+	public static boolean bufferAction(Runnable action) {
+		Segment segment = currentSegment.get();
+		if (segment != null && segment.recording) {
+			segment.items.add(action);
+			return true;
+		}
+		return false;
+	}
+
+	/*package*/ Segment begin(int phase, Id<?> elementId) {
+		Segment segment = currentSegment.get();
+		if (segment == null) {
+			segment = new Segment();
+			currentSegment.set(segment);
+		}
+		segment.phase = phase;
+		segment.elementId = elementId;
+		segment.recording = true;
+		return segment;
+	}
+
+	/*package*/ void end(Segment segment) {
+		segment.recording = false;
+		if (!segment.items.isEmpty()) {
+			this.completedSegments.add(segment);
+			currentSegment.set(new Segment());
+		}
+	}
+
+	/**
+	 * Replays everything that was buffered during the time step.  Must be called from the main thread, i.e. when no
+	 * runner is active.
+	 */
+	/*package*/ void flush(EventsManager events) {
+		if (this.completedSegments.isEmpty()) {
+			return;
+		}
+		List<Segment> segments = new ArrayList<>(this.completedSegments);
+		this.completedSegments.clear();
+		Collections.sort(segments, SEGMENT_COMPARATOR);
+		for (Segment segment : segments) {
+			for (Object item : segment.items) {
+				if (item instanceof Event) {
+					events.processEvent((Event) item);
+				} else {
+					((Runnable) item).run();
+				}
+			}
+		}
+	}
+
+}
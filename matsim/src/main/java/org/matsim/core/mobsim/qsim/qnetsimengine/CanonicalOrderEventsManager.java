@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CanonicalOrderEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Passes events that are created while a {@link QNetsimEngineRunner} processes a node or link to the
+ * {@link CanonicalOrderBuffer}; all other events go directly to the delegate.
+ */
+public final class CanonicalOrderEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+
+	public CanonicalOrderEventsManager(EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		if (!CanonicalOrderBuffer.bufferEvent(event)) {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+
+}
@@ -0,0 +1,74 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkLoadsForNetworkPartitioning.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Counts link enter events so that the network partitioning of the next iteration can be weighted by the load
+ * of the previous one.
+ * <p></p>
+ * The {@link QNetsimEngine} is re-created in every iteration, so this object is kept as a scenario element and
+ * registered with the events manager only once.  Since {@link #reset(int)} is called before every mobsim, it moves
+ * the counts of the iteration that just ended to the "previous" counts, which are then used by the new engine.
+ */
+final class LinkLoadsForNetworkPartitioning implements LinkEnterEventHandler {
+
+	static final String ELEMENT_NAME = "linkLoadsForNetworkPartitioning";
+
+	private Map<Id<Link>, int[]> currentCounts = new HashMap<>();
+	private Map<Id<Link>, int[]> previousCounts = new HashMap<>();
+
+	@Override
+	public void handleEvent(LinkEnterEvent event) {
+		int[] cnt = this.currentCounts.get(event.getLinkId());
+		if (cnt == null) {
+			cnt = new int[1];
+			this.currentCounts.put(event.getLinkId(), cnt);
+		}
+		cnt[0]++;
+	}
+
+	@Override
+	public void reset(int iteration) {
+		this.previousCounts = this.currentCounts;
+		this.currentCounts = new HashMap<>();
+	}
+
+	/**
+	 * @return the number of vehicles that entered the link in the previous mobsim run, or 0 if there was none.
+	 */
+	int getPreviousLoad(Id<Link> linkId) {
+		int[] cnt = this.previousCounts.get(linkId);
+		return cnt == null ? 0 : cnt[0];
+	}
+
+	boolean hasPreviousLoads() {
+		return !this.previousCounts.isEmpty();
+	}
+
+}
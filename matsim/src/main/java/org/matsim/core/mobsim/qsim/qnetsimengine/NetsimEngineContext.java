@@ -18,7 +18,12 @@ public class NetsimEngineContext {
 	public NetsimEngineContext(EventsManager events, double effectiveCellSize, AgentCounter agentCounter,
 			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder, QSimConfigGroup qsimConfig, MobsimTimer mobsimTimer, 
 			SnapshotLinkWidthCalculator linkWidthCalculator) {
-		this.events = events;
+		if (qsimConfig.isUsingDeterministicNetsim() && !(events instanceof CanonicalOrderEventsManager)) {
+			// the events of the nodes and links need to go through the buffer, see CanonicalOrderBuffer
+			this.events = new CanonicalOrderEventsManager(events);
+		} else {
+			this.events = events;
+		}
 		this.effectiveCellSize = effectiveCellSize;
 		this.agentCounter = agentCounter;
 		this.snapshotInfoBuilder = snapshotInfoBuilder;
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} handles which node (and thus, since out-links are
+ * handled by the runner of their from-node, which links).
+ */
+public interface NetworkPartitioner {
+
+	/**
+	 * @param nodes the nodes to be partitioned.  The order is the order in which the {@link QNetsimEngine} iterates
+	 * over its nodes.
+	 * @param nodeWeights the expected computational load per node, in the same order as <code>nodes</code>.
+	 * @param numberOfPartitions the number of runners.
+	 * @return for every node (in the same order as <code>nodes</code>) the index of the partition, between 0 and
+	 * <code>numberOfPartitions-1</code>.
+	 */
+	int[] partition(List<? extends Node> nodes, double[] nodeWeights, int numberOfPartitions);
+
+}
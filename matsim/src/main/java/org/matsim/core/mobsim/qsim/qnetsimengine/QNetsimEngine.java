@@ -42,11 +42,13 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
@@ -121,6 +123,15 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingWorkStealing;
+
+	// only with the deterministic netsim, see QSimConfigGroup.isUsingDeterministicNetsim()
+	private final CanonicalOrderBuffer canonicalOrderBuffer;
+
+	private final NetworkPartitioning networkPartitioning;
+	private final NetworkPartitioner networkPartitioner;
+	private final LinkLoadsForNetworkPartitioning linkLoads;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -142,6 +153,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		if (qsimConfigGroup.isUsingWorkStealing() && !this.usingThreadpool) {
+			log.warn("Work stealing is only available together with the thread pool; it is switched off.");
+		}
+		this.usingWorkStealing = qsimConfigGroup.isUsingWorkStealing() && this.usingThreadpool;
+		this.canonicalOrderBuffer = qsimConfigGroup.isUsingDeterministicNetsim() ? new CanonicalOrderBuffer() : null;
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -181,6 +197,22 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+
+		this.networkPartitioning = qSimConfigGroup.getNetworkPartitioning();
+		this.networkPartitioner = createNetworkPartitioner(this.networkPartitioning);
+		if (qSimConfigGroup.isUsingLinkLoadsForNetworkPartitioning() && this.networkPartitioning != NetworkPartitioning.roundRobin) {
+			// the engine is re-created in every iteration; the link loads need to survive from one iteration to the next.
+			Scenario scenario = sim.getScenario();
+			LinkLoadsForNetworkPartitioning loads = (LinkLoadsForNetworkPartitioning) scenario.getScenarioElement(LinkLoadsForNetworkPartitioning.ELEMENT_NAME);
+			if (loads == null) {
+				loads = new LinkLoadsForNetworkPartitioning();
+				scenario.addScenarioElement(LinkLoadsForNetworkPartitioning.ELEMENT_NAME, loads);
+				sim.getEventsManager().addHandler(loads);
+			}
+			this.linkLoads = loads.hasPreviousLoads() ? loads : null;
+		} else {
+			this.linkLoads = null;
+		}
 	}
 
 	private static int wrnCnt = 0;
@@ -306,6 +338,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		// myTime += 0.5 ;
 
 		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).
+		// (The partitioning is now configurable, see QSimConfigGroup.getNetworkPartitioning().)
 
 		// (c) One thread that is much faster than all others is much more efficient than one thread that is much slower than all others. 
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
@@ -320,16 +353,24 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			try {
 				for (QNetsimEngineRunner engine : this.engines) {
 					engine.setMovingNodes(true);
+					if (this.usingWorkStealing) engine.prepareWorkStealingPhase();
 				}
 				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
 					future.get();
 				}
 				for (QNetsimEngineRunner engine : this.engines) {
+					if (this.usingWorkStealing) engine.finishWorkStealingPhase();
 					engine.setMovingNodes(false);
+					if (this.usingWorkStealing) engine.prepareWorkStealingPhase();
 				}
 				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
 					future.get();
 				}
+				if (this.usingWorkStealing) {
+					for (QNetsimEngineRunner engine : this.engines) {
+						engine.finishWorkStealingPhase();
+					}
+				}
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e) ;
 			} catch (ExecutionException e) {
@@ -339,6 +380,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
+
+		if (this.canonicalOrderBuffer != null) {
+			// pass on what the nodes and links produced, in an order that does not depend on the threads:
+			this.canonicalOrderBuffer.flush(this.qsim.getEventsManager());
+		}
 	}
 
 
@@ -451,6 +497,23 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.engines.add(engine);
 		}
 
+		if (this.canonicalOrderBuffer != null) {
+			for (QNetsimEngineRunner engine : this.engines) {
+				engine.setCanonicalOrderBuffer(this.canonicalOrderBuffer);
+			}
+		}
+
+		if (this.usingWorkStealing) {
+			// every runner starts stealing from its right neighbor, so that not all idle runners go for the same victim
+			for (int i = 0; i < numOfRunners; i++) {
+				List<QNetsimEngineRunner> victims = new ArrayList<>();
+				for (int j = 1; j < numOfRunners; j++) {
+					victims.add(this.engines.get((i + j) % numOfRunners));
+				}
+				this.engines.get(i).setWorkStealingVictims(victims);
+			}
+		}
+
 		/*
 		 *  Assign every Link and Node to an Activator. By doing so, the
 		 *  activateNode(...) and activateLink(...) methods in this class
@@ -466,17 +529,29 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	 */
 	private void assignNetElementActivators() {
 
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> nodes = new ArrayList<>(qNodes.size());
+		double[] nodeWeights = new double[qNodes.size()];
+		for (int n = 0; n < qNodes.size(); n++) {
+			Node node = qNodes.get(n).getNode();
+			nodes.add(node);
+			nodeWeights[n] = computeNodeWeight(node);
+		}
+		int[] partitions = this.networkPartitioner.partition(nodes, nodeWeights, this.numOfRunners);
+
 		// only for statistics
-		int nodes[] = new int[numOfRunners];
-		int links[] = new int[numOfRunners];
+		int nodeCounts[] = new int[numOfRunners];
+		int linkCounts[] = new int[numOfRunners];
+		double loads[] = new double[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = partitions[n];
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
-			nodes[i]++;
+			nodeCounts[i]++;
+			loads[i] += nodeWeights[n];
 
 			// set activator for out links
 			for (Link outLink : node.getNode().getOutLinks().values()) {
@@ -495,21 +570,55 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 					this.engines.get(i).registerLinkAsActive(qLink);
 				}
 
-				links[i]++;
+				linkCounts[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
+		double sumLoad = 0.;
+		double maxLoad = 0.;
 		for (int i = 0; i < this.engines.size(); i++) {
-			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+			log.info("Assigned " + nodeCounts[i] + " nodes and " + linkCounts[i] + " links to QSimEngineRunner #" + i
+					+ "; expected load: " + loads[i]);
+			sumLoad += loads[i];
+			maxLoad = Math.max(maxLoad, loads[i]);
+		}
+		if (sumLoad > 0.) {
+			// imbalance = max load / average load; 1.0 means perfectly balanced
+			log.info("Network partitioning (" + this.networkPartitioning + "): load imbalance (max/avg) = "
+					+ maxLoad * this.numOfRunners / sumLoad);
 		}
 
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * A node costs something by itself, and every out-link (which is handled by the same runner) costs something.  If
+	 * link loads from the previous iteration are available, every vehicle that entered the link adds to the costs.
+	 */
+	private double computeNodeWeight(Node node) {
+		double weight = 1.;
+		for (Link outLink : node.getOutLinks().values()) {
+			weight += 1.;
+			if (this.linkLoads != null) {
+				weight += this.linkLoads.getPreviousLoad(outLink.getId());
+			}
+		}
+		return weight;
+	}
+
+	private static NetworkPartitioner createNetworkPartitioner(NetworkPartitioning networkPartitioning) {
+		switch (networkPartitioning) {
+		case roundRobin:
+			return new RoundRobinNetworkPartitioner();
+		case spatial:
+			return new SpatialNetworkPartitioner();
+		default:
+			throw new RuntimeException("Unknown network partitioning option: " + networkPartitioning);
+		}
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -548,6 +657,12 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		log.info("sum min run times: " + sumMin);
 		log.info("sum max run times: " + sumMax);
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
+		if (this.usingWorkStealing) {
+			for (int i = 0; i < this.engines.size(); i++) {
+				log.info("QNetsimEngineRunner #" + i + " processed " + this.engines.get(i).getStolenChunks()
+						+ " chunks of other runners.");
+			}
+		}
 	}
 	
 	private static class NamedThreadFactory implements ThreadFactory {
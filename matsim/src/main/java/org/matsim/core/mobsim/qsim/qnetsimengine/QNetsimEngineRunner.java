@@ -27,6 +27,7 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * These are the "threads" of the {@link QNetsimEngine}. The "run()" method is implicitly called by starting the thread.
@@ -76,6 +77,28 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Work stealing (see QSimConfigGroup.isUsingWorkStealing()).  Before each of the two phases, the QNetsimEngine
+	 * freezes the active nodes respectively links of every runner into an array, which is then processed in chunks.  A runner
+	 * first processes its own chunks and then takes the remaining chunks of the other runners.  Which thread processes
+	 * a node or link does not change the result since the nodes use their own random number generators.
+	 * Links that are activated during the node phase may be registered from several threads at the same time; they
+	 * are collected in a concurrent queue and added to the links list in a defined order after the phase.
+	 */
+	/*package*/ static final int WORK_STEALING_CHUNK_SIZE = 64;
+	private List<QNetsimEngineRunner> workStealingVictims = null;
+	private QNodeImpl[] phaseNodes = new QNodeImpl[0];
+	private QLinkI[] phaseLinks = new QLinkI[0];
+	private boolean[] phaseRemainsActive = new boolean[0];
+	private int phaseSize = 0;
+	private int phaseChunks = 0;
+	private final AtomicInteger nextPhaseChunk = new AtomicInteger();
+	private final Queue<QLinkI> linksActivatedDuringPhase = new ConcurrentLinkedQueue<>();
+	private long stolenChunks = 0;
+
+	// only set with the deterministic netsim, see QSimConfigGroup.isUsingDeterministicNetsim()
+	private CanonicalOrderBuffer canonicalOrderBuffer = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -116,11 +139,28 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
-		if (this.movingNodes) {
+		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();
+
+		if (this.workStealingVictims != null) {
+			processPhaseChunks();
+			for (QNetsimEngineRunner victim : this.workStealingVictims) {
+				this.stolenChunks += victim.processPhaseChunks();
+			}
+		} else if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+
+		if (QSim.analyzeRunTimes) {
+			// nodes and links are two separate calls; sum them up.
+			long end = System.nanoTime();
+			int bin = (int) this.time;
+			if (bin < this.runTimes.length) {
+				if (this.movingNodes) this.runTimes[bin] = end - this.startTime;
+				else this.runTimes[bin] += end - this.startTime;
+			}
+		}
 		return true ;
 	}
 
@@ -171,7 +211,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		Iterator<QNodeImpl> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
-			remainsActive = node.doSimStep(time);
+			remainsActive = moveNode(node);
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
@@ -184,13 +224,137 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
 
-			remainsActive = link.doSimStep();
+			remainsActive = moveLink(link);
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
 	}
 
+	private boolean moveNode(QNodeImpl node) {
+		if (this.canonicalOrderBuffer == null) {
+			return node.doSimStep(this.time);
+		}
+		CanonicalOrderBuffer.Segment segment = this.canonicalOrderBuffer.begin(CanonicalOrderBuffer.NODES_PHASE, node.getNode().getId());
+		try {
+			return node.doSimStep(this.time);
+		} finally {
+			this.canonicalOrderBuffer.end(segment);
+		}
+	}
+
+	private boolean moveLink(QLinkI link) {
+		if (this.canonicalOrderBuffer == null) {
+			return link.doSimStep();
+		}
+		CanonicalOrderBuffer.Segment segment = this.canonicalOrderBuffer.begin(CanonicalOrderBuffer.LINKS_PHASE, link.getLink().getId());
+		try {
+			return link.doSimStep();
+		} finally {
+			this.canonicalOrderBuffer.end(segment);
+		}
+	}
+
+	/*package*/ void setCanonicalOrderBuffer(CanonicalOrderBuffer canonicalOrderBuffer) {
+		this.canonicalOrderBuffer = canonicalOrderBuffer;
+	}
+
+	/*package*/ void setWorkStealingVictims(List<QNetsimEngineRunner> victims) {
+		this.workStealingVictims = victims;
+	}
+
+	/*
+	 * Called by the QNetsimEngine (i.e. single-threaded) before the runners are started.
+	 */
+	/*package*/ void prepareWorkStealingPhase() {
+		if (this.movingNodes) {
+			this.lockNodes = true;
+			this.phaseSize = this.nodesQueue.size();
+			if (this.phaseNodes.length < this.phaseSize) this.phaseNodes = new QNodeImpl[2 * this.phaseSize];
+			int i = 0;
+			for (QNodeImpl node : this.nodesQueue) {
+				this.phaseNodes[i++] = node;
+			}
+		} else {
+			this.lockLinks = true;
+			this.phaseSize = this.linksList.size();
+			if (this.phaseLinks.length < this.phaseSize) this.phaseLinks = new QLinkI[2 * this.phaseSize];
+			int i = 0;
+			for (QLinkI link : this.linksList) {
+				this.phaseLinks[i++] = link;
+			}
+		}
+		if (this.phaseRemainsActive.length < this.phaseSize) this.phaseRemainsActive = new boolean[2 * this.phaseSize];
+		this.phaseChunks = (this.phaseSize + WORK_STEALING_CHUNK_SIZE - 1) / WORK_STEALING_CHUNK_SIZE;
+		this.nextPhaseChunk.set(0);
+	}
+
+	/*
+	 * Called by any runner, possibly concurrently.  Returns the number of chunks that were processed.
+	 */
+	private int processPhaseChunks() {
+		int processed = 0;
+		int chunk;
+		while ((chunk = this.nextPhaseChunk.getAndIncrement()) < this.phaseChunks) {
+			int from = chunk * WORK_STEALING_CHUNK_SIZE;
+			int to = Math.min(from + WORK_STEALING_CHUNK_SIZE, this.phaseSize);
+			if (this.movingNodes) {
+				for (int i = from; i < to; i++) {
+					this.phaseRemainsActive[i] = moveNode(this.phaseNodes[i]);
+				}
+			} else {
+				for (int i = from; i < to; i++) {
+					this.phaseRemainsActive[i] = moveLink(this.phaseLinks[i]);
+				}
+			}
+			processed++;
+		}
+		return processed;
+	}
+
+	/*
+	 * Called by the QNetsimEngine (i.e. single-threaded) after all runners have finished.
+	 */
+	/*package*/ void finishWorkStealingPhase() {
+		if (this.movingNodes) {
+			// no nodes can be activated during the node phase, so the queue can safely be rebuilt
+			this.nodesQueue.clear();
+			for (int i = 0; i < this.phaseSize; i++) {
+				if (this.phaseRemainsActive[i]) this.nodesQueue.add(this.phaseNodes[i]);
+				this.phaseNodes[i] = null;
+			}
+			this.lockNodes = false;
+			addLinksActivatedDuringPhase();
+		} else {
+			this.linksList.clear();
+			for (int i = 0; i < this.phaseSize; i++) {
+				if (this.phaseRemainsActive[i]) this.linksList.add(this.phaseLinks[i]);
+				this.phaseLinks[i] = null;
+			}
+			this.lockLinks = false;
+		}
+		this.phaseSize = 0;
+		this.phaseChunks = 0;
+	}
+
+	private void addLinksActivatedDuringPhase() {
+		if (this.linksActivatedDuringPhase.isEmpty()) return;
+		// the order in the queue depends on thread timing; sort so that the order of the links list is reproducible.
+		List<QLinkI> activated = new ArrayList<>(this.linksActivatedDuringPhase);
+		this.linksActivatedDuringPhase.clear();
+		Collections.sort(activated, new Comparator<QLinkI>() {
+			@Override
+			public int compare(QLinkI o1, QLinkI o2) {
+				return o1.getLink().getId().compareTo(o2.getLink().getId());
+			}
+		});
+		this.linksList.addAll(activated);
+	}
+
+	/*package*/ long getStolenChunks() {
+		return this.stolenChunks;
+	}
+
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -198,8 +362,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
-		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (lockLinks) throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		// with work stealing, nodes of this runner may be handled by other threads:
+		else if (this.workStealingVictims != null && this.lockNodes) linksActivatedDuringPhase.add(link);
+		else linksList.add(link);
 	}
 
 	@Override
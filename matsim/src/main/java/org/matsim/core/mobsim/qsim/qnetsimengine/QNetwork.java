@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -47,6 +48,12 @@ public class QNetwork implements NetsimNetwork {
 
 	private final Map<Id<Node>, QNodeI> nodes;
 
+	/* The maps above keep the order of the network for everything iterating over the links and nodes. The lookups
+	 * by id, e.g. for every vehicle entering a link, go through these index-based maps. */
+	private final IdMap<Link, QLinkI> linksByIndex = new IdMap<>(Link.class);
+
+	private final IdMap<Node, QNodeI> nodesByIndex = new IdMap<>(Node.class);
+
 	private final Network network;
 
 	private final QNetworkFactory queueNetworkFactory;
@@ -63,11 +70,14 @@ public class QNetwork implements NetsimNetwork {
 		this.simEngine = simEngine1;
 		this.queueNetworkFactory.initializeFactory( agentCounter, simTimer, simEngine1.ii );
 		for (Node n : network.getNodes().values()) {
-			this.nodes.put(n.getId(), this.queueNetworkFactory.createNetsimNode(n));
+			QNodeI qnode = this.queueNetworkFactory.createNetsimNode(n);
+			this.nodes.put(n.getId(), qnode);
+			this.nodesByIndex.put(n.getId(), qnode);
 		}
 		for (Link l : network.getLinks().values()) {
-			final QLinkI qlink = this.queueNetworkFactory.createNetsimLink(l, this.nodes.get(l.getToNode().getId()));
+			final QLinkI qlink = this.queueNetworkFactory.createNetsimLink(l, this.nodesByIndex.get(l.getToNode().getId()));
 			this.links.put(l.getId(), qlink);
+			this.linksByIndex.put(l.getId(), qlink);
 		}
 		for (QNodeI n : this.nodes.values()) {
 			n.init();
@@ -96,12 +106,12 @@ public class QNetwork implements NetsimNetwork {
 
 	@Override
 	public QLinkI getNetsimLink(final Id<Link> id) {
-		return this.links.get(id);
+		return this.linksByIndex.get(id);
 	}
 
 	@Override
 	public NetsimNode getNetsimNode(final Id<Node> id) {
-		return this.nodes.get(id);
+		return this.nodesByIndex.get(id);
 	}
 
 
@@ -95,10 +95,11 @@ final class QNodeImpl implements QNodeI {
 		int nofInLinks = this.node.getInLinks().size();
 		this.inLinksArrayCache = new QLinkI[nofInLinks];
 		this.tempLinks = new QLinkI[nofInLinks];
-		if (this.context.qsimConfig.getNumberOfThreads() > 1) { 
+		if (this.context.qsimConfig.getNumberOfThreads() > 1 || this.context.qsimConfig.isUsingDeterministicNetsim()) { 
 			// This could just as well be the "normal" case. The second alternative
 			// is just there so some scenarios / test cases stay
 			// "event-file-compatible". Consider removing the second alternative.
+			// (With the deterministic netsim, the random numbers must not depend on the number of threads.)
 			this.random = MatsimRandom.getLocalInstance();
 		} else {
 			this.random = MatsimRandom.getRandom();
@@ -263,7 +264,7 @@ final class QNodeImpl implements QNodeI {
 			return false;
 		}
 		
-		QLinkI nextQueueLink = this.netsimEngine.getNetsimNetwork().getNetsimLinks().get(nextLinkId);
+		QLinkI nextQueueLink = this.netsimEngine.getNetsimNetwork().getNetsimLink(nextLinkId);
 		QLaneI nextQueueLane = nextQueueLink.getAcceptingQLane() ;
 		if (nextQueueLane.isAcceptingFromUpstream()) {
 			moveVehicleFromInlinkToOutlink(veh, currentLink.getId(), fromLaneBuffer, nextLinkId, nextQueueLane);
@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoundRobinNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Hands out the nodes to the runners one after the other.  This was the only available behavior before
+ * the partitioning became configurable.  The weights are ignored.
+ */
+public final class RoundRobinNetworkPartitioner implements NetworkPartitioner {
+
+	@Override
+	public int[] partition(List<? extends Node> nodes, double[] nodeWeights, int numberOfPartitions) {
+		int[] partitions = new int[nodes.size()];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = i % numberOfPartitions;
+		}
+		return partitions;
+	}
+
+}
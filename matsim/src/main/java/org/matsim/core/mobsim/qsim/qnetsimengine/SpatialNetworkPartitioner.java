@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Assigns connected regions of the network to the same runner.
+ * <p></p>
+ * The network is first split by weighted recursive coordinate bisection: the set of nodes is cut along the longer
+ * side of its bounding box such that both halves carry the share of the node weights that corresponds to the number of
+ * partitions they will eventually be split into.  Afterwards, a few refinement passes move nodes at partition borders
+ * to the neighboring partition if this reduces the number of links between partitions (the edge cut) and does not
+ * violate the load balance by more than {@link #BALANCE_TOLERANCE}.  This is essentially what graph partitioners such as
+ * METIS do during their refinement phase, but without the multilevel coarsening.
+ * <p></p>
+ * The result only depends on the input (nodes, their order, and weights), not on anything else.
+ */
+public final class SpatialNetworkPartitioner implements NetworkPartitioner {
+
+	/*package*/ static final double BALANCE_TOLERANCE = 0.03;
+
+	private static final int REFINEMENT_PASSES = 4;
+
+	@Override
+	public int[] partition(final List<? extends Node> nodes, final double[] nodeWeights, final int numberOfPartitions) {
+		final int numberOfNodes = nodes.size();
+		int[] partitions = new int[numberOfNodes];
+		if (numberOfPartitions <= 1 || numberOfNodes == 0) {
+			return partitions;
+		}
+
+		final double[] xs = new double[numberOfNodes];
+		final double[] ys = new double[numberOfNodes];
+		Integer[] order = new Integer[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			xs[i] = nodes.get(i).getCoord().getX();
+			ys[i] = nodes.get(i).getCoord().getY();
+			order[i] = i;
+		}
+
+		bisect(order, 0, numberOfNodes, 0, numberOfPartitions, xs, ys, nodeWeights, partitions);
+
+		refine(nodes, nodeWeights, numberOfPartitions, partitions);
+
+		return partitions;
+	}
+
+	private static void bisect(Integer[] order, int from, int to, int firstPartition, int numberOfPartitions,
+			final double[] xs, final double[] ys, double[] nodeWeights, int[] partitions) {
+		if (numberOfPartitions == 1) {
+			for (int i = from; i < to; i++) {
+				partitions[order[i]] = firstPartition;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0.;
+		for (int i = from; i < to; i++) {
+			int node = order[i];
+			minX = Math.min(minX, xs[node]);
+			maxX = Math.max(maxX, xs[node]);
+			minY = Math.min(minY, ys[node]);
+			maxY = Math.max(maxY, ys[node]);
+			totalWeight += nodeWeights[node];
+		}
+
+		final double[] coords = (maxX - minX >= maxY - minY) ? xs : ys;
+		final double[] others = (coords == xs) ? ys : xs;
+		// sort by the coordinate along the cut axis; ties are broken by the other coordinate and finally the
+		// position in the input list so that the result is independent of the sorting algorithm.
+		Arrays.sort(order, from, to, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = Double.compare(coords[o1], coords[o2]);
+				if (cmp == 0) {
+					cmp = Double.compare(others[o1], others[o2]);
+				}
+				return cmp != 0 ? cmp : Integer.compare(o1, o2);
+			}
+		});
+
+		int leftPartitions = numberOfPartitions / 2;
+		double leftTarget = totalWeight * leftPartitions / numberOfPartitions;
+		double cumulatedWeight = 0.;
+		int split = from;
+		while (split < to && cumulatedWeight + nodeWeights[order[split]] / 2. <= leftTarget) {
+			cumulatedWeight += nodeWeights[order[split]];
+			split++;
+		}
+
+		bisect(order, from, split, firstPartition, leftPartitions, xs, ys, nodeWeights, partitions);
+		bisect(order, split, to, firstPartition + leftPartitions, numberOfPartitions - leftPartitions, xs, ys, nodeWeights, partitions);
+	}
+
+	private static void refine(List<? extends Node> nodes, double[] nodeWeights, int numberOfPartitions, int[] partitions) {
+		Map<Id<Node>, Integer> nodeIndices = new HashMap<>(nodes.size() * 2);
+		double[] loads = new double[numberOfPartitions];
+		double totalWeight = 0.;
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIndices.put(nodes.get(i).getId(), i);
+			loads[partitions[i]] += nodeWeights[i];
+			totalWeight += nodeWeights[i];
+		}
+		double maxLoad = (1. + BALANCE_TOLERANCE) * totalWeight / numberOfPartitions;
+		double minLoad = (1. - BALANCE_TOLERANCE) * totalWeight / numberOfPartitions;
+
+		int[] neighborCounts = new int[numberOfPartitions];
+		for (int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+			int moved = 0;
+			for (int i = 0; i < nodes.size(); i++) {
+				Node node = nodes.get(i);
+				int own = partitions[i];
+				Arrays.fill(neighborCounts, 0);
+				for (Link link : node.getOutLinks().values()) {
+					countNeighbor(link.getToNode(), nodeIndices, partitions, neighborCounts);
+				}
+				for (Link link : node.getInLinks().values()) {
+					countNeighbor(link.getFromNode(), nodeIndices, partitions, neighborCounts);
+				}
+				int best = own;
+				for (int p = 0; p < numberOfPartitions; p++) {
+					if (neighborCounts[p] > neighborCounts[best]) {
+						best = p;
+					}
+				}
+				if (best != own
+						&& loads[best] + nodeWeights[i] <= maxLoad
+						&& loads[own] - nodeWeights[i] >= minLoad) {
+					partitions[i] = best;
+					loads[best] += nodeWeights[i];
+					loads[own] -= nodeWeights[i];
+					moved++;
+				}
+			}
+			if (moved == 0) {
+				break;
+			}
+		}
+	}
+
+	private static void countNeighbor(Node neighbor, Map<Id<Node>, Integer> nodeIndices, int[] partitions, int[] neighborCounts) {
+		Integer index = nodeIndices.get(neighbor.getId());
+		if (index != null) {
+			neighborCounts[partitions[index]]++;
+		}
+	}
+
+}
@@ -0,0 +1,964 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * A plan that stores its activities and legs in primitive arrays instead of one object per plan element: activity
+ * types and modes as indices into a global string table, link and facility ids as {@link Id#index()}, coordinates
+ * and times as doubles.  Attributes are only created for plan elements that actually have some.  Routes are still
+ * kept as objects; use the compressed network routes to also make them small.
+ * <br>
+ * The elements returned by {@link #getPlanElements()} are views (flyweights) on these arrays.  They are created when
+ * accessed and are then kept, so the same element is returned until the plan is {@link #compact() compacted}.
+ * Activities and legs that are added to the plan are kept as they are, unless they were created by the
+ * {@link PopulationFactoryImpl} of a compact population, in which case their data is moved into the arrays of the
+ * plan right away.
+ * <br>
+ * {@link #compact()} moves the data of all plan elements into the arrays and forgets about all element objects.
+ * Element objects obtained before keep working, but are then detached copies which no longer change the plan.
+ * It is thus only called at points where nobody should hold on to plan elements, e.g. before the mobsim.
+ * <br>
+ * Design decisions:<ul>
+ * <li> The data stays on the heap.  Primitive arrays are already free of per-element object headers and references,
+ * which is where the memory of the object-based plans goes, and they need no serialization for every access.
+ * <li> Times are stored as doubles and not packed into less bits, since they are not necessarily full seconds.
+ * </ul>
+ */
+/* deliberately package */ final class CompactPlanImpl implements Plan {
+
+	private static final int LEG_BIT = 1;
+	private static final int NOT_PACKED = -1;
+	private static final int UNDEFINED = -1;
+
+	private static final int[] EMPTY_INTS = new int[0];
+	private static final double[] EMPTY_DOUBLES = new double[0];
+	private static final Route[] EMPTY_ROUTES = new Route[0];
+
+	// the global string table for activity types and modes:
+	private static final Map<String, Integer> stringIndices = new ConcurrentHashMap<>();
+	private static volatile String[] strings = new String[64];
+	private static int stringCount = 0;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Attributes attributes = null;
+	private Customizable customizableDelegate = null;
+
+	/** plans only used to store the data of a single activity or leg that is not part of a plan */
+	private final boolean holder;
+
+	private int size = 0;
+	/** per plan element: slot of the activity or leg, shifted left by one bit, plus {@link #LEG_BIT} for legs; or {@link #NOT_PACKED} */
+	private int[] order = EMPTY_INTS;
+	/** per plan element, created lazily: the views on packed elements, and the elements that are not packed */
+	private Object[] elements = null;
+	private PlanElementsList list = null;
+
+	private int actCount = 0;
+	private int[] actTypes = EMPTY_INTS;
+	private int[] actLinks = EMPTY_INTS;
+	private int[] actFacilities = EMPTY_INTS;
+	/** start time, end time, maximum duration */
+	private double[] actTimes = EMPTY_DOUBLES;
+	/** x, y, z; x is NaN if there is no coord */
+	private double[] actCoords = EMPTY_DOUBLES;
+	private Attributes[] actAttributes = null;
+
+	private int legCount = 0;
+	private int[] legModes = EMPTY_INTS;
+	/** departure time, travel time */
+	private double[] legTimes = EMPTY_DOUBLES;
+	private Route[] legRoutes = EMPTY_ROUTES;
+	private Attributes[] legAttributes = null;
+
+	/* package */ CompactPlanImpl() {
+		this(false);
+	}
+
+	private CompactPlanImpl(final boolean holder) {
+		this.holder = holder;
+	}
+
+	/**
+	 * @return an activity which is not part of any plan yet.  If added to a compact plan, its data is moved into
+	 * that plan, and the activity becomes a view on it.
+	 */
+	/* package */ static Activity createActivity(final String type) {
+		CompactPlanImpl holder = new CompactPlanImpl(true);
+		int slot = holder.newActivitySlot();
+		holder.actTypes[slot] = stringIndex(type);
+		return new ActivityView(holder, slot);
+	}
+
+	/**
+	 * @return a leg which is not part of any plan yet, see {@link #createActivity(String)}.
+	 */
+	/* package */ static Leg createLeg(final String mode) {
+		CompactPlanImpl holder = new CompactPlanImpl(true);
+		int slot = holder.newLegSlot();
+		holder.legModes[slot] = stringIndex(mode);
+		return new LegView(holder, slot);
+	}
+
+	/**
+	 * @return a compact plan with the same content as <code>plan</code>.  The routes and attributes are
+	 * not copied, so <code>plan</code> should not be used anymore afterwards.
+	 */
+	/* package */ static CompactPlanImpl convert(final Plan plan) {
+		CompactPlanImpl compact = new CompactPlanImpl();
+		compact.person = plan.getPerson();
+		compact.score = plan.getScore();
+		compact.type = plan.getType();
+		if (!AttributesUtils.isEmpty(plan.getAttributes())) {
+			compact.attributes = plan.getAttributes();
+		}
+		if (!plan.getCustomAttributes().isEmpty()) {
+			compact.getCustomAttributes().putAll(plan.getCustomAttributes());
+		}
+		compact.ensureCapacity(plan.getPlanElements());
+		for (PlanElement pe : plan.getPlanElements()) {
+			compact.append(pe, false);
+		}
+		return compact;
+	}
+
+	/**
+	 * Replaces the content of this plan by a copy of the plan elements of <code>in</code>, including copies of
+	 * the routes.  Score, type and attributes of the plan itself are not copied.
+	 */
+	/* package */ void copyPlanElementsFrom(final Plan in) {
+		this.getPlanElements().clear();
+		if (in instanceof CompactPlanImpl) {
+			CompactPlanImpl src = (CompactPlanImpl) in;
+			for (int i = 0; i < src.size; i++) {
+				int code = src.order[i];
+				if (code == NOT_PACKED) {
+					append((PlanElement) src.elements[i], true);
+				} else if ((code & LEG_BIT) == 0) {
+					int slot = newActivitySlot();
+					copyActivitySlot(slot, src, code >> 1, true);
+					appendCode(slot << 1);
+				} else {
+					int slot = newLegSlot();
+					copyLegSlot(slot, src, code >> 1, true);
+					appendCode((slot << 1) | LEG_BIT);
+				}
+			}
+		} else {
+			ensureCapacity(in.getPlanElements());
+			for (PlanElement pe : in.getPlanElements()) {
+				append(pe, true);
+			}
+		}
+		if (this.list != null) {
+			this.list.changed();
+		}
+	}
+
+	/**
+	 * Moves the data of all plan elements into the arrays of this plan, without any unused space, and forgets
+	 * about the plan element objects.  Plan elements obtained before become detached copies.
+	 */
+	/* package */ void compact() {
+		int nActs = 0;
+		int nLegs = 0;
+		int nObjects = 0;
+		for (int i = 0; i < this.size; i++) {
+			int code = this.order[i];
+			Object element = code == NOT_PACKED ? this.elements[i] : null;
+			if (code == NOT_PACKED && !(element instanceof Activity) && !(element instanceof Leg)) {
+				nObjects++;
+			} else if (code == NOT_PACKED ? element instanceof Activity : (code & LEG_BIT) == 0) {
+				nActs++;
+			} else {
+				nLegs++;
+			}
+		}
+		CompactPlanImpl packed = new CompactPlanImpl(true);
+		packed.actTypes = new int[nActs];
+		packed.actLinks = new int[nActs];
+		packed.actFacilities = new int[nActs];
+		packed.actTimes = new double[nActs * 3];
+		packed.actCoords = new double[nActs * 3];
+		packed.legModes = new int[nLegs];
+		packed.legTimes = new double[nLegs * 2];
+		packed.legRoutes = new Route[nLegs];
+		int[] newOrder = new int[this.size];
+		Object[] newElements = nObjects > 0 ? new Object[this.size] : null;
+		for (int i = 0; i < this.size; i++) {
+			int code = this.order[i];
+			if (code == NOT_PACKED) {
+				Object element = this.elements[i];
+				if (element instanceof Activity) {
+					int slot = packed.newActivitySlot();
+					packed.setActivityData(slot, (Activity) element, true);
+					newOrder[i] = slot << 1;
+				} else if (element instanceof Leg) {
+					int slot = packed.newLegSlot();
+					packed.setLegData(slot, (Leg) element, false, true);
+					newOrder[i] = (slot << 1) | LEG_BIT;
+				} else {
+					newOrder[i] = NOT_PACKED;
+					newElements[i] = element;
+				}
+			} else if ((code & LEG_BIT) == 0) {
+				int slot = packed.newActivitySlot();
+				packed.copyActivitySlot(slot, this, code >> 1, false);
+				newOrder[i] = slot << 1;
+			} else {
+				int slot = packed.newLegSlot();
+				packed.copyLegSlot(slot, this, code >> 1, false);
+				newOrder[i] = (slot << 1) | LEG_BIT;
+			}
+		}
+		// the views need the old data to detach themselves
+		if (this.elements != null) {
+			for (int i = 0; i < this.size; i++) {
+				if (this.order[i] != NOT_PACKED && this.elements[i] != null) {
+					detach(this.elements[i]);
+				}
+			}
+		}
+		this.order = newOrder;
+		this.elements = newElements;
+		this.actCount = packed.actCount;
+		this.actTypes = packed.actTypes;
+		this.actLinks = packed.actLinks;
+		this.actFacilities = packed.actFacilities;
+		this.actTimes = packed.actTimes;
+		this.actCoords = packed.actCoords;
+		this.actAttributes = packed.actAttributes;
+		this.legCount = packed.legCount;
+		this.legModes = packed.legModes;
+		this.legTimes = packed.legTimes;
+		this.legRoutes = packed.legRoutes;
+		this.legAttributes = packed.legAttributes;
+		if (this.list != null) {
+			this.list.changed();
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// Plan
+	// ------------------------------------------------------------------
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.list == null) {
+			this.list = new PlanElementsList();
+		}
+		return this.list;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + this.size + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	// ------------------------------------------------------------------
+	// the list of plan elements
+	// ------------------------------------------------------------------
+
+	private final class PlanElementsList extends AbstractList<PlanElement> implements RandomAccess {
+
+		@Override
+		public int size() {
+			return CompactPlanImpl.this.size;
+		}
+
+		@Override
+		public PlanElement get(final int index) {
+			checkIndex(index, CompactPlanImpl.this.size);
+			return element(index);
+		}
+
+		@Override
+		public PlanElement set(final int index, final PlanElement element) {
+			checkIndex(index, CompactPlanImpl.this.size);
+			PlanElement old = element(index);
+			if (old != element) {
+				detachView(index);
+				place(index, element);
+			}
+			return old;
+		}
+
+		@Override
+		public void add(final int index, final PlanElement element) {
+			checkIndex(index, CompactPlanImpl.this.size + 1);
+			insertGap(index);
+			place(index, element);
+			this.modCount++;
+		}
+
+		@Override
+		public PlanElement remove(final int index) {
+			checkIndex(index, CompactPlanImpl.this.size);
+			PlanElement old = element(index);
+			removeRange(index, index + 1);
+			return old;
+		}
+
+		@Override
+		public void clear() {
+			removeRange(0, CompactPlanImpl.this.size);
+		}
+
+		@Override
+		protected void removeRange(final int fromIndex, final int toIndex) {
+			int n = toIndex - fromIndex;
+			if (n <= 0) {
+				return;
+			}
+			for (int i = fromIndex; i < toIndex; i++) {
+				detachView(i);
+			}
+			// the data of the removed elements stays in the arrays until the plan is compacted
+			int[] order = CompactPlanImpl.this.order;
+			int size = CompactPlanImpl.this.size;
+			System.arraycopy(order, toIndex, order, fromIndex, size - toIndex);
+			Object[] elements = CompactPlanImpl.this.elements;
+			if (elements != null) {
+				System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+				Arrays.fill(elements, size - n, size, null);
+			}
+			CompactPlanImpl.this.size = size - n;
+			if (size == n) {
+				// nothing refers to the data anymore, so it can be overwritten
+				CompactPlanImpl.this.actCount = 0;
+				CompactPlanImpl.this.legCount = 0;
+			}
+			this.modCount++;
+		}
+
+		/*package*/ void changed() {
+			this.modCount++;
+		}
+
+		private void checkIndex(final int index, final int bound) {
+			if (index < 0 || index >= bound) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + CompactPlanImpl.this.size);
+			}
+		}
+	}
+
+	private PlanElement element(final int index) {
+		Object element = this.elements == null ? null : this.elements[index];
+		if (element == null) {
+			int code = this.order[index];
+			if (code == NOT_PACKED) {
+				return null;
+			}
+			element = (code & LEG_BIT) == 0 ? new ActivityView(this, code >> 1) : new LegView(this, code >> 1);
+			ensureElements()[index] = element;
+		}
+		return (PlanElement) element;
+	}
+
+	private Object[] ensureElements() {
+		if (this.elements == null) {
+			this.elements = new Object[this.order.length];
+		}
+		return this.elements;
+	}
+
+	private void insertGap(final int index) {
+		if (this.size == this.order.length) {
+			int capacity = Math.max(4, this.size + (this.size >> 1));
+			this.order = Arrays.copyOf(this.order, capacity);
+			if (this.elements != null) {
+				this.elements = Arrays.copyOf(this.elements, capacity);
+			}
+		}
+		System.arraycopy(this.order, index, this.order, index + 1, this.size - index);
+		if (this.elements != null) {
+			System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
+			this.elements[index] = null;
+		}
+		this.size++;
+	}
+
+	/**
+	 * Stores the element at the given position.  Views that are not part of any plan are adopted, i.e. their data is
+	 * moved into this plan; everything else is stored as object.
+	 */
+	private void place(final int index, final PlanElement element) {
+		if (element instanceof ActivityView && ((ActivityView) element).plan.holder) {
+			ActivityView view = (ActivityView) element;
+			int slot = newActivitySlot();
+			copyActivitySlot(slot, view.plan, view.slot, false);
+			view.plan = this;
+			view.slot = slot;
+			this.order[index] = slot << 1;
+			ensureElements()[index] = view;
+		} else if (element instanceof LegView && ((LegView) element).plan.holder) {
+			LegView view = (LegView) element;
+			int slot = newLegSlot();
+			copyLegSlot(slot, view.plan, view.slot, false);
+			view.plan = this;
+			view.slot = slot;
+			this.order[index] = (slot << 1) | LEG_BIT;
+			ensureElements()[index] = view;
+		} else {
+			this.order[index] = NOT_PACKED;
+			if (element != null || this.elements != null) {
+				ensureElements()[index] = element;
+			}
+		}
+	}
+
+	/**
+	 * If the element at the given position is a view on the data of this plan, it gets its own copy of the data,
+	 * as the data of the position is about to be dropped.
+	 */
+	private void detachView(final int index) {
+		if (this.order[index] != NOT_PACKED && this.elements != null && this.elements[index] != null) {
+			detach(this.elements[index]);
+			this.elements[index] = null;
+		}
+	}
+
+	private static void detach(final Object view) {
+		if (view instanceof ActivityView) {
+			ActivityView v = (ActivityView) view;
+			CompactPlanImpl holder = new CompactPlanImpl(true);
+			int slot = holder.newActivitySlot();
+			holder.copyActivitySlot(slot, v.plan, v.slot, true);
+			v.plan = holder;
+			v.slot = slot;
+		} else {
+			LegView v = (LegView) view;
+			CompactPlanImpl holder = new CompactPlanImpl(true);
+			int slot = holder.newLegSlot();
+			holder.copyLegSlot(slot, v.plan, v.slot, true);
+			v.plan = holder;
+			v.slot = slot;
+		}
+	}
+
+	private void ensureCapacity(final List<PlanElement> planElements) {
+		int n = this.size + planElements.size();
+		if (n > this.order.length) {
+			this.order = Arrays.copyOf(this.order, n);
+			if (this.elements != null) {
+				this.elements = Arrays.copyOf(this.elements, n);
+			}
+		}
+	}
+
+	private void appendCode(final int code) {
+		insertGap(this.size);
+		this.order[this.size - 1] = code;
+	}
+
+	/**
+	 * Appends the data of the given element, without keeping the object.
+	 */
+	private void append(final PlanElement pe, final boolean copy) {
+		if (pe instanceof Activity) {
+			int slot = newActivitySlot();
+			setActivityData(slot, (Activity) pe, copy);
+			appendCode(slot << 1);
+		} else if (pe instanceof Leg) {
+			int slot = newLegSlot();
+			setLegData(slot, (Leg) pe, copy, copy);
+			appendCode((slot << 1) | LEG_BIT);
+		} else {
+			insertGap(this.size);
+			place(this.size - 1, pe);
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// the packed data
+	// ------------------------------------------------------------------
+
+	private int newActivitySlot() {
+		int slot = this.actCount;
+		if (slot == this.actTypes.length) {
+			int capacity = Math.max(2, slot + (slot >> 1) + 1);
+			this.actTypes = Arrays.copyOf(this.actTypes, capacity);
+			this.actLinks = Arrays.copyOf(this.actLinks, capacity);
+			this.actFacilities = Arrays.copyOf(this.actFacilities, capacity);
+			this.actTimes = Arrays.copyOf(this.actTimes, capacity * 3);
+			this.actCoords = Arrays.copyOf(this.actCoords, capacity * 3);
+			if (this.actAttributes != null) {
+				this.actAttributes = Arrays.copyOf(this.actAttributes, capacity);
+			}
+		}
+		this.actTypes[slot] = UNDEFINED;
+		this.actLinks[slot] = UNDEFINED;
+		this.actFacilities[slot] = UNDEFINED;
+		this.actTimes[slot * 3] = Time.UNDEFINED_TIME;
+		this.actTimes[slot * 3 + 1] = Time.UNDEFINED_TIME;
+		this.actTimes[slot * 3 + 2] = Time.UNDEFINED_TIME;
+		this.actCoords[slot * 3] = Double.NaN;
+		if (this.actAttributes != null) {
+			this.actAttributes[slot] = null;
+		}
+		this.actCount++;
+		return slot;
+	}
+
+	private int newLegSlot() {
+		int slot = this.legCount;
+		if (slot == this.legModes.length) {
+			int capacity = Math.max(2, slot + (slot >> 1) + 1);
+			this.legModes = Arrays.copyOf(this.legModes, capacity);
+			this.legTimes = Arrays.copyOf(this.legTimes, capacity * 2);
+			this.legRoutes = Arrays.copyOf(this.legRoutes, capacity);
+			if (this.legAttributes != null) {
+				this.legAttributes = Arrays.copyOf(this.legAttributes, capacity);
+			}
+		}
+		this.legModes[slot] = UNDEFINED;
+		this.legTimes[slot * 2] = Time.UNDEFINED_TIME;
+		this.legTimes[slot * 2 + 1] = Time.UNDEFINED_TIME;
+		this.legRoutes[slot] = null;
+		if (this.legAttributes != null) {
+			this.legAttributes[slot] = null;
+		}
+		this.legCount++;
+		return slot;
+	}
+
+	private void setActivityData(final int slot, final Activity act, final boolean copyAttributes) {
+		this.actTypes[slot] = stringIndex(act.getType());
+		this.actLinks[slot] = idIndex(act.getLinkId(), Link.class);
+		this.actFacilities[slot] = idIndex(act.getFacilityId(), ActivityFacility.class);
+		this.actTimes[slot * 3] = act.getStartTime();
+		this.actTimes[slot * 3 + 1] = act.getEndTime();
+		this.actTimes[slot * 3 + 2] = act.getMaximumDuration();
+		setCoord(slot, act.getCoord());
+		setActivityAttributes(slot, attributesOf(act), copyAttributes);
+	}
+
+	private void setLegData(final int slot, final Leg leg, final boolean cloneRoute, final boolean copyAttributes) {
+		this.legModes[slot] = stringIndex(leg.getMode());
+		this.legTimes[slot * 2] = leg.getDepartureTime();
+		this.legTimes[slot * 2 + 1] = leg.getTravelTime();
+		Route route = leg.getRoute();
+		this.legRoutes[slot] = (cloneRoute && route != null) ? route.clone() : route;
+		setLegAttributes(slot, attributesOf(leg), copyAttributes);
+	}
+
+	private void copyActivitySlot(final int slot, final CompactPlanImpl src, final int srcSlot, final boolean copyAttributes) {
+		this.actTypes[slot] = src.actTypes[srcSlot];
+		this.actLinks[slot] = src.actLinks[srcSlot];
+		this.actFacilities[slot] = src.actFacilities[srcSlot];
+		System.arraycopy(src.actTimes, srcSlot * 3, this.actTimes, slot * 3, 3);
+		System.arraycopy(src.actCoords, srcSlot * 3, this.actCoords, slot * 3, 3);
+		setActivityAttributes(slot, src.actAttributes == null ? null : src.actAttributes[srcSlot], copyAttributes);
+	}
+
+	private void copyLegSlot(final int slot, final CompactPlanImpl src, final int srcSlot, final boolean copy) {
+		this.legModes[slot] = src.legModes[srcSlot];
+		System.arraycopy(src.legTimes, srcSlot * 2, this.legTimes, slot * 2, 2);
+		Route route = src.legRoutes[srcSlot];
+		this.legRoutes[slot] = (copy && route != null) ? route.clone() : route;
+		setLegAttributes(slot, src.legAttributes == null ? null : src.legAttributes[srcSlot], copy);
+	}
+
+	private static Attributes attributesOf(final PlanElement pe) {
+		if (pe instanceof ActivityView) {
+			ActivityView view = (ActivityView) pe;
+			return view.plan.actAttributes == null ? null : view.plan.actAttributes[view.slot];
+		}
+		if (pe instanceof LegView) {
+			LegView view = (LegView) pe;
+			return view.plan.legAttributes == null ? null : view.plan.legAttributes[view.slot];
+		}
+		return pe.getAttributes();
+	}
+
+	private void setActivityAttributes(final int slot, final Attributes attributes, final boolean copy) {
+		if (attributes == null || AttributesUtils.isEmpty(attributes)) {
+			if (this.actAttributes != null) {
+				this.actAttributes[slot] = null;
+			}
+			return;
+		}
+		if (this.actAttributes == null) {
+			this.actAttributes = new Attributes[this.actTypes.length];
+		}
+		this.actAttributes[slot] = copy ? copyOf(attributes) : attributes;
+	}
+
+	private void setLegAttributes(final int slot, final Attributes attributes, final boolean copy) {
+		if (attributes == null || AttributesUtils.isEmpty(attributes)) {
+			if (this.legAttributes != null) {
+				this.legAttributes[slot] = null;
+			}
+			return;
+		}
+		if (this.legAttributes == null) {
+			this.legAttributes = new Attributes[this.legModes.length];
+		}
+		this.legAttributes[slot] = copy ? copyOf(attributes) : attributes;
+	}
+
+	private static Attributes copyOf(final Attributes attributes) {
+		Attributes copy = new Attributes();
+		AttributesUtils.copyTo(attributes, copy);
+		return copy;
+	}
+
+	private Coord getCoord(final int slot) {
+		double x = this.actCoords[slot * 3];
+		if (Double.isNaN(x)) {
+			return null;
+		}
+		double z = this.actCoords[slot * 3 + 2];
+		if (z == Double.NEGATIVE_INFINITY) {
+			return new Coord(x, this.actCoords[slot * 3 + 1]);
+		}
+		return new Coord(x, this.actCoords[slot * 3 + 1], z);
+	}
+
+	private void setCoord(final int slot, final Coord coord) {
+		if (coord == null) {
+			this.actCoords[slot * 3] = Double.NaN;
+		} else {
+			this.actCoords[slot * 3] = coord.getX();
+			this.actCoords[slot * 3 + 1] = coord.getY();
+			this.actCoords[slot * 3 + 2] = coord.hasZ() ? coord.getZ() : Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	private static int stringIndex(final String string) {
+		if (string == null) {
+			return UNDEFINED;
+		}
+		Integer index = stringIndices.get(string);
+		if (index == null) {
+			synchronized (stringIndices) {
+				index = stringIndices.get(string);
+				if (index == null) {
+					String[] array = strings;
+					if (stringCount == array.length) {
+						array = Arrays.copyOf(array, array.length * 2);
+					}
+					array[stringCount] = string.intern();
+					strings = array;
+					index = stringCount++;
+					stringIndices.put(string, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	private static String string(final int index) {
+		return index == UNDEFINED ? null : strings[index];
+	}
+
+	private static int idIndex(final Id<?> id, final Class<?> type) {
+		if (id == null) {
+			return UNDEFINED;
+		}
+		int index = id.index();
+		if (index < Id.getNumberOfIds(type) && Id.get(index, type) == id) {
+			return index;
+		}
+		// an id created for another type, which is equal anyway
+		return Id.create(id.toString(), type).index();
+	}
+
+	private static <T> Id<T> id(final int index, final Class<T> type) {
+		return index == UNDEFINED ? null : Id.get(index, type);
+	}
+
+	// ------------------------------------------------------------------
+	// the views
+	// ------------------------------------------------------------------
+
+	private static final class ActivityView implements Activity {
+
+		private CompactPlanImpl plan;
+		private int slot;
+
+		ActivityView(final CompactPlanImpl plan, final int slot) {
+			this.plan = plan;
+			this.slot = slot;
+		}
+
+		@Override
+		public double getEndTime() {
+			return this.plan.actTimes[this.slot * 3 + 1];
+		}
+
+		@Override
+		public void setEndTime(final double seconds) {
+			this.plan.actTimes[this.slot * 3 + 1] = seconds;
+		}
+
+		@Override
+		public String getType() {
+			return string(this.plan.actTypes[this.slot]);
+		}
+
+		@Override
+		public void setType(final String type) {
+			this.plan.actTypes[this.slot] = stringIndex(type);
+		}
+
+		@Override
+		public Coord getCoord() {
+			return this.plan.getCoord(this.slot);
+		}
+
+		@Override
+		public void setCoord(final Coord coord) {
+			this.plan.setCoord(this.slot, coord);
+		}
+
+		@Override
+		public double getStartTime() {
+			return this.plan.actTimes[this.slot * 3];
+		}
+
+		@Override
+		public void setStartTime(final double seconds) {
+			this.plan.actTimes[this.slot * 3] = seconds;
+		}
+
+		@Override
+		public double getMaximumDuration() {
+			return this.plan.actTimes[this.slot * 3 + 2];
+		}
+
+		@Override
+		public void setMaximumDuration(final double seconds) {
+			this.plan.actTimes[this.slot * 3 + 2] = seconds;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return id(this.plan.actLinks[this.slot], Link.class);
+		}
+
+		@Override
+		public void setLinkId(final Id<Link> id) {
+			this.plan.actLinks[this.slot] = idIndex(id, Link.class);
+		}
+
+		@Override
+		public Id<ActivityFacility> getFacilityId() {
+			return id(this.plan.actFacilities[this.slot], ActivityFacility.class);
+		}
+
+		@Override
+		public void setFacilityId(final Id<ActivityFacility> id) {
+			this.plan.actFacilities[this.slot] = idIndex(id, ActivityFacility.class);
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			CompactPlanImpl plan = this.plan;
+			if (plan.actAttributes == null) {
+				plan.actAttributes = new Attributes[plan.actTypes.length];
+			}
+			Attributes attributes = plan.actAttributes[this.slot];
+			if (attributes == null) {
+				attributes = new Attributes();
+				plan.actAttributes[this.slot] = attributes;
+			}
+			return attributes;
+		}
+
+		@Override
+		public String toString() {
+			return "[type=" + this.getType() + "]" +
+					"[coord=" + this.getCoord() + "]" +
+					"[linkId=" + this.getLinkId() + "]" +
+					"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+					"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+					"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+					"[facilityId=" + this.getFacilityId() + "]" ;
+		}
+	}
+
+	private static final class LegView implements Leg {
+
+		private CompactPlanImpl plan;
+		private int slot;
+
+		LegView(final CompactPlanImpl plan, final int slot) {
+			this.plan = plan;
+			this.slot = slot;
+		}
+
+		@Override
+		public String getMode() {
+			return string(this.plan.legModes[this.slot]);
+		}
+
+		@Override
+		public void setMode(final String mode) {
+			this.plan.legModes[this.slot] = stringIndex(mode);
+		}
+
+		@Override
+		public Route getRoute() {
+			return this.plan.legRoutes[this.slot];
+		}
+
+		@Override
+		public void setRoute(final Route route) {
+			this.plan.legRoutes[this.slot] = route;
+		}
+
+		@Override
+		public double getDepartureTime() {
+			return this.plan.legTimes[this.slot * 2];
+		}
+
+		@Override
+		public void setDepartureTime(final double seconds) {
+			this.plan.legTimes[this.slot * 2] = seconds;
+		}
+
+		@Override
+		public double getTravelTime() {
+			return this.plan.legTimes[this.slot * 2 + 1];
+		}
+
+		@Override
+		public void setTravelTime(final double seconds) {
+			this.plan.legTimes[this.slot * 2 + 1] = seconds;
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			CompactPlanImpl plan = this.plan;
+			if (plan.legAttributes == null) {
+				plan.legAttributes = new Attributes[plan.legModes.length];
+			}
+			Attributes attributes = plan.legAttributes[this.slot];
+			if (attributes == null) {
+				attributes = new Attributes();
+				plan.legAttributes[this.slot] = attributes;
+			}
+			return attributes;
+		}
+
+		@Override
+		public String toString() {
+			return "[mode=" + this.getMode() + "]" +
+					"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+					"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+					"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+					"[route=" + this.getRoute() + "]";
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlansModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+
+public final class CompactPlansModule extends AbstractModule {
+	@Override
+	public void install() {
+		if ( getConfig().plans().getPlanElementsStorage() == PlansConfigGroup.PlanElementsStorage.compact ) {
+			addControlerListenerBinding().to(PlansCompactor.class);
+		}
+	}
+}
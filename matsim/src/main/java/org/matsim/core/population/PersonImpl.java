@@ -80,7 +80,14 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
-		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+		Plan newPlan;
+		if (oldPlan instanceof CompactPlanImpl) {
+			// keep the copy compact as well, instead of creating it with the default factory
+			newPlan = new CompactPlanImpl();
+			newPlan.setPerson(oldPlan.getPerson());
+		} else {
+			newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+		}
 		PopulationUtils.copyFromTo(oldPlan, newPlan);
 		this.getPlans().add(newPlan);
 		this.setSelectedPlan(newPlan);
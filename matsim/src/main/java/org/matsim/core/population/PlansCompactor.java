@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlansCompactor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Packs the plan elements that were created or changed during replanning into the arrays of the compact plans.
+ * Before the mobsim, nobody should hold on to any plan elements of the last iteration anymore.
+ */
+/* deliberately package */ class PlansCompactor implements BeforeMobsimListener {
+
+	@Inject private Population population;
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		PopulationUtils.compactPlans(this.population);
+	}
+
+}
@@ -39,12 +39,18 @@ import org.matsim.core.population.routes.RouteFactory;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compactPlans;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compactPlans) {
+		this.routeFactory = routeFactory;
+		this.compactPlans = compactPlans;
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
         return new PersonImpl(id) ;
@@ -52,26 +58,26 @@ import org.matsim.core.population.routes.RouteFactory;
 
 	@Override
 	public Plan createPlan(){
-		return new PlanImpl() ;
+		return this.compactPlans ? new CompactPlanImpl() : new PlanImpl() ;
 	}
 
 	@Override
 	public Activity createActivityFromCoord(final String actType, final Coord coord) {
-        Activity act = new ActivityImpl(actType) ;
+        Activity act = this.compactPlans ? CompactPlanImpl.createActivity(actType) : new ActivityImpl(actType) ;
         act.setCoord(coord); 
         return act ;
 	}
 
 	@Override
 	public Activity createActivityFromLinkId(final String actType, final Id<Link> linkId) {
-	        Activity act = new ActivityImpl(actType) ;
+	        Activity act = this.compactPlans ? CompactPlanImpl.createActivity(actType) : new ActivityImpl(actType) ;
 	        act.setLinkId(linkId);
 	        return act ;
 	}
 
 	@Override
 	public Leg createLeg(final String legMode) {
-		return new LegImpl(legMode) ;
+		return this.compactPlans ? CompactPlanImpl.createLeg(legMode) : new LegImpl(legMode) ;
 	}
 
 
@@ -120,7 +120,8 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		boolean compactPlans = plansConfigGroup.getPlanElementsStorage() == PlansConfigGroup.PlanElementsStorage.compact;
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory, compactPlans));
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -785,6 +786,14 @@ public final class PopulationUtils {
 	 * @param out 
 	 **/
 	public static void copyFromTo(final Plan in, Plan out) {
+		if (out instanceof CompactPlanImpl) {
+			// copies the packed data directly, without creating activity and leg objects
+			((CompactPlanImpl) out).copyPlanElementsFrom(in);
+			out.setScore(in.getScore());
+			out.setType(in.getType());
+			AttributesUtils.copyAttributesFromTo(in, out );
+			return;
+		}
 		out.getPlanElements().clear();
 		out.setScore(in.getScore());
 		out.setType(in.getType());
@@ -988,6 +997,31 @@ public final class PopulationUtils {
 		}
 	}
 
+	/**
+	 * Stores the activities and legs of all plans in primitive arrays, see {@link PlansConfigGroup.PlanElementsStorage#compact}.
+	 * Plans which are not stored this way yet are replaced by compact copies.  Activities and legs obtained from the
+	 * plans before will not change the plans anymore.
+	 */
+	public static void compactPlans( Population population ) {
+		for ( Person person : population.getPersons().values() ) {
+			@SuppressWarnings("unchecked")
+			List<Plan> plans = (List<Plan>) person.getPlans();
+			Plan selectedPlan = person.getSelectedPlan();
+			for ( int i = 0; i < plans.size(); i++ ) {
+				Plan plan = plans.get(i);
+				if ( plan instanceof CompactPlanImpl ) {
+					((CompactPlanImpl) plan).compact();
+				} else {
+					CompactPlanImpl compactPlan = CompactPlanImpl.convert(plan);
+					plans.set(i, compactPlan);
+					if ( plan == selectedPlan ) {
+						person.setSelectedPlan(compactPlan);
+					}
+				}
+			}
+		}
+	}
+
 	public static void printPlansCount( Population population ) {
 		log.info(" person # " + population.getPersons().size() );
 	}
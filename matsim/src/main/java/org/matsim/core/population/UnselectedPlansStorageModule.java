@@ -0,0 +1,65 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansStorageModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.File;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.population.io.UnselectedPlansStore;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the unselected plans on disk if configured so, see {@link PlansConfigGroup#getUnselectedPlansStorage()}.
+ * The replanning and the plans dumps then work on one partition of the persons after the other.
+ */
+public final class UnselectedPlansStorageModule extends AbstractModule {
+	@Override
+	public void install() {
+		if ( getConfig().plans().getUnselectedPlansStorage() == PlansConfigGroup.UnselectedPlansStorage.disk ) {
+			bind(UnselectedPlansStore.class).toProvider(UnselectedPlansStoreProvider.class).in(Singleton.class);
+			addControlerListenerBinding().to(UnselectedPlansStoring.class);
+		}
+	}
+
+	private static final class UnselectedPlansStoreProvider implements Provider<UnselectedPlansStore> {
+		@Inject private Population population;
+		@Inject private PlansConfigGroup plansConfigGroup;
+		@Inject private OutputDirectoryHierarchy controlerIO;
+		@Inject private Map<Class<?>, AttributeConverter<?>> attributeConverters;
+
+		@Override
+		public UnselectedPlansStore get() {
+			UnselectedPlansStore store = new UnselectedPlansStore(this.population,
+					new File(this.controlerIO.getTempPath(), "unselectedPlans"), this.plansConfigGroup.getUnselectedPlansPartitionSize());
+			store.putAttributeConverters(this.attributeConverters);
+			return store;
+		}
+	}
+}
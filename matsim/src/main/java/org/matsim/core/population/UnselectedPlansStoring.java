@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansStoring.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.population.io.UnselectedPlansStore;
+
+import com.google.inject.Inject;
+
+/**
+ * Moves the unselected plans to disk when the first iteration starts, i.e. after all plans were prepared for the
+ * simulation.  Later, the replanning loads and stores them partition by partition.
+ */
+/* deliberately package */ class UnselectedPlansStoring implements IterationStartsListener {
+
+	@Inject private UnselectedPlansStore store;
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		this.store.storeAll();
+	}
+
+}
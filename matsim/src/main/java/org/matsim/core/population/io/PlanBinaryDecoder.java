@@ -0,0 +1,235 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanBinaryDecoder.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads plans written by a {@link PlanBinaryEncoder}, creating them with the given {@link PopulationFactory}.  The
+ * stream must be read in the order it was written, from its beginning, since strings are only written once.
+ *
+ * @see PlanBinaryEncoder
+ */
+public final class PlanBinaryDecoder {
+
+	private final DataInput in;
+	private final PopulationFactory factory;
+	private final List<String> strings = new ArrayList<>();
+	private final Map<String, AttributeConverter<?>> converters = new HashMap<>();
+
+	public PlanBinaryDecoder(final DataInput in, final PopulationFactory factory) {
+		this.in = in;
+		this.factory = factory;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		for (Map.Entry<Class<?>, AttributeConverter<?>> e : converters.entrySet()) {
+			this.converters.put(e.getKey().getCanonicalName(), e.getValue());
+		}
+	}
+
+	public DataInput getInput() {
+		return this.in;
+	}
+
+	public int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = this.in.readByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed variable-length int.");
+	}
+
+	public String readString() throws IOException {
+		int code = readVarInt();
+		if (code == PlanBinaryEncoder.STRING_NULL) {
+			return null;
+		}
+		if (code == PlanBinaryEncoder.STRING_NEW) {
+			byte[] bytes = new byte[readVarInt()];
+			this.in.readFully(bytes);
+			String string = new String(bytes, StandardCharsets.UTF_8);
+			this.strings.add(string);
+			return string;
+		}
+		int index = code - PlanBinaryEncoder.STRING_FIRST_INDEX;
+		if (index >= this.strings.size()) {
+			throw new IOException("unknown string " + index + "; the stream is not read in the order it was written.");
+		}
+		return this.strings.get(index);
+	}
+
+	public <T> Id<T> readId(final Class<T> type) throws IOException {
+		String id = readString();
+		return id == null ? null : Id.create(id, type);
+	}
+
+	/**
+	 * Adds the attributes read to the given ones.
+	 */
+	public void readAttributes(final Attributes attributes) throws IOException {
+		int count = readVarInt();
+		for (int i = 0; i < count; i++) {
+			String name = readString();
+			attributes.putAttribute(name, readValue());
+		}
+	}
+
+	private Object readValue() throws IOException {
+		byte type = this.in.readByte();
+		switch (type) {
+			case PlanBinaryEncoder.VALUE_STRING:
+				return readString();
+			case PlanBinaryEncoder.VALUE_INTEGER:
+				return this.in.readInt();
+			case PlanBinaryEncoder.VALUE_LONG:
+				return this.in.readLong();
+			case PlanBinaryEncoder.VALUE_FLOAT:
+				return this.in.readFloat();
+			case PlanBinaryEncoder.VALUE_DOUBLE:
+				return this.in.readDouble();
+			case PlanBinaryEncoder.VALUE_BOOLEAN:
+				return this.in.readBoolean();
+			case PlanBinaryEncoder.VALUE_CONVERTED:
+				String className = readString();
+				String value = readString();
+				AttributeConverter<?> converter = this.converters.get(className);
+				if (converter == null) {
+					throw new IOException("no AttributeConverter for class " + className);
+				}
+				return converter.convert(value);
+			default:
+				throw new IOException("unknown attribute type " + type);
+		}
+	}
+
+	/**
+	 * @return a new plan which does not belong to any person yet.
+	 */
+	public Plan readPlan() throws IOException {
+		Plan plan = this.factory.createPlan();
+		if (this.in.readBoolean()) {
+			plan.setScore(this.in.readDouble());
+		}
+		plan.setType(readString());
+		readAttributes(plan.getAttributes());
+		int size = readVarInt();
+		for (int i = 0; i < size; i++) {
+			byte type = this.in.readByte();
+			if (type == PlanBinaryEncoder.ELEMENT_ACTIVITY) {
+				plan.addActivity(readActivity());
+			} else if (type == PlanBinaryEncoder.ELEMENT_LEG) {
+				plan.addLeg(readLeg());
+			} else {
+				throw new IOException("unknown plan element type " + type);
+			}
+		}
+		return plan;
+	}
+
+	private Activity readActivity() throws IOException {
+		String type = readString();
+		Id<Link> linkId = readId(Link.class);
+		Id<ActivityFacility> facilityId = readId(ActivityFacility.class);
+		Coord coord = null;
+		byte coordType = this.in.readByte();
+		if (coordType != PlanBinaryEncoder.COORD_NONE) {
+			double x = this.in.readDouble();
+			double y = this.in.readDouble();
+			coord = coordType == PlanBinaryEncoder.COORD_XYZ ? new Coord(x, y, this.in.readDouble()) : new Coord(x, y);
+		}
+		Activity activity;
+		if (coord != null) {
+			activity = this.factory.createActivityFromCoord(type, coord);
+			activity.setLinkId(linkId);
+		} else {
+			activity = this.factory.createActivityFromLinkId(type, linkId);
+		}
+		activity.setFacilityId(facilityId);
+		activity.setStartTime(this.in.readDouble());
+		activity.setEndTime(this.in.readDouble());
+		activity.setMaximumDuration(this.in.readDouble());
+		readAttributes(activity.getAttributes());
+		return activity;
+	}
+
+	private Leg readLeg() throws IOException {
+		Leg leg = this.factory.createLeg(readString());
+		leg.setDepartureTime(this.in.readDouble());
+		leg.setTravelTime(this.in.readDouble());
+		readAttributes(leg.getAttributes());
+		byte routeType = this.in.readByte();
+		if (routeType == PlanBinaryEncoder.ROUTE_NONE) {
+			return leg;
+		}
+		RouteFactories routeFactories = this.factory.getRouteFactories();
+		Class<? extends Route> routeClass = routeFactories.getRouteClassForType(readString());
+		Id<Link> startLinkId = readId(Link.class);
+		Id<Link> endLinkId = readId(Link.class);
+		Route route = routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+		double distance = this.in.readDouble();
+		double travelTime = this.in.readDouble();
+		if (routeType == PlanBinaryEncoder.ROUTE_NETWORK) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			Id<Vehicle> vehicleId = readId(Vehicle.class);
+			int size = readVarInt();
+			List<Id<Link>> linkIds = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				linkIds.add(readId(Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setVehicleId(vehicleId);
+		} else {
+			route.setRouteDescription(readString());
+		}
+		// after the description, which may change them:
+		route.setDistance(distance);
+		route.setTravelTime(travelTime);
+		leg.setRoute(route);
+		return leg;
+	}
+
+}
@@ -0,0 +1,311 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanBinaryEncoder.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Writes plans in a compact binary format to a stream, to be read again by a {@link PlanBinaryDecoder}.  Strings,
+ * e.g. activity types, modes and ids, are written once per stream and afterwards referenced by their index, so the
+ * decoder must read the stream in the same order, from its beginning.  Network routes are written as lists of link
+ * ids, other routes by their description.
+ * <br>
+ * Attribute values of other classes than String, Integer, Long, Float, Double and Boolean need an
+ * {@link AttributeConverter}; values without one are skipped with a warning, as in the xml writers.
+ *
+ * @see PlanBinaryDecoder
+ */
+public final class PlanBinaryEncoder {
+
+	private static final Logger log = Logger.getLogger(PlanBinaryEncoder.class);
+
+	static final int STRING_NULL = 0;
+	static final int STRING_NEW = 1;
+	static final int STRING_FIRST_INDEX = 2;
+
+	static final byte ELEMENT_ACTIVITY = 0;
+	static final byte ELEMENT_LEG = 1;
+
+	static final byte COORD_NONE = 0;
+	static final byte COORD_XY = 1;
+	static final byte COORD_XYZ = 2;
+
+	static final byte ROUTE_NONE = 0;
+	static final byte ROUTE_NETWORK = 1;
+	static final byte ROUTE_DESCRIPTION = 2;
+
+	static final byte VALUE_STRING = 0;
+	static final byte VALUE_INTEGER = 1;
+	static final byte VALUE_LONG = 2;
+	static final byte VALUE_FLOAT = 3;
+	static final byte VALUE_DOUBLE = 4;
+	static final byte VALUE_BOOLEAN = 5;
+	static final byte VALUE_CONVERTED = 6;
+
+	private final DataOutput out;
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private final Set<Class<?>> missingConverters = new HashSet<>();
+	// only if the written ids are recorded; the ids are compared by identity, as ids of different types may be equal
+	private Set<Id<?>> recordedIds = null;
+	private List<Id<?>> writtenIds = null;
+	private List<Class<?>> writtenIdTypes = null;
+
+	public PlanBinaryEncoder(final DataOutput out) {
+		this.out = out;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	public DataOutput getOutput() {
+		return this.out;
+	}
+
+	/**
+	 * Writes the int in 1 to 5 bytes, 7 bits per byte, so small non-negative values take little space.
+	 */
+	public void writeVarInt(final int value) throws IOException {
+		int v = value;
+		while ((v & ~0x7f) != 0) {
+			this.out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		this.out.writeByte(v);
+	}
+
+	public void writeString(final String string) throws IOException {
+		if (string == null) {
+			writeVarInt(STRING_NULL);
+			return;
+		}
+		Integer index = this.strings.get(string);
+		if (index != null) {
+			writeVarInt(STRING_FIRST_INDEX + index);
+			return;
+		}
+		this.strings.put(string, this.strings.size());
+		writeVarInt(STRING_NEW);
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		this.out.write(bytes);
+	}
+
+	public <T> void writeId(final Id<T> id, final Class<T> type) throws IOException {
+		if (id != null && this.recordedIds != null && this.recordedIds.add(id)) {
+			this.writtenIds.add(id);
+			this.writtenIdTypes.add(type);
+		}
+		writeString(id == null ? null : id.toString());
+	}
+
+	/**
+	 * Records the ids written from now on, see {@link #getWrittenIds()}.
+	 */
+	public void recordWrittenIds() {
+		this.recordedIds = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.writtenIds = new ArrayList<>();
+		this.writtenIdTypes = new ArrayList<>();
+	}
+
+	/**
+	 * @return the ids written since {@link #recordWrittenIds()}, in the order they were first written
+	 */
+	public List<Id<?>> getWrittenIds() {
+		return Collections.unmodifiableList(this.writtenIds);
+	}
+
+	/**
+	 * @return the types of the {@link #getWrittenIds()}
+	 */
+	public List<Class<?>> getWrittenIdTypes() {
+		return Collections.unmodifiableList(this.writtenIdTypes);
+	}
+
+	public void writeAttributes(final Attributes attributes) throws IOException {
+		final List<String> names = new ArrayList<>();
+		final List<Object> values = new ArrayList<>();
+		AttributesUtils.forEach(attributes, (name, value) -> {
+			if (getValueType(value) == VALUE_CONVERTED && !this.converters.containsKey(value.getClass())) {
+				if (this.missingConverters.add(value.getClass())) {
+					log.warn("No AttributeConverter found for class " + value.getClass().getCanonicalName() + ". Not all attribute values will be written.");
+				}
+				return;
+			}
+			names.add(name);
+			values.add(value);
+		});
+		writeVarInt(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			writeString(names.get(i));
+			writeValue(values.get(i));
+		}
+	}
+
+	private static byte getValueType(final Object value) {
+		if (value instanceof String) {
+			return VALUE_STRING;
+		} else if (value instanceof Integer) {
+			return VALUE_INTEGER;
+		} else if (value instanceof Long) {
+			return VALUE_LONG;
+		} else if (value instanceof Float) {
+			return VALUE_FLOAT;
+		} else if (value instanceof Double) {
+			return VALUE_DOUBLE;
+		} else if (value instanceof Boolean) {
+			return VALUE_BOOLEAN;
+		}
+		return VALUE_CONVERTED;
+	}
+
+	private void writeValue(final Object value) throws IOException {
+		byte type = getValueType(value);
+		this.out.writeByte(type);
+		switch (type) {
+			case VALUE_STRING:
+				writeString((String) value);
+				break;
+			case VALUE_INTEGER:
+				this.out.writeInt((Integer) value);
+				break;
+			case VALUE_LONG:
+				this.out.writeLong((Long) value);
+				break;
+			case VALUE_FLOAT:
+				this.out.writeFloat((Float) value);
+				break;
+			case VALUE_DOUBLE:
+				this.out.writeDouble((Double) value);
+				break;
+			case VALUE_BOOLEAN:
+				this.out.writeBoolean((Boolean) value);
+				break;
+			default:
+				writeString(value.getClass().getCanonicalName());
+				writeString(this.converters.get(value.getClass()).convertToString(value));
+		}
+	}
+
+	/**
+	 * Writes the plan with its score, type, attributes and plan elements, but not its person.
+	 */
+	public void writePlan(final Plan plan) throws IOException {
+		Double score = plan.getScore();
+		this.out.writeBoolean(score != null);
+		if (score != null) {
+			this.out.writeDouble(score);
+		}
+		writeString(plan.getType());
+		writeAttributes(plan.getAttributes());
+		List<PlanElement> elements = plan.getPlanElements();
+		writeVarInt(elements.size());
+		for (PlanElement element : elements) {
+			if (element instanceof Activity) {
+				this.out.writeByte(ELEMENT_ACTIVITY);
+				writeActivity((Activity) element);
+			} else if (element instanceof Leg) {
+				this.out.writeByte(ELEMENT_LEG);
+				writeLeg((Leg) element);
+			} else {
+				throw new IllegalArgumentException("unsupported plan element " + element);
+			}
+		}
+	}
+
+	private void writeActivity(final Activity activity) throws IOException {
+		writeString(activity.getType());
+		writeId(activity.getLinkId(), Link.class);
+		writeId(activity.getFacilityId(), ActivityFacility.class);
+		Coord coord = activity.getCoord();
+		if (coord == null) {
+			this.out.writeByte(COORD_NONE);
+		} else {
+			this.out.writeByte(coord.hasZ() ? COORD_XYZ : COORD_XY);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				this.out.writeDouble(coord.getZ());
+			}
+		}
+		this.out.writeDouble(activity.getStartTime());
+		this.out.writeDouble(activity.getEndTime());
+		this.out.writeDouble(activity.getMaximumDuration());
+		writeAttributes(activity.getAttributes());
+	}
+
+	private void writeLeg(final Leg leg) throws IOException {
+		writeString(leg.getMode());
+		this.out.writeDouble(leg.getDepartureTime());
+		this.out.writeDouble(leg.getTravelTime());
+		writeAttributes(leg.getAttributes());
+		Route route = leg.getRoute();
+		if (route == null) {
+			this.out.writeByte(ROUTE_NONE);
+			return;
+		}
+		this.out.writeByte(route instanceof NetworkRoute ? ROUTE_NETWORK : ROUTE_DESCRIPTION);
+		writeString(route.getRouteType());
+		writeId(route.getStartLinkId(), Link.class);
+		writeId(route.getEndLinkId(), Link.class);
+		this.out.writeDouble(route.getDistance());
+		this.out.writeDouble(route.getTravelTime());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			writeId(networkRoute.getVehicleId(), Vehicle.class);
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			writeVarInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeId(linkId, Link.class);
+			}
+		} else {
+			writeString(route.getRouteDescription());
+		}
+	}
+
+}
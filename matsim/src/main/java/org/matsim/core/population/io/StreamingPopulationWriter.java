@@ -36,6 +36,7 @@ import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.io.AbstractMatsimWriter;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Counter;
+import org.matsim.utils.objectattributes.AttributeConverter;
 import org.matsim.utils.objectattributes.ObjectAttributes;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
@@ -196,6 +197,12 @@ public final class StreamingPopulationWriter implements PersonAlgorithm {
 		matsimWriter.closeHere();
 	}
 
+	public final void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		if ( this.handler instanceof PopulationWriterHandlerImplV6 ) {
+			((PopulationWriterHandlerImplV6) this.handler).putAttributeConverters( converters );
+		}
+	}
+
 	public final void setWriterHandler(final PopulationWriterHandler handler) {
 		this.handler = handler;
 	}
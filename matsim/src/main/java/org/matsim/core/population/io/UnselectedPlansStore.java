@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Keeps the plans of a population which are not selected on disk, so only the selected plans, i.e. the ones the
+ * mobsim and scoring need, are in memory between the replanning passes.  The persons are split into partitions of
+ * a fixed size in the order of the population when the plans are stored for the first time; the unselected plans of
+ * each partition are kept in one file in the compact binary format of the {@link PlanBinaryEncoder}.
+ * {@link #forEachPartition(Consumer)} loads the plans of one partition after the other, e.g. for replanning or for
+ * writing the population, and stores them again afterwards.
+ * <br>
+ * Persons added to the population after the first {@link #storeAll()} are not part of any partition and keep their
+ * plans in memory.  The store changes the plan lists of the persons directly, without
+ * {@link Person#removePlan(Plan)}, so the selected plan stays selected.
+ */
+public final class UnselectedPlansStore {
+
+	private static final Logger log = Logger.getLogger(UnselectedPlansStore.class);
+
+	private final Population population;
+	private final File directory;
+	private final int partitionSize;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private List<List<Person>> partitions = null; // null until the plans are stored for the first time
+	private boolean[] stored;
+
+	/**
+	 * @param directory where the partition files are written; created if necessary
+	 * @param partitionSize the number of persons whose plans are loaded at once
+	 */
+	public UnselectedPlansStore(final Population population, final File directory, final int partitionSize) {
+		if (partitionSize <= 0) {
+			throw new IllegalArgumentException("partition size must be positive, but is " + partitionSize);
+		}
+		this.population = population;
+		this.directory = directory;
+		this.partitionSize = partitionSize;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributeConverters.putAll(converters);
+	}
+
+	/**
+	 * @return the number of partitions, 0 before the plans are stored for the first time.
+	 */
+	public int getPartitionCount() {
+		return this.partitions == null ? 0 : this.partitions.size();
+	}
+
+	/**
+	 * Moves the unselected plans of all partitions which are currently loaded to disk.  The first call defines the
+	 * partitions.
+	 */
+	public void storeAll() {
+		if (this.partitions == null) {
+			if (!this.directory.exists() && !this.directory.mkdirs()) {
+				throw new UncheckedIOException("could not create directory " + this.directory);
+			}
+			this.partitions = new ArrayList<>();
+			List<Person> partition = null;
+			for (Person person : this.population.getPersons().values()) {
+				if (partition == null || partition.size() == this.partitionSize) {
+					partition = new ArrayList<>(this.partitionSize);
+					this.partitions.add(partition);
+				}
+				partition.add(person);
+			}
+			this.stored = new boolean[this.partitions.size()];
+			log.info("storing the unselected plans of " + this.population.getPersons().size() + " persons in "
+					+ this.partitions.size() + " partitions in " + this.directory);
+			log.warn("between the replannings, only the selected plans are in memory, so listeners which look at all plans, "
+					+ "e.g. the score statistics, only see the selected ones");
+		}
+		for (int p = 0; p < this.partitions.size(); p++) {
+			if (!this.stored[p]) {
+				store(p);
+			}
+		}
+	}
+
+	/**
+	 * Loads the plans of each partition, passes its persons to the action, and stores their unselected plans again.
+	 * Before the plans are stored for the first time, all persons are passed at once.
+	 */
+	public void forEachPartition(final Consumer<List<Person>> action) {
+		if (this.partitions == null) {
+			action.accept(Collections.unmodifiableList(new ArrayList<>(this.population.getPersons().values())));
+			return;
+		}
+		for (int p = 0; p < this.partitions.size(); p++) {
+			if (this.stored[p]) {
+				load(p);
+			}
+			try {
+				action.accept(Collections.unmodifiableList(this.partitions.get(p)));
+			} finally {
+				store(p);
+			}
+		}
+	}
+
+	/**
+	 * Writes the population with all its plans, one partition after the other.
+	 *
+	 * @param writer a writer which is not yet streaming
+	 */
+	public void writePopulation(final StreamingPopulationWriter writer, final String filename) {
+		writer.startStreaming(filename);
+		forEachPartition(persons -> {
+			for (Person person : persons) {
+				writer.writePerson(person);
+			}
+		});
+		writer.closeStreaming();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Plan> getPlans(final Person person) {
+		// the list of a person holds plans in any case, only its declaration is more general:
+		return (List<Plan>) person.getPlans();
+	}
+
+	private File getFile(final int partition) {
+		return new File(this.directory, "unselectedPlans." + partition + ".bin");
+	}
+
+	private void store(final int partition) {
+		File file = getFile(partition);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			PlanBinaryEncoder encoder = new PlanBinaryEncoder(out);
+			encoder.putAttributeConverters(this.attributeConverters);
+			for (Person person : this.partitions.get(partition)) {
+				List<Plan> plans = getPlans(person);
+				Plan selected = person.getSelectedPlan();
+				int selectedIndex = selected == null ? -1 : plans.indexOf(selected);
+				encoder.writeString(person.getId().toString());
+				if (selectedIndex < 0) {
+					// nothing to keep in memory instead of the others, so keep them all
+					encoder.writeVarInt(0);
+					encoder.writeVarInt(0);
+					continue;
+				}
+				encoder.writeVarInt(selectedIndex);
+				encoder.writeVarInt(plans.size() - 1);
+				for (Plan plan : plans) {
+					if (plan != selected) {
+						encoder.writePlan(plan);
+					}
+				}
+				plans.clear();
+				plans.add(selected);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		file.deleteOnExit();
+		this.stored[partition] = true;
+	}
+
+	private void load(final int partition) {
+		File file = getFile(partition);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			PlanBinaryDecoder decoder = new PlanBinaryDecoder(in, this.population.getFactory());
+			decoder.putAttributeConverters(this.attributeConverters);
+			for (Person person : this.partitions.get(partition)) {
+				String personId = decoder.readString();
+				if (!person.getId().toString().equals(personId)) {
+					throw new IOException("expected plans of person " + person.getId() + " in " + file + ", but found " + personId);
+				}
+				int selectedIndex = decoder.readVarInt();
+				int count = decoder.readVarInt();
+				List<Plan> plans = getPlans(person);
+				for (int i = 0; i < count; i++) {
+					Plan plan = decoder.readPlan();
+					plan.setPerson(person);
+					int index = i < selectedIndex ? i : i + 1;
+					plans.add(Math.min(index, plans.size()), plan);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.stored[partition] = false;
+	}
+
+}
@@ -66,8 +66,16 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
-		
+		handleSelectedPlan(selectPlan(person));
+	}
+
+	/**
+	 * Selects the plan of the person, and copies it if there are modules. This only changes the person, so it may be
+	 * called for different persons in parallel if the plan selector allows that.
+	 *
+	 * @return the copy to be handled by the modules, <code>null</code> if there are no modules.
+	 */
+	final T selectPlan(final HasPlansAndId<T, I> person) {
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
 		
@@ -86,17 +94,25 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 
 		// if there is a "module" (i.e. "innovation"):
 		if (this.firstModule != null) {
-			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
-			
+			return person.createCopyOfSelectedPlanAndMakeSelected();
+		}
+		return null;
+	}
+
+	/**
+	 * Hands the result of {@link #selectPlan(HasPlansAndId)} to the modules. Must be called for one person after the
+	 * other.
+	 */
+	final void handleSelectedPlan(final T plan) {
+		this.counter++;
+		if (plan != null) {
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
 
 			// start working on this new plan:
 			this.firstModule.handlePlan(plan);
 		}
-
 	}
 
 	@Override
@@ -25,7 +25,14 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.BasicPlan;
@@ -73,6 +80,10 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 
 	private String subpopulationAttributeName = null;
 
+	private int numberOfSelectionThreads = 0;
+
+	private static final int SELECTION_CHUNK_SIZE = 256;
+
 	/**
 	 * @param name the name of the subpopulation attribute
 	 * in the person's object attributes.
@@ -81,6 +92,23 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		this.subpopulationAttributeName = name;
 	}
 
+	/**
+	 * Lets the strategies and plans be selected in parallel. Each person then draws its random numbers from an own
+	 * stream, seeded from the person id and one number of the global random stream, so the results do not depend on
+	 * the number of threads, but differ from the ones of a serial run. The modules of the strategies still get the
+	 * plans one after the other, in the order of the persons, and strategies which are not based on
+	 * {@link GenericPlanStrategyImpl} are run serially as well. The plan selectors must be thread-safe.
+	 *
+	 * @param numberOfThreads the number of threads to select the plans, or 0 to select them serially from the global
+	 * random stream (the default).
+	 */
+	public final void setNumberOfSelectionThreads(final int numberOfThreads) {
+		if (numberOfThreads < 0) {
+			throw new IllegalArgumentException("number of threads must not be negative, but is " + numberOfThreads);
+		}
+		this.numberOfSelectionThreads = numberOfThreads;
+	}
+
 	/**
 	 * Adds a strategy to this manager with the specified weight. This weight
 	 * compared to the sum of weights of all strategies in this manager defines
@@ -190,27 +218,17 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 			strategy.init(replanningContext);
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<T, I> person : persons ) {
-
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
-			}
+		if (this.numberOfSelectionThreads > 0) {
+			runParallelSelection(persons, subPopLookup);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<T, I> person : persons ) {
+				// ... reduce the number of plans, choose the strategy to be used for this person ...
+				GenericPlanStrategy<T, I> strategy = prepare(person, subPopLookup);
 
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-			String subpopName = null;
-			if (this.subpopulationAttributeName != null) {
-				subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+				// ... and run the strategy:
+				strategy.run(person);
 			}
-			GenericPlanStrategy<T, I> strategy = this.chooseStrategy(subpopName);
-
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
-			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
 
 		// finally make sure all strategies have finished there work
@@ -220,6 +238,108 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 
 	}
 
+	/**
+	 * Reduces the number of plans of the person to the allowed maximum and chooses the strategy to be used for it.
+	 */
+	private GenericPlanStrategy<T, I> prepare(final HasPlansAndId<T, I> person, final ObjectAttributes subPopLookup) {
+		// reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
+
+		// choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+		String subpopName = null;
+		if (this.subpopulationAttributeName != null) {
+			subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+		}
+		GenericPlanStrategy<T, I> strategy = this.chooseStrategy(subpopName);
+
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+		}
+		return strategy;
+	}
+
+	/**
+	 * Chooses the strategies and selects and copies the plans in chunks of persons in parallel, each person with its
+	 * own random stream, and then hands the copies to the modules in the order of the persons.
+	 */
+	private void runParallelSelection(final Iterable<? extends HasPlansAndId<T, I>> persons, final ObjectAttributes subPopLookup) {
+		final List<HasPlansAndId<T, I>> personList = new ArrayList<>();
+		for (HasPlansAndId<T, I> person : persons) {
+			personList.add(person);
+		}
+		final int size = personList.size();
+		final List<GenericPlanStrategy<T, I>> strategies = new ArrayList<>(Collections.<GenericPlanStrategy<T, I>>nCopies(size, null));
+		final List<T> copies = new ArrayList<>(Collections.<T>nCopies(size, null));
+		// one draw from the global stream, so the streams differ between iterations and random seeds:
+		final long seed = MatsimRandom.getRandom().nextLong();
+		final AtomicInteger nextChunk = new AtomicInteger(0);
+
+		Callable<Void> worker = () -> {
+			Random random = new Random();
+			MatsimRandom.setRandomForCurrentThread(random);
+			try {
+				int start;
+				while ((start = nextChunk.getAndAdd(SELECTION_CHUNK_SIZE)) < size) {
+					for (int i = start; i < Math.min(start + SELECTION_CHUNK_SIZE, size); i++) {
+						HasPlansAndId<T, I> person = personList.get(i);
+						random.setSeed(getPersonSeed(seed, person.getId().toString()));
+						GenericPlanStrategy<T, I> strategy = prepare(person, subPopLookup);
+						strategies.set(i, strategy);
+						if (strategy instanceof GenericPlanStrategyImpl) {
+							copies.set(i, ((GenericPlanStrategyImpl<T, I>) strategy).selectPlan(person));
+						}
+					}
+				}
+			} finally {
+				MatsimRandom.setRandomForCurrentThread(null);
+			}
+			return null;
+		};
+		int threads = Math.max(1, Math.min(this.numberOfSelectionThreads, (size + SELECTION_CHUNK_SIZE - 1) / SELECTION_CHUNK_SIZE));
+		if (threads == 1) {
+			try {
+				worker.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (Future<Void> future : executor.invokeAll(Collections.nCopies(threads, worker))) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			GenericPlanStrategy<T, I> strategy = strategies.get(i);
+			if (strategy instanceof GenericPlanStrategyImpl) {
+				((GenericPlanStrategyImpl<T, I>) strategy).handleSelectedPlan(copies.get(i));
+			} else {
+				strategy.run(personList.get(i));
+			}
+		}
+	}
+
+	private static long getPersonSeed(final long seed, final String personId) {
+		// splitmix64 finalizer, so similar ids get unrelated streams
+		long z = seed + personId.hashCode() * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
 	private Collection<GenericPlanStrategy<T, I>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<T, I>> strategies = new LinkedHashSet<>();
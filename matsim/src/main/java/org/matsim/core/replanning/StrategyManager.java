@@ -26,13 +26,16 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
+import org.matsim.utils.objectattributes.ObjectAttributes;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -50,9 +53,12 @@ public class StrategyManager implements MatsimManager {
 	private final GenericStrategyManager<Plan, Person> delegate;
 
 	@Inject
-	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
+	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup, GlobalConfigGroup globalConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		if (globalConfigGroup.isParallelPlanSelection()) {
+			setNumberOfSelectionThreads(globalConfigGroup.getNumberOfThreads());
+		}
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -96,6 +102,13 @@ public class StrategyManager implements MatsimManager {
 		delegate.setSubpopulationAttributeName(name);
 	}
 
+	/**
+	 * @see GenericStrategyManager#setNumberOfSelectionThreads(int)
+	 */
+	public final void setNumberOfSelectionThreads(final int numberOfThreads) {
+		delegate.setNumberOfSelectionThreads(numberOfThreads);
+	}
+
 	@Deprecated
 	public final void addStrategyForDefaultSubpopulation(
 			final PlanStrategy strategy,
@@ -189,6 +202,15 @@ public class StrategyManager implements MatsimManager {
 		afterRunHook(population);
 	}
 
+	/**
+	 * Runs the strategies on a part of the population only, e.g. on one partition of a population whose plans are not
+	 * all in memory at the same time.  The hooks are not called.
+	 */
+	public final void run(final Collection<? extends Person> persons, final ObjectAttributes personAttributes, final int iteration,
+			final ReplanningContext replanningContext) {
+		delegate.run(persons, personAttributes, iteration, replanningContext);
+	}
+
 	/**
 	 * @param population  
 	 */
@@ -29,8 +29,11 @@ import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +53,11 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link GlobalConfigGroup#setLoadBalancedReplanning(boolean)}, all plans are kept in one list instead,
+ * and each thread takes the next plan from it whenever it is done with the previous one, so a few expensive
+ * plans, e.g. long multi-modal ones when routing, do not leave the other threads idle.  Modules which can split
+ * the work of a plan further may override {@link #handlePlansLoadBalanced(List)}, see {@link ReRoute}.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,6 +67,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final boolean loadBalanced;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -66,6 +75,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private String name = null;
 
 	private int count = 0;
+	private final List<Plan> sharedPlans = new ArrayList<>(); // only used if load balanced
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -83,11 +93,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.isLoadBalancedReplanning());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	/**
+	 * @param loadBalanced whether the threads take the next plan whenever they are done, instead of handling
+	 * a fixed share of the plans.
+	 */
+	public AbstractMultithreadedModule(final int numOfThreads, final boolean loadBalanced) {
 		this.numOfThreads = numOfThreads;
+		this.loadBalanced = loadBalanced;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,8 +124,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
-		} else {
-			initThreads();
+		} else if (!this.loadBalanced) {
+			initThreads(null);
 		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
@@ -118,7 +137,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.loadBalanced) {
+				this.sharedPlans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -138,25 +161,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
-			}
-
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+			if (this.loadBalanced) {
+				handlePlansLoadBalanced(Collections.unmodifiableList(this.sharedPlans));
+			} else {
+				runThreads();
 			}
 		}
 		// reset
@@ -164,11 +172,49 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.threads = null;
 		this.replanningContext = null;
 		this.count = 0;
+		this.sharedPlans.clear();
 		
 		this.afterFinishReplanningHook();
 	}
 
-	private void initThreads() {
+	/**
+	 * Handles all plans of a replanning if the module is load balanced, see
+	 * {@link GlobalConfigGroup#setLoadBalancedReplanning(boolean)}.  By default, every thread takes the next plan
+	 * of the list whenever it is done with the previous one.
+	 */
+	protected void handlePlansLoadBalanced(final List<Plan> plans) {
+		initThreads(plans);
+		runThreads();
+	}
+
+	private void runThreads() {
+		log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+
+		// start threads
+		for (Thread thread : this.threads) {
+			thread.start();
+		}
+
+		// wait until each thread is finished
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
+
+	/**
+	 * @param sharedPlans the plans all threads take the next one from, <code>null</code> if the plans are
+	 * distributed to the threads by {@link #handlePlan(Plan)}
+	 */
+	private void initThreads(final List<Plan> sharedPlans) {
 		if (this.threads != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
@@ -178,6 +224,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
 
 		Counter counter = null;
+		AtomicInteger nextSharedPlan = new AtomicInteger(0);
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
 			PlanAlgorithm algo = getPlanAlgoInstance();
@@ -185,7 +232,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = sharedPlans != null ? new PlanAlgoThread(algo, counter, sharedPlans, nextSharedPlan)
+					: new PlanAlgoThread(algo, counter);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,7 +241,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
-	/* package (for a test) */ final int getNumOfThreads() {
+	/* package (for a test and ReRoute) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
@@ -216,11 +264,22 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
+		private final List<Plan> plans;
+		private final AtomicInteger nextSharedPlan; // null if the plans are not shared with other threads
 		private final Counter counter;
 
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
 			this.planAlgo = algo;
+			this.plans = new LinkedList<>();
+			this.nextSharedPlan = null;
+			this.counter = counter;
+		}
+
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final List<Plan> sharedPlans,
+				final AtomicInteger nextSharedPlan) {
+			this.planAlgo = algo;
+			this.plans = sharedPlans;
+			this.nextSharedPlan = nextSharedPlan;
 			this.counter = counter;
 		}
 
@@ -230,9 +289,17 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			if (this.nextSharedPlan == null) {
+				for (Plan plan : this.plans) {
+					this.planAlgo.run(plan);
+					this.counter.incCounter();
+				}
+			} else {
+				// the list is not modified while the threads run, so it can be read concurrently
+				for (int i = this.nextSharedPlan.getAndIncrement(); i < this.plans.size(); i = this.nextSharedPlan.getAndIncrement()) {
+					this.planAlgo.run(this.plans.get(i));
+					this.counter.incCounter();
+				}
 			}
 		}
 	}
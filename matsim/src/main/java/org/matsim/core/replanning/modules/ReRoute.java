@@ -21,18 +21,23 @@
 package org.matsim.core.replanning.modules;
 
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.router.PlanRouter;
 import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripRoutingPipeline;
 import org.matsim.facilities.ActivityFacilities;
 
 import javax.inject.Provider;
+import java.util.List;
 
 /**
  * Uses the routing algorithm provided by the {@linkplain Controler} for 
  * calculating the routes of plans during Replanning.
+ * <p></p>
+ * If load balanced, the trips of all plans are routed by a {@link TripRoutingPipeline}.
  *
  * @author mrieser
  */
@@ -59,4 +64,9 @@ public class ReRoute extends AbstractMultithreadedModule {
 					facilities);
 	}
 
+	@Override
+	protected void handlePlansLoadBalanced(final List<Plan> plans) {
+		new TripRoutingPipeline(tripRouterProvider, facilities, getNumOfThreads()).run(plans);
+	}
+
 }
@@ -1,64 +1,96 @@
-/* *********************************************************************** *
- * project: org.matsim.*
- * AStarLandmarksFactory
- *                                                                         *
- * *********************************************************************** *
- *                                                                         *
- * copyright       : (C) 2009 by the members listed in the COPYING,        *
- *                   LICENSE and WARRANTY file.                            *
- * email           : info at matsim dot org                                *
- *                                                                         *
- * *********************************************************************** *
- *                                                                         *
- *   This program is free software; you can redistribute it and/or modify  *
- *   it under the terms of the GNU General Public License as published by  *
- *   the Free Software Foundation; either version 2 of the License, or     *
- *   (at your option) any later version.                                   *
- *   See also COPYING, LICENSE and WARRANTY file                           *
- *                                                                         *
- * *********************************************************************** */
-
-package org.matsim.core.router;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import javax.inject.Inject;
-import javax.inject.Singleton;
-
-import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.config.groups.GlobalConfigGroup;
-import org.matsim.core.router.util.LeastCostPathCalculator;
-import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
-import org.matsim.core.router.util.PreProcessLandmarks;
-import org.matsim.core.router.util.TravelDisutility;
-import org.matsim.core.router.util.TravelTime;
-
-/**
- * @author dgrether
- */
-@Singleton
-public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
-
-	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
-
-	@Inject private GlobalConfigGroup globalConfig ;
-	
-	@Inject
-	public AStarLandmarksFactory() {
-	}
-
-	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
-		if (preProcessLandmarks == null) {
-			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
-			preProcessLandmarks.setNumberOfThreads( globalConfig.getNumberOfThreads());
-			preProcessLandmarks.run(network);
-			this.preProcessData.put(network, preProcessLandmarks);
-		}
-		
-		final double overdoFactor = 1.0;
-		return new AStarLandmarks(network, preProcessLandmarks, travelCosts, travelTimes, overdoFactor);
-	}
-}
\ No newline at end of file
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AStarLandmarksFactory
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2009 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * @author dgrether
+ */
+@Singleton
+public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+
+	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
+
+	@Inject private GlobalConfigGroup globalConfig ;
+	@Inject private ControlerConfigGroup controlerConfig ;
+	
+	@Inject
+	public AStarLandmarksFactory() {
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+		if (preProcessLandmarks == null) {
+			preProcessLandmarks = preProcessLandmarks(network, travelCosts, this.globalConfig, this.controlerConfig);
+			this.preProcessData.put(network, preProcessLandmarks);
+		} else {
+			// only re-calculates where the minimum link disutilities decreased since the last call. Routers created
+			// before may still be routing in other threads, so the landmarks they use are not changed.
+			preProcessLandmarks = preProcessLandmarks.updatedCopy(travelCosts);
+			this.preProcessData.put(network, preProcessLandmarks);
+		}
+		
+		final double overdoFactor = 1.0;
+		return new AStarLandmarks(network, preProcessLandmarks, travelCosts, travelTimes, overdoFactor);
+	}
+
+	/**
+	 * Reads the landmarks of an earlier run if the landmarks file of the config fits the network, and
+	 * pre-processes the network otherwise. Then the landmarks file is (over)written, so a file which does not
+	 * fit the network is replaced.
+	 */
+	static PreProcessLandmarks preProcessLandmarks(final Network network, final TravelDisutility travelCosts,
+			final GlobalConfigGroup globalConfig, final ControlerConfigGroup controlerConfig) {
+		PreProcessLandmarks preProcessLandmarks = new PreProcessLandmarks(travelCosts);
+		if ( globalConfig==null ) {
+			preProcessLandmarks.setNumberOfThreads(8);
+			// (if used without injection.  not so beautiful. kai, nov'17)
+		} else {
+			preProcessLandmarks.setNumberOfThreads(globalConfig.getNumberOfThreads());
+		}
+		String landmarksFile = controlerConfig == null ? null : controlerConfig.getLandmarksFile();
+		if (landmarksFile != null && new File(landmarksFile).exists() && preProcessLandmarks.read(network, landmarksFile)) {
+			return preProcessLandmarks;
+		}
+		preProcessLandmarks.run(network);
+		if (landmarksFile != null) {
+			preProcessLandmarks.write(landmarksFile);
+		}
+		return preProcessLandmarks;
+	}
+
+}
@@ -0,0 +1,338 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalGraphDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A time-dependent bidirectional search on a {@link RoutingGraph}. The departure time is only known at the origin,
+ * so only the forward search uses the time-dependent travel disutilities; the backward search from the destination
+ * uses the minimum travel disutilities of the links, i.e. lower bounds.
+ * <br>
+ * The search runs in three phases (Nannicini et al., 2008): both searches run alternately until they meet, giving
+ * an upper bound of the cost. The backward search then continues until its lower bounds exceed this upper bound
+ * (without landmarks: until they exceed it together with the cost of the forward search), so all nodes that may be
+ * on the least cost path are reached by one of the searches. Finally, the forward search continues on these
+ * nodes only, until it reaches the destination.
+ * <br>
+ * With {@link PreProcessLandmarks}, both searches are goal-directed with the landmark lower bounds (ALT), which
+ * mostly pays off for long trips. The minimum travel disutilities must not be lower than the ones the landmarks
+ * were calculated with, see {@link PreProcessLandmarks#update(TravelDisutility)}.
+ * <br>
+ * Finds least cost paths like {@link Dijkstra}, but may choose another path if several have the same cost. Like
+ * the other routers, an instance is not thread-safe; the graph and landmarks are shared.
+ *
+ * @see FastRouterType#BIDIRECTIONAL
+ */
+public class BidirectionalGraphDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(BidirectionalGraphDijkstra.class);
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final PreProcessLandmarks landmarks; // null for plain bidirectional search
+
+	// forward search, exact time-dependent costs
+	private final double[] forwardCost;
+	private final double[] forwardTime;
+	private final int[] forwardLink;
+	private final double[] forwardPotential;
+	private final int[] forwardVisited; // the search in which the node was reached
+	private final int[] forwardSettled;
+	private final IntBinaryMinHeap forwardHeap;
+
+	// backward search, lower bound costs
+	private final double[] backwardCost;
+	private final int[] backwardLink;
+	private final double[] backwardPotential;
+	private final int[] backwardVisited;
+	private final int[] backwardSettled;
+	private final IntBinaryMinHeap backwardHeap;
+
+	// the landmark costs of origin and destination of the current search
+	private final double[] originFromLandmark;
+	private final double[] originToLandmark;
+	private final double[] destinationFromLandmark;
+	private final double[] destinationToLandmark;
+
+	private int searchId = 0;
+	private double bestCost; // the upper bound: cost of the best path through a node reached by both searches
+	private double bestTime;
+	private int bestMeetingNode;
+
+	public BidirectionalGraphDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this(graph, costFunction, timeFunction, null);
+	}
+
+	/**
+	 * @param landmarks the landmarks for goal-directed searches, calculated on the same graph or, for a mode view, on
+	 * its full graph (the lower bounds of the full graph are lower bounds for the view as well); may be <code>null</code>.
+	 */
+	public BidirectionalGraphDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final PreProcessLandmarks landmarks) {
+		if (landmarks != null && landmarks.getRoutingGraph() != graph.getFullGraph()) {
+			throw new IllegalArgumentException("the landmarks need to be calculated on the graph to route on.");
+		}
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.landmarks = landmarks;
+		int nodeCount = graph.getNodeCount();
+		this.forwardCost = new double[nodeCount];
+		this.forwardTime = new double[nodeCount];
+		this.forwardLink = new int[nodeCount];
+		this.forwardPotential = new double[nodeCount];
+		this.forwardVisited = new int[nodeCount];
+		this.forwardSettled = new int[nodeCount];
+		this.forwardHeap = new IntBinaryMinHeap(nodeCount);
+		this.backwardCost = new double[nodeCount];
+		this.backwardLink = new int[nodeCount];
+		this.backwardPotential = new double[nodeCount];
+		this.backwardVisited = new int[nodeCount];
+		this.backwardSettled = new int[nodeCount];
+		this.backwardHeap = new IntBinaryMinHeap(nodeCount);
+		int landmarkCount = landmarks == null ? 0 : landmarks.getLandmarks().length;
+		this.originFromLandmark = new double[landmarkCount];
+		this.originToLandmark = new double[landmarkCount];
+		this.destinationFromLandmark = new double[landmarkCount];
+		this.destinationToLandmark = new double[landmarkCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int to = this.graph.getNodeIndex(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		nextSearch();
+		for (int i = 0; i < this.originFromLandmark.length; i++) {
+			this.originFromLandmark[i] = this.landmarks.getCostFromLandmark(from, i);
+			this.originToLandmark[i] = this.landmarks.getCostToLandmark(from, i);
+			this.destinationFromLandmark[i] = this.landmarks.getCostFromLandmark(to, i);
+			this.destinationToLandmark[i] = this.landmarks.getCostToLandmark(to, i);
+		}
+		this.bestCost = Double.POSITIVE_INFINITY;
+		this.bestMeetingNode = -1;
+
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+		visitForward(from, startTime, 0.0, -1);
+		visitBackward(to, 0.0, -1);
+		boolean backwardDone = false;
+		while (!this.forwardHeap.isEmpty()) {
+			if (this.forwardHeap.peekCost() >= this.bestCost) {
+				// no path via the remaining nodes can be cheaper than the one through the meeting node
+				break;
+			}
+			int node = this.forwardHeap.poll();
+			this.forwardSettled[node] = this.searchId;
+			if (node == to) {
+				this.bestMeetingNode = to;
+				this.bestCost = this.forwardCost[to];
+				this.bestTime = this.forwardTime[to];
+				return constructPath(from, to, startTime, person, vehicle);
+			}
+			if (this.backwardSettled[node] == this.searchId) {
+				checkMeetingNode(node, person, vehicle);
+			}
+			relaxForward(node, backwardDone, person, vehicle);
+
+			if (!backwardDone) {
+				if (this.backwardHeap.isEmpty() || this.backwardHeap.peekCost() > this.bestCost || (this.landmarks == null
+						&& !this.forwardHeap.isEmpty() && this.forwardHeap.peekCost() + this.backwardHeap.peekCost() >= this.bestCost)) {
+					// all nodes which may be on the least cost path are reached by one of the searches. Without potentials,
+					// a cheaper path would have to leave the forward search space at a cost of at least the top of the
+					// forward heap, and then to enter the backward space, at a lower bound of at least the top of the
+					// backward heap.
+					backwardDone = true;
+				} else {
+					node = this.backwardHeap.poll();
+					this.backwardSettled[node] = this.searchId;
+					if (this.forwardSettled[node] == this.searchId) {
+						checkMeetingNode(node, person, vehicle);
+					}
+					relaxBackward(node);
+				}
+			}
+		}
+		if (this.bestMeetingNode >= 0) {
+			return constructPath(from, to, startTime, person, vehicle);
+		}
+		log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Network is not connected? "
+				+ "This will now return null, but it may fail later with a null pointer exception.");
+		return null;
+	}
+
+	private void nextSearch() {
+		if (this.searchId == Integer.MAX_VALUE) {
+			Arrays.fill(this.forwardVisited, 0);
+			Arrays.fill(this.forwardSettled, 0);
+			Arrays.fill(this.backwardVisited, 0);
+			Arrays.fill(this.backwardSettled, 0);
+			this.searchId = 0;
+		}
+		this.searchId++;
+	}
+
+	/**
+	 * Evaluates the path through a node settled by both searches with the time-dependent costs, following the
+	 * backward search tree from the node to the destination.
+	 */
+	private void checkMeetingNode(final int node, final Person person, final Vehicle vehicle) {
+		if (this.forwardCost[node] + this.backwardCost[node] >= this.bestCost) {
+			return; // the lower bound is already too expensive
+		}
+		double cost = this.forwardCost[node];
+		double time = this.forwardTime[node];
+		for (int l = this.backwardLink[node]; l >= 0 && cost < this.bestCost; l = this.backwardLink[this.graph.getToNode(l)]) {
+			Link link = this.graph.getLink(l);
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		if (cost < this.bestCost) {
+			this.bestCost = cost;
+			this.bestTime = time;
+			this.bestMeetingNode = node;
+		}
+	}
+
+	private void relaxForward(final int node, final boolean backwardDone, final Person person, final Vehicle vehicle) {
+		double currTime = this.forwardTime[node];
+		double currCost = this.forwardCost[node];
+		for (int i = this.graph.getFirstOutLink(node), end = this.graph.getFirstOutLink(node + 1); i < end; i++) {
+			int l = this.graph.getOutLink(i);
+			int n = this.graph.getToNode(l);
+			if (this.forwardSettled[n] == this.searchId || (backwardDone && this.backwardSettled[n] != this.searchId)) {
+				continue;
+			}
+			Link link = this.graph.getLink(l);
+			double totalCost = currCost + this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			if (this.forwardVisited[n] != this.searchId || totalCost < this.forwardCost[n]) {
+				visitForward(n, currTime + this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle), totalCost, l);
+			}
+		}
+	}
+
+	private void visitForward(final int node, final double time, final double cost, final int link) {
+		if (this.forwardVisited[node] != this.searchId) {
+			this.forwardVisited[node] = this.searchId;
+			this.forwardPotential[node] = estimateCostToDestination(node);
+		}
+		this.forwardTime[node] = time;
+		this.forwardCost[node] = cost;
+		this.forwardLink[node] = link;
+		this.forwardHeap.insertOrDecrease(node, cost + this.forwardPotential[node]);
+	}
+
+	private void relaxBackward(final int node) {
+		double currCost = this.backwardCost[node];
+		for (int i = this.graph.getFirstInLink(node), end = this.graph.getFirstInLink(node + 1); i < end; i++) {
+			int l = this.graph.getInLink(i);
+			int n = this.graph.getFromNode(l);
+			if (this.backwardSettled[n] == this.searchId) {
+				continue;
+			}
+			double totalCost = currCost + this.costFunction.getLinkMinimumTravelDisutility(this.graph.getLink(l));
+			if (this.backwardVisited[n] != this.searchId || totalCost < this.backwardCost[n]) {
+				visitBackward(n, totalCost, l);
+			}
+		}
+	}
+
+	private void visitBackward(final int node, final double cost, final int link) {
+		if (this.backwardVisited[node] != this.searchId) {
+			this.backwardVisited[node] = this.searchId;
+			this.backwardPotential[node] = estimateCostFromOrigin(node);
+		}
+		this.backwardCost[node] = cost;
+		this.backwardLink[node] = link;
+		this.backwardHeap.insertOrDecrease(node, cost + this.backwardPotential[node]);
+	}
+
+	/**
+	 * @return the landmark lower bound of the cost from the node to the destination, 0 without landmarks.
+	 */
+	private double estimateCostToDestination(final int node) {
+		double estimate = 0.0;
+		for (int i = 0; i < this.destinationToLandmark.length; i++) {
+			estimate = Math.max(estimate, difference(this.landmarks.getCostToLandmark(node, i), this.destinationToLandmark[i]));
+			estimate = Math.max(estimate, difference(this.destinationFromLandmark[i], this.landmarks.getCostFromLandmark(node, i)));
+		}
+		return estimate;
+	}
+
+	/**
+	 * @return the landmark lower bound of the cost from the origin to the node, 0 without landmarks.
+	 */
+	private double estimateCostFromOrigin(final int node) {
+		double estimate = 0.0;
+		for (int i = 0; i < this.originToLandmark.length; i++) {
+			estimate = Math.max(estimate, difference(this.originToLandmark[i], this.landmarks.getCostToLandmark(node, i)));
+			estimate = Math.max(estimate, difference(this.landmarks.getCostFromLandmark(node, i), this.originFromLandmark[i]));
+		}
+		return estimate;
+	}
+
+	private static double difference(final double a, final double b) {
+		// landmarks not reachable from (or not reaching) both nodes give no bound
+		return b == Double.POSITIVE_INFINITY ? 0.0 : a - b;
+	}
+
+	private Path constructPath(final int from, final int to, final double startTime, final Person person, final Vehicle vehicle) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(this.bestMeetingNode));
+		for (int node = this.bestMeetingNode; node != from; ) {
+			int l = this.forwardLink[node];
+			links.add(this.graph.getLink(l));
+			node = this.graph.getFromNode(l);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		for (int node = this.bestMeetingNode; node != to; ) {
+			int l = this.backwardLink[node];
+			links.add(this.graph.getLink(l));
+			node = this.graph.getToNode(l);
+			nodes.add(this.graph.getNode(node));
+		}
+		return new Path(nodes, links, this.bestTime - startTime, this.bestCost);
+	}
+
+}
@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CCHRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.CustomizableContractionHierarchy.Metric;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link LeastCostPathCalculator} on a {@link CustomizableContractionHierarchy}.
+ * <br>
+ * The day is split into time bins, normally the ones of the travel time calculator. The hierarchy is customized
+ * lazily for each time bin a query departs in, with the link costs at the middle of the bin, and a route is then
+ * searched with these costs. So unlike {@link Dijkstra}, the route does not take into account that the costs
+ * change while traveling; the travel time and cost of the returned path are however computed time-dependently
+ * along the route, as the other routers do.
+ * <br>
+ * The metric is not person-dependent: it is computed for a placeholder person, and the person of a query is
+ * only used for the travel time and cost of the returned path. With a randomizing travel disutility, all routes
+ * of the routers sharing the metrics are thus computed with the same random draw.
+ * <br>
+ * A query needs no priority queue: the nodes reachable upwards from a node are its ancestors in the elimination
+ * tree, so both searches just scan the ancestors of their start node, see Dibbelt, Strasser, Wagner (2014).
+ * <br>
+ * The customized metrics are shared with the other routers of the {@link CCHRouterFactory} on the same network
+ * and travel times, see {@link CustomizedMetrics}. Instances are not thread-safe, and are meant to be recreated
+ * every iteration (as the trip routers are), as the customized metrics are cached.
+ *
+ * @see CCHRouterFactory
+ */
+public class CCHRouter implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(CCHRouter.class);
+
+	private final CustomizableContractionHierarchy hierarchy;
+	private final CustomizedMetrics metrics;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+
+	CCHRouter(final CustomizedMetrics metrics, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		this.hierarchy = metrics.hierarchy;
+		this.metrics = metrics;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		int nodeCount = this.hierarchy.nodes.length;
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.forwardArc = new int[nodeCount];
+		this.backwardArc = new int[nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int source = this.hierarchy.getRank(fromNode);
+		int target = this.hierarchy.getRank(toNode);
+		if (source < 0 || target < 0) {
+			throw new IllegalArgumentException("The nodes " + fromNode.getId() + " and " + toNode.getId()
+					+ " must both be part of the network the router was created for.");
+		}
+		Metric metric = this.metrics.get(startTime, this.travelCosts);
+
+		search(source, metric.up, this.forwardCost, this.forwardArc);
+		search(target, metric.down, this.backwardCost, this.backwardArc);
+		double best = Double.POSITIVE_INFINITY;
+		int meet = -1;
+		for (int x = source; x >= 0; x = this.hierarchy.parent[x]) {
+			double cost = this.forwardCost[x] + this.backwardCost[x];
+			if (cost < best) {
+				best = cost;
+				meet = x;
+			}
+		}
+
+		Path path = null;
+		if (meet >= 0) {
+			path = constructPath(metric, source, target, meet, startTime, person, vehicle);
+		} else {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Network is not connected? "
+					+ "This will now return null, but it may fail later with a null pointer exception.");
+		}
+		reset(source, this.forwardCost);
+		reset(target, this.backwardCost);
+		return path;
+	}
+
+	/**
+	 * Computes the costs from (or to) the start node to all its ancestors in the elimination tree.
+	 */
+	private void search(final int start, final double[] arcCosts, final double[] costs, final int[] arcs) {
+		int[] firstArc = this.hierarchy.firstArc;
+		int[] arcHead = this.hierarchy.arcHead;
+		costs[start] = 0.0;
+		for (int x = start; x >= 0; x = this.hierarchy.parent[x]) {
+			double cost = costs[x];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			for (int a = firstArc[x], end = firstArc[x + 1]; a < end; a++) {
+				double c = cost + arcCosts[a];
+				int head = arcHead[a];
+				if (c < costs[head]) {
+					costs[head] = c;
+					arcs[head] = a;
+				}
+			}
+		}
+	}
+
+	private void reset(final int start, final double[] costs) {
+		for (int x = start; x >= 0; x = this.hierarchy.parent[x]) {
+			costs[x] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private Path constructPath(final Metric metric, final int source, final int target, final int meet,
+			final double startTime, final Person person, final Vehicle vehicle) {
+		List<Integer> upArcs = new ArrayList<>();
+		for (int x = meet; x != source; x = this.hierarchy.arcTail[this.forwardArc[x]]) {
+			upArcs.add(this.forwardArc[x]);
+		}
+		List<Link> links = new ArrayList<>();
+		for (int i = upArcs.size() - 1; i >= 0; i--) {
+			this.hierarchy.unpack(metric, upArcs.get(i), true, links);
+		}
+		for (int x = meet; x != target; x = this.hierarchy.arcTail[this.backwardArc[x]]) {
+			this.hierarchy.unpack(metric, this.backwardArc[x], false, links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.hierarchy.nodes[source]);
+		double time = startTime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelCosts.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTimes.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	/**
+	 * The metrics of a hierarchy customized for the time bins, shared by several routers. Each time bin is
+	 * customized once, when the first router queries it, with the travel disutility of that router; the other
+	 * routers thus need to use travel disutilities which give the same costs for the customization person.
+	 */
+	static final class CustomizedMetrics {
+
+		private final CustomizableContractionHierarchy hierarchy;
+		private final int timeBinSize;
+		private final AtomicReferenceArray<Metric> metrics;
+		private final Person customizationPerson = PopulationUtils.getFactory().createPerson(Id.createPersonId("cchCustomization"));
+
+		CustomizedMetrics(final CustomizableContractionHierarchy hierarchy, final int timeBinSize, final int numberOfTimeBins) {
+			this.hierarchy = hierarchy;
+			this.timeBinSize = timeBinSize;
+			this.metrics = new AtomicReferenceArray<>(numberOfTimeBins);
+		}
+
+		Metric get(final double time, final TravelDisutility travelCosts) {
+			int bin = Math.max(0, Math.min(this.metrics.length() - 1, (int) (time / this.timeBinSize)));
+			Metric metric = this.metrics.get(bin);
+			if (metric == null) {
+				// the travel disutility is the one of the calling router, so it is not used by several threads at once
+				synchronized (this) {
+					metric = this.metrics.get(bin);
+					if (metric == null) {
+						metric = this.hierarchy.customize(travelCosts, (bin + 0.5) * this.timeBinSize, this.customizationPerson);
+						this.metrics.set(bin, metric);
+					}
+				}
+			}
+			return metric;
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CCHRouterFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.CCHRouter.CustomizedMetrics;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link CCHRouter}s. The metric-independent preprocessing is done once per network and shared by all
+ * routers. The customizations for the time bins are shared by the routers on the same network, with the same
+ * travel times and the same travel disutility: either the same instance, or, with
+ * {@link #createPathCalculator(Network, TravelDisutilityFactory, TravelTime)}, disutilities created by the same
+ * factory, as the routing modules create a travel disutility per router. The time bins are the ones of the travel
+ * time calculator, so the customization follows its time-binned link travel times; as these change in place, the
+ * customizations are dropped at the start of every iteration, and so are the hierarchies of networks no router was
+ * created for in the iteration before.
+ */
+@Singleton
+public class CCHRouterFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final int timeBinSize;
+	private final int numberOfTimeBins;
+	private Map<Network, CustomizableContractionHierarchy> hierarchies = new HashMap<>(); // guarded by this
+	private Map<Network, CustomizableContractionHierarchy> previousHierarchies = new HashMap<>(); // guarded by this
+	private final Map<List<Object>, CustomizedMetrics> metrics = new ConcurrentHashMap<>();
+
+	@Inject
+	public CCHRouterFactory(final Config config) {
+		this(config.travelTimeCalculator().getTraveltimeBinSize(), config.travelTimeCalculator().getMaxTime());
+	}
+
+	public CCHRouterFactory(final int timeBinSize, final int maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = maxTime / timeBinSize + 1;
+	}
+
+	/**
+	 * The customizations are only shared with routers created with the same <code>travelCosts</code> instance.
+	 */
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return createPathCalculator(network, travelCosts, travelTimes, Arrays.asList(network, travelTimes, travelCosts));
+	}
+
+	/**
+	 * Creates a router with a travel disutility from the factory. The customizations are shared with all routers
+	 * created for the same factory, so it must create travel disutilities with the same costs.
+	 */
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutilityFactory travelDisutilityFactory, final TravelTime travelTimes) {
+		TravelDisutility travelCosts = travelDisutilityFactory.createTravelDisutility(travelTimes);
+		return createPathCalculator(network, travelCosts, travelTimes, Arrays.asList(network, travelTimes, travelDisutilityFactory));
+	}
+
+	private LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes,
+			final List<Object> key) {
+		CustomizedMetrics customizedMetrics = this.metrics.computeIfAbsent(key,
+				k -> new CustomizedMetrics(getHierarchy(network), this.timeBinSize, this.numberOfTimeBins));
+		return new CCHRouter(customizedMetrics, travelCosts, travelTimes);
+	}
+
+	private synchronized CustomizableContractionHierarchy getHierarchy(final Network network) {
+		CustomizableContractionHierarchy hierarchy = this.hierarchies.get(network);
+		if (hierarchy == null) {
+			hierarchy = this.previousHierarchies.remove(network);
+			if (hierarchy == null) {
+				hierarchy = new CustomizableContractionHierarchy(network);
+			}
+			this.hierarchies.put(network, hierarchy);
+		}
+		return hierarchy;
+	}
+
+	/**
+	 * Drops the customizations, as the travel times have changed. Routers created before keep theirs. The
+	 * hierarchies of the networks used since the last iteration start are kept for one more iteration.
+	 */
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		this.metrics.clear();
+		synchronized (this) {
+			this.previousHierarchies = this.hierarchies;
+			this.hierarchies = new HashMap<>();
+		}
+	}
+
+}
@@ -0,0 +1,318 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CustomizableContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH), see Dibbelt, Strasser, Wagner:
+ * "Customizable Contraction Hierarchies" (2014).
+ * <br>
+ * The nodes of the network are ordered once, using a greedy minimum degree heuristic on the undirected graph, and
+ * contracted in that order. Contracting a node connects all its not yet contracted neighbors with each other, independent
+ * of any link costs. The result is an undirected graph in which every node is only connected to higher ranked nodes
+ * (its "upward arcs"), and in which the higher ranked neighbors of a node are exactly the nodes that can be reached
+ * from it by going upwards only. This is done once per network.
+ * <br>
+ * A {@link Metric} is then computed by {@link #customize(TravelDisutility, double, Person)} for one point in time.
+ * This only needs one pass over the lower triangles of all arcs and is therefore cheap enough to be repeated
+ * for every time bin of every iteration.
+ * <br>
+ * Instances are immutable after construction and can be shared among threads.
+ *
+ * @see CCHRouter
+ */
+final class CustomizableContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(CustomizableContractionHierarchy.class);
+
+	static final int NO_VIA = Integer.MIN_VALUE;
+
+	final Node[] nodes; // by rank
+	final Link[] links;
+	private final int[] rankByIdIndex;
+
+	final int[] firstArc; // by rank, length nodes+1
+	final int[] arcHead; // rank of the higher node of an arc; sorted by rank per tail
+	final int[] arcTail;
+	final int[] parent; // in the elimination tree, i.e. the lowest ranked upward neighbor, or -1
+
+	private final int[] linkArc; // -1 for loops
+	private final boolean[] linkIsUp;
+
+	CustomizableContractionHierarchy(final Network network) {
+		int nodeCount = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[nodeCount]);
+		int[] nodeIndexByIdIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(nodeIndexByIdIndex, -1);
+		for (int i = 0; i < nodeCount; i++) {
+			nodeIndexByIdIndex[nodesByIndex[i].getId().index()] = i;
+		}
+
+		// undirected adjacency without loops and parallel links
+		List<Set<Integer>> neighbors = new ArrayList<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			neighbors.add(new HashSet<Integer>());
+		}
+		for (Link link : network.getLinks().values()) {
+			int from = nodeIndexByIdIndex[link.getFromNode().getId().index()];
+			int to = nodeIndexByIdIndex[link.getToNode().getId().index()];
+			if (from != to) {
+				neighbors.get(from).add(to);
+				neighbors.get(to).add(from);
+			}
+		}
+
+		// contract in minimum degree order. The queue contains (degree, node) pairs; outdated pairs are skipped when polled.
+		int[] rankByIndex = new int[nodeCount];
+		Arrays.fill(rankByIndex, -1);
+		int[][] upwardByRank = new int[nodeCount][];
+		this.nodes = new Node[nodeCount];
+		PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, nodeCount));
+		for (int i = 0; i < nodeCount; i++) {
+			queue.add(entry(neighbors.get(i).size(), i));
+		}
+		int rank = 0;
+		while (!queue.isEmpty()) {
+			long e = queue.poll();
+			int node = (int) e;
+			Set<Integer> nbs = neighbors.get(node);
+			if (rankByIndex[node] >= 0 || nbs.size() != (int) (e >>> 32)) {
+				continue;
+			}
+			rankByIndex[node] = rank;
+			this.nodes[rank] = nodesByIndex[node];
+			int[] upward = new int[nbs.size()];
+			int k = 0;
+			for (Integer nb : nbs) {
+				upward[k++] = nb; // still node indices, converted to ranks below
+				Set<Integer> nbNbs = neighbors.get(nb);
+				nbNbs.remove(node);
+				for (Integer other : nbs) {
+					if (other.intValue() != nb.intValue()) {
+						nbNbs.add(other);
+					}
+				}
+				queue.add(entry(nbNbs.size(), nb));
+			}
+			upwardByRank[rank] = upward;
+			neighbors.set(node, null);
+			rank++;
+		}
+
+		this.firstArc = new int[nodeCount + 1];
+		for (int r = 0; r < nodeCount; r++) {
+			int[] upward = upwardByRank[r];
+			for (int i = 0; i < upward.length; i++) {
+				upward[i] = rankByIndex[upward[i]];
+			}
+			Arrays.sort(upward);
+			this.firstArc[r + 1] = this.firstArc[r] + upward.length;
+		}
+		int arcCount = this.firstArc[nodeCount];
+		this.arcHead = new int[arcCount];
+		this.arcTail = new int[arcCount];
+		this.parent = new int[nodeCount];
+		for (int r = 0; r < nodeCount; r++) {
+			int[] upward = upwardByRank[r];
+			System.arraycopy(upward, 0, this.arcHead, this.firstArc[r], upward.length);
+			Arrays.fill(this.arcTail, this.firstArc[r], this.firstArc[r + 1], r);
+			this.parent[r] = upward.length == 0 ? -1 : upward[0];
+		}
+
+		this.rankByIdIndex = new int[nodeIndexByIdIndex.length];
+		Arrays.fill(this.rankByIdIndex, -1);
+		for (int r = 0; r < nodeCount; r++) {
+			this.rankByIdIndex[this.nodes[r].getId().index()] = r;
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.linkArc = new int[this.links.length];
+		this.linkIsUp = new boolean[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = getRank(this.links[l].getFromNode());
+			int to = getRank(this.links[l].getToNode());
+			if (from == to) {
+				this.linkArc[l] = -1;
+			} else {
+				this.linkIsUp[l] = from < to;
+				this.linkArc[l] = findArc(Math.min(from, to), Math.max(from, to));
+			}
+		}
+
+		int[] depths = new int[nodeCount];
+		int depth = 0;
+		for (int r = nodeCount - 1; r >= 0; r--) {
+			depths[r] = this.parent[r] < 0 ? 1 : depths[this.parent[r]] + 1;
+			depth = Math.max(depth, depths[r]);
+		}
+		log.info("customizable contraction hierarchy: " + nodeCount + " nodes, " + this.links.length + " links, "
+				+ arcCount + " arcs, elimination tree depth " + depth);
+	}
+
+	private static long entry(final int degree, final int node) {
+		return ((long) degree << 32) | node;
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if it is not part of the network this hierarchy was built for.
+	 */
+	int getRank(final Node node) {
+		int index = node.getId().index();
+		return index < this.rankByIdIndex.length ? this.rankByIdIndex[index] : -1;
+	}
+
+	/**
+	 * @return the arc between the nodes with the given ranks, <code>lower &lt; higher</code>, or -1 if there is none.
+	 */
+	int findArc(final int lower, final int higher) {
+		int i = Arrays.binarySearch(this.arcHead, this.firstArc[lower], this.firstArc[lower + 1], higher);
+		return i < 0 ? -1 : i;
+	}
+
+	/**
+	 * Computes the shortest distances along all arcs for the link costs at the given time. The person is passed
+	 * to the travel disutility, so the metric only reflects person-dependent costs of that single person.
+	 */
+	Metric customize(final TravelDisutility disutility, final double time, final Person person) {
+		Metric metric = new Metric(this.arcHead.length);
+
+		// the original links
+		for (int l = 0; l < this.links.length; l++) {
+			int arc = this.linkArc[l];
+			if (arc < 0) {
+				continue;
+			}
+			double cost = disutility.getLinkTravelDisutility(this.links[l], time, person, null);
+			if (this.linkIsUp[l]) {
+				if (cost < metric.up[arc]) {
+					metric.up[arc] = cost;
+					metric.upVia[arc] = -l - 1;
+				}
+			} else if (cost < metric.down[arc]) {
+				metric.down[arc] = cost;
+				metric.downVia[arc] = -l - 1;
+			}
+		}
+
+		// the lower triangles, in increasing order of their lowest node, so the arcs of the lowest node are final
+		for (int w = 0; w < this.nodes.length; w++) {
+			int end = this.firstArc[w + 1];
+			for (int i = this.firstArc[w]; i < end; i++) {
+				int u = this.arcHead[i];
+				int uArc = this.firstArc[u];
+				for (int j = i + 1; j < end; j++) {
+					int v = this.arcHead[j];
+					while (this.arcHead[uArc] != v) { // exists, as contracting w connected u and v
+						uArc++;
+					}
+					double upCost = metric.down[i] + metric.up[j]; // u -> w -> v
+					if (upCost < metric.up[uArc]) {
+						metric.up[uArc] = upCost;
+						metric.upVia[uArc] = w;
+					}
+					double downCost = metric.down[j] + metric.up[i]; // v -> w -> u
+					if (downCost < metric.down[uArc]) {
+						metric.down[uArc] = downCost;
+						metric.downVia[uArc] = w;
+					}
+				}
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * Appends the links of the cheapest connection from the tail to the head of the arc (if <code>up</code>), or
+	 * from its head to its tail (otherwise).
+	 */
+	void unpack(final Metric metric, final int arc, final boolean up, final List<Link> result) {
+		// explicit stack instead of recursion, as shortcuts may be nested quite deeply
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = up ? arc : -arc - 1;
+		while (size > 0) {
+			int top = stack[--size];
+			boolean isUp = top >= 0;
+			int a = isUp ? top : -top - 1;
+			int via = isUp ? metric.upVia[a] : metric.downVia[a];
+			if (via == NO_VIA) {
+				throw new IllegalStateException("no connection along arc " + a);
+			}
+			if (via < 0) {
+				result.add(this.links[-via - 1]);
+				continue;
+			}
+			int lower = this.arcTail[a];
+			int higher = this.arcHead[a];
+			int toLower = findArc(via, lower);
+			int toHigher = findArc(via, higher);
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			// pushed in reverse order of traversal
+			if (isUp) { // lower -> via -> higher
+				stack[size++] = toHigher;
+				stack[size++] = -toLower - 1;
+			} else { // higher -> via -> lower
+				stack[size++] = toLower;
+				stack[size++] = -toHigher - 1;
+			}
+		}
+	}
+
+	/**
+	 * The customized costs of the arcs of a {@link CustomizableContractionHierarchy}, in both directions, and for
+	 * each the node of the lower triangle the cheapest connection goes through, or the original link (encoded as
+	 * <code>-index-1</code>).
+	 */
+	static final class Metric {
+		final double[] up;
+		final double[] down;
+		final int[] upVia;
+		final int[] downVia;
+
+		Metric(final int arcCount) {
+			this.up = new double[arcCount];
+			this.down = new double[arcCount];
+			this.upVia = new int[arcCount];
+			this.downVia = new int[arcCount];
+			Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.upVia, NO_VIA);
+			Arrays.fill(this.downVia, NO_VIA);
+		}
+	}
+
+}
@@ -63,6 +63,19 @@ public final class DefaultRoutingModules {
 				net,
 				routeAlgo);
 	}
+
+	/**
+	 * @see RouteCache
+	 */
+	public static RoutingModule createPureNetworkRouter( String mode, PopulationFactory popFact, Network net, final LeastCostPathCalculator routeAlgo,
+			final RouteCache routeCache ) {
+		return new NetworkRoutingModule(
+				mode,
+				popFact,
+				net,
+				routeAlgo,
+				routeCache);
+	}
 	
 	public static RoutingModule createAccessEgressNetworkRouter( String mode, PopulationFactory popFact, Network net, 
 			final LeastCostPathCalculator routeAlgo, PlansCalcRouteConfigGroup calcRouteConfig ) {
@@ -22,7 +22,9 @@ package org.matsim.core.router;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -31,7 +33,8 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.router.priorityqueue.WrappedBinaryMinHeap;
+import org.matsim.core.router.priorityqueue.IndexedMinHeap;
+import org.matsim.core.router.priorityqueue.IntFourAryMinHeap;
 import org.matsim.core.router.util.DijkstraNodeData;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.PreProcessDijkstra;
@@ -278,9 +281,21 @@ public class Dijkstra implements LeastCostPathCalculator {
 		 * According to findings from the FastDijkstra, this should be faster.
 		 * cdobler, sep'17
 		 */
+		/*
+		 * The nodes are now numbered up front in the same way, and the heap only moves these indices
+		 * in primitive arrays, see IndexedMinHeap.
+		 */
 		if (this.heap == null) {
-			this.heap = new WrappedBinaryMinHeap<>(this.network.getNodes().size());
-			for (Node node : this.network.getNodes().values()) this.heap.add(node, 0.);
+			int size = this.network.getNodes().size();
+			final Map<Node, Integer> indices = new IdentityHashMap<>(size);
+			for (Node node : this.network.getNodes().values()) indices.put(node, indices.size());
+			this.heap = new IndexedMinHeap<>(new IntFourAryMinHeap(size), size, node -> {
+				Integer index = indices.get(node);
+				if (index == null) {
+					throw new IllegalArgumentException("node " + node.getId() + " is not part of the network.");
+				}
+				return index;
+			});
 		}
 		this.heap.reset();			
 		return this.heap;
@@ -28,10 +28,11 @@ import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
-import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.ModeViewLeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkFactory;
@@ -43,24 +44,32 @@ import org.matsim.core.router.util.TravelTime;
  * @author cdobler
  */
 @Singleton
-public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+public class FastAStarLandmarksFactory implements ModeViewLeastCostPathCalculatorFactory {
 
 	private final RoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 	
 	@Inject GlobalConfigGroup globalConfig ;
+	@Inject ControlerConfigGroup controlerConfig ;
 
 	@Inject
 	public FastAStarLandmarksFactory() {
 		this(FastRouterType.ARRAY);
 	}
 
-	private FastAStarLandmarksFactory(final FastRouterType fastRouterType) {
+	/**
+	 * With {@link FastRouterType#BIDIRECTIONAL}, the landmarks are used by a {@link BidirectionalGraphDijkstra}.
+	 */
+	public FastAStarLandmarksFactory(final FastRouterType fastRouterType) {
 		switch (fastRouterType) {
 		case ARRAY:
 			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 			break;
+		case BIDIRECTIONAL:
+			// routes on the RoutingGraph of the landmarks
+			this.routingNetworkFactory = null;
+			break;
 		case POINTER:
 			throw new RuntimeException("PointerRoutingNetworks are no longer supported. Use ArrayRoutingNetworks instead. Aborting!");
 		default:
@@ -72,26 +81,31 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+
+		if (this.routingNetworkFactory == null) {
+			preProcessLandmarks = getGraphLandmarks(network, travelCosts);
+			return new BidirectionalGraphDijkstra(preProcessLandmarks.getRoutingGraph(), travelCosts, travelTimes, preProcessLandmarks);
+		}
 		
+		if (preProcessLandmarks == null) {
+			preProcessLandmarks = AStarLandmarksFactory.preProcessLandmarks(network, travelCosts, globalConfig, controlerConfig);
+			this.preProcessData.put(network, preProcessLandmarks);
+		} else {
+			// only re-calculates where the minimum link disutilities decreased since the last call. Routers created
+			// before may still be routing in other threads, so the landmarks and routing network they use are not changed.
+			PreProcessLandmarks updated = preProcessLandmarks.updatedCopy(travelCosts);
+			if (updated != preProcessLandmarks) {
+				preProcessLandmarks = updated;
+				this.preProcessData.put(network, preProcessLandmarks);
+				routingNetwork = null;
+			}
+		}
+
 		if (routingNetwork == null) {
 			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			
-			if (preProcessLandmarks == null) {
-				preProcessLandmarks = new PreProcessLandmarks(travelCosts);
-				if ( globalConfig==null ) {
-					preProcessLandmarks.setNumberOfThreads(8);
-					// (if used without injection.  not so beautiful. kai, nov'17)
-				} else {
-					preProcessLandmarks.setNumberOfThreads(globalConfig.getNumberOfThreads());
-				}
-				preProcessLandmarks.run(network);
-				this.preProcessData.put(network, preProcessLandmarks);
-				
-				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-					node.setDeadEndData(preProcessLandmarks.getNodeData(node.getNode()));
-				}
-			}				
-			
+			for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+				node.setDeadEndData(preProcessLandmarks.getNodeData(node.getNode()));
+			}
 			this.routingNetworks.put(network, routingNetwork);
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
@@ -99,4 +113,28 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		final double overdoFactor = 1.0;
 		return new FastAStarLandmarks(routingNetwork, preProcessLandmarks, travelCosts, travelTimes, overdoFactor, fastRouterFactory);
 	}
+
+	/**
+	 * @return a router on the mode view of the landmarks' routing graph of <code>network</code>, so all modes share
+	 * the landmarks of the full network, or <code>null</code> with {@link FastRouterType#ARRAY}.
+	 */
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final String mode, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		if (this.routingNetworkFactory != null) {
+			return null;
+		}
+		PreProcessLandmarks preProcessLandmarks = getGraphLandmarks(network, travelCosts);
+		return new BidirectionalGraphDijkstra(preProcessLandmarks.getRoutingGraph().getModeView(mode), travelCosts, travelTimes, preProcessLandmarks);
+	}
+
+	private PreProcessLandmarks getGraphLandmarks(final Network network, final TravelDisutility travelCosts) {
+		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+		if (preProcessLandmarks == null) {
+			preProcessLandmarks = AStarLandmarksFactory.preProcessLandmarks(network, travelCosts, globalConfig, controlerConfig);
+		} else {
+			preProcessLandmarks = preProcessLandmarks.updatedCopy(travelCosts);
+		}
+		this.preProcessData.put(network, preProcessLandmarks);
+		return preProcessLandmarks;
+	}
 }
\ No newline at end of file
@@ -22,7 +22,8 @@ package org.matsim.core.router;
 
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.priorityqueue.IndexedMinHeap;
+import org.matsim.core.router.priorityqueue.IntFourAryMinHeap;
 import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.DijkstraNodeData;
@@ -49,7 +50,7 @@ public class FastDijkstra extends Dijkstra {
 
 	private final RoutingNetwork routingNetwork;
 	private final FastRouterDelegate fastRouter;
-	private BinaryMinHeap<ArrayRoutingNetworkNode> heap = null;
+	private IndexedMinHeap<ArrayRoutingNetworkNode> heap = null;
 	private int maxSize = -1;
 	
 	/*
@@ -85,14 +86,14 @@ public class FastDijkstra extends Dijkstra {
 	@Override
 	/*package*/ RouterPriorityQueue<? extends Node> createRouterPriorityQueue() {
 		/*
-		 * Re-use existing BinaryMinHeap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
+		 * Re-use existing heap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
 		 * the computation time by 40%! cdobler, oct'15
 		 */
 		if (this.routingNetwork instanceof ArrayRoutingNetwork) {
 			int size = this.routingNetwork.getNodes().size();
 			if (this.heap == null || this.maxSize != size) {
 				this.maxSize = size;
-				this.heap = new BinaryMinHeap<>(maxSize);
+				this.heap = new IndexedMinHeap<>(new IntFourAryMinHeap(maxSize), maxSize, ArrayRoutingNetworkNode::getArrayIndex);
 				return this.heap;
 			} else {
 				this.heap.reset();
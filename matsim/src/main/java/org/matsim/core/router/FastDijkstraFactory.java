@@ -23,8 +23,9 @@ package org.matsim.core.router;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
-import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.ModeViewLeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingGraph;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkFactory;
 import org.matsim.core.router.util.RoutingNetworkNode;
@@ -37,12 +38,19 @@ import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * With {@link FastRouterType#CSR} or {@link FastRouterType#BIDIRECTIONAL}, all routers for a network share one
+ * {@link RoutingGraph}, and the routers for a mode route on its mode view, see
+ * {@link #createPathCalculator(Network, String, TravelDisutility, TravelTime)}.
+ */
 @Singleton
-public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
+public class FastDijkstraFactory implements ModeViewLeastCostPathCalculatorFactory {
 	
 	private final boolean usePreProcessData;
+	private final boolean bidirectional;
 	private final RoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
+	private final Map<Network, RoutingGraph> routingGraphs = new HashMap<>();
 	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
 
 	@Inject
@@ -54,13 +62,19 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 		this(usePreProcessData, FastRouterType.ARRAY);
 	}
 
-	private FastDijkstraFactory(final boolean usePreProcessData, final FastRouterType fastRouterType) {
+	public FastDijkstraFactory(final boolean usePreProcessData, final FastRouterType fastRouterType) {
 		this.usePreProcessData = usePreProcessData;
+		this.bidirectional = fastRouterType == FastRouterType.BIDIRECTIONAL;
 				
 		switch (fastRouterType) {
 		case ARRAY:
 			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 			break;
+		case CSR:
+		case BIDIRECTIONAL:
+			// one RoutingGraph per network, shared by all routers created by this factory
+			this.routingNetworkFactory = null;
+			break;
 		case POINTER:
 			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
 					+ "Use ArrayRoutingNetworks instead. Aborting!");
@@ -71,6 +85,10 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		if (this.routingNetworkFactory == null) {
+			return createGraphDijkstra(getRoutingGraph(network), network, travelCosts, travelTimes);
+		}
+
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
 
@@ -95,4 +113,39 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 		
 		return new FastDijkstra(routingNetwork, travelCosts, travelTimes, preProcessDijkstra, fastRouterFactory);
 	}
+
+	/**
+	 * @return a router on the mode view of the routing graph of <code>network</code>, or <code>null</code> with
+	 * {@link FastRouterType#ARRAY}.
+	 */
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final String mode, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		if (this.routingNetworkFactory != null) {
+			return null;
+		}
+		// the dead ends of the network are dead ends of every mode view as well
+		return createGraphDijkstra(getRoutingGraph(network).getModeView(mode), network, travelCosts, travelTimes);
+	}
+
+	private RoutingGraph getRoutingGraph(final Network network) {
+		RoutingGraph routingGraph = this.routingGraphs.get(network);
+		if (routingGraph == null) {
+			routingGraph = new RoutingGraph(network);
+			if (this.usePreProcessData) {
+				PreProcessDijkstra preProcessDijkstra = new PreProcessDijkstra();
+				preProcessDijkstra.run(network);
+				this.preProcessData.put(network, preProcessDijkstra);
+			}
+			this.routingGraphs.put(network, routingGraph);
+		}
+		return routingGraph;
+	}
+
+	private LeastCostPathCalculator createGraphDijkstra(final RoutingGraph routingGraph, final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		if (this.bidirectional) {
+			// does not prune dead ends, the backward search does not enter them anyway
+			return new BidirectionalGraphDijkstra(routingGraph, travelCosts, travelTimes);
+		}
+		return new GraphDijkstra(routingGraph, travelCosts, travelTimes, this.preProcessData.get(network));
+	}
 }
\ No newline at end of file
@@ -25,7 +25,8 @@ import java.util.Iterator;
 
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.priorityqueue.IndexedMinHeap;
+import org.matsim.core.router.priorityqueue.IntFourAryMinHeap;
 import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.DijkstraNodeData;
@@ -51,7 +52,7 @@ public class FastMultiNodeDijkstra extends MultiNodeDijkstra {
 
 	/*package*/ final RoutingNetwork routingNetwork;
 	private final FastRouterDelegate fastRouter;
-	private BinaryMinHeap<ArrayRoutingNetworkNode> heap = null;
+	private IndexedMinHeap<ArrayRoutingNetworkNode> heap = null;
 	private int maxSize = -1;
 	
 	/*
@@ -100,14 +101,14 @@ public class FastMultiNodeDijkstra extends MultiNodeDijkstra {
 	@Override
 	/*package*/ RouterPriorityQueue<? extends Node> createRouterPriorityQueue() {
 		/*
-		 * Re-use existing BinaryMinHeap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
+		 * Re-use existing heap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
 		 * the computation time by 40%! cdobler, oct'15
 		 */
 		if (this.routingNetwork instanceof ArrayRoutingNetwork) {
 			int size = this.routingNetwork.getNodes().size();
 			if (this.heap == null || this.maxSize != size) {
 				this.maxSize = size;
-				this.heap = new BinaryMinHeap<>(maxSize);
+				this.heap = new IndexedMinHeap<>(new IntFourAryMinHeap(maxSize), maxSize, ArrayRoutingNetworkNode::getArrayIndex);
 				return this.heap;
 			} else {
 				this.heap.reset();
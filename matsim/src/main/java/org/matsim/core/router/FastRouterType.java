@@ -23,10 +23,19 @@ package org.matsim.core.router;
 /**
  * Type Pointer is no longer supported. For now we still keep it here so we
  * can throw an exception if somebody tries to us it. 
+ * <br>
+ * Type CSR routes on a {@link org.matsim.core.router.util.RoutingGraph}, which is shared by all routing threads,
+ * with only primitive search state per router. Currently only supported by the {@link FastDijkstraFactory}, it is
+ * used by the controler with the routing algorithm type
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType#SharedGraphDijkstra}.
+ * <br>
+ * Type BIDIRECTIONAL also routes on a shared {@link org.matsim.core.router.util.RoutingGraph}, with a time-dependent
+ * bidirectional search, see {@link BidirectionalGraphDijkstra}. With the {@link FastAStarLandmarksFactory}, both
+ * directions are goal-directed by the landmarks (ALT).
  * 
  * @author cdobler
  */
 public enum FastRouterType {
-	ARRAY, POINTER
+	ARRAY, POINTER, CSR, BIDIRECTIONAL
 }
 
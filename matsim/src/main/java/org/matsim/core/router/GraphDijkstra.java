@@ -0,0 +1,258 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.OneToManyLeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A time-dependent Dijkstra on a {@link RoutingGraph}, finding the same routes as {@link Dijkstra}.
+ * <br>
+ * The graph is shared by all instances; each instance only keeps its search state in primitive arrays indexed
+ * by the node numbers of the graph. Like the other routers, an instance is not thread-safe.
+ * <br>
+ * {@link #calcLeastCostPaths(Node, List, double, Person, Vehicle)} continues one search until all targets are
+ * settled. As the search for a single target visits the nodes in the same order until it stops, the paths are
+ * exactly the ones of the single searches.
+ *
+ * @see FastRouterType#CSR
+ */
+public class GraphDijkstra implements OneToManyLeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(GraphDijkstra.class);
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final int[] deadEndEntryNode; // -1 if the node is not in a dead end; null if dead ends are not pruned
+
+	private final double[] cost;
+	private final double[] time;
+	private final int[] prevLink;
+	private final int[] visited; // the search in which the node was reached
+	private int[] target; // the search in which the node is a target that is not yet settled; created on demand
+	private final IntMinHeap heap;
+	private int searchId = 0;
+
+	public GraphDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this(graph, costFunction, timeFunction, null);
+	}
+
+	public GraphDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final PreProcessDijkstra preProcessData) {
+		this(graph, costFunction, timeFunction, preProcessData, new IntBinaryMinHeap(graph.getNodeCount()));
+	}
+
+	/**
+	 * @param heap an empty heap for the node indices of the graph, e.g. an {@link org.matsim.core.router.priorityqueue.IntRadixMinHeap}
+	 */
+	public GraphDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final PreProcessDijkstra preProcessData, final IntMinHeap heap) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int nodeCount = graph.getNodeCount();
+		if (preProcessData == null) {
+			this.deadEndEntryNode = null;
+		} else {
+			this.deadEndEntryNode = new int[nodeCount];
+			for (int n = 0; n < nodeCount; n++) {
+				Node entry = preProcessData.getNodeData(graph.getNode(n)).getDeadEndEntryNode();
+				this.deadEndEntryNode[n] = entry == null ? -1 : graph.getNodeIndex(entry);
+			}
+		}
+		this.cost = new double[nodeCount];
+		this.time = new double[nodeCount];
+		this.prevLink = new int[nodeCount];
+		this.visited = new int[nodeCount];
+		this.heap = heap;
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int to = this.graph.getNodeIndex(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		nextSearch();
+		int targetDeadEnd = this.deadEndEntryNode == null ? -1 : this.deadEndEntryNode[to];
+
+		this.heap.clear();
+		visit(from, startTime, 0.0, -1);
+		boolean found = false;
+		while (!this.heap.isEmpty()) {
+			int node = this.heap.poll();
+			if (node == to) {
+				found = true;
+				break;
+			}
+			relax(node, targetDeadEnd, person, vehicle);
+		}
+		if (!found) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Network is not connected? "
+					+ "This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+		return constructPath(from, to, startTime);
+	}
+
+	@Override
+	public List<Path> calcLeastCostPaths(final Node fromNode, final List<Node> toNodes, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int[] to = new int[toNodes.size()];
+		for (int i = 0; i < to.length; i++) {
+			to[i] = this.graph.getNodeIndex(toNodes.get(i));
+			if (from < 0 || to[i] < 0) {
+				throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+						getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+			}
+		}
+		int targetDeadEnd = this.deadEndEntryNode == null || to.length == 0 ? -1 : this.deadEndEntryNode[to[0]];
+		for (int i = 1; i < to.length; i++) {
+			if (this.deadEndEntryNode != null && this.deadEndEntryNode[to[i]] != targetDeadEnd) {
+				// the searches would prune different dead ends
+				List<Path> paths = new ArrayList<>(to.length);
+				for (Node toNode : toNodes) {
+					paths.add(calcLeastCostPath(fromNode, toNode, startTime, person, vehicle));
+				}
+				return paths;
+			}
+		}
+		nextSearch();
+		if (this.target == null) {
+			this.target = new int[this.graph.getNodeCount()];
+		}
+		int remaining = 0;
+		for (int n : to) {
+			if (this.target[n] != this.searchId) {
+				this.target[n] = this.searchId;
+				remaining++;
+			}
+		}
+
+		this.heap.clear();
+		visit(from, startTime, 0.0, -1);
+		while (remaining > 0 && !this.heap.isEmpty()) {
+			int node = this.heap.poll();
+			if (this.target[node] == this.searchId) {
+				this.target[node] = 0;
+				remaining--;
+				if (remaining == 0) {
+					break;
+				}
+			}
+			relax(node, targetDeadEnd, person, vehicle);
+		}
+		List<Path> paths = new ArrayList<>(to.length);
+		for (int i = 0; i < to.length; i++) {
+			if (this.visited[to[i]] == this.searchId && !this.heap.contains(to[i])) {
+				paths.add(constructPath(from, to[i], startTime));
+			} else {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNodes.get(i).getId() + ". Network is not connected? "
+						+ "This will now return null, but it may fail later with a null pointer exception.");
+				paths.add(null);
+			}
+		}
+		return paths;
+	}
+
+	private void nextSearch() {
+		if (this.searchId == Integer.MAX_VALUE) {
+			Arrays.fill(this.visited, 0);
+			if (this.target != null) {
+				Arrays.fill(this.target, 0);
+			}
+			this.searchId = 0;
+		}
+		this.searchId++;
+	}
+
+	private void relax(final int node, final int targetDeadEnd, final Person person, final Vehicle vehicle) {
+		double currTime = this.time[node];
+		double currCost = this.cost[node];
+		boolean inDeadEnd = this.deadEndEntryNode != null && this.deadEndEntryNode[node] >= 0;
+		for (int i = this.graph.getFirstOutLink(node), end = this.graph.getFirstOutLink(node + 1); i < end; i++) {
+			int l = this.graph.getOutLink(i);
+			int n = this.graph.getToNode(l);
+			if (this.deadEndEntryNode != null && !inDeadEnd) {
+				// do not enter dead ends, unless the target is in it
+				int entry = this.deadEndEntryNode[n];
+				if (entry >= 0 && entry != targetDeadEnd) {
+					continue;
+				}
+			}
+			Link link = this.graph.getLink(l);
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+			double travelCost = this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			double totalCost = currCost + travelCost;
+			if (this.visited[n] != this.searchId) {
+				visit(n, currTime + travelTime, totalCost, l);
+			} else if (this.heap.contains(n)) {
+				double nCost = this.cost[n];
+				if (totalCost < nCost || (totalCost == nCost && this.graph.getLink(this.prevLink[n]).getId().compareTo(link.getId()) > 0)) {
+					// same tie-breaking as Dijkstra, so both find the same routes
+					visit(n, currTime + travelTime, totalCost, l);
+				}
+			}
+		}
+	}
+
+	private void visit(final int node, final double time, final double cost, final int link) {
+		this.visited[node] = this.searchId;
+		this.time[node] = time;
+		this.cost[node] = cost;
+		this.prevLink[node] = link;
+		this.heap.insertOrDecrease(node, cost);
+	}
+
+	private Path constructPath(final int from, final int to, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(to));
+		for (int node = to; node != from; ) {
+			int l = this.prevLink[node];
+			links.add(this.graph.getLink(l));
+			node = this.graph.getFromNode(l);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.time[to] - startTime, this.cost[to]);
+	}
+
+}
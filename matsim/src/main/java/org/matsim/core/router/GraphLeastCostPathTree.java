@@ -0,0 +1,324 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphLeastCostPathTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates least-cost-path trees on a {@link RoutingGraph}: from one origin to all nodes (forward), or from all
+ * nodes to one destination (backward). The search can be bounded by cost, travel time or a set of targets, see
+ * {@link Bounds}.
+ * <br>
+ * The search state is kept in primitive arrays, which are re-used by the next search, so one instance should be
+ * kept per thread. The results of a search are valid until the next one is started. For many origins, see
+ * {@link LeastCostPathTreeBatch}.
+ * <br>
+ * Backward searches evaluate the travel time and disutility of a link at the time the link is left, which is
+ * only an approximation if they are time-dependent.
+ */
+public class GraphLeastCostPathTree {
+
+	/**
+	 * Limits a search. Nodes beyond a limit are not reached; the search ends as soon as the next node would violate
+	 * the cost or travel time limit, or when enough targets are reached. Immutable, so one instance can be used by
+	 * several threads.
+	 */
+	public static final class Bounds {
+
+		private static final Bounds UNBOUNDED = new Bounds(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, null, 0);
+
+		private final double maxCost;
+		private final double maxTravelTime;
+		private final Node[] targets;
+		private final int requiredTargets;
+
+		private Bounds(final double maxCost, final double maxTravelTime, final Node[] targets, final int requiredTargets) {
+			this.maxCost = maxCost;
+			this.maxTravelTime = maxTravelTime;
+			this.targets = targets;
+			this.requiredTargets = requiredTargets;
+		}
+
+		public static Bounds unbounded() {
+			return UNBOUNDED;
+		}
+
+		/**
+		 * @return the bounds with nodes only reached up to the given cost.
+		 */
+		public Bounds withMaxCost(final double maxCost) {
+			return new Bounds(maxCost, this.maxTravelTime, this.targets, this.requiredTargets);
+		}
+
+		/**
+		 * @return the bounds with nodes only reached up to the given travel time.
+		 */
+		public Bounds withMaxTravelTime(final double maxTravelTime) {
+			return new Bounds(this.maxCost, maxTravelTime, this.targets, this.requiredTargets);
+		}
+
+		/**
+		 * @return the bounds with the search ending as soon as all the targets are reached.
+		 */
+		public Bounds withTargets(final Collection<Node> targets) {
+			return withTargets(targets, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * @return the bounds with the search ending as soon as the given number of targets are reached, i.e. the
+		 * nearest ones in terms of cost.
+		 */
+		public Bounds withTargets(final Collection<Node> targets, final int requiredTargets) {
+			return new Bounds(this.maxCost, this.maxTravelTime, targets.toArray(new Node[targets.size()]), requiredTargets);
+		}
+	}
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+
+	private final double[] cost;
+	private final double[] time;
+	private final double[] distance;
+	private final int[] prevLink;
+	private final int[] visited; // the search in which the node was reached
+	private final int[] settled; // the search in which the node was settled
+	private final int[] targetStamp;
+	private final IntBinaryMinHeap heap;
+	private int searchId = 0;
+
+	private int origin = -1;
+	private boolean forward = true;
+	private double startTime;
+	private int settledCount;
+
+	public GraphLeastCostPathTree(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int nodeCount = graph.getNodeCount();
+		this.cost = new double[nodeCount];
+		this.time = new double[nodeCount];
+		this.distance = new double[nodeCount];
+		this.prevLink = new int[nodeCount];
+		this.visited = new int[nodeCount];
+		this.settled = new int[nodeCount];
+		this.targetStamp = new int[nodeCount];
+		this.heap = new IntBinaryMinHeap(nodeCount);
+	}
+
+	/**
+	 * Calculates the least cost paths from the origin, departing at the given time.
+	 */
+	public void calculate(final Node origin, final double departureTime, final Person person, final Vehicle vehicle, final Bounds bounds) {
+		search(origin, departureTime, person, vehicle, bounds, true);
+	}
+
+	/**
+	 * Calculates the least cost paths to the destination, arriving at the given time.
+	 */
+	public void calculateBackward(final Node destination, final double arrivalTime, final Person person, final Vehicle vehicle, final Bounds bounds) {
+		search(destination, arrivalTime, person, vehicle, bounds, false);
+	}
+
+	private void search(final Node root, final double rootTime, final Person person, final Vehicle vehicle, final Bounds bounds, final boolean forward) {
+		int r = this.graph.getNodeIndex(root);
+		if (r < 0) {
+			throw new IllegalArgumentException("node " + root.getId() + " is not part of the network stored by " + getClass().getSimpleName());
+		}
+		nextSearch();
+		this.origin = r;
+		this.forward = forward;
+		this.startTime = rootTime;
+		this.settledCount = 0;
+
+		int remainingTargets = Integer.MAX_VALUE;
+		if (bounds.targets != null) {
+			int targetCount = 0;
+			for (Node target : bounds.targets) {
+				int t = this.graph.getNodeIndex(target);
+				if (t >= 0 && this.targetStamp[t] != this.searchId) {
+					this.targetStamp[t] = this.searchId;
+					targetCount++;
+				}
+			}
+			remainingTargets = Math.min(targetCount, bounds.requiredTargets);
+		}
+
+		this.heap.clear();
+		visit(r, rootTime, 0.0, 0.0, -1);
+		while (!this.heap.isEmpty() && remainingTargets > 0) {
+			int node = this.heap.peek();
+			if (this.cost[node] > bounds.maxCost || Math.abs(this.time[node] - rootTime) > bounds.maxTravelTime) {
+				break;
+			}
+			this.heap.poll();
+			this.settled[node] = this.searchId;
+			this.settledCount++;
+			if (this.targetStamp[node] == this.searchId) {
+				remainingTargets--;
+			}
+			relax(node, person, vehicle);
+		}
+	}
+
+	private void nextSearch() {
+		if (this.searchId == Integer.MAX_VALUE) {
+			Arrays.fill(this.visited, 0);
+			Arrays.fill(this.settled, 0);
+			Arrays.fill(this.targetStamp, 0);
+			this.searchId = 0;
+		}
+		this.searchId++;
+	}
+
+	private void relax(final int node, final Person person, final Vehicle vehicle) {
+		double currTime = this.time[node];
+		double currCost = this.cost[node];
+		double currDistance = this.distance[node];
+		int end = this.forward ? this.graph.getFirstOutLink(node + 1) : this.graph.getFirstInLink(node + 1);
+		for (int i = this.forward ? this.graph.getFirstOutLink(node) : this.graph.getFirstInLink(node); i < end; i++) {
+			int l = this.forward ? this.graph.getOutLink(i) : this.graph.getInLink(i);
+			int n = this.forward ? this.graph.getToNode(l) : this.graph.getFromNode(l);
+			if (this.settled[n] == this.searchId) {
+				continue;
+			}
+			Link link = this.graph.getLink(l);
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+			double totalCost = currCost + this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			double nodeTime = this.forward ? currTime + travelTime : currTime - travelTime;
+			if (this.visited[n] != this.searchId) {
+				visit(n, nodeTime, totalCost, currDistance + link.getLength(), l);
+			} else {
+				double nCost = this.cost[n];
+				if (totalCost < nCost || (totalCost == nCost && this.graph.getLink(this.prevLink[n]).getId().compareTo(link.getId()) > 0)) {
+					visit(n, nodeTime, totalCost, currDistance + link.getLength(), l);
+				}
+			}
+		}
+	}
+
+	private void visit(final int node, final double time, final double cost, final double distance, final int link) {
+		this.visited[node] = this.searchId;
+		this.time[node] = time;
+		this.cost[node] = cost;
+		this.distance[node] = distance;
+		this.prevLink[node] = link;
+		this.heap.insertOrDecrease(node, cost);
+	}
+
+	private int getReachedIndex(final Node node) {
+		int n = this.graph.getNodeIndex(node);
+		return n >= 0 && this.settled[n] == this.searchId && this.origin >= 0 ? n : -1;
+	}
+
+	/**
+	 * @return whether the least cost path of the node was found in the last search.
+	 */
+	public boolean isReached(final Node node) {
+		return getReachedIndex(node) >= 0;
+	}
+
+	/**
+	 * @return the cost of the least cost path from the origin, or to the destination for a backward search;
+	 * {@link Double#POSITIVE_INFINITY} if the node was not reached.
+	 */
+	public double getCost(final Node node) {
+		int n = getReachedIndex(node);
+		return n < 0 ? Double.POSITIVE_INFINITY : this.cost[n];
+	}
+
+	/**
+	 * @return the arrival time at the node, or for a backward search the departure time from the node;
+	 * {@link Double#NaN} if the node was not reached.
+	 */
+	public double getTime(final Node node) {
+		int n = getReachedIndex(node);
+		return n < 0 ? Double.NaN : this.time[n];
+	}
+
+	/**
+	 * @return the travel time of the least cost path; {@link Double#POSITIVE_INFINITY} if the node was not reached.
+	 */
+	public double getTravelTime(final Node node) {
+		int n = getReachedIndex(node);
+		return n < 0 ? Double.POSITIVE_INFINITY : Math.abs(this.time[n] - this.startTime);
+	}
+
+	/**
+	 * @return the length of the least cost path; {@link Double#POSITIVE_INFINITY} if the node was not reached.
+	 */
+	public double getDistance(final Node node) {
+		int n = getReachedIndex(node);
+		return n < 0 ? Double.POSITIVE_INFINITY : this.distance[n];
+	}
+
+	/**
+	 * @return the least cost path from the origin to the node, or from the node to the destination for a backward
+	 * search; <code>null</code> if the node was not reached.
+	 */
+	public Path getPath(final Node node) {
+		int n = getReachedIndex(node);
+		if (n < 0) {
+			return null;
+		}
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(n));
+		for (int curr = n; curr != this.origin; ) {
+			int l = this.prevLink[curr];
+			links.add(this.graph.getLink(l));
+			curr = this.forward ? this.graph.getFromNode(l) : this.graph.getToNode(l);
+			nodes.add(this.graph.getNode(curr));
+		}
+		if (this.forward) {
+			Collections.reverse(nodes);
+			Collections.reverse(links);
+		}
+		return new Path(nodes, links, Math.abs(this.time[n] - this.startTime), this.cost[n]);
+	}
+
+	/**
+	 * @return the number of nodes reached in the last search.
+	 */
+	public int getReachedNodeCount() {
+		return this.settledCount;
+	}
+
+	public RoutingGraph getGraph() {
+		return this.graph;
+	}
+
+}
@@ -42,8 +42,14 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(AStarLandmarksFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastDijkstra)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.SharedGraphDijkstra)) {
+            bind(LeastCostPathCalculatorFactory.class).toInstance(new FastDijkstraFactory(false, FastRouterType.CSR));
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.CCH)) {
+            bind(LeastCostPathCalculatorFactory.class).to(CCHRouterFactory.class);
+            // drops the customizations of the last iteration's travel times
+            addControlerListenerBinding().to(CCHRouterFactory.class);
         }
     }
 
@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathTreeBatch.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.GraphLeastCostPathTree.Bounds;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates the {@link GraphLeastCostPathTree}s of many origins in parallel, e.g. for accessibility
+ * computations or zone-to-zone matrices. The trees, i.e. the search states, are kept between the calls.
+ * <br>
+ * With more than one thread, the travel time and disutility are used concurrently, so they must be thread-safe.
+ */
+public final class LeastCostPathTreeBatch {
+
+	/**
+	 * Receives the tree of every origin. It is called from the worker threads, so it must be thread-safe, and the
+	 * tree is only valid during the call.
+	 */
+	public interface TreeHandler {
+		void handleTree(int originIndex, Node origin, GraphLeastCostPathTree tree);
+	}
+
+	/**
+	 * The costs and travel times between origins and destinations, {@link Double#POSITIVE_INFINITY} if there is no
+	 * path.
+	 */
+	public static final class Matrix {
+		private final int destinationCount;
+		private final double[] costs;
+		private final double[] travelTimes;
+
+		private Matrix(final int originCount, final int destinationCount) {
+			this.destinationCount = destinationCount;
+			this.costs = new double[originCount * destinationCount];
+			this.travelTimes = new double[originCount * destinationCount];
+		}
+
+		public double getCost(final int origin, final int destination) {
+			return this.costs[origin * this.destinationCount + destination];
+		}
+
+		public double getTravelTime(final int origin, final int destination) {
+			return this.travelTimes[origin * this.destinationCount + destination];
+		}
+	}
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final int numberOfThreads;
+	private final Queue<GraphLeastCostPathTree> trees = new ConcurrentLinkedQueue<>();
+
+	public LeastCostPathTreeBatch(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final int numberOfThreads) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * Calculates the trees of all origins, forward from the origins departing at the given time, or backward to
+	 * them arriving at the given time, and hands them to the handler in no particular order.
+	 */
+	public void calculate(final List<Node> origins, final double time, final boolean forward, final Person person, final Vehicle vehicle,
+			final Bounds bounds, final TreeHandler handler) {
+		if (origins.isEmpty()) {
+			return;
+		}
+		final AtomicInteger next = new AtomicInteger(0);
+		int threads = Math.min(this.numberOfThreads, origins.size());
+		List<Callable<Void>> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(() -> {
+				GraphLeastCostPathTree tree = this.trees.poll();
+				if (tree == null) {
+					tree = new GraphLeastCostPathTree(this.graph, this.costFunction, this.timeFunction);
+				}
+				try {
+					for (int i = next.getAndIncrement(); i < origins.size(); i = next.getAndIncrement()) {
+						Node origin = origins.get(i);
+						if (forward) {
+							tree.calculate(origin, time, person, vehicle, bounds);
+						} else {
+							tree.calculateBackward(origin, time, person, vehicle, bounds);
+						}
+						handler.handleTree(i, origin, tree);
+					}
+				} finally {
+					this.trees.add(tree);
+				}
+				return null;
+			});
+		}
+		if (threads == 1) {
+			try {
+				workers.get(0).call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Void> future : executor.invokeAll(workers)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Calculates the least cost paths from all origins to all destinations, departing at the given time. The
+	 * search from an origin ends as soon as all destinations are reached.
+	 */
+	public Matrix calcMatrix(final List<Node> origins, final List<Node> destinations, final double departureTime) {
+		final Matrix matrix = new Matrix(origins.size(), destinations.size());
+		Bounds bounds = Bounds.unbounded().withTargets(destinations);
+		calculate(origins, departureTime, true, null, null, bounds, (i, origin, tree) -> {
+			for (int j = 0; j < destinations.size(); j++) {
+				Node destination = destinations.get(j);
+				matrix.costs[i * matrix.destinationCount + j] = tree.getCost(destination);
+				matrix.travelTimes[i * matrix.destinationCount + j] = tree.getTravelTime(destination);
+			}
+		});
+		return matrix;
+	}
+
+}
@@ -18,6 +18,7 @@
  * *********************************************************************** */
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,6 +35,7 @@ import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.OneToManyLeastCostPathCalculator;
 import org.matsim.facilities.Facility;
 
 /**
@@ -42,7 +44,7 @@ import org.matsim.facilities.Facility;
  * 
  * @author thibautd
  */
-public final class NetworkRoutingModule implements RoutingModule {
+public final class NetworkRoutingModule implements OneToManyRoutingModule {
 	// I think it makes sense to NOT add the bushwhacking mode directly into here ...
 	// ... since it makes sense be able to to route from facility.getLinkId() to facility.getLinkId(). kai, dec'15
 
@@ -51,6 +53,7 @@ public final class NetworkRoutingModule implements RoutingModule {
 
 	private final Network network;
 	private final LeastCostPathCalculator routeAlgo;
+	private final RouteCache routeCache;
 
 
 	 public NetworkRoutingModule(
@@ -58,6 +61,18 @@ public final class NetworkRoutingModule implements RoutingModule {
 			final PopulationFactory populationFactory,
 			final Network network,
 			final LeastCostPathCalculator routeAlgo) {
+		 this(mode, populationFactory, network, routeAlgo, null);
+	}
+
+	/**
+	 * @param routeCache the paths shared with other routing modules; may be <code>null</code>, then every route is calculated.
+	 */
+	 public NetworkRoutingModule(
+			final String mode,
+			final PopulationFactory populationFactory,
+			final Network network,
+			final LeastCostPathCalculator routeAlgo,
+			final RouteCache routeCache) {
 		 Gbl.assertNotNull(network);
 //		 Gbl.assertIf( network.getLinks().size()>0 ) ; // otherwise network for mode probably not defined
 		 // makes many tests fail.  
@@ -65,36 +80,86 @@ public final class NetworkRoutingModule implements RoutingModule {
 		 this.routeAlgo = routeAlgo;
 		 this.mode = mode;
 		 this.populationFactory = populationFactory;
+		 this.routeCache = routeCache;
 	}
 
 	@Override
 	public List<? extends PlanElement> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime,
 			final Person person) {		
-		Leg newLeg = this.populationFactory.createLeg( this.mode );
-		
 		Gbl.assertNotNull(fromFacility);
 		Gbl.assertNotNull(toFacility);
 
-		Link fromLink = this.network.getLinks().get(fromFacility.getLinkId());
-		if ( fromLink==null ) {
-			Gbl.assertNotNull( fromFacility.getCoord() ) ;
-			fromLink = NetworkUtils.getNearestLink( network, fromFacility.getCoord()) ;
-		}
-		Link toLink = this.network.getLinks().get(toFacility.getLinkId());
-		if ( toLink==null ) {
-			Gbl.assertNotNull( toFacility.getCoord() ) ;
-			toLink = NetworkUtils.getNearestLink(network, toFacility.getCoord());
-		}
-		Gbl.assertNotNull(fromLink);
-		Gbl.assertNotNull(toLink);
+		Link fromLink = getLink(fromFacility);
+		Link toLink = getLink(toFacility);
 		
+		Path path = null;
 		if (toLink != fromLink) {
 			// (a "true" route)
 			Node startNode = fromLink.getToNode(); // start at the end of the "current" link
 			Node endNode = toLink.getFromNode(); // the target is the start of the link
-			Path path = this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null);
+			if (this.routeCache == null) {
+				path = this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null);
+			} else {
+				// the cached path is shared by all agents with the same from and to link in the time bin
+				path = this.routeCache.getPath(this.mode, fromLink.getId(), toLink.getId(), departureTime,
+						() -> this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null));
+			}
+		}
+		return Arrays.asList( createLeg(fromLink, toLink, path, departureTime) );
+	}
+
+	/**
+	 * Uses one search of the {@link OneToManyLeastCostPathCalculator} if the router is one and there is no route cache,
+	 * otherwise the routes are calculated one by one.
+	 */
+	@Override
+	public List<List<? extends PlanElement>> calcRoutes(final Facility<?> fromFacility, final List<? extends Facility<?>> toFacilities,
+			final double departureTime, final List<Person> persons) {
+		List<List<? extends PlanElement>> trips = new ArrayList<>(toFacilities.size());
+		if (this.routeCache != null || !(this.routeAlgo instanceof OneToManyLeastCostPathCalculator)) {
+			for (int i = 0; i < toFacilities.size(); i++) {
+				trips.add(calcRoute(fromFacility, toFacilities.get(i), departureTime, persons.get(i)));
+			}
+			return trips;
+		}
+		Gbl.assertNotNull(fromFacility);
+		Link fromLink = getLink(fromFacility);
+		List<Link> toLinks = new ArrayList<>(toFacilities.size());
+		List<Node> endNodes = new ArrayList<>(toFacilities.size());
+		for (Facility<?> toFacility : toFacilities) {
+			Gbl.assertNotNull(toFacility);
+			Link toLink = getLink(toFacility);
+			toLinks.add(toLink);
+			if (toLink != fromLink) {
+				endNodes.add(toLink.getFromNode());
+			}
+		}
+		// the costs of the first person are used for all, see OneToManyRoutingModule
+		List<Path> paths = ((OneToManyLeastCostPathCalculator) this.routeAlgo).calcLeastCostPaths(
+				fromLink.getToNode(), endNodes, departureTime, persons.get(0), null);
+		int p = 0;
+		for (Link toLink : toLinks) {
+			Path path = toLink != fromLink ? paths.get(p++) : null;
+			trips.add(Arrays.asList( createLeg(fromLink, toLink, path, departureTime) ));
+		}
+		return trips;
+	}
+
+	private Link getLink(final Facility<?> facility) {
+		Link link = this.network.getLinks().get(facility.getLinkId());
+		if ( link==null ) {
+			Gbl.assertNotNull( facility.getCoord() ) ;
+			link = NetworkUtils.getNearestLink( network, facility.getCoord()) ;
+		}
+		Gbl.assertNotNull(link);
+		return link;
+	}
+
+	private Leg createLeg(final Link fromLink, final Link toLink, final Path path, final double departureTime) {
+		Leg newLeg = this.populationFactory.createLeg( this.mode );
+		if (toLink != fromLink) {
 			if (path == null)
-				throw new RuntimeException("No route found from node " + startNode.getId() + " to node " + endNode.getId() + ".");
+				throw new RuntimeException("No route found from node " + fromLink.getToNode().getId() + " to node " + toLink.getFromNode().getId() + ".");
 			NetworkRoute route = this.populationFactory.getRouteFactories().createRoute(NetworkRoute.class, fromLink.getId(), toLink.getId());
 			route.setLinkIds(fromLink.getId(), NetworkUtils.getLinkIds(path.links), toLink.getId());
 			route.setTravelTime(path.travelTime);
@@ -112,8 +177,7 @@ public final class NetworkRoutingModule implements RoutingModule {
 			newLeg.setTravelTime(0);
 		}
 		newLeg.setDepartureTime(departureTime);
-
-		return Arrays.asList( newLeg );
+		return newLeg;
 	}
 
 	@Override
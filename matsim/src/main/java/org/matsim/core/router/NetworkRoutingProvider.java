@@ -10,6 +10,7 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.ModeViewLeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelTime;
 
 import javax.inject.Inject;
@@ -42,6 +43,9 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 
 	@Inject
     LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
+
+	@Inject
+	com.google.inject.Injector injector; // the route cache is only bound if switched on in the config
 	
 	public NetworkRoutingProvider(String mode) {
 		this( mode, mode ) ;
@@ -60,7 +64,7 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		log.debug( "requesting network routing module with routingMode="
 						   + routingMode + ";\tmode=" + mode) ;
 		
-		// the network refers to the (transport)mode:
+		// the network refers to the (transport)mode; the routing modules need it to find the links of the facilities:
 		Network filteredNetwork = null;
 
 		// Ensure this is not performed concurrently by multiple threads!
@@ -85,18 +89,36 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
-		LeastCostPathCalculator routeAlgo =
-				leastCostPathCalculatorFactory.createPathCalculator(
-						filteredNetwork,
+		LeastCostPathCalculator routeAlgo = null;
+		if (leastCostPathCalculatorFactory instanceof ModeViewLeastCostPathCalculatorFactory) {
+			// routes on the links of the full network which allow the mode, so all modes share the routing data;
+			// null if the factory is not configured to route on mode views
+			routeAlgo = ((ModeViewLeastCostPathCalculatorFactory) leastCostPathCalculatorFactory).createPathCalculator(
+						network,
+						mode,
 						travelDisutilityFactory.createTravelDisutility(travelTime),
 						travelTime);
+		}
+		if (routeAlgo == null) {
+			if (leastCostPathCalculatorFactory instanceof CCHRouterFactory) {
+				// lets the routers of all threads share the customizations for this disutility factory
+				routeAlgo = ((CCHRouterFactory) leastCostPathCalculatorFactory).createPathCalculator(filteredNetwork, travelDisutilityFactory, travelTime);
+			} else {
+				routeAlgo = leastCostPathCalculatorFactory.createPathCalculator(
+							filteredNetwork,
+							travelDisutilityFactory.createTravelDisutility(travelTime),
+							travelTime);
+			}
+		}
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
 			return DefaultRoutingModules.createAccessEgressNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo,
 					plansCalcRouteConfigGroup) ;
 		} else {
-			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo);
+			// (RouteCache has an injectable constructor, so asking for it would create one even if it is switched off)
+			RouteCache routeCache = plansCalcRouteConfigGroup.getRouteCacheSize() > 0 ? injector.getInstance(RouteCache.class) : null;
+			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo, routeCache);
 		}
 	}
 }
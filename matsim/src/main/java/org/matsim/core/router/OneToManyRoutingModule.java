@@ -0,0 +1,52 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OneToManyRoutingModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.facilities.Facility;
+
+/**
+ * A {@link RoutingModule} which can route the trips from one facility at one departure time to several facilities
+ * with one search, see {@link TripRoutingPipeline}.
+ * <br>
+ * The search uses the travel disutility of the first person for all trips, so this may only be used if the travel
+ * disutilities do not depend on the person, see
+ * {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup#setBatchingTripsByOrigin(boolean)}.
+ *
+ * @see org.matsim.core.router.util.OneToManyLeastCostPathCalculator
+ */
+public interface OneToManyRoutingModule extends RoutingModule {
+
+	/**
+	 * @param persons the person of every trip, in the order of the destinations
+	 * @return the trips to the destinations, in the same order, as {@link #calcRoute(Facility, Facility, double, Person)}
+	 * returns them.
+	 */
+	public List<List<? extends PlanElement>> calcRoutes(
+			Facility<?> fromFacility,
+			List<? extends Facility<?>> toFacilities,
+			double departureTime,
+			List<Person> persons);
+
+}
@@ -86,8 +86,8 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 			final List<? extends PlanElement> newTrip =
 					routingHandler.calcRoute(
 							routingHandler.getMainModeIdentifier().identifyMainMode( oldTrip.getTripElements() ),
-							toFacility( oldTrip.getOriginActivity() ),
-							toFacility( oldTrip.getDestinationActivity() ),
+							toFacility( oldTrip.getOriginActivity(), facilities ),
+							toFacility( oldTrip.getDestinationActivity(), facilities ),
 							calcEndOfActivity( oldTrip.getOriginActivity() , plan, routingHandler.getConfig() ),
 							plan.getPerson() );
 			putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
@@ -106,7 +106,7 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 	 * @param oldTrip The old trip
 	 * @param newTrip The new trip
 	 */
-	private static void putVehicleFromOldTripIntoNewTripIfMeaningful(Trip oldTrip, List<? extends PlanElement> newTrip) {
+	/*package*/ static void putVehicleFromOldTripIntoNewTripIfMeaningful(Trip oldTrip, List<? extends PlanElement> newTrip) {
 		Id<Vehicle> oldVehicleId = getUniqueVehicleId(oldTrip);
 		if (oldVehicleId != null) {
 			for (Leg leg : TripStructureUtils.getLegs(newTrip)) {
@@ -142,7 +142,7 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 	// /////////////////////////////////////////////////////////////////////////
 	// helpers
 	// /////////////////////////////////////////////////////////////////////////
-	private Facility toFacility(final Activity act) {
+	/*package*/ static Facility toFacility(final Activity act, final ActivityFacilities facilities) {
 		if (  (act.getLinkId() == null && act.getCoord() == null)  // yyyy this used to be || instead of && --???  kai, jun'16
 				&& facilities != null
 				&& !facilities.getFacilities().isEmpty()) {
@@ -177,7 +177,7 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 		throw new RuntimeException( "activity "+activity+" not found in "+plan.getPlanElements() );
 	}
 
-	private static double updateNow(
+	/*package*/ static double updateNow(
 			final double now,
 			final PlanElement pe,
 			final Config config ) {
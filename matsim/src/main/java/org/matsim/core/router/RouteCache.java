@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+/**
+ * A cache of network routes shared by all {@link NetworkRoutingModule}s, so agents travelling between the same links
+ * in the same time bin share one path search. Paths are cached by mode, from and to link, departure time bin and
+ * the version of the travel disutilities; the least recently used entries are evicted when the cache is full.
+ * <br>
+ * The cache is invalidated after every mobsim, when the observed travel times change. Cached paths ignore
+ * person-specific travel disutilities, e.g. randomized ones, and the exact departure time within the bin, which is
+ * why the cache is opt-in, see {@link PlansCalcRouteConfigGroup#setRouteCacheSize(int)}.
+ * <br>
+ * The entries are spread over independently locked segments, so the cache can be used by many routing threads.
+ */
+@Singleton
+public final class RouteCache implements AfterMobsimListener {
+
+	private final static Logger log = Logger.getLogger(RouteCache.class);
+
+	private static final int SEGMENTS = 16;
+
+	private static final class Key {
+		private final String mode;
+		private final Id<Link> fromLinkId;
+		private final Id<Link> toLinkId;
+		private final int timeBin;
+		private final int version;
+		private final int hash;
+
+		Key(final String mode, final Id<Link> fromLinkId, final Id<Link> toLinkId, final int timeBin, final int version) {
+			this.mode = mode;
+			this.fromLinkId = fromLinkId;
+			this.toLinkId = toLinkId;
+			this.timeBin = timeBin;
+			this.version = version;
+			int h = mode.hashCode();
+			h = 31 * h + fromLinkId.hashCode();
+			h = 31 * h + toLinkId.hashCode();
+			h = 31 * h + timeBin;
+			this.hash = 31 * h + version;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.hash == other.hash && this.timeBin == other.timeBin && this.version == other.version
+					&& this.fromLinkId.equals(other.fromLinkId) && this.toLinkId.equals(other.toLinkId) && this.mode.equals(other.mode);
+		}
+	}
+
+	private static final class Segment extends LinkedHashMap<Key, Path> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		Segment(final int maxSize) {
+			super(16, 0.75f, true); // access order, i.e. least recently used first
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Path> eldest) {
+			return size() > this.maxSize;
+		}
+	}
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final double timeBinSize;
+	private volatile int version = 0;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	@Inject
+	RouteCache(final PlansCalcRouteConfigGroup config) {
+		this(config.getRouteCacheSize(), config.getRouteCacheTimeBinSize());
+	}
+
+	/**
+	 * @param maxSize the maximum number of cached paths
+	 * @param timeBinSize departures within a bin of this size (in seconds) share their paths
+	 */
+	public RouteCache(final int maxSize, final double timeBinSize) {
+		if (maxSize <= 0 || timeBinSize <= 0) {
+			throw new IllegalArgumentException("the size and time bin size of the route cache must be positive, but are " + maxSize + " and " + timeBinSize);
+		}
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+		}
+		this.timeBinSize = timeBinSize;
+	}
+
+	/**
+	 * @return the cached path, or the one of the calculator, which is then cached. <code>null</code> paths are not cached.
+	 */
+	public Path getPath(final String mode, final Id<Link> fromLinkId, final Id<Link> toLinkId, final double departureTime,
+			final Supplier<Path> calculator) {
+		Key key = new Key(mode, fromLinkId, toLinkId, (int) (departureTime / this.timeBinSize), this.version);
+		Segment segment = this.segments[(key.hash ^ (key.hash >>> 16)) & (SEGMENTS - 1)];
+		Path path;
+		synchronized (segment) {
+			path = segment.get(key);
+		}
+		if (path != null) {
+			this.hits.increment();
+			return path;
+		}
+		this.misses.increment();
+		path = calculator.get();
+		if (path != null) {
+			synchronized (segment) {
+				segment.put(key, path);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Drops all cached paths. Paths being calculated concurrently are stored for the old version, so they are never
+	 * returned again.
+	 */
+	public void invalidate() {
+		this.version++;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	public double getTimeBinSize() {
+		return this.timeBinSize;
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the share of requests answered from the cache since the last reset.
+	 */
+	public double getHitRate() {
+		long h = this.hits.sum();
+		long total = h + this.misses.sum();
+		return total == 0 ? 0.0 : (double) h / total;
+	}
+
+	public void resetStatistics() {
+		this.hits.reset();
+		this.misses.reset();
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		log.info("route cache: " + getHits() + " hits, " + getMisses() + " misses, hit rate " + getHitRate() + ", " + size() + " paths cached.");
+		resetStatistics();
+		invalidate();
+	}
+
+}
@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Travel times, distances and costs between origins and destinations, e.g. zones represented by nodes, for
+ * departures in a number of time bins. The values of each bin and quantity are kept in one float buffer, either on
+ * the heap or memory-mapped from a file, see {@link #write(File)} and {@link #read(File)}. Pairs without a path have
+ * {@link Float#POSITIVE_INFINITY} in all quantities.
+ * <br>
+ * A matrix is not changed once it is published, so it can be read by any number of threads.
+ *
+ * @see TravelMatrixService
+ */
+public final class TravelMatrix {
+
+	private static final int FILE_MAGIC = 0x54524d58; // "TRMX"
+	private static final int FILE_VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	private final int originCount;
+	private final int destinationCount;
+	private final int binCount;
+	private final double binSize;
+
+	// by bin
+	private final FloatBuffer[] travelTimes;
+	private final FloatBuffer[] distances;
+	private final FloatBuffer[] costs;
+
+	TravelMatrix(final int originCount, final int destinationCount, final int binCount, final double binSize) {
+		if ((long) originCount * destinationCount * 4 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("at most " + (Integer.MAX_VALUE / 4) + " pairs are supported, but there are "
+					+ originCount + " origins and " + destinationCount + " destinations.");
+		}
+		this.originCount = originCount;
+		this.destinationCount = destinationCount;
+		this.binCount = binCount;
+		this.binSize = binSize;
+		this.travelTimes = new FloatBuffer[binCount];
+		this.distances = new FloatBuffer[binCount];
+		this.costs = new FloatBuffer[binCount];
+	}
+
+	public int getOriginCount() {
+		return this.originCount;
+	}
+
+	public int getDestinationCount() {
+		return this.destinationCount;
+	}
+
+	public int getTimeBinCount() {
+		return this.binCount;
+	}
+
+	public double getTimeBinSize() {
+		return this.binSize;
+	}
+
+	/**
+	 * @return the bin of the departure time; times beyond the last bin belong to the last bin.
+	 */
+	public int getTimeBin(final double departureTime) {
+		int bin = (int) (departureTime / this.binSize);
+		return bin < 0 ? 0 : (bin >= this.binCount ? this.binCount - 1 : bin);
+	}
+
+	/**
+	 * @return the departure time for which the values of the bin are calculated, i.e. the middle of the bin.
+	 */
+	public double getDepartureTime(final int bin) {
+		return (bin + 0.5) * this.binSize;
+	}
+
+	public float getTravelTime(final int bin, final int origin, final int destination) {
+		return this.travelTimes[bin].get(origin * this.destinationCount + destination);
+	}
+
+	public float getTravelTime(final double departureTime, final int origin, final int destination) {
+		return getTravelTime(getTimeBin(departureTime), origin, destination);
+	}
+
+	public float getDistance(final int bin, final int origin, final int destination) {
+		return this.distances[bin].get(origin * this.destinationCount + destination);
+	}
+
+	public float getDistance(final double departureTime, final int origin, final int destination) {
+		return getDistance(getTimeBin(departureTime), origin, destination);
+	}
+
+	public float getCost(final int bin, final int origin, final int destination) {
+		return this.costs[bin].get(origin * this.destinationCount + destination);
+	}
+
+	public float getCost(final double departureTime, final int origin, final int destination) {
+		return getCost(getTimeBin(departureTime), origin, destination);
+	}
+
+	/**
+	 * Creates the buffers of a bin, to be filled by the {@link TravelMatrixService} before the matrix is published.
+	 */
+	void allocateBin(final int bin) {
+		int size = this.originCount * this.destinationCount;
+		this.travelTimes[bin] = FloatBuffer.wrap(new float[size]);
+		this.distances[bin] = FloatBuffer.wrap(new float[size]);
+		this.costs[bin] = FloatBuffer.wrap(new float[size]);
+	}
+
+	void set(final int bin, final int origin, final int destination, final float travelTime, final float distance, final float cost) {
+		int index = origin * this.destinationCount + destination;
+		this.travelTimes[bin].put(index, travelTime);
+		this.distances[bin].put(index, distance);
+		this.costs[bin].put(index, cost);
+	}
+
+	/**
+	 * Shares the values of an unchanged bin with the previous matrix.
+	 */
+	void copyBin(final TravelMatrix previous, final int bin) {
+		this.travelTimes[bin] = previous.travelTimes[bin];
+		this.distances[bin] = previous.distances[bin];
+		this.costs[bin] = previous.costs[bin];
+	}
+
+	public void write(final File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(this.originCount).putInt(this.destinationCount)
+					.putInt(this.binCount).putDouble(this.binSize);
+			header.position(HEADER_SIZE);
+			header.flip();
+			writeFully(channel, header);
+			ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+			for (int bin = 0; bin < this.binCount; bin++) {
+				for (FloatBuffer values : new FloatBuffer[] { this.travelTimes[bin], this.distances[bin], this.costs[bin] }) {
+					FloatBuffer source = values.duplicate();
+					source.clear();
+					while (source.hasRemaining()) {
+						chunk.clear();
+						FloatBuffer target = chunk.asFloatBuffer();
+						int n = Math.min(target.remaining(), source.remaining());
+						FloatBuffer slice = source.slice();
+						slice.limit(n);
+						target.put(slice);
+						source.position(source.position() + n);
+						chunk.limit(4 * n);
+						writeFully(channel, chunk);
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Maps a matrix written by {@link #write(File)} into memory, so only the parts being read are loaded.
+	 */
+	public static TravelMatrix read(final File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IOException("unexpected end of file " + file);
+				}
+			}
+			header.flip();
+			if (header.getInt() != FILE_MAGIC || header.getInt() != FILE_VERSION) {
+				throw new IOException(file + " is not a travel matrix file of version " + FILE_VERSION);
+			}
+			TravelMatrix matrix = new TravelMatrix(header.getInt(), header.getInt(), header.getInt(), header.getDouble());
+			long size = 4L * matrix.originCount * matrix.destinationCount;
+			if (channel.size() != HEADER_SIZE + 3 * size * matrix.binCount) {
+				throw new IOException("the size of " + file + " does not match its header.");
+			}
+			long position = HEADER_SIZE;
+			for (int bin = 0; bin < matrix.binCount; bin++) {
+				matrix.travelTimes[bin] = channel.map(FileChannel.MapMode.READ_ONLY, position, size).asFloatBuffer();
+				position += size;
+				matrix.distances[bin] = channel.map(FileChannel.MapMode.READ_ONLY, position, size).asFloatBuffer();
+				position += size;
+				matrix.costs[bin] = channel.map(FileChannel.MapMode.READ_ONLY, position, size).asFloatBuffer();
+				position += size;
+			}
+			return matrix;
+		}
+	}
+
+}
@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelMatrixService.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.GraphLeastCostPathTree.Bounds;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Keeps a {@link TravelMatrix} between origin and destination nodes up to date with the current travel times, e.g.
+ * for zone-based models which represent each zone by a node. The trees of all origins are calculated in parallel by
+ * a {@link LeastCostPathTreeBatch}, departing in the middle of each time bin.
+ * <br>
+ * An {@link #update()} only recalculates the bins whose paths may have become different: the link travel times are
+ * sampled at a fixed interval and rounded to steps of the relative tolerance, on a logarithmic scale. Only a 64 bit
+ * fingerprint of the rounded travel times of all links is kept per sample, and a bin is recalculated if the fingerprint
+ * of any sample between its departure time and its longest travel time in the previous matrix differs from the one
+ * used before. So a change of a link travel time by more than the tolerance is always noticed, a smaller one if it
+ * crosses a step; small changes cannot add up unnoticed, as the steps do not move. This assumes the disutility only changes with the travel times; after any other change, e.g. of tolls, call
+ * {@link #invalidate()}. The disutility must not be randomized, otherwise the matrix is not reproducible.
+ * <br>
+ * The service updates itself at the end of each iteration if it is registered with
+ * <code>addControlerListenerBinding().toInstance(service)</code>. Readers get the published matrix by
+ * {@link #getMatrix()}, which is never changed afterwards, so they need no synchronization.
+ */
+public final class TravelMatrixService implements IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(TravelMatrixService.class);
+
+	private final RoutingGraph graph;
+	private final TravelTime timeFunction;
+	private final List<Node> origins;
+	private final List<Node> destinations;
+	private final double binSize;
+	private final int binCount;
+	private final LeastCostPathTreeBatch batch;
+	private final Bounds bounds;
+
+	private double sampleInterval = 900.0;
+	private double relativeTolerance = 0.01;
+
+	private volatile TravelMatrix matrix = null;
+	private float[] maxTravelTimes; // by bin, of the current matrix
+	private long[] fingerprints; // by sample, of the travel times the current matrix is based on
+
+	public TravelMatrixService(final RoutingGraph graph, final TravelTime timeFunction, final TravelDisutility costFunction,
+			final List<Node> origins, final List<Node> destinations, final double binSize, final int binCount, final int numberOfThreads) {
+		if (binSize <= 0 || binCount <= 0) {
+			throw new IllegalArgumentException("bin size and count must be positive, but are " + binSize + " and " + binCount);
+		}
+		this.graph = graph;
+		this.timeFunction = timeFunction;
+		this.origins = new ArrayList<>(origins);
+		this.destinations = new ArrayList<>(destinations);
+		this.binSize = binSize;
+		this.binCount = binCount;
+		this.batch = new LeastCostPathTreeBatch(graph, costFunction, timeFunction, numberOfThreads);
+		this.bounds = Bounds.unbounded().withTargets(this.destinations);
+	}
+
+	/**
+	 * @param sampleInterval the interval at which the link travel times are compared between updates
+	 * @param relativeTolerance the relative step to which the link travel times are rounded before they are compared;
+	 * with 0, any change counts
+	 */
+	public synchronized void setChangeDetection(final double sampleInterval, final double relativeTolerance) {
+		if (sampleInterval <= 0) {
+			throw new IllegalArgumentException("sample interval must be positive, but is " + sampleInterval);
+		}
+		this.sampleInterval = sampleInterval;
+		this.relativeTolerance = relativeTolerance;
+		this.fingerprints = null;
+	}
+
+	/**
+	 * @return the current matrix, <code>null</code> before the first {@link #update()}.
+	 */
+	public TravelMatrix getMatrix() {
+		return this.matrix;
+	}
+
+	public List<Node> getOrigins() {
+		return this.origins;
+	}
+
+	public List<Node> getDestinations() {
+		return this.destinations;
+	}
+
+	/**
+	 * Lets the next {@link #update()} recalculate all bins.
+	 */
+	public synchronized void invalidate() {
+		this.fingerprints = null;
+	}
+
+	/**
+	 * Recalculates the bins affected by changed travel times and publishes the new matrix.
+	 *
+	 * @return the number of recalculated bins.
+	 */
+	public synchronized int update() {
+		int sampleCount = (int) Math.ceil(this.binCount * this.binSize / this.sampleInterval);
+		long[] newFingerprints = new long[sampleCount];
+		for (int s = 0; s < sampleCount; s++) {
+			newFingerprints[s] = getFingerprint((s + 0.5) * this.sampleInterval);
+		}
+
+		TravelMatrix previous = this.matrix;
+		boolean[] dirty = new boolean[this.binCount];
+		if (previous == null || this.fingerprints == null || this.fingerprints.length != sampleCount) {
+			for (int b = 0; b < this.binCount; b++) {
+				dirty[b] = true;
+			}
+		} else {
+			boolean[] changed = new boolean[sampleCount];
+			for (int s = 0; s < sampleCount; s++) {
+				changed[s] = newFingerprints[s] != this.fingerprints[s];
+			}
+			for (int b = 0; b < this.binCount; b++) {
+				double departureTime = previous.getDepartureTime(b);
+				int first = getSample(departureTime, sampleCount);
+				int last = getSample(departureTime + this.maxTravelTimes[b], sampleCount);
+				for (int s = first; s <= last && !dirty[b]; s++) {
+					dirty[b] = changed[s];
+				}
+			}
+		}
+
+		final TravelMatrix next = new TravelMatrix(this.origins.size(), this.destinations.size(), this.binCount, this.binSize);
+		float[] nextMaxTravelTimes = new float[this.binCount];
+		int recalculated = 0;
+		for (int b = 0; b < this.binCount; b++) {
+			if (!dirty[b]) {
+				next.copyBin(previous, b);
+				nextMaxTravelTimes[b] = this.maxTravelTimes[b];
+				continue;
+			}
+			nextMaxTravelTimes[b] = calculateBin(next, b);
+			recalculated++;
+		}
+
+		this.fingerprints = newFingerprints;
+		this.maxTravelTimes = nextMaxTravelTimes;
+		this.matrix = next;
+		return recalculated;
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		int recalculated = update();
+		log.info("recalculated " + recalculated + " of " + this.binCount + " time bins of the travel matrix.");
+	}
+
+	/**
+	 * @return the longest finite travel time of the bin.
+	 */
+	private float calculateBin(final TravelMatrix next, final int bin) {
+		next.allocateBin(bin);
+		final float[] maxTravelTimes = new float[this.origins.size()];
+		this.batch.calculate(this.origins, next.getDepartureTime(bin), true, null, null, this.bounds, (i, origin, tree) -> {
+			float max = 0;
+			for (int j = 0; j < this.destinations.size(); j++) {
+				Node destination = this.destinations.get(j);
+				float travelTime = (float) tree.getTravelTime(destination);
+				next.set(bin, i, j, travelTime, (float) tree.getDistance(destination), (float) tree.getCost(destination));
+				if (travelTime > max && travelTime < Float.POSITIVE_INFINITY) {
+					max = travelTime;
+				}
+			}
+			maxTravelTimes[i] = max;
+		});
+		float max = 0;
+		for (float travelTime : maxTravelTimes) {
+			max = Math.max(max, travelTime);
+		}
+		return max;
+	}
+
+	/**
+	 * @return a hash of the travel times of all links at the time, each rounded to its step of the tolerance.
+	 */
+	private long getFingerprint(final double time) {
+		double logStep = Math.log1p(this.relativeTolerance);
+		long fingerprint = 0;
+		for (int l = 0; l < this.graph.getLinkCount(); l++) {
+			double travelTime = this.timeFunction.getLinkTravelTime(this.graph.getLink(l), time, null, null);
+			long step;
+			if (!(travelTime > 0) || Double.isInfinite(travelTime) || !(logStep > 0)) {
+				step = Double.doubleToLongBits(travelTime);
+			} else {
+				step = (long) Math.floor(Math.log(travelTime) / logStep);
+			}
+			// the finalizer of MurmurHash3, so every bit of a step affects the whole fingerprint
+			step ^= step >>> 33;
+			step *= 0xff51afd7ed558ccdL;
+			step ^= step >>> 33;
+			step *= 0xc4ceb9fe1a85ec53L;
+			step ^= step >>> 33;
+			fingerprint = 31 * fingerprint + step;
+		}
+		return fingerprint;
+	}
+
+	private int getSample(final double time, final int sampleCount) {
+		int sample = (int) (time / this.sampleInterval);
+		return sample < 0 ? 0 : (sample >= sampleCount ? sampleCount - 1 : sample);
+	}
+
+}
@@ -0,0 +1,318 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TripRoutingPipeline.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import javax.inject.Provider;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.Facility;
+
+/**
+ * Routes the trips of many plans on a fork-join pool, with the same results as running a {@link PlanRouter}
+ * on every plan.
+ * <br>
+ * Instead of a plan, the unit of work is a chain of trips: a trip starts a new chain if its origin activity has an
+ * end time, since its departure time then does not depend on the routes of the trips before it. So the trips of a
+ * single long plan are routed by several threads as well. This is only done if the routing is not randomized, as
+ * the randomized disutilities draw their factor once per person and router, and if the activity durations are
+ * not interpreted as {@link PlansConfigGroup.ActivityDurationInterpretation#minOfDurationAndEndTime}, under which
+ * every departure depends on all trips before it; otherwise every plan is one chain.
+ * <br>
+ * With {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup#setBatchingTripsByOrigin(boolean)}, the first
+ * trips of the chains which have the same mode, origin link and departure time are routed with one search of a
+ * {@link OneToManyRoutingModule}.
+ * <br>
+ * The new trips are written into the plans once all are routed.
+ */
+public final class TripRoutingPipeline {
+	private static final Logger log = Logger.getLogger(TripRoutingPipeline.class);
+
+	private final Provider<TripRouter> tripRouterProvider;
+	private final ActivityFacilities facilities;
+	private final int numberOfThreads;
+
+	/**
+	 * @param facilities may be <tt>null</tt>, see {@link PlanRouter#PlanRouter(TripRouter, ActivityFacilities)}
+	 */
+	public TripRoutingPipeline(final Provider<TripRouter> tripRouterProvider, final ActivityFacilities facilities,
+			final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("the number of threads must be positive, but is " + numberOfThreads);
+		}
+		this.tripRouterProvider = tripRouterProvider;
+		this.facilities = facilities;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void run(final List<Plan> plans) {
+		if (plans.isEmpty()) {
+			return;
+		}
+		// the trip routers are not thread-safe, so every worker gets its own
+		ThreadLocal<TripRouter> tripRouters = ThreadLocal.withInitial(this.tripRouterProvider::get);
+		ForkJoinPool pool = new ForkJoinPool(this.numberOfThreads);
+		try {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					routePlans(plans, tripRouters);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void routePlans(final List<Plan> plans, final ThreadLocal<TripRouter> tripRouters) {
+		Config config = tripRouters.get().getConfig();
+		boolean splitting = config != null
+				&& config.plansCalcRoute().getRoutingRandomness() == 0.0
+				&& config.plans().getActivityDurationInterpretation() != PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime;
+		int grainSize = Math.max(1, plans.size() / (8 * this.numberOfThreads));
+
+		// find the trips and the departure times of the chains
+		@SuppressWarnings("unchecked")
+		List<TripToRoute>[] tripsOfPlans = new List[plans.size()];
+		new RangeAction(0, plans.size(), grainSize, i -> {
+			tripsOfPlans[i] = getTrips(plans.get(i), tripRouters.get(), splitting);
+		}).invoke();
+
+		// group the first trips of the chains into the units of work
+		boolean batching = splitting && config.plansCalcRoute().isBatchingTripsByOrigin();
+		TripRouter tripRouter = tripRouters.get();
+		List<List<TripToRoute>> units = new ArrayList<>();
+		Map<List<Object>, List<TripToRoute>> batches = new LinkedHashMap<>();
+		int numberOfTrips = 0;
+		for (List<TripToRoute> trips : tripsOfPlans) {
+			numberOfTrips += trips.size();
+			for (TripToRoute trip : trips) {
+				if (!trip.isHead) {
+					continue;
+				}
+				if (batching && trip.fromFacility.getLinkId() != null
+						&& tripRouter.getRoutingModule(trip.mainMode) instanceof OneToManyRoutingModule) {
+					List<Object> key = Arrays.asList(trip.mainMode, trip.fromFacility.getLinkId(), trip.departureTime);
+					List<TripToRoute> batch = batches.get(key);
+					if (batch == null) {
+						batch = new ArrayList<>();
+						batches.put(key, batch);
+						units.add(batch);
+					}
+					batch.add(trip);
+				} else {
+					List<TripToRoute> unit = new ArrayList<>(1);
+					unit.add(trip);
+					units.add(unit);
+				}
+			}
+		}
+		log.info("routing " + numberOfTrips + " trips of " + plans.size() + " plans in " + units.size() + " units with "
+				+ this.numberOfThreads + " threads");
+
+		new RangeAction(0, units.size(), 1, i -> route(units.get(i), tripRouters.get())).invoke();
+
+		new RangeAction(0, plans.size(), grainSize, i -> {
+			Plan plan = plans.get(i);
+			for (TripToRoute trip : tripsOfPlans[i]) {
+				PlanRouter.putVehicleFromOldTripIntoNewTripIfMeaningful(trip.oldTrip, trip.newTrip);
+				TripRouter.insertTrip(
+						plan,
+						trip.oldTrip.getOriginActivity(),
+						trip.newTrip,
+						trip.oldTrip.getDestinationActivity());
+			}
+		}).invoke();
+	}
+
+	private List<TripToRoute> getTrips(final Plan plan, final TripRouter tripRouter, final boolean splitting) {
+		List<Trip> oldTrips = TripStructureUtils.getTrips(plan, tripRouter.getStageActivityTypes());
+		List<TripToRoute> trips = new ArrayList<>(oldTrips.size());
+		TripToRoute previous = null;
+		for (Trip oldTrip : oldTrips) {
+			Activity origin = oldTrip.getOriginActivity();
+			TripToRoute trip = new TripToRoute(
+					plan,
+					oldTrip,
+					tripRouter.getMainModeIdentifier().identifyMainMode(oldTrip.getTripElements()),
+					PlanRouter.toFacility(origin, this.facilities),
+					PlanRouter.toFacility(oldTrip.getDestinationActivity(), this.facilities),
+					previous == null || (splitting && origin.getEndTime() != Time.UNDEFINED_TIME));
+			if (trip.isHead) {
+				Config config = tripRouter.getConfig();
+				trip.departureTime = PlanRouter.calcEndOfActivity(origin, plan, config);
+				if (config == null) {
+					// see route(...)
+				} else if (previous == null) {
+					// nothing before the first trip is routed, so the plan can be walked through as it is
+					double now = 0;
+					for (PlanElement pe : plan.getPlanElements()) {
+						now = PlanRouter.updateNow(now, pe, config);
+						if (pe == origin) {
+							break;
+						}
+					}
+					trip.now = now;
+				} else {
+					// the end time, whatever the time before
+					trip.now = PlanRouter.updateNow(0, origin, config);
+				}
+			} else {
+				previous.next = trip;
+			}
+			trips.add(trip);
+			previous = trip;
+		}
+		return trips;
+	}
+
+	private static void route(final List<TripToRoute> heads, final TripRouter tripRouter) {
+		TripToRoute first = heads.get(0);
+		RoutingModule module = tripRouter.getRoutingModule(first.mainMode);
+		if (heads.size() > 1 && module instanceof OneToManyRoutingModule) {
+			List<Facility<?>> toFacilities = new ArrayList<>(heads.size());
+			List<Person> persons = new ArrayList<>(heads.size());
+			for (TripToRoute head : heads) {
+				toFacilities.add(head.toFacility);
+				persons.add(head.plan.getPerson());
+			}
+			List<List<? extends PlanElement>> newTrips = ((OneToManyRoutingModule) module).calcRoutes(
+					first.fromFacility, toFacilities, first.departureTime, persons);
+			for (int i = 0; i < heads.size(); i++) {
+				if (newTrips.get(i) == null) {
+					throw new NullPointerException( "Routing module "+module+" returned a null Trip for main mode "+first.mainMode );
+				}
+				heads.get(i).newTrip = newTrips.get(i);
+			}
+		} else {
+			for (TripToRoute head : heads) {
+				head.newTrip = calcRoute(head, tripRouter);
+			}
+		}
+
+		Config config = tripRouter.getConfig();
+		for (TripToRoute head : heads) {
+			// the departure times of the other trips of the chain are found by walking through the new trips,
+			// as PlanRouter.calcEndOfActivity does through the plan with the trips before routed
+			for (TripToRoute previous = head; previous.next != null; previous = previous.next) {
+				TripToRoute trip = previous.next;
+				Activity origin = trip.oldTrip.getOriginActivity();
+				if (config == null) {
+					// (routers without config can only route plans with end times, as the PlanRouter)
+					trip.departureTime = PlanRouter.calcEndOfActivity(origin, trip.plan, config);
+					trip.newTrip = calcRoute(trip, tripRouter);
+					continue;
+				}
+				double now = previous.now;
+				for (PlanElement pe : previous.newTrip) {
+					now = PlanRouter.updateNow(now, pe, config);
+				}
+				trip.now = PlanRouter.updateNow(now, origin, config);
+				trip.departureTime = origin.getEndTime() != Time.UNDEFINED_TIME ? origin.getEndTime() : trip.now;
+				trip.newTrip = calcRoute(trip, tripRouter);
+			}
+		}
+	}
+
+	private static List<? extends PlanElement> calcRoute(final TripToRoute trip, final TripRouter tripRouter) {
+		return tripRouter.calcRoute(
+				trip.mainMode,
+				trip.fromFacility,
+				trip.toFacility,
+				trip.departureTime,
+				trip.plan.getPerson());
+	}
+
+	private static final class TripToRoute {
+		final Plan plan;
+		final Trip oldTrip;
+		final String mainMode;
+		final Facility<?> fromFacility;
+		final Facility<?> toFacility;
+		final boolean isHead;
+
+		double departureTime;
+		/** the time of the walk through the plan after the origin activity, see {@link PlanRouter#updateNow} */
+		double now;
+		List<? extends PlanElement> newTrip = null;
+		/** the next trip of the chain, routed after this one */
+		TripToRoute next = null;
+
+		TripToRoute(final Plan plan, final Trip oldTrip, final String mainMode, final Facility<?> fromFacility,
+				final Facility<?> toFacility, final boolean isHead) {
+			this.plan = plan;
+			this.oldTrip = oldTrip;
+			this.mainMode = mainMode;
+			this.fromFacility = fromFacility;
+			this.toFacility = toFacility;
+			this.isHead = isHead;
+		}
+	}
+
+	private static final class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int grainSize;
+		private final IntConsumer action;
+
+		RangeAction(final int from, final int to, final int grainSize, final IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.grainSize = grainSize;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.grainSize) {
+				for (int i = this.from; i < this.to; i++) {
+					this.action.accept(i);
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new RangeAction(this.from, middle, this.grainSize, this.action),
+						new RangeAction(middle, this.to, this.grainSize, this.action));
+			}
+		}
+	}
+
+}
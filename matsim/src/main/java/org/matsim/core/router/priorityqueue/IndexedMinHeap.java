@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link MinHeap} of objects with dense indices, e.g. {@link HasIndex} nodes, backed by an {@link IntMinHeap}. In
+ * contrast to the {@link BinaryMinHeap}, the heap itself only moves primitives, and elements are only looked up
+ * when they are polled.
+ *
+ * @param <E> the type of elements held in this collection
+ */
+public final class IndexedMinHeap<E> implements MinHeap<E> {
+
+	private final IntMinHeap heap;
+	private final ToIntFunction<? super E> indices;
+	private final Object[] elements; // by index
+
+	/**
+	 * @param heap an empty heap for the indices <code>0 .. maxSize-1</code>
+	 * @param indices the index of each element
+	 */
+	public IndexedMinHeap(final IntMinHeap heap, final int maxSize, final ToIntFunction<? super E> indices) {
+		this.heap = heap;
+		this.indices = indices;
+		this.elements = new Object[maxSize];
+	}
+
+	@Override
+	public boolean add(final E value, final double priority) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported!");
+		}
+		int index = this.indices.applyAsInt(value);
+		if (this.heap.contains(index)) {
+			return false;
+		}
+		this.elements[index] = value;
+		this.heap.insertOrDecrease(index, priority);
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		return this.heap.isEmpty() ? null : element(this.heap.poll());
+	}
+
+	@Override
+	public boolean remove(final E value) {
+		return value != null && this.heap.remove(this.indices.applyAsInt(value));
+	}
+
+	@Override
+	public E peek() {
+		return this.heap.isEmpty() ? null : element(this.heap.peek());
+	}
+
+	@Override
+	public int size() {
+		return this.heap.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.heap.isEmpty();
+	}
+
+	/**
+	 * Returns a snapshot of the elements in this queue, so removing elements is not supported via the iterator.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final List<E> list = new ArrayList<>(this.heap.size());
+		this.heap.forEach(index -> list.add(element(index)));
+		return Collections.unmodifiableList(list).iterator();
+	}
+
+	@Override
+	public boolean decreaseKey(final E value, final double priority) {
+		int index = this.indices.applyAsInt(value);
+		if (!this.heap.contains(index)) {
+			return add(value, priority);
+		}
+		if (this.heap.getCost(index) < priority) {
+			return false;
+		}
+		this.heap.insertOrDecrease(index, priority);
+		return true;
+	}
+
+	@Override
+	public void reset() {
+		this.heap.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private E element(final int index) {
+		return (E) this.elements[index];
+	}
+
+}
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntBinaryMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * A binary min heap of the ints <code>0 .. maxSize-1</code>, e.g. node indices of a
+ * {@link org.matsim.core.router.util.RoutingGraph}, with double costs. Unlike {@link BinaryMinHeap}, no objects
+ * are stored and nothing is allocated after construction, so it is cheap to keep one per routing thread.
+ * <br>
+ * Ties are broken by the element, so the order in which elements with the same cost are polled does not
+ * depend on the order they were added in.
+ *
+ * @see IntFourAryMinHeap
+ */
+public final class IntBinaryMinHeap implements IntMinHeap {
+
+	private final int[] heap; // the elements, in heap order
+	private final double[] costs; // by position in the heap
+	private final int[] positions; // by element, -1 if not in the heap
+	private int size = 0;
+
+	public IntBinaryMinHeap(final int maxSize) {
+		this.heap = new int[maxSize];
+		this.costs = new double[maxSize];
+		this.positions = new int[maxSize];
+		for (int i = 0; i < maxSize; i++) {
+			this.positions[i] = -1;
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final int element) {
+		return this.positions[element] >= 0;
+	}
+
+	@Override
+	public double getCost(final int element) {
+		int pos = this.positions[element];
+		if (pos < 0) {
+			throw new NoSuchElementException();
+		}
+		return this.costs[pos];
+	}
+
+	@Override
+	public boolean insertOrDecrease(final int element, final double cost) {
+		int pos = this.positions[element];
+		if (pos < 0) {
+			pos = this.size++;
+		} else if (cost >= this.costs[pos]) {
+			return false;
+		}
+		siftUp(pos, element, cost);
+		return true;
+	}
+
+	@Override
+	public boolean remove(final int element) {
+		int pos = this.positions[element];
+		if (pos < 0) {
+			return false;
+		}
+		this.positions[element] = -1;
+		this.size--;
+		if (pos < this.size) {
+			// move the last element into the gap, it may have to go up or down
+			int last = this.heap[this.size];
+			double lastCost = this.costs[this.size];
+			if (pos > 0 && less(lastCost, last, this.costs[(pos - 1) >>> 1], this.heap[(pos - 1) >>> 1])) {
+				siftUp(pos, last, lastCost);
+			} else {
+				siftDown(pos, last, lastCost);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		return this.heap[0];
+	}
+
+	@Override
+	public double peekCost() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		return this.costs[0];
+	}
+
+	@Override
+	public int poll() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		int min = this.heap[0];
+		this.positions[min] = -1;
+		this.size--;
+		if (this.size > 0) {
+			siftDown(0, this.heap[this.size], this.costs[this.size]);
+		}
+		return min;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	@Override
+	public void forEach(final IntConsumer action) {
+		for (int i = 0; i < this.size; i++) {
+			action.accept(this.heap[i]);
+		}
+	}
+
+	private static boolean less(final double cost1, final int element1, final double cost2, final int element2) {
+		return cost1 < cost2 || (cost1 == cost2 && element1 < element2);
+	}
+
+	private void siftUp(int pos, final int element, final double cost) {
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!less(cost, element, this.costs[parent], this.heap[parent])) {
+				break;
+			}
+			set(pos, this.heap[parent], this.costs[parent]);
+			pos = parent;
+		}
+		set(pos, element, cost);
+	}
+
+	private void siftDown(int pos, final int element, final double cost) {
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && less(this.costs[child + 1], this.heap[child + 1], this.costs[child], this.heap[child])) {
+				child++;
+			}
+			if (!less(this.costs[child], this.heap[child], cost, element)) {
+				break;
+			}
+			set(pos, this.heap[child], this.costs[child]);
+			pos = child;
+		}
+		set(pos, element, cost);
+	}
+
+	private void set(final int pos, final int element, final double cost) {
+		this.heap[pos] = element;
+		this.costs[pos] = cost;
+		this.positions[element] = pos;
+	}
+
+}
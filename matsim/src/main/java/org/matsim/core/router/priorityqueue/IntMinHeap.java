@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A priority queue of the ints <code>0 .. maxSize-1</code>, e.g. dense node indices, with double costs. The
+ * implementations store primitives only and allocate nothing after construction.
+ * <br>
+ * Ties are broken by the element, i.e. all implementations poll the elements in the same order, which is why they
+ * can replace each other without changing any routing results.
+ *
+ * @see IntBinaryMinHeap
+ * @see IntFourAryMinHeap
+ * @see IntRadixMinHeap
+ * @see IndexedMinHeap
+ */
+public interface IntMinHeap {
+
+	int size();
+
+	boolean isEmpty();
+
+	boolean contains(int element);
+
+	/**
+	 * @return the cost of the contained element
+	 */
+	double getCost(int element);
+
+	/**
+	 * Adds the element, or decreases its cost if it is already contained with a higher cost.
+	 *
+	 * @return <code>true</code> if the element was added or its cost was decreased.
+	 */
+	boolean insertOrDecrease(int element, double cost);
+
+	/**
+	 * @return <code>true</code> if the element was contained.
+	 */
+	boolean remove(int element);
+
+	int peek();
+
+	double peekCost();
+
+	int poll();
+
+	/**
+	 * Empties the heap; only touches the elements still contained.
+	 */
+	void clear();
+
+	/**
+	 * Calls the action for all contained elements, in no particular order.
+	 */
+	void forEach(IntConsumer action);
+
+}
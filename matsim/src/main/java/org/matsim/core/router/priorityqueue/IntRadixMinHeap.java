@@ -0,0 +1,249 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntRadixMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * A radix heap of the ints <code>0 .. maxSize-1</code>, a bucket queue for integer keys, which are the costs divided
+ * by the resolution. An element is kept in the bucket of the highest bit in which its key differs from the key of
+ * the last polled element, so adding and decreasing a cost is constant time, and every element is moved to a lower
+ * bucket at most 64 times before it is polled.
+ * <br>
+ * This needs monotone use, i.e. no cost below the one polled last, which holds for Dijkstra with non-negative
+ * costs. Elements with the same key are compared by their exact costs and then by the element, so the order is the
+ * same as in the other {@link IntMinHeap}s; elements added below the last polled key are still polled in order,
+ * only more slowly. The resolution should be well below the cost of a link, otherwise many elements share a key.
+ */
+public final class IntRadixMinHeap implements IntMinHeap {
+
+	private static final int BUCKETS = 65;
+
+	private final double keysPerCost;
+
+	// by element
+	private final double[] costs;
+	private final long[] keys;
+	private final int[] buckets; // -1 if not in the heap
+	private final int[] next;
+	private final int[] previous;
+
+	private final int[] heads = new int[BUCKETS]; // the first element of each bucket, -1 if empty
+	private long lastKey = 0;
+	private int min = -1; // the minimum of bucket 0, -1 if unknown
+	private int size = 0;
+
+	/**
+	 * @param resolution the cost difference between two keys
+	 */
+	public IntRadixMinHeap(final int maxSize, final double resolution) {
+		if (resolution <= 0) {
+			throw new IllegalArgumentException("resolution must be positive, but is " + resolution);
+		}
+		this.keysPerCost = 1.0 / resolution;
+		this.costs = new double[maxSize];
+		this.keys = new long[maxSize];
+		this.buckets = new int[maxSize];
+		this.next = new int[maxSize];
+		this.previous = new int[maxSize];
+		for (int i = 0; i < maxSize; i++) {
+			this.buckets[i] = -1;
+		}
+		for (int b = 0; b < BUCKETS; b++) {
+			this.heads[b] = -1;
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final int element) {
+		return this.buckets[element] >= 0;
+	}
+
+	@Override
+	public double getCost(final int element) {
+		if (this.buckets[element] < 0) {
+			throw new NoSuchElementException();
+		}
+		return this.costs[element];
+	}
+
+	@Override
+	public boolean insertOrDecrease(final int element, final double cost) {
+		if (this.buckets[element] >= 0) {
+			if (cost >= this.costs[element]) {
+				return false;
+			}
+			unlink(element);
+		} else {
+			this.size++;
+		}
+		this.costs[element] = cost;
+		long key = (long) (cost * this.keysPerCost);
+		if (!(key > this.lastKey)) { // also catches NaN costs
+			key = this.lastKey;
+		}
+		this.keys[element] = key;
+		int bucket = bucket(key);
+		link(element, bucket);
+		if (bucket == 0 && this.min >= 0 && less(element, this.min)) {
+			this.min = element;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(final int element) {
+		if (this.buckets[element] < 0) {
+			return false;
+		}
+		unlink(element);
+		this.size--;
+		return true;
+	}
+
+	@Override
+	public int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		if (this.min < 0) {
+			findMin();
+		}
+		return this.min;
+	}
+
+	@Override
+	public double peekCost() {
+		return this.costs[peek()];
+	}
+
+	@Override
+	public int poll() {
+		int element = peek();
+		unlink(element);
+		this.size--;
+		return element;
+	}
+
+	@Override
+	public void clear() {
+		for (int b = 0; b < BUCKETS; b++) {
+			for (int e = this.heads[b]; e >= 0; e = this.next[e]) {
+				this.buckets[e] = -1;
+			}
+			this.heads[b] = -1;
+		}
+		this.lastKey = 0;
+		this.min = -1;
+		this.size = 0;
+	}
+
+	@Override
+	public void forEach(final IntConsumer action) {
+		for (int b = 0; b < BUCKETS; b++) {
+			for (int e = this.heads[b]; e >= 0; e = this.next[e]) {
+				action.accept(e);
+			}
+		}
+	}
+
+	/**
+	 * Refills bucket 0 from the first non-empty bucket if necessary, and finds its minimum.
+	 */
+	private void findMin() {
+		if (this.heads[0] < 0) {
+			int b = 1;
+			while (this.heads[b] < 0) {
+				b++;
+			}
+			long minKey = Long.MAX_VALUE;
+			for (int e = this.heads[b]; e >= 0; e = this.next[e]) {
+				minKey = Math.min(minKey, this.keys[e]);
+			}
+			this.lastKey = minKey;
+			// all elements of the bucket move to lower ones, at least the ones with the minimum key to bucket 0
+			int e = this.heads[b];
+			this.heads[b] = -1;
+			while (e >= 0) {
+				int n = this.next[e];
+				link(e, bucket(this.keys[e]));
+				e = n;
+			}
+		}
+		int m = this.heads[0];
+		for (int e = this.next[m]; e >= 0; e = this.next[e]) {
+			if (less(e, m)) {
+				m = e;
+			}
+		}
+		this.min = m;
+	}
+
+	private int bucket(final long key) {
+		return key == this.lastKey ? 0 : 64 - Long.numberOfLeadingZeros(key ^ this.lastKey);
+	}
+
+	private boolean less(final int element1, final int element2) {
+		double cost1 = this.costs[element1];
+		double cost2 = this.costs[element2];
+		return cost1 < cost2 || (cost1 == cost2 && element1 < element2);
+	}
+
+	private void link(final int element, final int bucket) {
+		int head = this.heads[bucket];
+		this.next[element] = head;
+		this.previous[element] = -1;
+		if (head >= 0) {
+			this.previous[head] = element;
+		}
+		this.heads[bucket] = element;
+		this.buckets[element] = bucket;
+	}
+
+	private void unlink(final int element) {
+		int n = this.next[element];
+		int p = this.previous[element];
+		if (p >= 0) {
+			this.next[p] = n;
+		} else {
+			this.heads[this.buckets[element]] = n;
+		}
+		if (n >= 0) {
+			this.previous[n] = p;
+		}
+		this.buckets[element] = -1;
+		if (element == this.min) {
+			this.min = -1;
+		}
+	}
+
+}
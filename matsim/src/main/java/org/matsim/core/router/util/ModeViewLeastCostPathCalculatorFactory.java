@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ModeViewLeastCostPathCalculatorFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * A {@link LeastCostPathCalculatorFactory} whose routers can route on the links of the full network which allow
+ * a mode, see {@link RoutingGraph#getModeView(String)}. All modes then share the routing data of the full network,
+ * instead of every mode having its own for a filtered copy of the network.
+ */
+public interface ModeViewLeastCostPathCalculatorFactory extends LeastCostPathCalculatorFactory {
+
+	/**
+	 * @return a router on the links of <code>network</code> which allow <code>mode</code>, or <code>null</code> if
+	 * the factory does not route on {@link RoutingGraph}s in its configuration. The router accepts the nodes of the
+	 * network as well as the ones of a copy of it filtered for the mode; the paths contain the links of the network.
+	 */
+	public LeastCostPathCalculator createPathCalculator(final Network network, final String mode, final TravelDisutility travelCosts, final TravelTime travelTimes);
+
+}
@@ -0,0 +1,40 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OneToManyLeastCostPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link LeastCostPathCalculator} which can calculate the paths from one node to several nodes with one search.
+ */
+public interface OneToManyLeastCostPathCalculator extends LeastCostPathCalculator {
+
+	/**
+	 * @return the paths to the nodes, in the same order, <code>null</code> for nodes which cannot be reached. Every path
+	 * is the same as the one {@link #calcLeastCostPath(Node, Node, double, Person, Vehicle)} returns for it.
+	 */
+	public List<Path> calcLeastCostPaths(Node fromNode, List<Node> toNodes, double starttime, final Person person, final Vehicle vehicle);
+
+}
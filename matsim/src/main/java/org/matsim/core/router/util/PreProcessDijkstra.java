@@ -194,4 +194,8 @@ public class PreProcessDijkstra {
 	public boolean containsData() {
 		return this.containsData;
 	}
+
+	/*package*/ void setContainsData(final boolean containsData) {
+		this.containsData = containsData;
+	}
 }
\ No newline at end of file
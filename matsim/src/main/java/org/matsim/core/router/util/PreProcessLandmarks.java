@@ -20,19 +20,29 @@
 
 package org.matsim.core.router.util;
 
+import java.awt.geom.Rectangle2D;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
-
-import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 
 /**
  * Pre-processes a given network, gathering information which can be used by
@@ -40,11 +50,19 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <br>
+ * The costs to and from the landmarks are kept in flat arrays indexed by the nodes of a {@link RoutingGraph}.
+ * When the minimum link disutilities change, {@link #update(TravelDisutility)} only re-calculates the parts of the
+ * network reached through links which became cheaper; the data can also be stored with {@link #write(String)} and
+ * re-used by later runs on the same network with {@link #read(Network, String)}.
  *
  * @author lnicolas
  */
 public class PreProcessLandmarks extends PreProcessEuclidean {
 
+	private static final int FILE_MAGIC = 0x4c4d4b53; // "LMKS"
+	private static final int FILE_VERSION = 1;
+
 	private final int landmarkCount;
 
 	private final Landmarker landmarker;
@@ -53,6 +71,11 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private RoutingGraph graph;
+	private double[] linkCosts; // the minimum link disutilities the landmark costs are based on
+	private double[] fromLandmarkCosts; // [node * landmarkCount + landmark]
+	private double[] toLandmarkCosts;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -75,7 +98,7 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 
 	/**
 	 * Sets the number of threads that will be used to calculate the distances to/from landmarks.
-	 * Default is 8.
+	 * Default is 8; the router factories use the number of threads of the global config group.
 	 * 
 	 * @param numberOfThreads
 	 */
@@ -105,6 +128,28 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.landmarker = landmarker;
 	}
 
+	/**
+	 * A copy of the landmark data of the template with its own cost arrays, see {@link #updatedCopy(TravelDisutility)}.
+	 */
+	private PreProcessLandmarks(final PreProcessLandmarks template, final TravelDisutility costFunction) {
+		this(costFunction, template.landmarker, template.landmarkCount);
+		this.numberOfThreads = template.numberOfThreads;
+		this.landmarks = template.landmarks;
+		this.graph = template.graph;
+		this.linkCosts = template.linkCosts.clone();
+		this.fromLandmarkCosts = template.fromLandmarkCosts.clone();
+		this.toLandmarkCosts = template.toLandmarkCosts.clone();
+		setMinTravelCostPerLength(template.getMinTravelCostPerLength());
+		this.nodeData = new ConcurrentHashMap<>(this.graph.getNodeCount());
+		for (int n = 0; n < this.graph.getNodeCount(); n++) {
+			Node node = this.graph.getNode(n);
+			LandmarksData data = new LandmarksData(this.fromLandmarkCosts, this.toLandmarkCosts, n * this.landmarkCount);
+			data.setDeadEndEntryNode(template.getNodeData(node).getDeadEndEntryNode());
+			this.nodeData.put(node, data);
+		}
+		setContainsData(template.containsData());
+	}
+
 	@Override
 	public void run(final Network network) {
 		super.run(network);
@@ -115,127 +160,304 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		initData(new RoutingGraph(network));
+		for (int l = 0; l < this.linkCosts.length; l++) {
+			this.linkCosts[l] = this.costFunction.getLinkMinimumTravelDisutility(this.graph.getLink(l));
 		}
-		
-		int nOfThreads = this.numberOfThreads;
-		if (nOfThreads > this.landmarks.length) {
-			nOfThreads = this.landmarks.length;
+
+		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks...");
+		now = System.currentTimeMillis();
+		final int[] landmarkNodes = new int[this.landmarks.length];
+		for (int i = 0; i < this.landmarks.length; i++) {
+			landmarkNodes[i] = this.graph.getNodeIndex(this.landmarks[i]);
+		}
+		calculateForAllLandmarks((landmarkIdx, heap) -> {
+			int node = landmarkNodes[landmarkIdx];
+			for (boolean forward : new boolean[] { true, false }) {
+				getCosts(forward)[node * this.landmarkCount + landmarkIdx] = 0.0;
+				heap.insertOrDecrease(node, 0.0);
+				expand(landmarkIdx, forward, heap);
+			}
+		});
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	}
+
+	/**
+	 * Adapts the landmark data to the minimum link disutilities of the given cost function, which is used from now
+	 * on. The costs to and from the landmarks are only re-calculated for the nodes reached through links which became
+	 * cheaper. Links which became more expensive keep their former cost: the landmark costs then remain lower bounds
+	 * of the actual costs, only less tight ones, so the routers still find the least cost paths. For the tightest
+	 * bounds, {@link #run(Network)} the pre-processing again.
+	 * <br>
+	 * The data is changed in place, so this must not be called while routers using it calculate routes; see
+	 * {@link #updatedCopy(TravelDisutility)} for that.
+	 *
+	 * @return the number of links which became cheaper.
+	 */
+	public int update(final TravelDisutility costFunction) {
+		if (this.graph == null) {
+			throw new IllegalStateException("the landmarks need to be calculated or read before they can be updated.");
+		}
+		this.costFunction = costFunction;
+		int[] cheaperLinks = new int[this.linkCosts.length];
+		int cheaperLinkCount = 0;
+		for (int l = 0; l < this.linkCosts.length; l++) {
+			Link link = this.graph.getLink(l);
+			double cost = costFunction.getLinkMinimumTravelDisutility(link);
+			if (cost < this.linkCosts[l]) {
+				this.linkCosts[l] = cost;
+				cheaperLinks[cheaperLinkCount++] = l;
+				if (cost / link.getLength() < getMinTravelCostPerLength()) {
+					setMinTravelCostPerLength(cost / link.getLength());
+				}
+			}
 		}
-		if (nOfThreads < 2) {
-			nOfThreads = 2; // always use at least two threads
+		if (cheaperLinkCount == 0) {
+			return 0;
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
 
-		
-		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
-		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+		long now = System.currentTimeMillis();
+		final int[] links = Arrays.copyOf(cheaperLinks, cheaperLinkCount);
+		calculateForAllLandmarks((landmarkIdx, heap) -> {
+			for (boolean forward : new boolean[] { true, false }) {
+				double[] costs = getCosts(forward);
+				for (int l : links) {
+					int from = forward ? this.graph.getFromNode(l) : this.graph.getToNode(l);
+					int to = forward ? this.graph.getToNode(l) : this.graph.getFromNode(l);
+					double cost = costs[from * this.landmarkCount + landmarkIdx] + this.linkCosts[l];
+					if (cost < costs[to * this.landmarkCount + landmarkIdx]) {
+						costs[to * this.landmarkCount + landmarkIdx] = cost;
+						heap.insertOrDecrease(to, cost);
+					}
+				}
+				expand(landmarkIdx, forward, heap);
+			}
+		});
+		log.info("updated landmarks for " + cheaperLinkCount + " cheaper links in " + (System.currentTimeMillis() - now) + " ms");
+		return cheaperLinkCount;
+	}
+
+	/**
+	 * Like {@link #update(TravelDisutility)}, but leaves this instance unchanged, so routers which use it can keep
+	 * calculating routes in other threads. Routers created from now on should use the returned instance.
+	 *
+	 * @return this instance if no link became cheaper, and an updated copy otherwise.
+	 */
+	public PreProcessLandmarks updatedCopy(final TravelDisutility costFunction) {
+		if (this.graph == null) {
+			throw new IllegalStateException("the landmarks need to be calculated or read before they can be updated.");
 		}
-		executor.shutdown();
-		while (!executor.isTerminated()) {
-			log.info("wait for landmarks Calculator to finish...");
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
+		for (int l = 0; l < this.linkCosts.length; l++) {
+			if (costFunction.getLinkMinimumTravelDisutility(this.graph.getLink(l)) < this.linkCosts[l]) {
+				PreProcessLandmarks copy = new PreProcessLandmarks(this, costFunction);
+				copy.update(costFunction);
+				return copy;
 			}
 		}
+		return this;
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			r.updateMinMaxTravelTimes();
+	private void initData(final RoutingGraph graph) {
+		this.graph = graph;
+		int nodeCount = this.graph.getNodeCount();
+		this.linkCosts = new double[this.graph.getLinkCount()];
+		this.fromLandmarkCosts = new double[nodeCount * this.landmarkCount];
+		this.toLandmarkCosts = new double[nodeCount * this.landmarkCount];
+		Arrays.fill(this.fromLandmarkCosts, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.toLandmarkCosts, Double.POSITIVE_INFINITY);
+		for (int n = 0; n < nodeCount; n++) {
+			this.nodeData.put(this.graph.getNode(n), new LandmarksData(this.fromLandmarkCosts, this.toLandmarkCosts, n * this.landmarkCount));
 		}
+	}
+
+	private double[] getCosts(final boolean fromLandmark) {
+		return fromLandmark ? this.fromLandmarkCosts : this.toLandmarkCosts;
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
+	/**
+	 * Dijkstra from the nodes in the heap, whose costs are already set, improving the costs from (or to) the landmark
+	 * of all nodes reached.
+	 */
+	private void expand(final int landmarkIdx, final boolean fromLandmark, final IntBinaryMinHeap heap) {
+		double[] costs = getCosts(fromLandmark);
+		while (!heap.isEmpty()) {
+			int node = heap.poll();
+			double nodeCost = costs[node * this.landmarkCount + landmarkIdx];
+			int end = fromLandmark ? this.graph.getFirstOutLink(node + 1) : this.graph.getFirstInLink(node + 1);
+			for (int i = fromLandmark ? this.graph.getFirstOutLink(node) : this.graph.getFirstInLink(node); i < end; i++) {
+				int l = fromLandmark ? this.graph.getOutLink(i) : this.graph.getInLink(i);
+				int n = fromLandmark ? this.graph.getToNode(l) : this.graph.getFromNode(l);
+				double cost = nodeCost + this.linkCosts[l];
+				if (cost < costs[n * this.landmarkCount + landmarkIdx]) {
+					costs[n * this.landmarkCount + landmarkIdx] = cost;
+					heap.insertOrDecrease(n, cost);
 				}
 			}
 		}
+	}
 
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	private interface LandmarkCalculator {
+		void calculate(int landmarkIdx, IntBinaryMinHeap heap);
 	}
 
-	private static class Calculator implements Runnable {
-		
-		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
-		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
-			this.landmarkIdx = landmarkIdx;
-			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+	/**
+	 * Runs the calculator for every landmark; every thread writes to the array slots of its current landmark only.
+	 */
+	private void calculateForAllLandmarks(final LandmarkCalculator calculator) {
+		final AtomicInteger nextLandmark = new AtomicInteger(0);
+		int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, this.landmarks.length));
+		List<Callable<Void>> workers = new ArrayList<>();
+		for (int t = 0; t < nOfThreads; t++) {
+			workers.add(() -> {
+				IntBinaryMinHeap heap = new IntBinaryMinHeap(this.graph.getNodeCount());
+				for (int i = nextLandmark.getAndIncrement(); i < this.landmarks.length; i = nextLandmark.getAndIncrement()) {
+					calculator.calculate(i, heap);
+				}
+				return null;
+			});
 		}
-		
-		@Override
-		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		try {
+			for (Future<Void> future : executor.invokeAll(workers)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
+	}
+
+	/**
+	 * Stores the landmarks and their costs, to be re-used by {@link #read(Network, String)}.
+	 */
+	public void write(final String filename) {
+		if (this.graph == null) {
+			throw new IllegalStateException("the landmarks need to be calculated before they can be written.");
+		}
+		try (DataOutputStream out = new DataOutputStream(IOUtils.getOutputStream(filename))) {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(this.landmarkCount);
+			out.writeInt(this.landmarks.length);
+			out.writeInt(this.graph.getNodeCount());
+			out.writeInt(this.graph.getLinkCount());
+			for (Node landmark : this.landmarks) {
+				out.writeUTF(landmark.getId().toString());
+			}
+			for (int n = 0; n < this.graph.getNodeCount(); n++) {
+				out.writeUTF(this.graph.getNode(n).getId().toString());
+			}
+			for (int l = 0; l < this.graph.getLinkCount(); l++) {
+				out.writeUTF(this.graph.getLink(l).getId().toString());
+				out.writeDouble(this.linkCosts[l]);
 			}
+			for (int i = 0; i < this.fromLandmarkCosts.length; i++) {
+				out.writeDouble(this.fromLandmarkCosts[i]);
+				out.writeDouble(this.toLandmarkCosts[i]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+	}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
+	/**
+	 * Reads the landmarks and their costs written by {@link #write(String)} instead of calculating them, and then
+	 * {@link #update(TravelDisutility) updates} them with the cost function of this instance.
+	 *
+	 * @return <code>false</code> if the file was written for a different network or landmark count; no data is read
+	 * then, see {@link #run(Network)}.
+	 */
+	public boolean read(final Network network, final String filename) {
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(filename))) {
+			if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+				log.warn(filename + " is not a landmarks file of a supported version.");
+				return false;
+			}
+			int fileLandmarkCount = in.readInt();
+			int fileLandmarks = in.readInt();
+			int nodeCount = in.readInt();
+			int linkCount = in.readInt();
+			if (fileLandmarkCount != this.landmarkCount || nodeCount != network.getNodes().size() || linkCount != network.getLinks().size()) {
+				log.warn("the landmarks in " + filename + " were calculated for a different network or landmark count.");
+				return false;
+			}
+			Node[] fileLandmarkNodes = new Node[fileLandmarks];
+			for (int i = 0; i < fileLandmarks; i++) {
+				fileLandmarkNodes[i] = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+				if (fileLandmarkNodes[i] == null) {
+					log.warn("the landmarks in " + filename + " were calculated for a different network.");
+					return false;
+				}
+			}
+			RoutingGraph graph = new RoutingGraph(network);
+			int[] nodeIndices = new int[nodeCount]; // by the node index in the file
+			for (int n = 0; n < nodeCount; n++) {
+				Node node = network.getNodes().get(Id.create(in.readUTF(), Node.class));
+				nodeIndices[n] = node == null ? -1 : graph.getNodeIndex(node);
+				if (nodeIndices[n] < 0) {
+					log.warn("the landmarks in " + filename + " were calculated for a different network.");
+					return false;
 				}
 			}
+			double[] fileLinkCosts = new double[linkCount];
+			for (int l = 0; l < linkCount; l++) {
+				Link link = network.getLinks().get(Id.create(in.readUTF(), Link.class));
+				if (link == null) {
+					log.warn("the landmarks in " + filename + " were calculated for a different network.");
+					return false;
+				}
+				fileLinkCosts[graph.getLinkIndex(link)] = in.readDouble();
+			}
+
+			super.run(network);
+			this.landmarks = fileLandmarkNodes;
+			initData(graph);
+			System.arraycopy(fileLinkCosts, 0, this.linkCosts, 0, linkCount);
+			for (int n = 0; n < nodeCount; n++) {
+				int offset = nodeIndices[n] * this.landmarkCount;
+				for (int i = 0; i < this.landmarkCount; i++) {
+					this.fromLandmarkCosts[offset + i] = in.readDouble();
+					this.toLandmarkCosts[offset + i] = in.readDouble();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-	
+		log.info("read landmarks from " + filename);
+		update(this.costFunction);
+		return true;
 	}
 
 	public Node[] getLandmarks() {
 		return this.landmarks.clone();
 	}
 
+	/**
+	 * @return the graph whose node indices are used by {@link #getCostFromLandmark(int, int)} and
+	 * {@link #getCostToLandmark(int, int)}.
+	 */
+	public RoutingGraph getRoutingGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return the lower bound of the cost from the landmark to the node with the given index in the routing graph.
+	 */
+	public double getCostFromLandmark(final int node, final int landmarkIndex) {
+		return this.fromLandmarkCosts[node * this.landmarkCount + landmarkIndex];
+	}
+
+	/**
+	 * @return the lower bound of the cost from the node with the given index in the routing graph to the landmark.
+	 */
+	public double getCostToLandmark(final int node, final int landmarkIndex) {
+		return this.toLandmarkCosts[node * this.landmarkCount + landmarkIndex];
+	}
+
 	@Override
 	public LandmarksData getNodeData(final Node n) {
 		DeadEndData r = this.nodeData.get(n);
@@ -251,122 +473,42 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		return (LandmarksData) r;
 	}
 
+	/**
+	 * A view on the costs of one node in the flat arrays of the pre-processing.
+	 */
 	public static class LandmarksData extends DeadEndData {
 
-		private final double[] landmarkTravelTime1;
-		private final double[] landmarkTravelTime2;
+		private final double[] fromLandmarkCosts;
+		private final double[] toLandmarkCosts;
+		private final int offset;
 
 		LandmarksData(final int landmarkCount) {
-			this.landmarkTravelTime2 = new double[landmarkCount];
-			this.landmarkTravelTime1 = new double[landmarkCount];
-			for (int i = 0; i < this.landmarkTravelTime2.length; i++) {
-				this.landmarkTravelTime2[i] = Double.POSITIVE_INFINITY;
-				this.landmarkTravelTime1[i] = Double.POSITIVE_INFINITY;
-			}
-		}
-
-		void setToLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime2[landmarkIndex] = travelTime;
+			this(new double[landmarkCount], new double[landmarkCount], 0);
+			Arrays.fill(this.fromLandmarkCosts, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.toLandmarkCosts, Double.POSITIVE_INFINITY);
 		}
 
-		void setFromLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime1[landmarkIndex] = travelTime;
+		LandmarksData(final double[] fromLandmarkCosts, final double[] toLandmarkCosts, final int offset) {
+			this.fromLandmarkCosts = fromLandmarkCosts;
+			this.toLandmarkCosts = toLandmarkCosts;
+			this.offset = offset;
 		}
 
 		double getToLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
+			return this.toLandmarkCosts[this.offset + landmarkIndex];
 		}
 
 		double getFromLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
-		}
-
-		void updateMinMaxTravelTimes() {
-			for (int i = 0; i < this.landmarkTravelTime1.length; i++) {
-				setTravelTimes(i, this.landmarkTravelTime2[i], this.landmarkTravelTime1[i]);
-			}
-		}
-
-		private void setTravelTimes(final int landmarkIndex, final double travelTime1,
-				final double travelTime2) {
-			if (travelTime1 > travelTime2) {
-				this.landmarkTravelTime2[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime1[landmarkIndex] = travelTime2;
-			} else {
-				this.landmarkTravelTime1[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime2[landmarkIndex] = travelTime2;
-			}
+			return this.fromLandmarkCosts[this.offset + landmarkIndex];
 		}
 
 		public double getMinLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+			return Math.min(getFromLandmarkTravelTime(landmarkIndex), getToLandmarkTravelTime(landmarkIndex));
 		}
 
 		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-	}
-
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
+			return Math.max(getFromLandmarkTravelTime(landmarkIndex), getToLandmarkTravelTime(landmarkIndex));
 		}
 	}
 
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
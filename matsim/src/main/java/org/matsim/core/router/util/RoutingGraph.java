@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoutingGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * An immutable view of a network for routing, with nodes and links numbered <code>0 .. n-1</code> and the
+ * outgoing and incoming links of each node in flat arrays (compressed sparse row format). Unlike a
+ * {@link RoutingNetwork}, it contains no per-node search data, so one instance can be shared by all routing
+ * threads, each of them only keeping its own (primitive) search state indexed by the node numbers.
+ * <br>
+ * {@link #getModeView(String)} returns the graph restricted to the links allowing a mode. The views use the
+ * same node and link numbers as the full graph and only need their own adjacency arrays, so no filtered copy
+ * of the network is needed to route on it. A view also accepts the nodes of a network that was filtered for its
+ * mode, e.g. by {@link org.matsim.core.network.algorithms.TransportModeNetworkFilter}, as they have the same ids.
+ * <br>
+ * The graph refers to the nodes and links of the network, so it reflects changes of link attributes, but not
+ * links or nodes added or removed after its creation.
+ */
+public final class RoutingGraph {
+
+	private final Node[] nodes;
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+	private final int[] nodeIndexByIdIndex;
+	private final int[] linkIndexByIdIndex;
+
+	private final int[] firstOutLink; // by node, length nodes+1
+	private final int[] outLinks;
+	private final int[] firstInLink;
+	private final int[] inLinks;
+
+	private final String mode;
+	private final RoutingGraph fullGraph;
+	private final Map<String, RoutingGraph> modeViews;
+
+	public RoutingGraph(final Network network) {
+		this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.nodeIndexByIdIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndexByIdIndex, -1);
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeIndexByIdIndex[this.nodes[i].getId().index()] = i;
+		}
+		this.linkIndexByIdIndex = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndexByIdIndex, -1);
+		this.linkFromNode = new int[this.links.length];
+		this.linkToNode = new int[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			this.linkIndexByIdIndex[this.links[l].getId().index()] = l;
+			this.linkFromNode[l] = getNodeIndex(this.links[l].getFromNode());
+			this.linkToNode[l] = getNodeIndex(this.links[l].getToNode());
+			if (this.linkFromNode[l] < 0 || this.linkToNode[l] < 0) {
+				throw new IllegalArgumentException("link " + this.links[l].getId() + " connects nodes which are not part of the network.");
+			}
+		}
+		this.firstOutLink = new int[this.nodes.length + 1];
+		this.outLinks = new int[this.links.length];
+		this.firstInLink = new int[this.nodes.length + 1];
+		this.inLinks = new int[this.links.length];
+		buildAdjacency(null);
+		this.mode = null;
+		this.fullGraph = this;
+		this.modeViews = new ConcurrentHashMap<>();
+	}
+
+	private RoutingGraph(final RoutingGraph full, final String mode) {
+		this.nodes = full.nodes;
+		this.links = full.links;
+		this.linkFromNode = full.linkFromNode;
+		this.linkToNode = full.linkToNode;
+		this.nodeIndexByIdIndex = full.nodeIndexByIdIndex;
+		this.linkIndexByIdIndex = full.linkIndexByIdIndex;
+		int count = 0;
+		for (Link link : this.links) {
+			if (link.getAllowedModes().contains(mode)) {
+				count++;
+			}
+		}
+		this.firstOutLink = new int[this.nodes.length + 1];
+		this.outLinks = new int[count];
+		this.firstInLink = new int[this.nodes.length + 1];
+		this.inLinks = new int[count];
+		buildAdjacency(mode);
+		this.mode = mode;
+		this.fullGraph = full;
+		this.modeViews = full.modeViews;
+	}
+
+	private void buildAdjacency(final String mode) {
+		for (int l = 0; l < this.links.length; l++) {
+			if (mode == null || this.links[l].getAllowedModes().contains(mode)) {
+				this.firstOutLink[this.linkFromNode[l] + 1]++;
+				this.firstInLink[this.linkToNode[l] + 1]++;
+			}
+		}
+		for (int n = 0; n < this.nodes.length; n++) {
+			this.firstOutLink[n + 1] += this.firstOutLink[n];
+			this.firstInLink[n + 1] += this.firstInLink[n];
+		}
+		int[] nextOut = Arrays.copyOf(this.firstOutLink, this.nodes.length);
+		int[] nextIn = Arrays.copyOf(this.firstInLink, this.nodes.length);
+		for (int l = 0; l < this.links.length; l++) {
+			if (mode == null || this.links[l].getAllowedModes().contains(mode)) {
+				this.outLinks[nextOut[this.linkFromNode[l]]++] = l;
+				this.inLinks[nextIn[this.linkToNode[l]]++] = l;
+			}
+		}
+	}
+
+	/**
+	 * @return the graph of the links allowing the given mode, created once and then shared.
+	 */
+	public RoutingGraph getModeView(final String mode) {
+		RoutingGraph view = this.modeViews.get(mode);
+		if (view == null) {
+			view = this.modeViews.computeIfAbsent(mode, m -> new RoutingGraph(this.fullGraph, m));
+		}
+		return view;
+	}
+
+	/**
+	 * @return the mode of this view, or <code>null</code> if it contains all links.
+	 */
+	public String getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * @return the graph with all links that this graph is a view of, or this graph itself if it is not a view.
+	 */
+	public RoutingGraph getFullGraph() {
+		return this.fullGraph;
+	}
+
+	public int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	public Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	public Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	/**
+	 * @return the index of the node, or -1 if it is not part of the network (for mode views: if there is no node
+	 * with its id).
+	 */
+	public int getNodeIndex(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.nodeIndexByIdIndex.length) {
+			return -1;
+		}
+		int n = this.nodeIndexByIdIndex[index];
+		return n >= 0 && (this.nodes[n] == node || this.mode != null) ? n : -1;
+	}
+
+	/**
+	 * @return the index of the link, or -1 if it is not part of the network.
+	 */
+	public int getLinkIndex(final Link link) {
+		int index = link.getId().index();
+		if (index >= this.linkIndexByIdIndex.length) {
+			return -1;
+		}
+		int l = this.linkIndexByIdIndex[index];
+		return l >= 0 && this.links[l] == link ? l : -1;
+	}
+
+	public int getFromNode(final int link) {
+		return this.linkFromNode[link];
+	}
+
+	public int getToNode(final int link) {
+		return this.linkToNode[link];
+	}
+
+	/**
+	 * The outgoing links of node <code>n</code> are <code>getOutLink(i)</code> for
+	 * <code>getFirstOutLink(n) &lt;= i &lt; getFirstOutLink(n + 1)</code>.
+	 */
+	public int getFirstOutLink(final int node) {
+		return this.firstOutLink[node];
+	}
+
+	public int getOutLink(final int i) {
+		return this.outLinks[i];
+	}
+
+	/**
+	 * The incoming links of node <code>n</code> are <code>getInLink(i)</code> for
+	 * <code>getFirstInLink(n) &lt;= i &lt; getFirstInLink(n + 1)</code>.
+	 */
+	public int getFirstInLink(final int node) {
+		return this.firstInLink[node];
+	}
+
+	public int getInLink(final int i) {
+		return this.inLinks[i];
+	}
+
+}
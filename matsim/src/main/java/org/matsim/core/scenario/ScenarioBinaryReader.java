@@ -0,0 +1,540 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioBinaryReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.io.PlanBinaryDecoder;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.EngineInformation;
+import org.matsim.vehicles.FreightCapacity;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+import org.matsim.vehicles.VehiclesFactory;
+
+/**
+ * Reads files written by {@link ScenarioBinaryWriter} into a scenario, either completely or only some of its parts.
+ * The chunks of the file are memory-mapped and decoded in parallel; the decoded objects are added to the scenario in
+ * the order they were written, so the result does not depend on the number of threads.
+ * <p></p>
+ * Files can only be read from the local file system, since they are memory-mapped.
+ */
+public final class ScenarioBinaryReader {
+
+	private static final Logger log = Logger.getLogger(ScenarioBinaryReader.class);
+
+	public enum Part {network, facilities, vehicles, population}
+
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int numberOfThreads = 1;
+
+	private static final class Section {
+		final byte type;
+		final long headerPosition;
+		final int headerLength;
+		final List<long[]> chunks = new ArrayList<>(); // position and length
+
+		Section(final byte type, final long headerPosition, final int headerLength) {
+			this.type = type;
+			this.headerPosition = headerPosition;
+			this.headerLength = headerLength;
+		}
+	}
+
+	/** an object decoded from a chunk, with the object attributes to add to the scenario together with it */
+	private static final class Decoded<T> {
+		final T object;
+		final Attributes objectAttributes;
+
+		Decoded(final T object, final Attributes objectAttributes) {
+			this.object = object;
+			this.objectAttributes = objectAttributes;
+		}
+	}
+
+	private interface ChunkDecoder<T> {
+		T decode(PlanBinaryDecoder decoder) throws IOException;
+	}
+
+	public ScenarioBinaryReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributeConverters.putAll(converters);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads decoding chunks while the scenario is filled
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	public static boolean isScenarioBinaryFile(final String filename) {
+		return filename != null && filename.toLowerCase().endsWith(ScenarioBinaryWriter.FILE_ENDING);
+	}
+
+	public void readFile(final String filename) {
+		readFile(new File(filename), EnumSet.allOf(Part.class));
+	}
+
+	/**
+	 * Reads only the given parts of the scenario from the file; of the other sections, only the ids are read, so the
+	 * ids get the same indices (see {@link Id#index()}) whichever parts are read.
+	 */
+	public void readFile(final File file, final Set<Part> parts) {
+		log.info("reading " + parts + " from " + file);
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 16));
+			if (header.remaining() < 8 || header.getInt() != ScenarioBinaryWriter.MAGIC) {
+				throw new IOException(file + " is not a binary scenario file.");
+			}
+			int version = header.getInt();
+			if (version != ScenarioBinaryWriter.VERSION) {
+				throw new IOException("unsupported version " + version + " of binary scenario file " + file);
+			}
+			DataInputStream headerIn = new DataInputStream(new ByteBufferInputStream(header));
+			String coordinateSystem = headerIn.readUTF();
+			String internalCRS = this.scenario.getConfig().global().getCoordinateSystem();
+			if (!coordinateSystem.isEmpty() && internalCRS != null && !coordinateSystem.equalsIgnoreCase(internalCRS)) {
+				log.warn("the coordinates in " + file + " are in " + coordinateSystem + ", but the scenario uses " + internalCRS
+						+ ". They are not transformed.");
+			}
+
+			for (Section section : scanSections(channel, header.position())) {
+				if (section.type == ScenarioBinaryWriter.SECTION_NODES && parts.contains(Part.network)) {
+					readNodes(channel, section, executor);
+				} else if (section.type == ScenarioBinaryWriter.SECTION_LINKS && parts.contains(Part.network)) {
+					readLinks(channel, section, executor);
+				} else if (section.type == ScenarioBinaryWriter.SECTION_FACILITIES && parts.contains(Part.facilities)) {
+					readFacilities(channel, section, executor);
+				} else if (section.type == ScenarioBinaryWriter.SECTION_VEHICLE_TYPES && parts.contains(Part.vehicles)) {
+					readVehicleTypes(channel, section, executor);
+				} else if (section.type == ScenarioBinaryWriter.SECTION_VEHICLES && parts.contains(Part.vehicles)) {
+					readVehicles(channel, section, executor);
+				} else if (section.type == ScenarioBinaryWriter.SECTION_POPULATION && parts.contains(Part.population)) {
+					readPopulation(channel, section, executor);
+				} else {
+					for (long[] chunk : section.chunks) {
+						createIds(createDecoder(channel, chunk[0], chunk[1]));
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdown();
+		}
+		log.info("done reading " + parts + ".");
+	}
+
+	/**
+	 * Finds the positions of all headers and chunks, reading only the few bytes of the section types and lengths.
+	 */
+	private static List<Section> scanSections(final FileChannel channel, final long start) throws IOException {
+		List<Section> sections = new ArrayList<>();
+		long position = start;
+		ByteBuffer buffer = ByteBuffer.allocate(5);
+		while (true) {
+			byte type = readBytes(channel, buffer, position, 1).get();
+			position++;
+			if (type == ScenarioBinaryWriter.SECTION_END) {
+				return sections;
+			}
+			int headerLength = readBytes(channel, buffer, position, 4).getInt();
+			Section section = new Section(type, position + 4, headerLength);
+			position += 4 + headerLength;
+			int length;
+			while ((length = readBytes(channel, buffer, position, 4).getInt()) > 0) {
+				section.chunks.add(new long[] { position + 4, length });
+				position += 4 + length;
+			}
+			position += 4;
+			sections.add(section);
+		}
+	}
+
+	private static ByteBuffer readBytes(final FileChannel channel, final ByteBuffer buffer, final long position, final int length)
+			throws IOException {
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of binary scenario file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private PlanBinaryDecoder createDecoder(final FileChannel channel, final long position, final long length) throws IOException {
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		PlanBinaryDecoder decoder = new PlanBinaryDecoder(new DataInputStream(new ByteBufferInputStream(buffer)),
+				this.scenario.getPopulation().getFactory());
+		decoder.putAttributeConverters(this.attributeConverters);
+		return decoder;
+	}
+
+	private PlanBinaryDecoder createHeaderDecoder(final FileChannel channel, final Section section) throws IOException {
+		return createDecoder(channel, section.headerPosition, section.headerLength);
+	}
+
+	/**
+	 * Creates the ids of the id table at the start of a chunk, see {@link ScenarioBinaryWriter}.  Called in the order
+	 * of the chunks, so the ids are created in the order of the file.
+	 */
+	private static void createIds(final PlanBinaryDecoder decoder) throws IOException {
+		DataInput in = decoder.getInput();
+		int numberOfTypes = in.readInt();
+		for (int t = 0; t < numberOfTypes; t++) {
+			String className = in.readUTF();
+			Class<?> type;
+			try {
+				type = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("unknown id type " + className, e);
+			}
+			int numberOfIds = in.readInt();
+			for (int i = 0; i < numberOfIds; i++) {
+				Id.create(in.readUTF(), type);
+			}
+		}
+	}
+
+	/**
+	 * Decodes the chunks of the section in parallel and passes the objects in the order they were written to the
+	 * handler.  The handler runs in the calling thread only, as well as the creation of the new ids of the chunks.
+	 */
+	private <T> void readChunks(final FileChannel channel, final Section section, final ExecutorService executor,
+			final ChunkDecoder<T> chunkDecoder, final ObjectHandler<T> handler) throws IOException {
+		List<Future<List<T>>> chunks = new ArrayList<>(section.chunks.size());
+		for (long[] chunk : section.chunks) {
+			final PlanBinaryDecoder decoder = createDecoder(channel, chunk[0], chunk[1]);
+			// the ids the workers read then all exist already, so they do not get indices in the order of the threads
+			createIds(decoder);
+			chunks.add(executor.submit(() -> {
+				int size = decoder.readVarInt();
+				List<T> objects = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					objects.add(chunkDecoder.decode(decoder));
+				}
+				return objects;
+			}));
+		}
+		for (Future<List<T>> chunk : chunks) {
+			List<T> objects;
+			try {
+				objects = chunk.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+			for (T object : objects) {
+				handler.handle(object);
+			}
+		}
+	}
+
+	private interface ObjectHandler<T> {
+		void handle(T object) throws IOException;
+	}
+
+	private void readNodes(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final Network network = this.scenario.getNetwork();
+		PlanBinaryDecoder header = createHeaderDecoder(channel, section);
+		String name = header.readString();
+		if (name != null) {
+			network.setName(name);
+		}
+		network.setCapacityPeriod(header.getInput().readDouble());
+		network.setEffectiveLaneWidth(header.getInput().readDouble());
+		header.readAttributes(network.getAttributes());
+
+		final NetworkFactory factory = network.getFactory();
+		readChunks(channel, section, executor, decoder -> {
+			Node node = factory.createNode(decoder.readId(Node.class), readCoord(decoder));
+			String type = decoder.readString();
+			String origId = decoder.readString();
+			if (type != null) {
+				NetworkUtils.setType(node, type);
+			}
+			if (origId != null) {
+				NetworkUtils.setOrigId(node, origId);
+			}
+			decoder.readAttributes(node.getAttributes());
+			return node;
+		}, network::addNode);
+	}
+
+	private void readLinks(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final Network network = this.scenario.getNetwork();
+		final NetworkFactory factory = network.getFactory();
+		final Map<Id<Node>, ? extends Node> nodes = network.getNodes(); // complete and only read from now on
+		readChunks(channel, section, executor, decoder -> {
+			Id<Link> id = decoder.readId(Link.class);
+			Id<Node> fromNodeId = decoder.readId(Node.class);
+			Id<Node> toNodeId = decoder.readId(Node.class);
+			Node fromNode = nodes.get(fromNodeId);
+			Node toNode = nodes.get(toNodeId);
+			if (fromNode == null || toNode == null) {
+				throw new IOException("unknown node " + (fromNode == null ? fromNodeId : toNodeId) + " of link " + id);
+			}
+			Link link = factory.createLink(id, fromNode, toNode);
+			link.setLength(decoder.getInput().readDouble());
+			link.setFreespeed(decoder.getInput().readDouble());
+			link.setCapacity(decoder.getInput().readDouble());
+			link.setNumberOfLanes(decoder.getInput().readDouble());
+			int numberOfModes = decoder.readVarInt();
+			Set<String> modes = new HashSet<>();
+			for (int i = 0; i < numberOfModes; i++) {
+				modes.add(decoder.readString());
+			}
+			link.setAllowedModes(modes);
+			decoder.readAttributes(link.getAttributes());
+			return link;
+		}, network::addLink);
+	}
+
+	private void readFacilities(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final ActivityFacilities facilities = this.scenario.getActivityFacilities();
+		String name = createHeaderDecoder(channel, section).readString();
+		if (name != null) {
+			facilities.setName(name);
+		}
+		final ActivityFacilitiesFactory factory = facilities.getFactory();
+		readChunks(channel, section, executor, decoder -> {
+			Id<ActivityFacility> id = decoder.readId(ActivityFacility.class);
+			Coord coord = readCoord(decoder);
+			Id<Link> linkId = decoder.readId(Link.class);
+			ActivityFacility facility = coord == null ? factory.createActivityFacility(id, linkId)
+					: factory.createActivityFacility(id, coord, linkId);
+			String desc = decoder.readString();
+			if (desc != null && facility instanceof ActivityFacilityImpl) {
+				((ActivityFacilityImpl) facility).setDesc(desc);
+			}
+			int numberOfOptions = decoder.readVarInt();
+			for (int i = 0; i < numberOfOptions; i++) {
+				ActivityOption option = factory.createActivityOption(decoder.readString());
+				option.setCapacity(decoder.getInput().readDouble());
+				int numberOfOpeningTimes = decoder.readVarInt();
+				for (int j = 0; j < numberOfOpeningTimes; j++) {
+					double startTime = decoder.getInput().readDouble();
+					option.addOpeningTime(new OpeningTimeImpl(startTime, decoder.getInput().readDouble()));
+				}
+				facility.addActivityOption(option);
+			}
+			return new Decoded<>(facility, readObjectAttributes(decoder));
+		}, decoded -> {
+			facilities.addActivityFacility(decoded.object);
+			putObjectAttributes(facilities.getFacilityAttributes(), decoded.object.getId().toString(), decoded.objectAttributes);
+		});
+	}
+
+	private void readVehicleTypes(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final Vehicles vehicles = this.scenario.getVehicles();
+		final VehiclesFactory factory = vehicles.getFactory();
+		readChunks(channel, section, executor, decoder -> {
+			VehicleType type = factory.createVehicleType(decoder.readId(VehicleType.class));
+			type.setDescription(decoder.readString());
+			type.setLength(decoder.getInput().readDouble());
+			type.setWidth(decoder.getInput().readDouble());
+			type.setMaximumVelocity(decoder.getInput().readDouble());
+			type.setAccessTime(decoder.getInput().readDouble());
+			type.setEgressTime(decoder.getInput().readDouble());
+			String doorOperationMode = decoder.readString();
+			if (doorOperationMode != null) {
+				type.setDoorOperationMode(VehicleType.DoorOperationMode.valueOf(doorOperationMode));
+			}
+			type.setPcuEquivalents(decoder.getInput().readDouble());
+			type.setFlowEfficiencyFactor(decoder.getInput().readDouble());
+			if (decoder.getInput().readBoolean()) {
+				VehicleCapacity capacity = factory.createVehicleCapacity();
+				capacity.setSeats(readNullableInt(decoder));
+				capacity.setStandingRoom(readNullableInt(decoder));
+				if (decoder.getInput().readBoolean()) {
+					FreightCapacity freightCapacity = factory.createFreigthCapacity();
+					freightCapacity.setVolume(decoder.getInput().readDouble());
+					capacity.setFreightCapacity(freightCapacity);
+				}
+				type.setCapacity(capacity);
+			}
+			if (decoder.getInput().readBoolean()) {
+				String fuelType = decoder.readString();
+				type.setEngineInformation(factory.createEngineInformation(
+						fuelType == null ? null : EngineInformation.FuelType.valueOf(fuelType), decoder.getInput().readDouble()));
+			}
+			return type;
+		}, vehicles::addVehicleType);
+	}
+
+	private void readVehicles(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final Vehicles vehicles = this.scenario.getVehicles();
+		final VehiclesFactory factory = vehicles.getFactory();
+		final Map<Id<VehicleType>, VehicleType> types = vehicles.getVehicleTypes(); // complete and only read from now on
+		readChunks(channel, section, executor, decoder -> {
+			Id<Vehicle> id = decoder.readId(Vehicle.class);
+			Id<VehicleType> typeId = decoder.readId(VehicleType.class);
+			VehicleType type = types.get(typeId);
+			if (type == null) {
+				throw new IOException("unknown vehicle type " + typeId + " of vehicle " + id);
+			}
+			return new Decoded<>(factory.createVehicle(id, type), readObjectAttributes(decoder));
+		}, decoded -> {
+			vehicles.addVehicle(decoded.object);
+			putObjectAttributes(vehicles.getVehicleAttributes(), decoded.object.getId().toString(), decoded.objectAttributes);
+		});
+	}
+
+	private void readPopulation(final FileChannel channel, final Section section, final ExecutorService executor) throws IOException {
+		final Population population = this.scenario.getPopulation();
+		PlanBinaryDecoder header = createHeaderDecoder(channel, section);
+		String name = header.readString();
+		if (name != null) {
+			population.setName(name);
+		}
+		header.readAttributes(population.getAttributes());
+
+		readChunks(channel, section, executor, decoder -> {
+			Person person = population.getFactory().createPerson(decoder.readId(Person.class));
+			decoder.readAttributes(person.getAttributes());
+			int selectedIndex = decoder.readVarInt() - 1;
+			int numberOfPlans = decoder.readVarInt();
+			for (int i = 0; i < numberOfPlans; i++) {
+				person.addPlan(decoder.readPlan());
+			}
+			if (selectedIndex >= 0) {
+				person.setSelectedPlan(person.getPlans().get(selectedIndex));
+			}
+			return new Decoded<>(person, readObjectAttributes(decoder));
+		}, decoded -> {
+			population.addPerson(decoded.object);
+			putObjectAttributes(population.getPersonAttributes(), decoded.object.getId().toString(), decoded.objectAttributes);
+		});
+	}
+
+	private static Coord readCoord(final PlanBinaryDecoder decoder) throws IOException {
+		if (!decoder.getInput().readBoolean()) {
+			return null;
+		}
+		boolean hasZ = decoder.getInput().readBoolean();
+		double x = decoder.getInput().readDouble();
+		double y = decoder.getInput().readDouble();
+		return hasZ ? new Coord(x, y, decoder.getInput().readDouble()) : new Coord(x, y);
+	}
+
+	private static Integer readNullableInt(final PlanBinaryDecoder decoder) throws IOException {
+		return decoder.getInput().readBoolean() ? decoder.getInput().readInt() : null;
+	}
+
+	private static Attributes readObjectAttributes(final PlanBinaryDecoder decoder) throws IOException {
+		Attributes attributes = new Attributes();
+		decoder.readAttributes(attributes);
+		return attributes;
+	}
+
+	private static void putObjectAttributes(final ObjectAttributes objectAttributes, final String objectId, final Attributes attributes) {
+		AttributesUtils.forEach(attributes, (name, value) -> objectAttributes.putAttribute(objectId, name, value));
+	}
+
+	/**
+	 * Reads a (memory-mapped) buffer as a stream, so the decoders can use a {@link DataInputStream} on it.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+
+}
@@ -0,0 +1,451 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioBinaryWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.io.PlanBinaryEncoder;
+import org.matsim.core.population.io.UnselectedPlansStore;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTime;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.ObjectAttributesUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.EngineInformation;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+/**
+ * Writes the network, the facilities, the vehicles and the population (with all plans and routes) of a scenario,
+ * together with the object attributes of the persons, facilities and vehicles, into one binary file that
+ * {@link ScenarioBinaryReader} reads much faster than the xml files.  {@link ScenarioUtils#loadScenario(org.matsim.core.config.Config)}
+ * reads such files, recognized by the ending {@value #FILE_ENDING}, wherever the config expects a network, facilities,
+ * vehicles or plans file; the same file can thus be given for all of them.
+ * <p></p>
+ * Every part of the scenario is written as a section of chunks of (by default) {@value #DEFAULT_CHUNK_SIZE} objects.  The
+ * chunks are independent of each other, e.g. each one has its own string table (see {@link PlanBinaryEncoder}), so they
+ * are encoded in parallel here and decoded in parallel by the reader.  Every chunk starts with the ids which are written
+ * for the first time in the file, so the reader creates them in the calling thread, in the order of the file, before
+ * the chunk is decoded; the ids thus get the same indices (see {@link Id#index()}) on every read.
+ * <p></p>
+ * The file layout is:
+ * <pre>
+ * int MAGIC, int VERSION, utf coordinateSystem
+ * per section: byte sectionType, int headerLength, byte[] header,
+ *              per chunk: int length (&gt; 0), byte[] chunk (id table, varint numberOfObjects, objects)
+ *              int 0
+ * byte SECTION_END
+ *
+ * id table: int numberOfTypes, per type: utf className, int numberOfIds, per id: utf id
+ * </pre>
+ * Coordinates are written as they are, i.e. in the coordinate system of the scenario.  Custom attributes
+ * ({@link org.matsim.utils.customize.Customizable}) are not written, as in the xml files.
+ */
+public final class ScenarioBinaryWriter {
+
+	private static final Logger log = Logger.getLogger(ScenarioBinaryWriter.class);
+
+	public static final String FILE_ENDING = ".scenario.bin";
+
+	public static final int MAGIC = 0x4D534342; // "MSCB"
+	public static final int VERSION = 2;
+
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	static final byte SECTION_END = 0;
+	static final byte SECTION_NODES = 1; // header: network name, capacity period, effective lane width, attributes
+	static final byte SECTION_LINKS = 2;
+	static final byte SECTION_FACILITIES = 3; // header: name
+	static final byte SECTION_VEHICLE_TYPES = 4;
+	static final byte SECTION_VEHICLES = 5;
+	static final byte SECTION_POPULATION = 6; // header: name, attributes
+
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int numberOfThreads = 1;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private final Map<Class<?>, BitSet> idsInFile = new HashMap<>(); // by their index, see Id#index()
+
+	private interface ChunkEncoder<T> {
+		void encode(T object, PlanBinaryEncoder encoder) throws IOException;
+	}
+
+	private static final class EncodedChunk {
+		final ByteArrayOutputStream bytes;
+		final PlanBinaryEncoder encoder;
+
+		EncodedChunk(final ByteArrayOutputStream bytes, final PlanBinaryEncoder encoder) {
+			this.bytes = bytes;
+			this.encoder = encoder;
+		}
+	}
+
+	public ScenarioBinaryWriter(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributeConverters.putAll(converters);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads encoding chunks while the file is written
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	public void setChunkSize(final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive, but is " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	public void write(final String filename) {
+		write(filename, null);
+	}
+
+	/**
+	 * Writes the scenario, loading the plans of the persons partition by partition from the store if it is not
+	 * <code>null</code>.
+	 */
+	public void write(final String filename, final UnselectedPlansStore unselectedPlansStore) {
+		log.info("writing scenario to " + filename);
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		this.idsInFile.clear();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			String coordinateSystem = this.scenario.getConfig().global().getCoordinateSystem();
+			out.writeUTF(coordinateSystem == null ? "" : coordinateSystem);
+
+			writeNetwork(out, executor);
+			writeFacilities(out, executor);
+			writeVehicles(out, executor);
+			writePopulation(out, executor, unselectedPlansStore);
+
+			out.writeByte(SECTION_END);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdown();
+		}
+		log.info("done writing scenario.");
+	}
+
+	private void writeNetwork(final DataOutputStream out, final ExecutorService executor) throws IOException {
+		Network network = this.scenario.getNetwork();
+		out.writeByte(SECTION_NODES);
+		writeHeader(out, encoder -> {
+			encoder.writeString(network.getName());
+			encoder.getOutput().writeDouble(network.getCapacityPeriod());
+			encoder.getOutput().writeDouble(network.getEffectiveLaneWidth());
+			encoder.writeAttributes(network.getAttributes());
+		});
+		writeChunks(out, executor, new ArrayList<>(network.getNodes().values()), (node, encoder) -> {
+			encoder.writeId(node.getId(), Node.class);
+			writeCoord(encoder, node.getCoord());
+			encoder.writeString(NetworkUtils.getType(node));
+			encoder.writeString(NetworkUtils.getOrigId(node));
+			encoder.writeAttributes(node.getAttributes());
+		});
+		out.writeInt(0);
+
+		out.writeByte(SECTION_LINKS);
+		writeHeader(out, encoder -> {});
+		writeChunks(out, executor, new ArrayList<>(network.getLinks().values()), (link, encoder) -> {
+			encoder.writeId(link.getId(), Link.class);
+			encoder.writeId(link.getFromNode().getId(), Node.class);
+			encoder.writeId(link.getToNode().getId(), Node.class);
+			encoder.getOutput().writeDouble(link.getLength());
+			encoder.getOutput().writeDouble(link.getFreespeed());
+			encoder.getOutput().writeDouble(link.getCapacity());
+			encoder.getOutput().writeDouble(link.getNumberOfLanes());
+			encoder.writeVarInt(link.getAllowedModes().size());
+			for (String mode : link.getAllowedModes()) {
+				encoder.writeString(mode);
+			}
+			encoder.writeAttributes(link.getAttributes());
+		});
+		out.writeInt(0);
+	}
+
+	private void writeFacilities(final DataOutputStream out, final ExecutorService executor) throws IOException {
+		ActivityFacilities facilities = this.scenario.getActivityFacilities();
+		out.writeByte(SECTION_FACILITIES);
+		writeHeader(out, encoder -> encoder.writeString(facilities.getName()));
+		writeChunks(out, executor, new ArrayList<ActivityFacility>(facilities.getFacilities().values()), (facility, encoder) -> {
+			encoder.writeId(facility.getId(), ActivityFacility.class);
+			writeCoord(encoder, facility.getCoord());
+			encoder.writeId(facility.getLinkId(), Link.class);
+			encoder.writeString(facility instanceof ActivityFacilityImpl ? ((ActivityFacilityImpl) facility).getDesc() : null);
+			encoder.writeVarInt(facility.getActivityOptions().size());
+			for (ActivityOption option : facility.getActivityOptions().values()) {
+				encoder.writeString(option.getType());
+				encoder.getOutput().writeDouble(option.getCapacity());
+				encoder.writeVarInt(option.getOpeningTimes().size());
+				for (OpeningTime openingTime : option.getOpeningTimes()) {
+					encoder.getOutput().writeDouble(openingTime.getStartTime());
+					encoder.getOutput().writeDouble(openingTime.getEndTime());
+				}
+			}
+			writeObjectAttributes(encoder, facilities.getFacilityAttributes(), facility.getId().toString());
+		});
+		out.writeInt(0);
+	}
+
+	private void writeVehicles(final DataOutputStream out, final ExecutorService executor) throws IOException {
+		Vehicles vehicles = this.scenario.getVehicles();
+		out.writeByte(SECTION_VEHICLE_TYPES);
+		writeHeader(out, encoder -> {});
+		writeChunks(out, executor, new ArrayList<>(vehicles.getVehicleTypes().values()), (type, encoder) -> {
+			encoder.writeId(type.getId(), VehicleType.class);
+			encoder.writeString(type.getDescription());
+			encoder.getOutput().writeDouble(type.getLength());
+			encoder.getOutput().writeDouble(type.getWidth());
+			encoder.getOutput().writeDouble(type.getMaximumVelocity());
+			encoder.getOutput().writeDouble(type.getAccessTime());
+			encoder.getOutput().writeDouble(type.getEgressTime());
+			encoder.writeString(type.getDoorOperationMode() == null ? null : type.getDoorOperationMode().toString());
+			encoder.getOutput().writeDouble(type.getPcuEquivalents());
+			encoder.getOutput().writeDouble(type.getFlowEfficiencyFactor());
+			VehicleCapacity capacity = type.getCapacity();
+			encoder.getOutput().writeBoolean(capacity != null);
+			if (capacity != null) {
+				writeNullableInt(encoder, capacity.getSeats());
+				writeNullableInt(encoder, capacity.getStandingRoom());
+				encoder.getOutput().writeBoolean(capacity.getFreightCapacity() != null);
+				if (capacity.getFreightCapacity() != null) {
+					encoder.getOutput().writeDouble(capacity.getFreightCapacity().getVolume());
+				}
+			}
+			EngineInformation engineInformation = type.getEngineInformation();
+			encoder.getOutput().writeBoolean(engineInformation != null);
+			if (engineInformation != null) {
+				encoder.writeString(engineInformation.getFuelType() == null ? null : engineInformation.getFuelType().toString());
+				encoder.getOutput().writeDouble(engineInformation.getGasConsumption());
+			}
+		});
+		out.writeInt(0);
+
+		out.writeByte(SECTION_VEHICLES);
+		writeHeader(out, encoder -> {});
+		writeChunks(out, executor, new ArrayList<>(vehicles.getVehicles().values()), (vehicle, encoder) -> {
+			encoder.writeId(vehicle.getId(), Vehicle.class);
+			encoder.writeId(vehicle.getType().getId(), VehicleType.class);
+			writeObjectAttributes(encoder, vehicles.getVehicleAttributes(), vehicle.getId().toString());
+		});
+		out.writeInt(0);
+	}
+
+	private void writePopulation(final DataOutputStream out, final ExecutorService executor,
+			final UnselectedPlansStore unselectedPlansStore) throws IOException {
+		Population population = this.scenario.getPopulation();
+		out.writeByte(SECTION_POPULATION);
+		writeHeader(out, encoder -> {
+			encoder.writeString(population.getName());
+			encoder.writeAttributes(population.getAttributes());
+		});
+		ChunkEncoder<Person> personEncoder = (person, encoder) -> {
+			encoder.writeId(person.getId(), Person.class);
+			encoder.writeAttributes(person.getAttributes());
+			List<? extends Plan> plans = person.getPlans();
+			encoder.writeVarInt(plans.indexOf(person.getSelectedPlan()) + 1); // 0 if there is no selected plan
+			encoder.writeVarInt(plans.size());
+			for (Plan plan : plans) {
+				encoder.writePlan(plan);
+			}
+			writeObjectAttributes(encoder, population.getPersonAttributes(), person.getId().toString());
+		};
+		if (unselectedPlansStore == null) {
+			writeChunks(out, executor, new ArrayList<Person>(population.getPersons().values()), personEncoder);
+		} else {
+			final IOException[] exception = new IOException[1];
+			unselectedPlansStore.forEachPartition(persons -> {
+				if (exception[0] == null) {
+					try {
+						writeChunks(out, executor, persons, personEncoder);
+					} catch (IOException e) {
+						exception[0] = e;
+					}
+				}
+			});
+			if (exception[0] != null) {
+				throw exception[0];
+			}
+		}
+		out.writeInt(0);
+	}
+
+	private interface HeaderEncoder {
+		void encode(PlanBinaryEncoder encoder) throws IOException;
+	}
+
+	private void writeHeader(final DataOutputStream out, final HeaderEncoder header) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PlanBinaryEncoder encoder = createEncoder(bytes);
+		header.encode(encoder);
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	/**
+	 * Encodes the objects in chunks in parallel and writes the chunks in order.  Only a few chunks per thread are
+	 * kept in memory at once.
+	 */
+	private <T> void writeChunks(final DataOutputStream out, final ExecutorService executor, final List<T> objects,
+			final ChunkEncoder<? super T> chunkEncoder) throws IOException {
+		int numberOfChunks = (objects.size() + this.chunkSize - 1) / this.chunkSize;
+		int window = 2 * this.numberOfThreads;
+		for (int first = 0; first < numberOfChunks; first += window) {
+			List<Future<EncodedChunk>> chunks = new ArrayList<>(window);
+			for (int c = first; c < Math.min(first + window, numberOfChunks); c++) {
+				final List<T> chunk = objects.subList(c * this.chunkSize, Math.min((c + 1) * this.chunkSize, objects.size()));
+				chunks.add(executor.submit(() -> {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					PlanBinaryEncoder encoder = createEncoder(bytes);
+					encoder.recordWrittenIds();
+					encoder.writeVarInt(chunk.size());
+					for (T object : chunk) {
+						chunkEncoder.encode(object, encoder);
+					}
+					return new EncodedChunk(bytes, encoder);
+				}));
+			}
+			for (Future<EncodedChunk> chunk : chunks) {
+				EncodedChunk encoded;
+				try {
+					encoded = chunk.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+				ByteArrayOutputStream idTable = writeIdTable(encoded.encoder);
+				out.writeInt(idTable.size() + encoded.bytes.size());
+				idTable.writeTo(out);
+				encoded.bytes.writeTo(out);
+			}
+		}
+	}
+
+	/**
+	 * Writes the ids of the chunk which are not yet in the file, grouped by their type.  Must be called in the
+	 * order of the chunks.
+	 */
+	private ByteArrayOutputStream writeIdTable(final PlanBinaryEncoder encoder) throws IOException {
+		Map<Class<?>, List<Id<?>>> newIds = new LinkedHashMap<>();
+		List<Id<?>> ids = encoder.getWrittenIds();
+		List<Class<?>> types = encoder.getWrittenIdTypes();
+		for (int i = 0; i < ids.size(); i++) {
+			Id<?> id = ids.get(i);
+			BitSet idsOfType = this.idsInFile.computeIfAbsent(types.get(i), type -> new BitSet());
+			if (!idsOfType.get(id.index())) {
+				idsOfType.set(id.index());
+				newIds.computeIfAbsent(types.get(i), type -> new ArrayList<>()).add(id);
+			}
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(newIds.size());
+		for (Map.Entry<Class<?>, List<Id<?>>> e : newIds.entrySet()) {
+			out.writeUTF(e.getKey().getName());
+			out.writeInt(e.getValue().size());
+			for (Id<?> id : e.getValue()) {
+				out.writeUTF(id.toString());
+			}
+		}
+		out.flush();
+		return bytes;
+	}
+
+	private PlanBinaryEncoder createEncoder(final ByteArrayOutputStream bytes) {
+		PlanBinaryEncoder encoder = new PlanBinaryEncoder(new DataOutputStream(bytes));
+		encoder.putAttributeConverters(this.attributeConverters);
+		return encoder;
+	}
+
+	static void writeCoord(final PlanBinaryEncoder encoder, final Coord coord) throws IOException {
+		encoder.getOutput().writeBoolean(coord != null);
+		if (coord != null) {
+			encoder.getOutput().writeBoolean(coord.hasZ());
+			encoder.getOutput().writeDouble(coord.getX());
+			encoder.getOutput().writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				encoder.getOutput().writeDouble(coord.getZ());
+			}
+		}
+	}
+
+	private static void writeNullableInt(final PlanBinaryEncoder encoder, final Integer value) throws IOException {
+		encoder.getOutput().writeBoolean(value != null);
+		if (value != null) {
+			encoder.getOutput().writeInt(value);
+		}
+	}
+
+	private static void writeObjectAttributes(final PlanBinaryEncoder encoder, final ObjectAttributes objectAttributes,
+			final String objectId) throws IOException {
+		Attributes attributes = new Attributes();
+		for (String name : ObjectAttributesUtils.getAllAttributeNames(objectAttributes, objectId)) {
+			attributes.putAttribute(name, objectAttributes.getAttribute(objectId, name));
+		}
+		encoder.writeAttributes(attributes);
+	}
+
+}
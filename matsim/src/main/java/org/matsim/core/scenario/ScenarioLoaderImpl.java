@@ -20,9 +20,11 @@
 package org.matsim.core.scenario;
 
 import java.io.File;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +33,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
@@ -128,7 +131,10 @@ class ScenarioLoaderImpl {
 		if ((this.config.network() != null) && (this.config.network().getInputFile() != null)) {
 			URL networkUrl = this.config.network().getInputFileURL(this.config.getContext());
 			log.info("loading network from " + networkUrl);
-			if ( config.network().getInputCRS() == null ) {
+			if ( ScenarioBinaryReader.isScenarioBinaryFile( this.config.network().getInputFile() ) ) {
+				readScenarioBinaryFile( networkUrl, ScenarioBinaryReader.Part.network, config.network().getInputCRS() );
+			}
+			else if ( config.network().getInputCRS() == null ) {
 				MatsimNetworkReader reader = new MatsimNetworkReader(this.scenario.getNetwork());
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse(networkUrl);
@@ -163,7 +169,10 @@ class ScenarioLoaderImpl {
 			final String inputCRS = config.facilities().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
-			if ( inputCRS == null ) {
+			if ( ScenarioBinaryReader.isScenarioBinaryFile( this.config.facilities().getInputFile() ) ) {
+				readScenarioBinaryFile( facilitiesFileName, ScenarioBinaryReader.Part.facilities, inputCRS );
+			}
+			else if ( inputCRS == null ) {
 				new MatsimFacilitiesReader(this.scenario).parse(facilitiesFileName);
 			}
 			else {
@@ -198,7 +207,10 @@ class ScenarioLoaderImpl {
 			URL populationFileName = this.config.plans().getInputFileURL(this.config.getContext());
 			log.info("loading population from " + populationFileName);
 
-			if ( config.plans().getInputCRS() == null ) {
+			if ( ScenarioBinaryReader.isScenarioBinaryFile( this.config.plans().getInputFile() ) ) {
+				readScenarioBinaryFile( populationFileName, ScenarioBinaryReader.Part.population, config.plans().getInputCRS() );
+			}
+			else if ( config.plans().getInputCRS() == null ) {
 				final PopulationReader reader = new PopulationReader(this.scenario);
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse( populationFileName );
@@ -219,6 +231,10 @@ class ScenarioLoaderImpl {
 				reader.parse( populationFileName );
 			}
 
+			if ( config.plans().getPlanElementsStorage() == PlansConfigGroup.PlanElementsStorage.compact ) {
+				// the readers create their plans with the default factory
+				PopulationUtils.compactPlans(this.scenario.getPopulation());
+			}
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
 		else {
@@ -315,13 +331,41 @@ class ScenarioLoaderImpl {
 		final String vehiclesFile = this.config.vehicles().getVehiclesFile();
 		if ( vehiclesFile != null ) {
 			log.info("loading vehicles from " + vehiclesFile );
-			new VehicleReaderV1(this.scenario.getVehicles()).parse(IOUtils.newUrl(this.config.getContext(), vehiclesFile));
+			if ( ScenarioBinaryReader.isScenarioBinaryFile( vehiclesFile ) ) {
+				readScenarioBinaryFile( IOUtils.newUrl(this.config.getContext(), vehiclesFile), ScenarioBinaryReader.Part.vehicles, null );
+			}
+			else {
+				new VehicleReaderV1(this.scenario.getVehicles()).parse(IOUtils.newUrl(this.config.getContext(), vehiclesFile));
+			}
 		} 
 		else {
 			log.info("no vehicles file set in config, not loading any vehicles");
 		}
 	}
 
+	/**
+	 * Binary scenario files are memory-mapped, so they must be local files.  Their coordinates are in the coordinate
+	 * system of the scenario that wrote them, so there is nothing to re-project.
+	 */
+	private void readScenarioBinaryFile(URL url, ScenarioBinaryReader.Part part, String inputCRS) {
+		if ( inputCRS != null ) {
+			log.warn( "ignoring input CRS " + inputCRS + " for binary scenario file " + url + "; its coordinates are not re-projected" );
+		}
+		if ( !"file".equals( url.getProtocol() ) ) {
+			throw new UncheckedIOException( "binary scenario files can only be read from local files, but got " + url );
+		}
+		File file;
+		try {
+			file = new File( url.toURI() );
+		} catch ( URISyntaxException e ) {
+			file = new File( url.getPath() );
+		}
+		ScenarioBinaryReader reader = new ScenarioBinaryReader( this.scenario );
+		reader.putAttributeConverters( attributeConverters );
+		reader.setNumberOfThreads( this.config.global().getNumberOfThreads() );
+		reader.readFile( file, EnumSet.of( part ) );
+	}
+
 	private void loadLanes() {
 		String filename = this.config.network().getLaneDefinitionsFile();
 		if (filename != null){
@@ -22,14 +22,16 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
@@ -42,6 +44,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -60,6 +63,9 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * With {@link GlobalConfigGroup#isParallelScoring()}, the agents are scored by several {@link ScoringShard}s in parallel,
+ * and the scoring functions must only be read after {@link #finishScoringFunctions()}.
  * 
  * @author michaz
  *
@@ -82,10 +88,17 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * agentScorers is looked up for every person event and is now an IdMap, i.e. an array over the person ids'
+	 * indices, without any entry objects.  Its iteration order does not matter, in contrast to the one of partialScores.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	private static final Object[] END_OF_EVENTS = new Object[0];
+	private final int numberOfShards;
+	private volatile ScoringShard[] shards = null; // while the events of an iteration are scored in parallel
 	
 	/**
 	 * For something like the bicycle scoring, we need to know individual links at the level of the scoring function.  This is a first sketch how this could be implemented.
@@ -96,8 +109,24 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	private Vehicle2DriverEventHandler delegate = new Vehicle2DriverEventHandler();
 
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, GlobalConfigGroup globalConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				globalConfigGroup.isParallelScoring() ? globalConfigGroup.getNumberOfThreads() : 1);
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	/**
+	 * @param numberOfShards if more than one, the agents are scored in as many threads, see {@link ScoringShard}. The scoring
+	 * functions of different agents must then not share any state which is not thread-safe.
+	 */
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfShards) {
+		this.numberOfShards = Math.max(1, numberOfShards);
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -115,35 +144,29 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	private void init() {
+		if (this.shards != null) {
+			// the last iteration was not finished
+			endShards(false);
+		}
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 		}
+		if (this.numberOfShards > 1) {
+			startShards();
+		}
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			dispatch(((HasPersonId) o).getPersonId(), o);
 		}
 		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
@@ -157,11 +180,8 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
 				Id<Person> driverId = delegate.getDriverOfVehicle(vehicleId) ;
-				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+				dispatch( driverId, o );
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-				if (scoringFunction != null) {
-					scoringFunction.handleEvent(o) ;
-				}
 			}
 			/*
 			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
@@ -174,26 +194,51 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
-		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleLeg(leg);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
-		}
+	public void handleLeg(PersonExperiencedLeg o) {
+		dispatch(o.getAgentId(), o.getLeg());
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
-		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleActivity(activity);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+	public void handleActivity(PersonExperiencedActivity o) {
+		dispatch(o.getAgentId(), o.getActivity());
+	}
+
+	/**
+	 * Scores the event, leg or activity of the agent right away, or lets the agent's shard do it. Events, legs and
+	 * activities may be handled by different threads, so this locks either the whole population or only the shard.
+	 */
+	private void dispatch(final Id<Person> agentId, final Object o) {
+		ScoringShard[] shards = this.shards;
+		if (shards == null) {
+			synchronized (this) {
+				score(agentId, o);
+			}
+		} else if (agentId != null) {
+			shards[agentId.index() % shards.length].add(agentId, o);
+		}
+	}
+
+	private void score(final Id<Person> agentId, final Object o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
+		if (scoringFunction == null) {
+			return;
+		}
+		if (o instanceof Event) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(((Event) o).getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			}
+			scoringFunction.handleEvent((Event) o);
+			// passing this on in any case, see comment above.  kai, mar'17
+		} else if (o instanceof Leg) {
+			scoringFunction.handleLeg((Leg) o);
+			partialScores.get(agentId).add(scoringFunction.getScore());
+		} else {
+			scoringFunction.handleActivity((Activity) o);
+			partialScores.get(agentId).add(scoringFunction.getScore());
 		}
 	}
 
@@ -212,6 +257,10 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	public void finishScoringFunctions() {
+		if (this.shards != null) {
+			// the shards finish the scoring functions of their agents
+			endShards(true);
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -221,6 +270,9 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfShards > 1) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -229,6 +281,115 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 		}
 	}
 
+	private void startShards() {
+		this.shards = new ScoringShard[this.numberOfShards];
+		for (int i = 0; i < this.numberOfShards; i++) {
+			this.shards[i] = new ScoringShard(i);
+			this.shards[i].thread.start();
+		}
+	}
+
+	private synchronized void endShards(final boolean finish) {
+		for (ScoringShard shard : this.shards) {
+			shard.end(finish);
+		}
+		try {
+			for (ScoringShard shard : this.shards) {
+				shard.thread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		this.shards = null;
+	}
+
+	/**
+	 * Scores the agents whose id index modulo the number of shards is the shard's index, in its own thread. The
+	 * events, legs and activities of an agent all go through the same shard, in the order they were handled, so the
+	 * scores are the same as with a single thread. They are passed on in batches to keep the synchronization with the
+	 * shard's thread rare. The batch being filled is guarded by the shard's lock, as the events, legs and activities
+	 * may be added by different threads.
+	 */
+	private final class ScoringShard implements Runnable {
+		private static final int BATCH_SIZE = 1024;
+
+		private final int index;
+		private final Thread thread;
+		private final BlockingQueue<Object[]> batches = new LinkedBlockingQueue<>();
+		private Object[] batch = new Object[2 * BATCH_SIZE]; // agent id, payload, agent id, payload... guarded by this
+		private int batchSize = 0; // guarded by this
+		private volatile boolean finish = false;
+
+		ScoringShard(final int index) {
+			this.index = index;
+			this.thread = new Thread(this, "ScoringShard-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		synchronized void add(final Id<Person> agentId, final Object o) {
+			this.batch[2 * this.batchSize] = agentId;
+			this.batch[2 * this.batchSize + 1] = o;
+			this.batchSize++;
+			if (this.batchSize == BATCH_SIZE) {
+				this.batches.add(this.batch);
+				this.batch = new Object[2 * BATCH_SIZE];
+				this.batchSize = 0;
+			}
+		}
+
+		synchronized void end(final boolean finish) {
+			this.finish = finish;
+			if (this.batchSize > 0) {
+				this.batches.add(this.batch);
+			}
+			this.batches.add(END_OF_EVENTS);
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (Object[] b = this.batches.take(); b != END_OF_EVENTS; b = this.batches.take()) {
+					// after an exception, the remaining batches are only taken, so they do not pile up
+					if (exception.get() == null) {
+						try {
+							scoreBatch(b);
+						} catch (Throwable t) {
+							exception.compareAndSet(null, t);
+						}
+					}
+				}
+				if (this.finish && exception.get() == null) {
+					try {
+						finishAgents();
+					} catch (Throwable t) {
+						exception.compareAndSet(null, t);
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+		private void scoreBatch(final Object[] b) {
+			for (int i = 0; i < b.length && b[i] != null; i += 2) {
+				@SuppressWarnings("unchecked")
+				Id<Person> agentId = (Id<Person>) b[i];
+				score(agentId, b[i + 1]);
+			}
+		}
+
+		private void finishAgents() {
+			for (Entry<Id<Person>, TDoubleCollection> entry : partialScores.entrySet()) {
+				if (entry.getKey().index() % numberOfShards == this.index) {
+					ScoringFunction sf = getScoringFunctionForAgent(entry.getKey());
+					sf.finish();
+					entry.getValue().add(sf.getScore());
+				}
+			}
+		}
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -40,8 +40,15 @@ public class MapBasedDataContainerProvider implements DataContainerProvider {
 	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
 		DataContainer data = this.linkData.get(linkId);
 		if ((null == data) && createIfMissing) {
-			data = new DataContainer(this.ttDataFactory.createTravelTimeData(linkId));
-			this.linkData.put(linkId, data);
+			/* The map is also read by router threads, which may create missing containers as well, so creation
+			 * is synchronized and checks again; the map itself has to be a concurrent one. */
+			synchronized (this.linkData) {
+				data = this.linkData.get(linkId);
+				if (data == null) {
+					data = new DataContainer(this.ttDataFactory.createTravelTimeData(linkId));
+					this.linkData.put(linkId, data);
+				}
+			}
 		}
 		return data;
 	}
@@ -19,13 +19,17 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleAbortsEvent;
@@ -42,8 +46,10 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -62,7 +68,9 @@ import com.google.inject.Inject;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. {@link TravelTimeDataFlatArrayFactory} keeps the data of all links
+ * in a few flat arrays, which saves the per-link overhead on large networks, and can be fed by several
+ * event handling threads, see {@link #addToEventsManager(EventsManager, int)}.
  * 
  * @author dgrether
  * @author mrieser
@@ -84,7 +92,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
+
+	private final Network network;
 	
 	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
 
@@ -98,6 +108,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	private final boolean calculateLinkToLinkTravelTimes;
 
 	private TravelTimeDataFactory ttDataFactory = null;
+
+	// only set if the link travel times are stored in flat arrays
+	private TravelTimeDataFlatArrayFactory flatData = null;
+	private FlatArrayPartition[] flatPartitions = null;
 	
 	@Inject private QSimConfigGroup qsimConfig ;
 
@@ -116,6 +130,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.setTravelTimeDataFactory(new TravelTimeDataFlatArrayFactory(network, calculator.timeSlice, calculator.numSlots));
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -149,11 +166,16 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	}
 
 	@Inject
-	TravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, EventsManager eventsManager, Network network) {
+	TravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, ParallelEventHandlingConfigGroup parallelConfig, EventsManager eventsManager, Network network) {
 		// this injected constructor is not used when getSeparateModes is true
 		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes()));
-		eventsManager.addHandler(this);
 		configure(this, ttconfigGroup, network);
+		addToEventsManager(eventsManager, getNumberOfPartitions(parallelConfig));
+	}
+
+	/*package*/ static int getNumberOfPartitions(ParallelEventHandlingConfigGroup parallelConfig) {
+		Integer threads = parallelConfig.getNumberOfThreads();
+		return threads == null ? 1 : Math.max(1, threads);
 	}
 
 	public TravelTimeCalculator(final Network network, TravelTimeCalculatorConfigGroup ttconfigGroup) {
@@ -166,6 +188,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
 								boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+		this.network = network;
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -175,6 +198,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		this.aggregator = new OptimisticTravelTimeAggregator(this.numSlots, this.timeSlice);
 		this.ttDataFactory = new TravelTimeDataArrayFactory(network, this.numSlots);
 		if (this.calculateLinkTravelTimes){
+			// concurrent, as router threads read it (and may create missing containers) while events are handled
 			this.linkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4));
 
 			/*
@@ -194,19 +218,64 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterEvents = new IdMap<>(Vehicle.class);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
 
 	}
 
+	/**
+	 * Adds this calculator as event handler to the events manager. If the link travel times are stored in flat arrays
+	 * (see {@link TravelTimeDataFlatArrayFactory}), they are collected by <code>partitions</code> event handlers, each
+	 * of them handling the vehicles with <code>vehicleId.index() % partitions</code> equal to its partition, so a
+	 * parallel events manager can run them in different threads. Otherwise, <code>partitions</code> is ignored.
+	 * <br>
+	 * The travel time data factory must be set before.
+	 */
+	public void addToEventsManager(final EventsManager eventsManager, final int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("At least one partition is needed, but " + partitions + " were requested.");
+		}
+		if (this.flatData != null) {
+			this.flatPartitions = new FlatArrayPartition[partitions];
+			for (int i = 0; i < partitions; i++) {
+				this.flatPartitions[i] = new FlatArrayPartition(i, partitions);
+			}
+		}
+		eventsManager.addHandler(this);
+		for (EventHandler handler : getAdditionalFlatArrayPartitions()) {
+			eventsManager.addHandler(handler);
+		}
+	}
+
+	/**
+	 * @return the handlers of the flat array partitions which are not fed by this calculator itself (the first
+	 * partition is).
+	 */
+	/*package*/ List<EventHandler> getAdditionalFlatArrayPartitions() {
+		if (this.flatPartitions == null) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(Arrays.asList(this.flatPartitions).subList(1, this.flatPartitions.length));
+	}
+
+	/**
+	 * With flat arrays, the link enter events are only needed for the link to link travel times.
+	 */
+	private boolean tracksLinkEnterEvents() {
+		return this.flatPartitions == null || this.calculateLinkToLinkTravelTimes;
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
+		if (this.flatPartitions != null) this.flatPartitions[0].handleEvent(e);
+		if (!tracksLinkEnterEvents()) return;
+
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
@@ -223,7 +292,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
-		if (this.calculateLinkTravelTimes) {
+		if (this.flatPartitions != null) {
+			this.flatPartitions[0].handleEvent(e);
+		} else if (this.calculateLinkTravelTimes) {
 			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
 			if (oldEvent != null) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
@@ -235,6 +306,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
+		if (this.flatPartitions != null) this.flatPartitions[0].handleEvent(event);
+		if (!tracksLinkEnterEvents()) return;
+
 		/* if filtering transport modes is enabled and the vehicles
 		 * starts a leg on a non analyzed transport mode, add the vehicle 
 		 * to the filtered vehicles set. */
@@ -245,6 +319,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(final VehicleLeavesTrafficEvent event) {
+		if (this.flatPartitions != null) this.flatPartitions[0].handleEvent(event);
+		if (!tracksLinkEnterEvents()) return;
+
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
@@ -256,6 +333,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+		if (this.flatPartitions != null) this.flatPartitions[0].handleEvent(event);
+		if (!tracksLinkEnterEvents()) return;
+
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
@@ -264,11 +344,16 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
+		if (this.flatPartitions != null) this.flatPartitions[0].handleEvent(event);
+		if (!tracksLinkEnterEvents()) return;
+
 		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
 		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			if (this.flatPartitions == null) {
+				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+				data.needsConsolidation = true;
+				this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			}
 			if (this.calculateLinkToLinkTravelTimes 
 					&& event.getTime() < qsimConfig.getEndTime() 
 					// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17) 
@@ -298,6 +383,14 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	 * cdobler, aug'17
 	 */
 	public double getLinkTravelTime(final Link link, final double time) {
+		if (this.flatData != null) {
+			int linkIndex = this.flatData.getLinkIndex(link.getId());
+			if (linkIndex < 0) {
+				// the link was not in the network, so there is no data about it
+				return link.getLength() / link.getFreespeed(time);
+			}
+			return this.aggregator.getTravelTime(this.flatData.getTravelTimeData(linkIndex), time);
+		}
 		if (this.calculateLinkTravelTimes) {
 			
 			DataContainer data = this.dataContainerProvider.getTravelTimeData(link, true);
@@ -352,6 +445,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void reset(int iteration) {
+		if (this.flatData != null) {
+			this.flatData.reset();
+			// the other partitions are reset by the events manager
+			if (this.flatPartitions != null) this.flatPartitions[0].reset(iteration);
+		}
 		if (this.calculateLinkTravelTimes) {
 			for (DataContainer data : this.linkData.values()){
 				data.ttData.resetTravelTimes();
@@ -368,8 +466,32 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		this.vehiclesToIgnore.clear();
 	}
 
+	/**
+	 * Sets the factory of the travel time data of the links and of the link to link travel times. This is only
+	 * possible before any travel time data was created, i.e. before the first event is handled and before the first
+	 * travel time is requested.
+	 * <br>
+	 * With a {@link TravelTimeDataFlatArrayFactory}, the link travel times are stored in its flat arrays, and are
+	 * collected by this calculator alone unless it is added to the events manager with
+	 * {@link #addToEventsManager(EventsManager, int)}.
+	 */
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
+		if ((this.calculateLinkTravelTimes && !this.linkData.isEmpty())
+				|| (this.calculateLinkToLinkTravelTimes && !this.linkToLinkData.isEmpty())) {
+			throw new IllegalStateException("The travel time data factory cannot be changed once travel time data was created.");
+		}
 		this.ttDataFactory = factory;
+		if (this.calculateLinkTravelTimes) {
+			// the provider creates the link data containers, so it needs the new factory as well
+			this.dataContainerProvider = new ArrayBasedDataContainerProvider(this.linkData, factory, this.network);
+		}
+		if (this.calculateLinkTravelTimes && factory instanceof TravelTimeDataFlatArrayFactory) {
+			this.flatData = (TravelTimeDataFlatArrayFactory) factory;
+			this.flatPartitions = new FlatArrayPartition[] { new FlatArrayPartition(0, 1) };
+		} else {
+			this.flatData = null;
+			this.flatPartitions = null;
+		}
 	}
 
 	public void setTravelTimeAggregator(final AbstractTravelTimeAggregator aggregator) {
@@ -449,6 +571,104 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 	}
 
+	/**
+	 * Collects the link travel times of the vehicles with <code>vehicleId.index() % partitions == partition</code>
+	 * into the flat arrays. Each partition keeps the link enter times of its vehicles in a dense array, indexed by
+	 * <code>vehicleId.index() / partitions</code>, so different partitions can be fed by different threads.
+	 */
+	private final class FlatArrayPartition implements LinkEnterEventHandler, LinkLeaveEventHandler,
+		VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler,
+		VehicleAbortsEventHandler {
+
+		private final int partition;
+		private final int partitions;
+		private double[] enterTimes = new double[0]; // NaN if the vehicle is not on a link
+		private int[] enterLinks = new int[0];
+		private boolean[] ignored = new boolean[0];
+
+		FlatArrayPartition(final int partition, final int partitions) {
+			this.partition = partition;
+			this.partitions = partitions;
+		}
+
+		/**
+		 * @return the index of the vehicle in the arrays of this partition, or -1 if it belongs to another partition.
+		 */
+		private int getIndex(final Id<Vehicle> vehicleId) {
+			int idIndex = vehicleId.index();
+			if (idIndex % this.partitions != this.partition) {
+				return -1;
+			}
+			int index = idIndex / this.partitions;
+			if (index >= this.enterTimes.length) {
+				int oldLength = this.enterTimes.length;
+				int newLength = Math.max(index + 1, oldLength + (oldLength >> 1) + 16);
+				this.enterTimes = Arrays.copyOf(this.enterTimes, newLength);
+				Arrays.fill(this.enterTimes, oldLength, newLength, Double.NaN);
+				this.enterLinks = Arrays.copyOf(this.enterLinks, newLength);
+				this.ignored = Arrays.copyOf(this.ignored, newLength);
+			}
+			return index;
+		}
+
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			int index = getIndex(e.getVehicleId());
+			if (index < 0 || this.ignored[index]) return;
+			int linkIndex = TravelTimeCalculator.this.flatData.getLinkIndex(e.getLinkId());
+			this.enterTimes[index] = linkIndex < 0 ? Double.NaN : e.getTime();
+			this.enterLinks[index] = linkIndex;
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent e) {
+			int index = getIndex(e.getVehicleId());
+			if (index < 0 || Double.isNaN(this.enterTimes[index])) return;
+			TravelTimeData data = TravelTimeCalculator.this.flatData.getTravelTimeData(this.enterLinks[index]);
+			TravelTimeCalculator.this.aggregator.addTravelTime(data, this.enterTimes[index], e.getTime());
+		}
+
+		@Override
+		public void handleEvent(final VehicleEntersTrafficEvent event) {
+			if (TravelTimeCalculator.this.filterAnalyzedModes && !TravelTimeCalculator.this.analyzedModes.contains(event.getNetworkMode())) {
+				int index = getIndex(event.getVehicleId());
+				if (index >= 0) this.ignored[index] = true;
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleLeavesTrafficEvent event) {
+			int index = getIndex(event.getVehicleId());
+			if (index < 0) return;
+			this.enterTimes[index] = Double.NaN;
+			this.ignored[index] = false;
+		}
+
+		@Override
+		public void handleEvent(final VehicleArrivesAtFacilityEvent event) {
+			int index = getIndex(event.getVehicleId());
+			if (index >= 0) this.enterTimes[index] = Double.NaN;
+		}
+
+		@Override
+		public void handleEvent(final VehicleAbortsEvent event) {
+			int index = getIndex(event.getVehicleId());
+			if (index < 0) return;
+			if (!Double.isNaN(this.enterTimes[index])) {
+				TravelTimeData data = TravelTimeCalculator.this.flatData.getTravelTimeData(this.enterLinks[index]);
+				TravelTimeCalculator.this.aggregator.addStuckEventTravelTime(data, this.enterTimes[index], event.getTime());
+				this.enterTimes[index] = Double.NaN;
+			}
+			this.ignored[index] = false;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			Arrays.fill(this.enterTimes, Double.NaN);
+			Arrays.fill(this.ignored, false);
+		}
+	}
+
 	public TravelTime getLinkTravelTimes() {
 		return new TravelTime() {
 
@@ -29,6 +29,7 @@ import com.google.inject.name.Names;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
@@ -90,6 +91,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 	private static class SingleModeTravelTimeCalculatorProvider implements Provider<TravelTimeCalculator> {
 
 		@Inject TravelTimeCalculatorConfigGroup config;
+		@Inject ParallelEventHandlingConfigGroup parallelConfig;
 		@Inject EventsManager eventsManager;
 		@Inject Network network;
 
@@ -103,8 +105,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 		public TravelTimeCalculator get() {
 			TravelTimeCalculator calculator = new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), 
 					config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode));
-			eventsManager.addHandler(calculator);
-			return TravelTimeCalculator.configure(calculator, config, network);
+			TravelTimeCalculator.configure(calculator, config, network);
+			calculator.addToEventsManager(eventsManager, TravelTimeCalculator.getNumberOfPartitions(parallelConfig));
+			return calculator;
 		}
 	}
 
@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataFlatArrayFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Stores the link travel times of all links of a network in flat arrays, indexed by
+ * <code>linkIndex * numSlots + timeSlot</code>, instead of in one {@link TravelTimeData} object per link.
+ * <br>
+ * Per time slot, the number of travel times and their sum (in milliseconds) are packed into one <code>long</code>
+ * of an {@link AtomicLongArray}, so a travel time is added with a single atomic operation and the data can be fed
+ * concurrently by several event handling threads (see {@link TravelTimeCalculator#addToEventsManager}). The
+ * consolidated travel times (see {@link TravelTimeCalculator}) are kept in a separate <code>double</code> array, so
+ * reading a travel time is a single array access as long as no new travel times were added to the link. This needs
+ * 16 bytes per slot (instead of 20 bytes with {@link TravelTimeDataArray}) and no objects or array headers per link.
+ * <br>
+ * Limitations: at most 2<sup>23</sup> travel times per slot, a sum of at most 2<sup>40</sup> milliseconds (about 35
+ * years) per slot, and travel times are rounded to milliseconds. Link to link travel times are not stored in the flat
+ * arrays, {@link #createTravelTimeData(Id)} returns a {@link TravelTimeDataArray} for them.
+ */
+public final class TravelTimeDataFlatArrayFactory implements TravelTimeDataFactory {
+
+	private static final int SUM_BITS = 40;
+	private static final long SUM_MASK = (1L << SUM_BITS) - 1;
+	private static final long COUNT_UNIT = 1L << SUM_BITS;
+	private static final long INFINITE = Long.MIN_VALUE; // the highest bit, set if an infinite travel time was added
+	private static final int LOCKS = 64;
+
+	private final Network network;
+	private final int timeSlice;
+	private final int numSlots;
+	private final Link[] links;
+	private final int[] linkIndices; // by Id.index() of the links, -1 if the id is not a link of the network
+	private final FlatTravelTimeData[] views;
+
+	private final AtomicLongArray collected; // count and sum of the travel times, packed
+	private final double[] travelTimes; // consolidated
+	private final AtomicIntegerArray dirty; // 1 if the travel times of the link need to be consolidated
+	private final Object[] locks = new Object[LOCKS];
+
+	public TravelTimeDataFlatArrayFactory(final Network network, final int timeSlice, final int numSlots) {
+		int linkCount = network.getLinks().size();
+		if ((long) linkCount * numSlots > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(linkCount + " links with " + numSlots + " time slots each are too many for flat arrays.");
+		}
+		this.network = network;
+		this.timeSlice = timeSlice;
+		this.numSlots = numSlots;
+		this.links = new Link[linkCount];
+		this.views = new FlatTravelTimeData[linkCount];
+		int maxIdIndex = -1;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			maxIdIndex = Math.max(maxIdIndex, linkId.index());
+		}
+		this.linkIndices = new int[maxIdIndex + 1];
+		Arrays.fill(this.linkIndices, -1);
+		int index = 0;
+		for (Link link : network.getLinks().values()) {
+			this.links[index] = link;
+			this.views[index] = new FlatTravelTimeData(index);
+			this.linkIndices[link.getId().index()] = index;
+			index++;
+		}
+		this.collected = new AtomicLongArray(linkCount * numSlots);
+		this.travelTimes = new double[linkCount * numSlots];
+		this.dirty = new AtomicIntegerArray(linkCount);
+		for (int i = 0; i < LOCKS; i++) {
+			this.locks[i] = new Object();
+		}
+		reset();
+	}
+
+	/**
+	 * Returns a separate {@link TravelTimeDataArray} for every call. This is used for link to link travel times, the
+	 * link travel times are stored in the flat arrays, see {@link #getTravelTimeData(int)}.
+	 */
+	@Override
+	public TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		return new TravelTimeDataArray(this.network.getLinks().get(linkId), this.numSlots);
+	}
+
+	/**
+	 * @return the index of the link in the flat arrays, or -1 if the link was not in the network when this factory
+	 * was created.
+	 */
+	/*package*/ int getLinkIndex(final Id<Link> linkId) {
+		int idIndex = linkId.index();
+		return idIndex < this.linkIndices.length ? this.linkIndices[idIndex] : -1;
+	}
+
+	/**
+	 * @return a view of the travel time data of the link with the given index in the flat arrays.
+	 */
+	/*package*/ TravelTimeData getTravelTimeData(final int linkIndex) {
+		return this.views[linkIndex];
+	}
+
+	/**
+	 * Removes all travel times, may not be called concurrently with adding travel times.
+	 */
+	/*package*/ void reset() {
+		for (int i = 0; i < this.collected.length(); i++) {
+			this.collected.lazySet(i, 0L);
+		}
+		for (int i = 0; i < this.links.length; i++) {
+			this.dirty.set(i, 1); // the free speed travel times need to be calculated
+		}
+	}
+
+	private void addTravelTime(final int linkIndex, final int timeSlot, final double travelTime) {
+		int i = linkIndex * this.numSlots + timeSlot;
+		if (travelTime == Double.POSITIVE_INFINITY) {
+			this.collected.accumulateAndGet(i, INFINITE, (value, flag) -> value | flag);
+		} else {
+			this.collected.getAndAdd(i, COUNT_UNIT + Math.round(travelTime * 1000.0));
+		}
+		this.dirty.lazySet(linkIndex, 1);
+	}
+
+	private void setTravelTime(final int linkIndex, final int timeSlot, final double travelTime) {
+		int i = linkIndex * this.numSlots + timeSlot;
+		this.collected.set(i, travelTime == Double.POSITIVE_INFINITY ? (COUNT_UNIT | INFINITE) : (COUNT_UNIT + Math.round(travelTime * 1000.0)));
+		this.dirty.set(linkIndex, 1);
+	}
+
+	private void resetTravelTimes(final int linkIndex) {
+		int offset = linkIndex * this.numSlots;
+		for (int i = offset; i < offset + this.numSlots; i++) {
+			this.collected.set(i, 0L);
+		}
+		this.dirty.set(linkIndex, 1);
+	}
+
+	/*package*/ double getTravelTime(final int linkIndex, final int timeSlot) {
+		if (this.dirty.get(linkIndex) != 0) {
+			consolidate(linkIndex);
+		}
+		return this.travelTimes[linkIndex * this.numSlots + timeSlot];
+	}
+
+	/**
+	 * Calculates the average travel times of the link, and makes sure that the travel time in a slot is not smaller
+	 * than the one of the slot before minus the slot size, in the same way as the {@link TravelTimeCalculator} does it
+	 * for the other {@link TravelTimeData}. Travel times which are added concurrently may only be visible at the next
+	 * consolidation.
+	 */
+	private void consolidate(final int linkIndex) {
+		synchronized (this.locks[linkIndex % LOCKS]) {
+			if (this.dirty.get(linkIndex) == 0) {
+				return;
+			}
+			this.dirty.set(linkIndex, 0); // before reading, so concurrently added travel times mark the link again
+			Link link = this.links[linkIndex];
+			int offset = linkIndex * this.numSlots;
+			double prevTravelTime = Double.NEGATIVE_INFINITY;
+			for (int slot = 0; slot < this.numSlots; slot++) {
+				long value = this.collected.get(offset + slot);
+				double travelTime;
+				if ((value & INFINITE) != 0) {
+					travelTime = Double.POSITIVE_INFINITY;
+				} else if (value == 0) {
+					travelTime = link.getLength() / link.getFreespeed(slot * this.timeSlice);
+				} else {
+					travelTime = ((value & SUM_MASK) / 1000.0) / (value >>> SUM_BITS);
+				}
+				double minTravelTime = prevTravelTime - this.timeSlice;
+				if (travelTime < minTravelTime) {
+					travelTime = minTravelTime;
+				}
+				this.travelTimes[offset + slot] = travelTime;
+				prevTravelTime = travelTime;
+			}
+		}
+	}
+
+	private final class FlatTravelTimeData implements TravelTimeData {
+		private final int linkIndex;
+
+		FlatTravelTimeData(final int linkIndex) {
+			this.linkIndex = linkIndex;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			TravelTimeDataFlatArrayFactory.this.resetTravelTimes(this.linkIndex);
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			TravelTimeDataFlatArrayFactory.this.addTravelTime(this.linkIndex, timeSlot, traveltime);
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			TravelTimeDataFlatArrayFactory.this.setTravelTime(this.linkIndex, timeSlot, traveltime);
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			return TravelTimeDataFlatArrayFactory.this.getTravelTime(this.linkIndex, timeSlot);
+		}
+	}
+
+}
@@ -19,6 +19,7 @@
 
 package org.matsim.pt.config;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -31,11 +32,15 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
+
+	public enum RoutingAlgorithmType { Dijkstra, Raptor }
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
 
 	private double directWalkFactor = 1. ;
 
@@ -54,6 +59,9 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
 		comments.put(DIRECT_WALK_FACTOR, DIRECT_WALK_FACTOR_CMT);
+		comments.put(ROUTING_ALGORITHM_TYPE, "the algorithm used to route public transit trips. Dijkstra searches the least cost path in a network built from the schedule, "
+				+ "Raptor works on the timetable directly and is usually much faster, choosing the least cost journey among the fastest ones for each number of transfers. "
+				+ "Possible values: " + Arrays.toString(RoutingAlgorithmType.values()));
 		return comments;
 	}
 
@@ -101,6 +109,17 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		return this.additionalTransferTime;
 	}
 
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final RoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public RoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
+
 	/**
 	 * {@value #DIRECT_WALK_FACTOR_CMT}
 	 */
@@ -0,0 +1,238 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in flat arrays, as needed by {@link RaptorTransitRouter}. Stops, routes and the stops along
+ * the routes are numbered; all departures of a {@link TransitRoute} share its offsets, so a trip is given by its
+ * departure time at the first stop, and the routes can be used as RAPTOR routes directly.
+ * <br>
+ * Immutable after construction, so one instance is shared by all routers.
+ */
+final class RaptorData {
+
+	private final static Logger log = Logger.getLogger(RaptorData.class);
+
+	static final double MIDNIGHT = 24.0 * 3600;
+
+	final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices = new IdentityHashMap<>();
+	private final QuadTree<Integer> stopsQT;
+
+	final TransitLine[] routeLines;
+	final TransitRoute[] routes;
+	final int[] firstRouteStop; // by route, length routes+1
+	final int[] routeStops; // the stop at each position along the routes
+	final int[] routeStopRoutes; // the route of each route stop
+	final double[] arrivalOffsets; // by route stop
+	final double[] departureOffsets;
+	final double[] distances; // beeline distance from the first stop of the route, by route stop
+	final int[] firstDeparture; // by route, length routes+1
+	final double[] departures; // at the first stop, sorted per route
+
+	final int[] firstStopRoute; // by stop, length stops+1
+	final int[] stopRouteStops; // the route stops at each stop
+
+	final int[] firstTransfer; // by stop, length stops+1
+	final int[] transferStops;
+	final double[] transferDistances;
+
+	RaptorData(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> routeList = new ArrayList<>();
+		List<TransitStopFacility> stopList = new ArrayList<>();
+		int routeStopCount = 0;
+		int departureCount = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lines.add(line);
+				routeList.add(route);
+				routeStopCount += route.getStops().size();
+				departureCount += route.getDepartures().size();
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!this.stopIndices.containsKey(stop.getStopFacility())) {
+						this.stopIndices.put(stop.getStopFacility(), stopList.size());
+						stopList.add(stop.getStopFacility());
+					}
+				}
+			}
+		}
+		this.stops = stopList.toArray(new TransitStopFacility[stopList.size()]);
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+
+		this.firstRouteStop = new int[this.routes.length + 1];
+		this.routeStops = new int[routeStopCount];
+		this.routeStopRoutes = new int[routeStopCount];
+		this.arrivalOffsets = new double[routeStopCount];
+		this.departureOffsets = new double[routeStopCount];
+		this.distances = new double[routeStopCount];
+		this.firstDeparture = new int[this.routes.length + 1];
+		this.departures = new double[departureCount];
+		int[] stopRouteCounts = new int[this.stops.length + 1];
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.firstRouteStop[r] = rs;
+			Coord prevCoord = null;
+			double distance = 0.0;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				int s = this.stopIndices.get(stop.getStopFacility());
+				this.routeStops[rs] = s;
+				this.routeStopRoutes[rs] = r;
+				double arrival = stop.getArrivalOffset();
+				double departure = stop.getDepartureOffset();
+				this.arrivalOffsets[rs] = arrival != Time.UNDEFINED_TIME ? arrival : departure;
+				this.departureOffsets[rs] = departure != Time.UNDEFINED_TIME ? departure : arrival;
+				Coord coord = stop.getStopFacility().getCoord();
+				if (prevCoord != null) {
+					distance += CoordUtils.calcEuclideanDistance(prevCoord, coord);
+				}
+				this.distances[rs] = distance;
+				prevCoord = coord;
+				stopRouteCounts[s + 1]++;
+				rs++;
+			}
+			this.firstDeparture[r] = d;
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departures[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.firstDeparture[r], d);
+		}
+		this.firstRouteStop[this.routes.length] = rs;
+		this.firstDeparture[this.routes.length] = d;
+
+		this.firstStopRoute = new int[this.stops.length + 1];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.firstStopRoute[s + 1] = this.firstStopRoute[s] + stopRouteCounts[s + 1];
+		}
+		this.stopRouteStops = new int[routeStopCount];
+		int[] next = Arrays.copyOf(this.firstStopRoute, this.stops.length);
+		for (int i = 0; i < routeStopCount; i++) {
+			this.stopRouteStops[next[this.routeStops[i]]++] = i;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : this.stops) {
+			minX = Math.min(minX, stop.getCoord().getX());
+			minY = Math.min(minY, stop.getCoord().getY());
+			maxX = Math.max(maxX, stop.getCoord().getX());
+			maxY = Math.max(maxY, stop.getCoord().getY());
+		}
+		if (this.stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		this.stopsQT = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopsQT.put(this.stops[s].getCoord().getX(), this.stops[s].getCoord().getY(), s);
+		}
+
+		this.firstTransfer = new int[this.stops.length + 1];
+		List<Integer> targets = new ArrayList<>();
+		List<Double> transferDistanceList = new ArrayList<>();
+		for (int s = 0; s < this.stops.length; s++) {
+			Coord coord = this.stops[s].getCoord();
+			for (Integer t : this.stopsQT.getDisk(coord.getX(), coord.getY(), maxBeelineWalkConnectionDistance)) {
+				if (t != s) {
+					targets.add(t);
+					transferDistanceList.add(CoordUtils.calcEuclideanDistance(coord, this.stops[t].getCoord()));
+				}
+			}
+			this.firstTransfer[s + 1] = targets.size();
+		}
+		this.transferStops = new int[targets.size()];
+		this.transferDistances = new double[targets.size()];
+		for (int i = 0; i < this.transferStops.length; i++) {
+			this.transferStops[i] = targets.get(i);
+			this.transferDistances[i] = transferDistanceList.get(i);
+		}
+
+		log.info("raptor data: " + this.stops.length + " stops, " + this.routes.length + " routes, " + routeStopCount
+				+ " route stops, " + departureCount + " departures, " + this.transferStops.length + " transfers");
+	}
+
+	/**
+	 * @return the departure time at the first stop of the earliest trip of the route leaving the route stop not
+	 * before the given time, continuing with the first departure of the next day if there is no later departure.
+	 */
+	double getNextTripDeparture(final int route, final int routeStop, final double time) {
+		double atFirstStop = time - this.departureOffsets[routeStop];
+		int from = this.firstDeparture[route];
+		int to = this.firstDeparture[route + 1];
+		double days = 0.0;
+		if (atFirstStop > this.departures[to - 1]) {
+			days = Math.ceil((atFirstStop - this.departures[to - 1]) / MIDNIGHT);
+			atFirstStop -= days * MIDNIGHT;
+		}
+		int pos = Arrays.binarySearch(this.departures, from, to, atFirstStop);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		} else {
+			while (pos > from && this.departures[pos - 1] == atFirstStop) {
+				pos--;
+			}
+		}
+		return this.departures[pos] + days * MIDNIGHT;
+	}
+
+	/**
+	 * Same logic as in {@link AbstractTransitRouter}: all stops within the search radius, or if there are fewer than two,
+	 * all stops up to the extension radius beyond the nearest one.
+	 */
+	Collection<Integer> getNearestStops(final Coord coord, final double searchRadius, final double extensionRadius) {
+		if (this.stops.length == 0) {
+			return new ArrayList<>();
+		}
+		Collection<Integer> nearest = this.stopsQT.getDisk(coord.getX(), coord.getY(), searchRadius);
+		if (nearest.size() < 2) {
+			int closest = this.stopsQT.getClosest(coord.getX(), coord.getY());
+			double distance = CoordUtils.calcEuclideanDistance(coord, this.stops[closest].getCoord());
+			nearest = this.stopsQT.getDisk(coord.getX(), coord.getY(), distance + extensionRadius);
+		}
+		return nearest;
+	}
+
+}
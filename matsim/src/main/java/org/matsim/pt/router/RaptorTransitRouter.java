@@ -0,0 +1,675 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * A round-based public transit router (RAPTOR, Delling, Pajor and Werneck 2012) working directly on the
+ * timetable stored in flat arrays by {@link RaptorData}, without building a {@link TransitRouterNetwork}.
+ * <br>
+ * Round <i>k</i> finds the earliest arrival at every stop using at most <i>k</i> vehicles, so one query results
+ * in the journeys which are optimal in arrival time and number of transfers. Of these, the one with the lowest
+ * generalized cost, computed with the same parameters as {@link TransitRouterNetworkTravelTimeAndDisutility},
+ * is returned, or a direct walk if that is cheaper, as in {@link TransitRouterImpl}, or if there is no connection.
+ * <br>
+ * {@link #calcRoutes(Facility, Facility, double, double, Person)} returns the journeys for all departures within a
+ * time window (rRAPTOR), re-using the labels of the later departures for the earlier ones. The labels, and the
+ * arrivals at the target used for pruning, are kept per round, so a label is only pruned by one reached with at
+ * most as many vehicles, and journeys with less transfers are not lost to faster ones departing later.
+ * <br>
+ * The schedule data is shared by all instances, see {@link RaptorTransitRouterFactory}; an instance only keeps
+ * its search state, so it is not thread-safe, but cheap to create for every thread.
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	/**
+	 * More transfers are hardly ever useful, and they are expensive as every round scans the routes again.
+	 */
+	public static final int MAX_TRANSFERS = 10;
+
+	private static final int MAX_ROUNDS = MAX_TRANSFERS + 1;
+
+	private final TransitRouterConfig config;
+	private final RaptorData data;
+	private final int stopCount;
+
+	// labels by round and stop, at index round * stopCount + stop; the ready labels are valid if the stamp is
+	// the current query, the vehicle labels are only read when reached through valid ready labels
+	private final double[] readyTime; // the time at which one can board at the stop
+	private final int[] readyFrom; // the stop of the vehicle label the transfer started at, -1 for the access walk
+	private final double[] readyWalkDistance; // the distance walked from readyFrom, along several stops if needed
+	private final int[] readyStamp;
+	private final double[] vehicleArrival;
+	private final int[] vehicleBoard; // the route stop where the vehicle was boarded
+	private final int[] vehicleAlight; // the route stop where the vehicle is left
+	private final double[] vehicleTrip; // the departure time of the trip at the first stop of the route
+
+	// the best labels of the rounds up to round k, by round and stop as the labels, for pruning
+	private final double[] bestReady;
+	private final double[] bestVehicleArrival;
+	private final int[] bestStamp;
+
+	// the best arrival at the target, by round, and the best one of the rounds up to the round
+	private final double[] targetArrival = new double[MAX_ROUNDS + 1];
+	private final int[] targetStop = new int[MAX_ROUNDS + 1];
+	private final int[] targetRun = new int[MAX_ROUNDS + 1];
+	private final double[] bestTargetArrival = new double[MAX_ROUNDS + 1];
+
+	private final int[] accessStops;
+	private final double[] accessTimes;
+	private int accessCount;
+	private final double[] egressTimes;
+	private final int[] egressStamp;
+
+	// the stops with a new ready label in the last round, and with a new vehicle label in the current round
+	private final int[] markedStops;
+	private final int[] markStamp;
+	private int markedCount;
+	private final int[] improvedStops;
+	private final int[] improveStamp;
+	private int improvedCount;
+	private int roundStamp = 0;
+
+	// walking between stops in the transfer phase of a round
+	private final double[] walkTime;
+	private final double[] walkDistance;
+	private final int[] walkFrom;
+	private final int[] walkStamp;
+	private final IntBinaryMinHeap walkHeap;
+
+	private final int[] routesToScan;
+	private final int[] scanFrom;
+	private final int[] scanStamp;
+	private int routeCount;
+
+	private int stamp = 0;
+	private int run = 0;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, new RaptorData(schedule, config.getBeelineWalkConnectionDistance()));
+	}
+
+	RaptorTransitRouter(final TransitRouterConfig config, final RaptorData data) {
+		this.config = config;
+		this.data = data;
+		this.stopCount = data.stops.length;
+		int labelCount = (MAX_ROUNDS + 1) * this.stopCount;
+		this.readyTime = new double[labelCount];
+		this.readyFrom = new int[labelCount];
+		this.readyWalkDistance = new double[labelCount];
+		this.readyStamp = new int[labelCount];
+		this.vehicleArrival = new double[labelCount];
+		this.vehicleBoard = new int[labelCount];
+		this.vehicleAlight = new int[labelCount];
+		this.vehicleTrip = new double[labelCount];
+		this.bestReady = new double[labelCount];
+		this.bestVehicleArrival = new double[labelCount];
+		this.bestStamp = new int[labelCount];
+		this.accessStops = new int[this.stopCount];
+		this.accessTimes = new double[this.stopCount];
+		this.egressTimes = new double[this.stopCount];
+		this.egressStamp = new int[this.stopCount];
+		this.markedStops = new int[this.stopCount];
+		this.markStamp = new int[this.stopCount];
+		this.improvedStops = new int[this.stopCount];
+		this.improveStamp = new int[this.stopCount];
+		this.walkTime = new double[this.stopCount];
+		this.walkDistance = new double[this.stopCount];
+		this.walkFrom = new int[this.stopCount];
+		this.walkStamp = new int[this.stopCount];
+		this.walkHeap = new IntBinaryMinHeap(this.stopCount);
+		this.routesToScan = new int[data.routes.length];
+		this.scanFrom = new int[data.routes.length];
+		this.scanStamp = new int[data.routes.length];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		prepareQuery(fromCoord, toCoord);
+		route(departureTime);
+
+		int bestRound = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int k = 1; k <= MAX_ROUNDS; k++) {
+			if (this.targetRun[k] == this.run) {
+				double cost = calcJourneyCost(k, departureTime, fromCoord, toCoord);
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestRound = k;
+				}
+			}
+		}
+		double directWalkCost = getWalkDisutility(fromCoord, toCoord);
+		if (bestRound < 0 || directWalkCost * this.config.getDirectWalkFactor() < bestCost) {
+			return createDirectWalkLegList(fromCoord, toCoord);
+		}
+		return createLegs(bestRound, departureTime, fromCoord, toCoord, false);
+	}
+
+	/**
+	 * Calculates the routes for all departures between <code>earliestDepartureTime</code> and
+	 * <code>latestDepartureTime</code>: for every departure of a vehicle reachable from the start, the journeys with
+	 * the earliest arrival for each number of transfers are found, and those not dominated by another one departing
+	 * later, arriving earlier or using less transfers are returned. In contrast to
+	 * {@link #calcRoute(Facility, Facility, double, Person)}, the legs have their departure time set, the first one
+	 * being the latest possible departure for the journey.
+	 *
+	 * @return the journeys, sorted by departure time, each as a list of legs; an empty list if there is none.
+	 */
+	public List<List<Leg>> calcRoutes(final Facility<?> fromFacility, final Facility<?> toFacility, final double earliestDepartureTime,
+			final double latestDepartureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		prepareQuery(fromCoord, toCoord);
+
+		// the departures from the start which exactly catch a vehicle at one of the access stops
+		TreeSet<Double> departures = new TreeSet<>();
+		for (int i = 0; i < this.accessCount; i++) {
+			int s = this.accessStops[i];
+			for (int j = this.data.firstStopRoute[s]; j < this.data.firstStopRoute[s + 1]; j++) {
+				int rs = this.data.stopRouteStops[j];
+				int r = this.data.routeStopRoutes[rs];
+				if (rs + 1 == this.data.firstRouteStop[r + 1]) {
+					continue; // the last stop of the route, no boarding
+				}
+				double offset = this.data.departureOffsets[rs] - this.accessTimes[i];
+				for (int d = this.data.firstDeparture[r]; d < this.data.firstDeparture[r + 1]; d++) {
+					double departure = this.data.departures[d] + offset;
+					for (double day = Math.max(0.0, Math.floor((earliestDepartureTime - departure) / RaptorData.MIDNIGHT)); ; day++) {
+						double dayDeparture = departure + day * RaptorData.MIDNIGHT;
+						if (dayDeparture > latestDepartureTime) {
+							break;
+						}
+						if (dayDeparture >= earliestDepartureTime) {
+							departures.add(dayDeparture);
+						}
+					}
+				}
+			}
+		}
+
+		List<Journey> journeys = new ArrayList<>();
+		for (Double departure : departures.descendingSet()) {
+			route(departure);
+			for (int k = 1; k <= MAX_ROUNDS; k++) {
+				if (this.targetRun[k] == this.run) {
+					List<Leg> legs = createLegs(k, departure, fromCoord, toCoord, true);
+					journeys.add(new Journey(legs.get(0).getDepartureTime(), this.targetArrival[k], k, legs));
+				}
+			}
+		}
+
+		List<List<Leg>> result = new ArrayList<>();
+		journeys.sort((a, b) -> Double.compare(a.departure, b.departure));
+		for (int i = 0; i < journeys.size(); i++) {
+			Journey journey = journeys.get(i);
+			boolean dominated = false;
+			for (int j = 0; j < journeys.size() && !dominated; j++) {
+				Journey other = journeys.get(j);
+				if (j != i && other.departure >= journey.departure && other.arrival <= journey.arrival && other.rounds <= journey.rounds) {
+					boolean same = other.departure == journey.departure && other.arrival == journey.arrival && other.rounds == journey.rounds;
+					dominated = !same || j < i; // of identical ones, keep the first
+				}
+			}
+			if (!dominated) {
+				result.add(journey.legs);
+			}
+		}
+		return result;
+	}
+
+	private static final class Journey {
+		final double departure;
+		final double arrival;
+		final int rounds;
+		final List<Leg> legs;
+
+		Journey(final double departure, final double arrival, final int rounds, final List<Leg> legs) {
+			this.departure = departure;
+			this.arrival = arrival;
+			this.rounds = rounds;
+			this.legs = legs;
+		}
+	}
+
+	/**
+	 * Starts a new query: invalidates all labels and finds the access and egress stops.
+	 */
+	private void prepareQuery(final Coord fromCoord, final Coord toCoord) {
+		if (this.stamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.readyStamp, 0);
+			Arrays.fill(this.bestStamp, 0);
+			Arrays.fill(this.egressStamp, 0);
+			this.stamp = 0;
+		}
+		this.stamp++;
+		Arrays.fill(this.bestTargetArrival, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.targetArrival, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.targetStop, -1);
+
+		Collection<Integer> fromStops = this.data.getNearestStops(fromCoord, this.config.getSearchRadius(), this.config.getExtensionRadius());
+		this.accessCount = 0;
+		for (Integer s : fromStops) {
+			this.accessStops[this.accessCount] = s;
+			this.accessTimes[this.accessCount] = getWalkTime(fromCoord, this.data.stops[s].getCoord());
+			this.accessCount++;
+		}
+		Collection<Integer> toStops = this.data.getNearestStops(toCoord, this.config.getSearchRadius(), this.config.getExtensionRadius());
+		for (Integer s : toStops) {
+			this.egressStamp[s] = this.stamp;
+			this.egressTimes[s] = getWalkTime(this.data.stops[s].getCoord(), toCoord);
+		}
+	}
+
+	/**
+	 * One RAPTOR run for the given departure time, improving the labels of the current query.
+	 */
+	private void route(final double departureTime) {
+		if (this.run == Integer.MAX_VALUE) {
+			Arrays.fill(this.targetRun, 0);
+			this.run = 0;
+		}
+		this.run++;
+
+		nextRound();
+		for (int i = 0; i < this.accessCount; i++) {
+			int s = this.accessStops[i];
+			double time = departureTime + this.accessTimes[i];
+			if (time < getBestReady(0, s)) {
+				setReady(0, s, time, -1, 0.0);
+				mark(s);
+			}
+		}
+		for (int k = 1; k <= MAX_ROUNDS && this.markedCount > 0; k++) {
+			collectRoutes();
+			nextRound();
+			scanRoutes(k);
+			for (int i = 0; i < this.improvedCount; i++) {
+				int s = this.improvedStops[i];
+				if (this.egressStamp[s] == this.stamp) {
+					double arrival = this.vehicleArrival[k * this.stopCount + s] + this.egressTimes[s];
+					if (arrival < this.bestTargetArrival[k]) {
+						this.targetArrival[k] = arrival;
+						this.targetStop[k] = s;
+						this.targetRun[k] = this.run;
+						for (int j = k; j <= MAX_ROUNDS && arrival < this.bestTargetArrival[j]; j++) {
+							this.bestTargetArrival[j] = arrival;
+						}
+					}
+				}
+			}
+			transfer(k);
+		}
+	}
+
+	private void nextRound() {
+		if (this.roundStamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.markStamp, 0);
+			Arrays.fill(this.improveStamp, 0);
+			Arrays.fill(this.scanStamp, 0);
+			Arrays.fill(this.walkStamp, 0);
+			this.roundStamp = 0;
+		}
+		this.roundStamp++;
+		this.markedCount = 0;
+		this.improvedCount = 0;
+	}
+
+	/**
+	 * Collects the routes serving the marked stops, each with the first marked stop along it.
+	 */
+	private void collectRoutes() {
+		this.routeCount = 0;
+		for (int i = 0; i < this.markedCount; i++) {
+			int s = this.markedStops[i];
+			for (int j = this.data.firstStopRoute[s]; j < this.data.firstStopRoute[s + 1]; j++) {
+				int rs = this.data.stopRouteStops[j];
+				int r = this.data.routeStopRoutes[rs];
+				if (rs + 1 == this.data.firstRouteStop[r + 1]) {
+					continue;
+				}
+				if (this.scanStamp[r] != this.roundStamp) {
+					this.scanStamp[r] = this.roundStamp;
+					this.scanFrom[r] = rs;
+					this.routesToScan[this.routeCount++] = r;
+				} else if (rs < this.scanFrom[r]) {
+					this.scanFrom[r] = rs;
+				}
+			}
+		}
+	}
+
+	private void scanRoutes(final int k) {
+		int prevOffset = (k - 1) * this.stopCount;
+		for (int i = 0; i < this.routeCount; i++) {
+			int r = this.routesToScan[i];
+			int end = this.data.firstRouteStop[r + 1];
+			int board = -1;
+			double trip = 0.0;
+			for (int rs = this.scanFrom[r]; rs < end; rs++) {
+				int s = this.data.routeStops[rs];
+				if (board >= 0) {
+					double arrival = trip + this.data.arrivalOffsets[rs];
+					if (arrival < getBestVehicleArrival(k, s) && arrival < this.bestTargetArrival[k]) {
+						setVehicle(k, s, arrival, board, rs, trip);
+						improve(s);
+					}
+				}
+				if (rs + 1 < end && this.readyStamp[prevOffset + s] == this.stamp) {
+					double ready = this.readyTime[prevOffset + s];
+					if (board < 0 || ready <= trip + this.data.departureOffsets[rs]) {
+						// an earlier trip might be caught here
+						double departure = this.data.getNextTripDeparture(r, rs, ready);
+						if (board < 0 || departure < trip) {
+							trip = departure;
+							board = rs;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the transfers from the stops reached by vehicle in round <code>k</code>, to the same stop or by walking
+	 * to other stops, and marks the stops for the next round. Like the transfer links in the
+	 * {@link TransitRouterNetwork}, walks can go along several stops; they are only continued from stops where
+	 * they improve the labels. The ready labels keep the distance walked along all these stops.
+	 */
+	private void transfer(final int k) {
+		double additionalTransferTime = this.config.getAdditionalTransferTime();
+		double walkSpeed = this.config.getBeelineWalkSpeed();
+		this.walkHeap.clear();
+		for (int i = 0; i < this.improvedCount; i++) {
+			int s = this.improvedStops[i];
+			double arrival = this.vehicleArrival[k * this.stopCount + s];
+			double time = arrival + additionalTransferTime;
+			if (time < getBestReady(k, s) && time < this.bestTargetArrival[k]) {
+				setReady(k, s, time, s, 0.0);
+				mark(s);
+			}
+			this.walkStamp[s] = this.roundStamp;
+			this.walkTime[s] = arrival;
+			this.walkDistance[s] = 0.0;
+			this.walkFrom[s] = s;
+			this.walkHeap.insertOrDecrease(s, arrival);
+		}
+		while (!this.walkHeap.isEmpty()) {
+			int s = this.walkHeap.poll();
+			double arrival = this.walkTime[s];
+			if (this.walkFrom[s] != s) {
+				double time = arrival + additionalTransferTime;
+				if (time >= getBestReady(k, s) || time >= this.bestTargetArrival[k]) {
+					continue;
+				}
+				setReady(k, s, time, this.walkFrom[s], this.walkDistance[s]);
+				mark(s);
+			}
+			for (int j = this.data.firstTransfer[s]; j < this.data.firstTransfer[s + 1]; j++) {
+				int t = this.data.transferStops[j];
+				double time = arrival + this.data.transferDistances[j] / walkSpeed;
+				if (this.walkStamp[t] != this.roundStamp || time < this.walkTime[t]) {
+					this.walkStamp[t] = this.roundStamp;
+					this.walkTime[t] = time;
+					this.walkDistance[t] = this.walkDistance[s] + this.data.transferDistances[j];
+					this.walkFrom[t] = this.walkFrom[s];
+					this.walkHeap.insertOrDecrease(t, time);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the earliest time one can board at the stop with at most <code>k</code> vehicles, in any run of the
+	 * current query.
+	 */
+	private double getBestReady(final int k, final int stop) {
+		int i = k * this.stopCount + stop;
+		return this.bestStamp[i] == this.stamp ? this.bestReady[i] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the earliest arrival at the stop with at most <code>k</code> vehicles, in any run of the current query.
+	 */
+	private double getBestVehicleArrival(final int k, final int stop) {
+		int i = k * this.stopCount + stop;
+		return this.bestStamp[i] == this.stamp ? this.bestVehicleArrival[i] : Double.POSITIVE_INFINITY;
+	}
+
+	private void touchBest(final int i) {
+		if (this.bestStamp[i] != this.stamp) {
+			this.bestStamp[i] = this.stamp;
+			this.bestReady[i] = Double.POSITIVE_INFINITY;
+			this.bestVehicleArrival[i] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private void setReady(final int k, final int stop, final double time, final int from, final double walkDistance) {
+		int i = k * this.stopCount + stop;
+		this.readyStamp[i] = this.stamp;
+		this.readyTime[i] = time;
+		this.readyFrom[i] = from;
+		this.readyWalkDistance[i] = walkDistance;
+		// the label is also the best one for the later rounds, until one of them has a better one
+		for (int j = k; j <= MAX_ROUNDS; j++, i += this.stopCount) {
+			touchBest(i);
+			if (time >= this.bestReady[i]) {
+				break;
+			}
+			this.bestReady[i] = time;
+		}
+	}
+
+	private void setVehicle(final int k, final int stop, final double arrival, final int board, final int alight, final double trip) {
+		int i = k * this.stopCount + stop;
+		this.vehicleArrival[i] = arrival;
+		this.vehicleBoard[i] = board;
+		this.vehicleAlight[i] = alight;
+		this.vehicleTrip[i] = trip;
+		for (int j = k; j <= MAX_ROUNDS; j++, i += this.stopCount) {
+			touchBest(i);
+			if (arrival >= this.bestVehicleArrival[i]) {
+				break;
+			}
+			this.bestVehicleArrival[i] = arrival;
+		}
+	}
+
+	private void mark(final int stop) {
+		if (this.markStamp[stop] != this.roundStamp) {
+			this.markStamp[stop] = this.roundStamp;
+			this.markedStops[this.markedCount++] = stop;
+		}
+	}
+
+	private void improve(final int stop) {
+		if (this.improveStamp[stop] != this.roundStamp) {
+			this.improveStamp[stop] = this.roundStamp;
+			this.improvedStops[this.improvedCount++] = stop;
+		}
+	}
+
+	/**
+	 * @return the vehicle labels of the journey reaching the target in round <code>k</code>, in travel order,
+	 * as indices into the label arrays.
+	 */
+	private int[] getJourneyLabels(final int k) {
+		int[] labels = new int[k];
+		int s = this.targetStop[k];
+		for (int round = k; round > 0; round--) {
+			int label = round * this.stopCount + s;
+			labels[round - 1] = label;
+			int boardStop = this.data.routeStops[this.vehicleBoard[label]];
+			s = this.readyFrom[(round - 1) * this.stopCount + boardStop];
+		}
+		return labels;
+	}
+
+	/**
+	 * The generalized cost of the journey, as {@link TransitRouterNetworkTravelTimeAndDisutility} would calculate it.
+	 */
+	private double calcJourneyCost(final int k, final double departureTime, final Coord fromCoord, final Coord toCoord) {
+		int[] labels = getJourneyLabels(k);
+		TransitStopFacility firstStop = this.data.stops[this.data.routeStops[this.vehicleBoard[labels[0]]]];
+		double cost = getWalkDisutility(fromCoord, firstStop.getCoord());
+		double time = departureTime + getWalkTime(fromCoord, firstStop.getCoord());
+		for (int i = 0; i < labels.length; i++) {
+			int label = labels[i];
+			int board = this.vehicleBoard[label];
+			int alight = this.vehicleAlight[label];
+			if (i > 0) {
+				// the ready label the vehicle was boarded from, with the distance walked to it along the stops
+				double distance = this.readyWalkDistance[i * this.stopCount + this.data.routeStops[board]];
+				double walkTime = distance / this.config.getBeelineWalkSpeed();
+				cost += - walkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- distance * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+						- this.config.getAdditionalTransferTime() * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+				time += walkTime + this.config.getAdditionalTransferTime();
+			}
+			double trip = this.vehicleTrip[label];
+			double vehicleAtStop = trip + this.data.arrivalOffsets[board];
+			double arrival = trip + this.data.arrivalOffsets[alight];
+			double waitTime = Math.max(0.0, vehicleAtStop - time);
+			double inVehicleTime = arrival - time - waitTime;
+			cost += - inVehicleTime * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- (this.data.distances[alight] - this.data.distances[board]) * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			time = arrival;
+		}
+		TransitStopFacility lastStop = this.data.stops[this.data.routeStops[this.vehicleAlight[labels[labels.length - 1]]]];
+		cost += getWalkDisutility(lastStop.getCoord(), toCoord);
+		return cost;
+	}
+
+	/**
+	 * Creates the legs in the same way as {@link AbstractTransitRouter#convertPathToLegList}.
+	 *
+	 * @param latestDeparture if true, the journey starts as late as possible to catch its first vehicle, and the
+	 * departure times of the legs are set.
+	 */
+	private List<Leg> createLegs(final int k, final double departureTime, final Coord fromCoord, final Coord toCoord, final boolean latestDeparture) {
+		int[] labels = getJourneyLabels(k);
+		double beelineDistanceFactor = this.config.getBeelineDistanceFactor();
+		List<Leg> legs = new ArrayList<>();
+
+		TransitStopFacility accessStop = this.data.stops[this.data.routeStops[this.vehicleBoard[labels[0]]]];
+		double walkTime = getWalkTime(fromCoord, accessStop.getCoord());
+		double time = departureTime;
+		if (latestDeparture) {
+			time = this.vehicleTrip[labels[0]] + this.data.departureOffsets[this.vehicleBoard[labels[0]]] - walkTime;
+		}
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(null, accessStop.getLinkId());
+		walkRoute.setTravelTime(walkTime);
+		walkRoute.setDistance(beelineDistanceFactor * CoordUtils.calcEuclideanDistance(fromCoord, accessStop.getCoord()));
+		leg.setRoute(walkRoute);
+		leg.setTravelTime(walkTime);
+		time = addLeg(legs, leg, time, latestDeparture);
+
+		for (int i = 0; i < labels.length; i++) {
+			int label = labels[i];
+			int board = this.vehicleBoard[label];
+			int alight = this.vehicleAlight[label];
+			TransitStopFacility boardStop = this.data.stops[this.data.routeStops[board]];
+			if (boardStop != accessStop) {
+				// a transfer by walking to another stop, possibly along other stops
+				double walkDistance = this.readyWalkDistance[i * this.stopCount + this.data.routeStops[board]];
+				double transferTime = walkDistance / this.config.getBeelineWalkSpeed() + this.config.getAdditionalTransferTime();
+				leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				walkRoute = RouteUtils.createGenericRouteImpl(accessStop.getLinkId(), boardStop.getLinkId());
+				walkRoute.setTravelTime(transferTime);
+				walkRoute.setDistance(beelineDistanceFactor * walkDistance);
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(transferTime);
+				time = addLeg(legs, leg, time, latestDeparture);
+			}
+			int r = this.data.routeStopRoutes[board];
+			TransitStopFacility egressStop = this.data.stops[this.data.routeStops[alight]];
+			double arrival = this.vehicleTrip[label] + this.data.arrivalOffsets[alight];
+			leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(boardStop, this.data.routeLines[r], this.data.routes[r], egressStop);
+			ptRoute.setTravelTime(arrival - time);
+			ptRoute.setDistance(beelineDistanceFactor * CoordUtils.calcEuclideanDistance(boardStop.getCoord(), egressStop.getCoord()));
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrival - time);
+			time = addLeg(legs, leg, time, latestDeparture);
+			accessStop = egressStop;
+		}
+
+		leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setTravelTime(getWalkTime(accessStop.getCoord(), toCoord));
+		addLeg(legs, leg, time, latestDeparture);
+		return legs;
+	}
+
+	private static double addLeg(final List<Leg> legs, final Leg leg, final double time, final boolean setDepartureTime) {
+		if (setDepartureTime) {
+			leg.setDepartureTime(time);
+		}
+		legs.add(leg);
+		return time + leg.getTravelTime();
+	}
+
+	private List<Leg> createDirectWalkLegList(final Coord fromCoord, final Coord toCoord) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = getWalkTime(fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private double getWalkTime(final Coord coord, final Coord toCoord) {
+		return CoordUtils.calcEuclideanDistance(coord, toCoord) / this.config.getBeelineWalkSpeed();
+	}
+
+	private double getWalkDisutility(final Coord coord, final Coord toCoord) {
+		double distance = CoordUtils.calcEuclideanDistance(coord, toCoord);
+		return - distance / this.config.getBeelineWalkSpeed() * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- distance * this.config.getBeelineDistanceFactor() * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m();
+	}
+
+}
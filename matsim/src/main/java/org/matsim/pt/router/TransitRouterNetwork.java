@@ -34,6 +34,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.HasIndex;
 import org.matsim.core.utils.collections.IdentifiableArrayMap;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.collections.Tuple;
@@ -66,12 +67,13 @@ public final class TransitRouterNetwork implements Network {
 	private long nextLinkId = 0;
 
 
-	public static final class TransitRouterNetworkNode implements Node {
+	public static final class TransitRouterNetworkNode implements Node, HasIndex {
 
 		public final TransitRouteStop stop;
 		public final TransitRoute route;
 		public final TransitLine line;
 		final Id<Node> id;
+		int index = -1; // the position in the network's nodes
 		final Map<Id<Link>, TransitRouterNetworkLink> ingoingLinks = new IdentifiableArrayMap<Link, TransitRouterNetworkLink>();
 		final Map<Id<Link>, TransitRouterNetworkLink> outgoingLinks = new IdentifiableArrayMap<Link, TransitRouterNetworkLink>();
 
@@ -116,6 +118,11 @@ public final class TransitRouterNetwork implements Network {
 			return stop;
 		}
 
+		@Override
+		public int getArrayIndex() {
+			return this.index;
+		}
+
 		public TransitRoute getRoute() {
 			return route;
 		}
@@ -308,6 +315,7 @@ public final class TransitRouterNetwork implements Network {
 
 	public TransitRouterNetworkNode createNode(final TransitRouteStop stop, final TransitRoute route, final TransitLine line) {
 		final TransitRouterNetworkNode node = new TransitRouterNetworkNode(Id.create(this.nextNodeId++, Node.class), stop, route, line);
+		node.index = this.nodes.size();
 		this.nodes.put(node.getId(), node);
 		return node;
 	}
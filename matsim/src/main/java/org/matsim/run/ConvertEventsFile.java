@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConvertEventsFile.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Locale;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+
+/**
+ * Converts events files between the xml format and the binary format of {@link EventWriterBinary}.  The format of
+ * both files is recognized by the file ending.
+ */
+public class ConvertEventsFile {
+
+	public static void convert(final String inputFile, final String outputFile) {
+		EventWriter writer;
+		if (outputFile.toLowerCase(Locale.ROOT).endsWith(EventWriterBinary.FILE_ENDING)) {
+			writer = new EventWriterBinary(outputFile);
+		} else {
+			writer = new EventWriterXML(outputFile);
+		}
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		try {
+			new MatsimEventsReader(events).readFile(inputFile);
+		} finally {
+			writer.closeFile();
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println();
+		System.out.println("ConvertEventsFile");
+		System.out.println("Converts an events file to xml or to the binary events format.");
+		System.out.println();
+		System.out.println("usage: ConvertEventsFile inputfile outputfile");
+		System.out.println("       The output is written in the binary format if outputfile ends with " + EventWriterBinary.FILE_ENDING + ",");
+		System.out.println("       otherwise as xml.");
+		System.out.println();
+	}
+
+	public static void main(final String[] args) {
+		if (args.length != 2) {
+			printUsage();
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
@@ -47,6 +47,9 @@ import java.util.PriorityQueue;
 /**
  * Calculates a least-cost-path tree using Dijkstra's algorithm  for calculating a shortest-path
  * tree, given a node as root of the tree.
+ * <br>
+ * For many trees or bounded searches, {@link org.matsim.core.router.GraphLeastCostPathTree} and
+ * {@link org.matsim.core.router.LeastCostPathTreeBatch} are much faster.
  *
  * 
  * @author balmermi, mrieser
@@ -3,6 +3,7 @@ package org.matsim.utils.objectattributes.attributable;
 import org.matsim.utils.objectattributes.AttributeConverter;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * @author thibautd
@@ -25,4 +26,20 @@ public class AttributesUtils {
 	public static <T extends Attributable> void copyAttributesFromTo( T from , T to ) {
 		copyTo( from.getAttributes() , to.getAttributes() );
 	}
+
+	/**
+	 * Passes all mappings, sorted by name, to the action, e.g. to write them in a format of its own.
+	 */
+	public static void forEach( Attributes attributes , BiConsumer<String, Object> action ) {
+		for ( int i=0; i < attributes.keys.length; i++ ) {
+			action.accept( attributes.keys[ i ] , attributes.values[ i ] );
+		}
+	}
+
+	/**
+	 * @return true if there are no attributes, allowing to skip storing or copying them
+	 */
+	public static boolean isEmpty( Attributes attributes ) {
+		return attributes.size() == 0;
+	}
 }
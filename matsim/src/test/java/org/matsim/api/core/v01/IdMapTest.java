@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Id<TMap> id1 = Id.create("1", TMap.class);
+		Id<TMap> id2 = Id.create("2", TMap.class);
+		IdMap<TMap, String> map = new IdMap<>(TMap.class, 1);
+		Assert.assertTrue(map.isEmpty());
+
+		Assert.assertNull(map.put(id2, "two"));
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertEquals("one", map.put(id1, "One"));
+		Assert.assertNull(map.put(Id.create("3", TMap.class), null));
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals("One", map.get(id1));
+		Assert.assertEquals("two", map.get(id2));
+		Assert.assertNull(map.get(Id.create("3", TMap.class)));
+		Assert.assertTrue(map.containsKey(Id.create("3", TMap.class)));
+		Assert.assertFalse(map.containsKey(Id.create("4", TMap.class)));
+		Assert.assertNull(map.get("1"));
+
+		Assert.assertEquals("two", map.remove(id2));
+		Assert.assertNull(map.remove(id2));
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertFalse(map.containsValue("two"));
+		Assert.assertTrue(map.containsValue("One"));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id1));
+	}
+
+	@Test
+	public void testKeysOfOtherType() {
+		Id<TMap> id = Id.create("other1", TMap.class);
+		IdMap<TMap, String> map = new IdMap<>(TMap.class);
+		map.put(id, "value");
+
+		// same behavior as a HashMap, as ids of different types are equal if their strings are
+		Assert.assertEquals("value", map.get(Id.create("other1", TOther.class)));
+		Assert.assertNull(map.get(Id.create("other2", TOther.class)));
+		Assert.assertNull("a lookup must not create ids", Id.get("other2", TMap.class));
+		Assert.assertEquals("value", map.remove(Id.create("other1", TOther.class)));
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testIterationAndEquality() {
+		List<Id<TMap>> ids = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ids.add(Id.create("it" + i, TMap.class));
+		}
+		IdMap<TMap, Integer> map = new IdMap<>(TMap.class);
+		Map<Id<TMap>, Integer> hashMap = new HashMap<>();
+		for (int i = 9; i >= 0; i -= 2) {
+			map.put(ids.get(i), i);
+			hashMap.put(ids.get(i), i);
+		}
+		Assert.assertEquals(hashMap, map);
+		Assert.assertEquals(map, hashMap);
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+
+		// iteration is in the order of the ids' creation
+		Assert.assertEquals(Arrays.asList(ids.get(1), ids.get(3), ids.get(5), ids.get(7), ids.get(9)), new ArrayList<>(map.keySet()));
+		Assert.assertEquals(Arrays.asList(1, 3, 5, 7, 9), new ArrayList<>(map.values()));
+
+		Iterator<Map.Entry<Id<TMap>, Integer>> iter = map.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<Id<TMap>, Integer> e = iter.next();
+			if (e.getValue() == 3) {
+				iter.remove();
+			} else {
+				e.setValue(e.getValue() * 10);
+			}
+		}
+		Assert.assertEquals(4, map.size());
+		Assert.assertEquals(Arrays.asList(10, 50, 70, 90), new ArrayList<>(map.values()));
+
+		try {
+			for (Id<TMap> id : map.keySet()) {
+				map.remove(id);
+			}
+			Assert.fail("expected exception, got none");
+		} catch (ConcurrentModificationException e) {
+			// expected exception
+		}
+	}
+
+	@Test
+	public void testIdSet() {
+		Id<TMap> id1 = Id.create("set1", TMap.class);
+		Id<TMap> id2 = Id.create("set2", TMap.class);
+		IdSet<TMap> set = new IdSet<>(TMap.class);
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertTrue(set.contains(Id.create("set1", TOther.class)));
+		Assert.assertFalse(set.contains(Id.create("set3", TMap.class)));
+		Assert.assertEquals(Arrays.asList(id1, id2), new ArrayList<>(set));
+
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+		Iterator<Id<TMap>> iter = set.iterator();
+		Assert.assertEquals(id2, iter.next());
+		iter.remove();
+		Assert.assertFalse(iter.hasNext());
+		Assert.assertTrue(set.isEmpty());
+	}
+
+	private static class TMap {}
+	private static class TOther {}
+
+}
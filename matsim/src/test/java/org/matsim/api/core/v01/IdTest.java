@@ -67,7 +67,59 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		int before = Id.getNumberOfIds(TIndexed.class);
+		Id<TIndexed> id1 = Id.create("a", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("b", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("a", TIndexed.class);
+		
+		Assert.assertEquals(before, id1.index());
+		Assert.assertEquals(before + 1, id2.index());
+		Assert.assertEquals(id1.index(), id1again.index());
+		Assert.assertEquals(before + 2, Id.getNumberOfIds(TIndexed.class));
+		Assert.assertSame(id2, Id.get(id2.index(), TIndexed.class));
+		Assert.assertSame(id1, Id.get("a", TIndexed.class));
+		Assert.assertNull(Id.get("c", TIndexed.class));
+		Assert.assertEquals(before + 2, Id.getNumberOfIds(TIndexed.class));
+		
+		try {
+			Id.get(before + 2, TIndexed.class);
+			Assert.fail("expected exception, got none");
+		} catch (IndexOutOfBoundsException e) {
+			// expected exception
+		}
+	}
+	
+	@Test
+	public void testIndex_concurrentCreation() throws InterruptedException {
+		final int nOfIds = 10000;
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < nOfIds; i++) {
+						Id.create(i, TConcurrent.class);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(nOfIds, Id.getNumberOfIds(TConcurrent.class));
+		for (int i = 0; i < nOfIds; i++) {
+			Id<TConcurrent> id = Id.get(i, TConcurrent.class);
+			Assert.assertEquals(i, id.index());
+			Assert.assertSame(id, Id.create(id.toString(), TConcurrent.class));
+		}
+	}
+	
 	private static class TLink {}
 	private static class TNode {}
+	private static class TIndexed {}
+	private static class TConcurrent {}
 	
 }
@@ -63,6 +63,61 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_RemovedHandlerIsNotCalled() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingMyEventHandler handler2 = new CountingMyEventHandler();
+		manager.addHandler(handler1);
+		manager.addHandler(handler2);
+		manager.processEvent(new MyEvent(123.45));
+		manager.removeHandler(handler1);
+		manager.processEvent(new MyEvent(123.46));
+		Assert.assertEquals(1, handler1.counter);
+		Assert.assertEquals(2, handler2.counter);
+	}
+
+	@Test
+	public void testProcessEvent_HandlerForEventInterface() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		manager.addHandler(handler);
+		final int[] counter = new int[1];
+		manager.addHandler(new MarkedEventHandler() {
+			@Override
+			public void reset(final int iteration) {
+			}
+			@Override
+			public void handleEvent(final Marked e) {
+				counter[0]++;
+			}
+		});
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MyMarkedEvent(123.46));
+		Assert.assertEquals(2, handler.counter);
+		Assert.assertEquals(1, counter[0]);
+	}
+
+	@Test
+	public void testDispatchers() {
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		EventDispatchers.EventDispatcher dispatcher = null;
+		for (java.lang.reflect.Method method : MyEventHandler.class.getMethods()) {
+			if (method.getName().equals("handleEvent")) {
+				dispatcher = EventDispatchers.create(handler, method);
+			}
+		}
+		Assert.assertNotNull(dispatcher);
+		Assert.assertNotEquals("dispatcher should be generated, not reflective", "ReflectiveDispatcher", dispatcher.getClass().getSimpleName());
+		try {
+			dispatcher.dispatch(new MyEvent(1.0));
+			dispatcher.dispatch(new MyMarkedEvent(2.0));
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		Assert.assertEquals(2, handler.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -73,6 +128,19 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static interface Marked {
+	}
+
+	/*package*/ static class MyMarkedEvent extends MyEvent implements Marked {
+		public MyMarkedEvent(final double time) {
+			super(time);
+		}
+	}
+
+	/*package*/ static interface MarkedEventHandler extends EventHandler {
+		public void handleEvent(final Marked e);
+	}
+
 	/*package*/ static interface MyEventHandler extends EventHandler {
 		public void handleEvent(final MyEvent e);
 	}
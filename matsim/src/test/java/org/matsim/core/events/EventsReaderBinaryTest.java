@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventsReaderBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int t = 0; t < 24 * 3600; t += 60) {
+			events.add(new LinkEnterEvent(t, Id.createVehicleId(t % 7), Id.createLinkId(t % 13)));
+		}
+		// events at the end of the iteration may have earlier times
+		events.add(new PersonMoneyEvent(7000.0, Id.createPersonId("late"), 1.5));
+		return events;
+	}
+
+	private String writeBinary(List<Event> events) throws IOException {
+		String filename = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		EventWriterBinary writer = new EventWriterBinary(new FileOutputStream(filename), 50);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		return filename;
+	}
+
+	/**
+	 * Other binary files, e.g. binary scenario files, are not taken for events.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherBinaryFilesAreNotEvents() {
+		new MatsimEventsReader(EventsUtils.createEventsManager()).readFile(this.utils.getOutputDirectory() + "output.scenario.bin");
+	}
+
+	@Test
+	public void testTimeWindow() throws IOException {
+		List<Event> events = createEvents();
+		String filename = writeBinary(events);
+
+		List<String> expected = new ArrayList<>();
+		for (Event event : events) {
+			if (event.getTime() >= 3600.0 && event.getTime() < 7200.0) {
+				expected.add(event.getAttributes().toString());
+			}
+		}
+		Assert.assertEquals(61, expected.size());
+
+		EventsCollector collector = new EventsCollector();
+		EventsUtils.readEvents(filename, 3600.0, 7200.0, collector);
+		Assert.assertEquals(expected, toStrings(collector.getEvents()));
+
+		// the same from xml
+		String xmlFilename = this.utils.getOutputDirectory() + "events.xml";
+		EventWriterXML xmlWriter = new EventWriterXML(xmlFilename);
+		for (Event event : events) {
+			xmlWriter.handleEvent(event);
+		}
+		xmlWriter.closeFile();
+		collector = new EventsCollector();
+		EventsUtils.readEvents(xmlFilename, 3600.0, 7200.0, collector);
+		Assert.assertEquals(expected, toStrings(collector.getEvents()));
+	}
+
+	@Test
+	public void testIdFilter() throws IOException {
+		List<Event> events = createEvents();
+		String filename = writeBinary(events);
+
+		List<String> expected = new ArrayList<>();
+		for (Event event : events) {
+			if (event.getAttributes().containsValue("late") || (event.getTime() >= 36000.0 && event.getAttributes().containsValue("5"))) {
+				expected.add(event.getAttributes().toString());
+			}
+		}
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		EventsReaderBinary reader = new EventsReaderBinary(manager);
+		reader.setIdFilter(Collections.singleton("late"));
+		reader.readFile(filename);
+		Assert.assertEquals(1, collector.getEvents().size());
+		Assert.assertEquals(PersonMoneyEvent.class, collector.getEvents().get(0).getClass());
+
+		collector.reset(0);
+		reader.setIdFilter(new HashSet<>(Arrays.asList("late", "5")));
+		reader.setTimeWindow(36000.0, Double.POSITIVE_INFINITY);
+		reader.readFile(filename);
+		List<String> actual = toStrings(collector.getEvents());
+		// the late event is outside of the time window
+		expected.remove(expected.size() - 1);
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * Ids that are not stored in the dictionary, i.e. long ids and ids that look like doubles, must be found as well.
+	 */
+	@Test
+	public void testIdFilter_valuesOutsideOfDictionary() throws IOException {
+		StringBuilder longId = new StringBuilder("veh");
+		while (longId.length() <= 100) {
+			longId.append("_long");
+		}
+		List<Event> events = createEvents();
+		events.add(new LinkEnterEvent(50000.0, Id.createVehicleId(longId.toString()), Id.createLinkId("2.5")));
+		events.add(new LinkEnterEvent(80000.0, Id.createVehicleId(1), Id.createLinkId("2.5")));
+		String filename = writeBinary(events);
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		EventsReaderBinary reader = new EventsReaderBinary(manager);
+		reader.setIdFilter(Collections.singleton(longId.toString()));
+		reader.readFile(filename);
+		Assert.assertEquals(Collections.singletonList(events.get(events.size() - 2).getAttributes().toString()), toStrings(collector.getEvents()));
+
+		collector.reset(0);
+		reader.setIdFilter(Collections.singleton("2.5"));
+		reader.readFile(filename);
+		Assert.assertEquals(toStrings(events.subList(events.size() - 2, events.size())), toStrings(collector.getEvents()));
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		List<String> result = new ArrayList<>();
+		for (Event event : events) {
+			result.add(event.getAttributes().toString());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderXMLPipelinedTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+public class EventsReaderXMLPipelinedTest {
+
+	private static final String EVENTS_FILE = "test/input/org/matsim/examples/EquilTest/testEquil/events.xml.gz";
+
+	@Test
+	public void testSameEventsInSameOrderAndThread() {
+		List<String> expected = readEvents(1);
+		Assert.assertTrue(expected.size() > 1000);
+		Assert.assertEquals(expected, readEvents(3));
+		Assert.assertEquals(expected, readEvents(6));
+	}
+
+	private static List<String> readEvents(int numberOfThreads) {
+		final List<String> result = new ArrayList<>();
+		final Thread caller = Thread.currentThread();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				Assert.assertSame("handlers must be called from the calling thread", caller, Thread.currentThread());
+				result.add(event.getClass().getSimpleName() + event.getAttributes());
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		MatsimEventsReader reader = new MatsimEventsReader(events);
+		reader.setNumberOfThreads(numberOfThreads);
+		reader.readFile(EVENTS_FILE);
+		return result;
+	}
+
+	@Test
+	public void testExceptionInHandler() {
+		EventsManager events = EventsUtils.createEventsManager();
+		final int[] count = new int[1];
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				count[0]++;
+				if (count[0] == 100) {
+					throw new IllegalStateException("stop here");
+				}
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		try {
+			new EventsReaderXMLPipelined(events, 2).readFile(EVENTS_FILE);
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		Assert.assertEquals(100, count[0]);
+	}
+
+	@Test
+	public void testCustomEventMapperAndMalformedXml() {
+		String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n"
+				+ "\t<event time=\"10.0\" type=\"custom\" value=\"1\"  />\n"
+				+ "\t<event time=\"11.0\" type=\"custom\" value=\"2\"  />\n"
+				+ "\t<event time=\"12.0\" type=\"custom\" value=\"3\"  \n";
+		EventsManager events = EventsUtils.createEventsManager();
+		final List<Event> collected = new ArrayList<>();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				collected.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		EventsReaderXMLPipelined reader = new EventsReaderXMLPipelined(events, 1);
+		reader.addCustomEventMapper("custom", new EventsReaderXMLv1.CustomEventMapper<Event>() {
+			@Override
+			public Event apply(GenericEvent event) {
+				event.getAttributes().put("mapped", "yes");
+				return event;
+			}
+		});
+		try {
+			reader.readStream(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			// expected, the last tag is not closed
+		}
+		// the complete events before the error may or may not have been passed on, but not the incomplete one
+		Assert.assertTrue(collected.size() <= 2);
+		for (Event event : collected) {
+			Assert.assertEquals("yes", event.getAttributes().get("mapped"));
+		}
+	}
+
+}
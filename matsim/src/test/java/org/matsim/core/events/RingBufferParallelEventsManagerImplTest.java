@@ -0,0 +1,116 @@
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferParallelEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(8, 16, true);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testManyProducingThreads() throws InterruptedException {
+		final int numberOfProducers = 4;
+		final int eventsPerProducerAndStep = 1000;
+		final int numberOfSteps = 10;
+		// small buffers, so that they are wrapped around many times
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(3, 64, true);
+		EventsCollector[] collectors = new EventsCollector[5];
+		for (int i = 0; i < collectors.length; i++) {
+			collectors[i] = new EventsCollector();
+			events.addHandler(collectors[i]);
+		}
+		events.initProcessing();
+		for (int step = 0; step < numberOfSteps; step++) {
+			final double time = step;
+			List<Thread> producers = new ArrayList<>();
+			for (int p = 0; p < numberOfProducers; p++) {
+				final Id<org.matsim.vehicles.Vehicle> vehicleId = Id.createVehicleId(p);
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < eventsPerProducerAndStep; i++) {
+							events.processEvent(new LinkEnterEvent(time, vehicleId, Id.createLinkId(i)));
+						}
+					}
+				});
+				producers.add(thread);
+				thread.start();
+			}
+			for (Thread thread : producers) {
+				thread.join();
+			}
+			events.afterSimStep(time);
+			for (EventsCollector collector : collectors) {
+				assertEquals("all events of the time step should be processed", (step + 1) * numberOfProducers * eventsPerProducerAndStep,
+						collector.getEvents().size());
+			}
+		}
+		events.finishProcessing();
+
+		for (EventsCollector collector : collectors) {
+			// the events of every producer arrive in the order in which they were created
+			int[] nextLinkPerProducer = new int[numberOfProducers];
+			double[] lastTimePerProducer = new double[numberOfProducers];
+			for (org.matsim.api.core.v01.events.Event event : collector.getEvents()) {
+				LinkEnterEvent linkEnterEvent = (LinkEnterEvent) event;
+				int p = Integer.parseInt(linkEnterEvent.getVehicleId().toString());
+				if (linkEnterEvent.getTime() > lastTimePerProducer[p]) {
+					assertEquals(eventsPerProducerAndStep, nextLinkPerProducer[p]);
+					nextLinkPerProducer[p] = 0;
+					lastTimePerProducer[p] = linkEnterEvent.getTime();
+				}
+				assertEquals(Id.createLinkId(nextLinkPerProducer[p]), linkEnterEvent.getLinkId());
+				nextLinkPerProducer[p]++;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsAsXml() throws IOException {
+		String xmlFile = "test/input/org/matsim/examples/EquilTest/testEquil/events.xml.gz";
+		List<Event> xmlEvents = readEvents(xmlFile);
+		Assert.assertTrue(xmlEvents.size() > 1000);
+
+		// small blocks, so that there are many of them
+		String binaryFile = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		EventWriterBinary writer = new EventWriterBinary(new FileOutputStream(binaryFile), 100);
+		for (Event event : xmlEvents) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		assertSameEvents(xmlEvents, readEvents(binaryFile));
+	}
+
+	@Test
+	public void testSpecialValues() throws IOException {
+		List<Event> events = new ArrayList<>();
+		events.add(new LinkLeaveEvent(3600.0, Id.createVehicleId("vehicle>3"), Id.createLinkId("1.2.3")));
+		events.add(new LinkLeaveEvent(3599.5, Id.createVehicleId("véhicule"), Id.createLinkId("12")));
+		events.add(new LinkLeaveEvent(-1.0, Id.createVehicleId("vehicle>3"), Id.createLinkId("1.5")));
+		events.add(new PersonMoneyEvent(1e12, Id.createPersonId(1), -0.1));
+		GenericEvent generic = new GenericEvent("TEST", 3600.0);
+		generic.getAttributes().put("dummy", null);
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longValue.append(i);
+		}
+		generic.getAttributes().put("long", longValue.toString());
+		generic.getAttributes().put("number", "1.0E-5");
+		events.add(generic);
+		GenericEvent generic2 = new GenericEvent("TEST", 3600.0);
+		generic2.getAttributes().put("number", "007.50");
+		events.add(generic2);
+
+		String xmlFile = this.utils.getOutputDirectory() + "events.xml";
+		EventWriterXML xmlWriter = new EventWriterXML(xmlFile);
+		String binaryFile = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		EventWriterBinary binaryWriter = new EventWriterBinary(new FileOutputStream(binaryFile), 4);
+		for (Event event : events) {
+			xmlWriter.handleEvent(event);
+			binaryWriter.handleEvent(event);
+		}
+		xmlWriter.closeFile();
+		binaryWriter.closeFile();
+
+		List<Event> xmlEvents = readEvents(xmlFile);
+		Assert.assertEquals(events.size(), xmlEvents.size());
+		assertSameEvents(xmlEvents, readEvents(binaryFile));
+	}
+
+	@Test
+	public void testEmptyFile() {
+		String binaryFile = this.utils.getOutputDirectory() + "events" + EventWriterBinary.FILE_ENDING;
+		new EventWriterBinary(binaryFile).closeFile();
+		Assert.assertTrue(readEvents(binaryFile).isEmpty());
+	}
+
+	private static List<Event> readEvents(String filename) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		return new ArrayList<>(collector.getEvents());
+	}
+
+	private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+			Assert.assertEquals(new ArrayList<>(expected.get(i).getAttributes().keySet()), new ArrayList<>(actual.get(i).getAttributes().keySet()));
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DeterministicNetsimTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Checks that with {@link org.matsim.core.config.groups.QSimConfigGroup#isUsingDeterministicNetsim()} the events do not
+ * depend on the number of threads or on how the threads are used.
+ */
+public class DeterministicNetsimTest {
+
+	@Test
+	public void testEventsIndependentOfNumberOfThreads() {
+		List<String> reference = runEquil(1, false, false);
+		Assert.assertFalse(reference.isEmpty());
+
+		Assert.assertEquals(reference, runEquil(2, false, false));
+		Assert.assertEquals(reference, runEquil(4, true, false));
+		Assert.assertEquals(reference, runEquil(4, true, true));
+	}
+
+	private static List<String> runEquil(int numberOfThreads, boolean usingThreadpool, boolean usingWorkStealing) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setUsingThreadpool(usingThreadpool);
+		config.qsim().setUsingWorkStealing(usingWorkStealing);
+		config.qsim().setUsingDeterministicNetsim(true);
+
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		final List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event.getAttributes().toString());
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		QSimUtils.createDefaultQSim(scenario, eventsManager).run();
+		return events;
+	}
+
+}
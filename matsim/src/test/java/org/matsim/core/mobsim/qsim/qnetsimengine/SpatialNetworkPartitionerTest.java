@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class SpatialNetworkPartitionerTest {
+
+	private static final int GRID_SIZE = 10;
+
+	@Test
+	public void testBalancedAndSmallerEdgeCutThanRoundRobin() {
+		Network network = createGrid();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.);
+
+		int[] spatial = new SpatialNetworkPartitioner().partition(nodes, weights, 4);
+		int[] roundRobin = new RoundRobinNetworkPartitioner().partition(nodes, weights, 4);
+
+		int[] sizes = new int[4];
+		for (int p : spatial) {
+			sizes[p]++;
+		}
+		for (int size : sizes) {
+			Assert.assertEquals(GRID_SIZE * GRID_SIZE / 4., size, GRID_SIZE * GRID_SIZE / 4. * SpatialNetworkPartitioner.BALANCE_TOLERANCE + 1);
+		}
+
+		int spatialCut = countEdgeCut(network, nodes, spatial);
+		int roundRobinCut = countEdgeCut(network, nodes, roundRobin);
+		Assert.assertTrue("spatial partitioning should cut fewer links: " + spatialCut + " vs. " + roundRobinCut,
+				spatialCut < roundRobinCut / 2);
+	}
+
+	@Test
+	public void testWeightsAreBalanced() {
+		Network network = createGrid();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		double[] weights = new double[nodes.size()];
+		double totalWeight = 0.;
+		for (int i = 0; i < nodes.size(); i++) {
+			// the "downtown" in the lower left corner is much more expensive
+			Coord coord = nodes.get(i).getCoord();
+			weights[i] = (coord.getX() < 300 && coord.getY() < 300) ? 10. : 1.;
+			totalWeight += weights[i];
+		}
+
+		int[] partitions = new SpatialNetworkPartitioner().partition(nodes, weights, 3);
+
+		double[] loads = new double[3];
+		for (int i = 0; i < partitions.length; i++) {
+			loads[partitions[i]] += weights[i];
+		}
+		for (double load : loads) {
+			Assert.assertEquals(totalWeight / 3., load, totalWeight / 3. * 0.15);
+		}
+	}
+
+	@Test
+	public void testSinglePartition() {
+		Network network = createGrid();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int[] partitions = new SpatialNetworkPartitioner().partition(nodes, new double[nodes.size()], 1);
+		for (int p : partitions) {
+			Assert.assertEquals(0, p);
+		}
+	}
+
+	private static int countEdgeCut(Network network, List<Node> nodes, int[] partitions) {
+		Map<Id<Node>, Integer> partitionOfNode = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			partitionOfNode.put(nodes.get(i).getId(), partitions[i]);
+		}
+		int cut = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partitionOfNode.get(link.getFromNode().getId()).equals(partitionOfNode.get(link.getToNode().getId()))) {
+				cut++;
+			}
+		}
+		return cut;
+	}
+
+	private static Network createGrid() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(100. * x, 100. * y));
+			}
+		}
+		int linkCnt = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCnt++), nodes[x][y], nodes[x + 1][y], 100., 10., 1000., 1.);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCnt++), nodes[x + 1][y], nodes[x][y], 100., 10., 1000., 1.);
+				}
+				if (y + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCnt++), nodes[x][y], nodes[x][y + 1], 100., 10., 1000., 1.);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCnt++), nodes[x][y + 1], nodes[x][y], 100., 10., 1000., 1.);
+				}
+			}
+		}
+		return network;
+	}
+
+}
@@ -0,0 +1,200 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactPlanImplTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testPlanElementsList() {
+		CompactPlanImpl plan = new CompactPlanImpl();
+		Activity home = PopulationUtils.createAndAddActivityFromLinkId(plan, "home", Id.createLinkId(1));
+		home.setEndTime(7 * 3600);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, "car");
+		Activity work = PopulationUtils.createAndAddActivityFromCoord(plan, "work", new Coord(10.0, 20.0));
+		work.setEndTime(17 * 3600);
+
+		List<PlanElement> elements = plan.getPlanElements();
+		Assert.assertEquals(3, elements.size());
+		Assert.assertSame(home, elements.get(0));
+		Assert.assertSame(leg, elements.get(1));
+		Assert.assertSame(work, elements.get(2));
+
+		// insert a trip like the trip router does
+		elements.subList(1, 2).clear();
+		Assert.assertEquals(2, elements.size());
+		Assert.assertSame(work, elements.get(1));
+		elements.addAll(1, createTrip(PopulationUtils.getFactory()));
+		Assert.assertEquals(5, elements.size());
+		Assert.assertEquals("walk", ((Leg) elements.get(1)).getMode());
+		Assert.assertEquals("interaction", ((Activity) elements.get(2)).getType());
+		Assert.assertSame(work, elements.get(4));
+
+		plan.compact();
+		Activity packedHome = (Activity) elements.get(0);
+		Assert.assertSame("the same view must be returned as long as the plan is not changed", packedHome, elements.get(0));
+		assertActivity(packedHome, "home", Id.createLinkId(1), null, 7 * 3600);
+		assertActivity((Activity) elements.get(4), "work", null, new Coord(10.0, 20.0), 17 * 3600);
+		Assert.assertEquals("pt", ((Leg) elements.get(3)).getMode());
+		Assert.assertEquals(100.0, ((Leg) elements.get(3)).getRoute().getDistance(), 0.0);
+
+		// elements obtained before compacting are detached
+		work.setEndTime(18 * 3600);
+		Assert.assertEquals(17 * 3600, ((Activity) elements.get(4)).getEndTime(), 0.0);
+
+		// set, remove, and a removed view keeps its data
+		Activity removed = (Activity) elements.remove(4);
+		packedHome.setEndTime(8 * 3600);
+		elements.set(0, removed);
+		Assert.assertEquals(4, elements.size());
+		Assert.assertSame(removed, elements.get(0));
+		assertActivity(removed, "work", null, new Coord(10.0, 20.0), 17 * 3600);
+		assertActivity(packedHome, "home", Id.createLinkId(1), null, 8 * 3600);
+
+		plan.compact();
+		List<String> types = new ArrayList<>();
+		for (PlanElement pe : elements) {
+			types.add(pe instanceof Activity ? ((Activity) pe).getType() : ((Leg) pe).getMode());
+		}
+		Assert.assertEquals("[work, walk, interaction, pt]", types.toString());
+	}
+
+	@Test
+	public void testFactoryElementsAndAttributes() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPlanElementsStorage(PlansConfigGroup.PlanElementsStorage.compact);
+		PopulationFactory factory = PopulationUtils.createPopulation(config).getFactory();
+
+		Plan plan = factory.createPlan();
+		Activity act = factory.createActivityFromCoord("home", new Coord(1.0, 2.0, 3.0));
+		act.getAttributes().putAttribute("answer", 42);
+		plan.addActivity(act);
+		// elements from the compact factory become views on the plan when they are added
+		act.setFacilityId(Id.create("f1", ActivityFacility.class));
+		Leg leg = factory.createLeg("bike");
+		leg.setDepartureTime(3600.0);
+		plan.addLeg(leg);
+		leg.setTravelTime(600.0);
+		Assert.assertSame(act, plan.getPlanElements().get(0));
+		Assert.assertSame(leg, plan.getPlanElements().get(1));
+
+		((CompactPlanImpl) plan).compact();
+		Activity packed = (Activity) plan.getPlanElements().get(0);
+		Assert.assertNotSame(act, packed);
+		Assert.assertEquals(new Coord(1.0, 2.0, 3.0), packed.getCoord());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), packed.getFacilityId());
+		Assert.assertEquals(42, packed.getAttributes().getAttribute("answer"));
+		Leg packedLeg = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(3600.0, packedLeg.getDepartureTime(), 0.0);
+		Assert.assertEquals(600.0, packedLeg.getTravelTime(), 0.0);
+
+		// copies of compact plans are compact as well, with their own routes
+		packedLeg.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId(1), Id.createLinkId(2)));
+		Person person = factory.createPerson(Id.createPersonId(1));
+		person.addPlan(plan);
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlanImpl);
+		Leg copiedLeg = (Leg) copy.getPlanElements().get(1);
+		Assert.assertNotSame(packedLeg.getRoute(), copiedLeg.getRoute());
+		Assert.assertEquals(Id.createLinkId(2), copiedLeg.getRoute().getEndLinkId());
+		Assert.assertEquals(42, ((Activity) copy.getPlanElements().get(0)).getAttributes().getAttribute("answer"));
+	}
+
+	@Test
+	public void testSameResultsAsObjects() {
+		double[] objectScores = runEquil(PlansConfigGroup.PlanElementsStorage.objects);
+		double[] compactScores = runEquil(PlansConfigGroup.PlanElementsStorage.compact);
+		Assert.assertArrayEquals(objectScores, compactScores, 1e-10);
+	}
+
+	private double[] runEquil(PlansConfigGroup.PlanElementsStorage storage) {
+		Config config = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setPlanElementsStorage(storage);
+		config.controler().setLastIteration(3);
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + storage);
+		Controler controler = new Controler(config);
+		controler.run();
+
+		Population population = controler.getScenario().getPopulation();
+		List<Double> scores = new ArrayList<>();
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				if (storage == PlansConfigGroup.PlanElementsStorage.compact) {
+					Assert.assertTrue(plan instanceof CompactPlanImpl);
+				}
+				scores.add(plan.getScore());
+			}
+		}
+		double[] result = new double[scores.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = scores.get(i);
+		}
+		return result;
+	}
+
+	private static List<PlanElement> createTrip(PopulationFactory factory) {
+		List<PlanElement> trip = new ArrayList<>();
+		trip.add(factory.createLeg("walk"));
+		trip.add(factory.createActivityFromLinkId("interaction", Id.createLinkId(2)));
+		Leg pt = factory.createLeg("pt");
+		pt.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId(2), Id.createLinkId(3)));
+		pt.getRoute().setDistance(100.0);
+		trip.add(pt);
+		return trip;
+	}
+
+	private static void assertActivity(Activity act, String type, Id<Link> linkId, Coord coord, double endTime) {
+		Assert.assertEquals(type, act.getType());
+		Assert.assertEquals(linkId, act.getLinkId());
+		Assert.assertEquals(coord, act.getCoord());
+		Assert.assertEquals(endTime, act.getEndTime(), 0.0);
+	}
+
+}
@@ -0,0 +1,186 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansStoreTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class UnselectedPlansStoreTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testStoreAndLoad() {
+		for (PlansConfigGroup.PlanElementsStorage storage : PlansConfigGroup.PlanElementsStorage.values()) {
+			Config config = ConfigUtils.createConfig();
+			config.plans().setPlanElementsStorage(storage);
+			Population population = PopulationUtils.createPopulation(config);
+			for (int i = 0; i < 25; i++) {
+				Person person = population.getFactory().createPerson(Id.createPersonId(i));
+				for (int j = 0; j < 3; j++) {
+					person.addPlan(createPlan(population.getFactory(), i, j));
+				}
+				person.setSelectedPlan(person.getPlans().get(i % 3));
+				population.addPerson(person);
+			}
+			Map<Id<Person>, List<String>> expected = new HashMap<>();
+			Map<Id<Person>, Plan> selected = new HashMap<>();
+			for (Person person : population.getPersons().values()) {
+				expected.put(person.getId(), describe(person.getPlans()));
+				selected.put(person.getId(), person.getSelectedPlan());
+			}
+
+			UnselectedPlansStore store = new UnselectedPlansStore(population, new File(utils.getOutputDirectory(), storage.toString()), 10);
+			store.storeAll();
+			Assert.assertEquals(3, store.getPartitionCount());
+			for (Person person : population.getPersons().values()) {
+				Assert.assertEquals(1, person.getPlans().size());
+				Assert.assertSame(selected.get(person.getId()), person.getSelectedPlan());
+			}
+
+			final List<Integer> sizes = new ArrayList<>();
+			store.forEachPartition(persons -> {
+				sizes.add(persons.size());
+				for (Person person : persons) {
+					Assert.assertEquals(expected.get(person.getId()), describe(person.getPlans()));
+					Assert.assertSame(selected.get(person.getId()), person.getSelectedPlan());
+					for (Plan plan : person.getPlans()) {
+						Assert.assertSame(person, plan.getPerson());
+					}
+				}
+				// replanning could change the selected plan:
+				persons.get(0).setSelectedPlan(persons.get(0).getPlans().get(2));
+			});
+			Assert.assertEquals(Arrays.asList(10, 10, 5), sizes);
+			for (Person person : population.getPersons().values()) {
+				Assert.assertEquals(1, person.getPlans().size());
+			}
+
+			store.forEachPartition(persons -> {
+				Person person = persons.get(0);
+				Assert.assertEquals(expected.get(person.getId()), describe(person.getPlans()));
+				Assert.assertSame(person.getPlans().get(2), person.getSelectedPlan());
+			});
+		}
+	}
+
+	private static Plan createPlan(final PopulationFactory factory, final int person, final int plan) {
+		Plan p = factory.createPlan();
+		p.setScore(plan == 1 ? null : Double.valueOf(person * 10 + plan));
+		p.setType(plan == 2 ? "innovative" : null);
+		p.getAttributes().putAttribute("index", plan);
+
+		Activity home = factory.createActivityFromCoord("home", new Coord(person, plan));
+		home.setLinkId(Id.createLinkId("1"));
+		home.setEndTime(7 * 3600 + person);
+		home.getAttributes().putAttribute("note", "first");
+		p.addActivity(home);
+
+		Leg car = factory.createLeg("car");
+		car.setDepartureTime(7 * 3600 + person);
+		car.setTravelTime(600);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"),
+				Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3" + plan)), Id.createLinkId("4"));
+		networkRoute.setDistance(1234.5);
+		networkRoute.setTravelTime(590);
+		networkRoute.setVehicleId(Id.create(person, Vehicle.class));
+		car.setRoute(networkRoute);
+		p.addLeg(car);
+
+		Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("4"));
+		work.setFacilityId(Id.create("f" + person, ActivityFacility.class));
+		work.setMaximumDuration(8 * 3600);
+		p.addActivity(work);
+
+		Leg walk = factory.createLeg("walk");
+		walk.setTravelTime(1800);
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1"));
+		genericRoute.setDistance(2000);
+		genericRoute.setTravelTime(1800);
+		walk.setRoute(genericRoute);
+		walk.getAttributes().putAttribute("slow", true);
+		p.addLeg(walk);
+
+		Activity home2 = factory.createActivityFromCoord("home", new Coord(person, plan, 12.0));
+		p.addActivity(home2);
+		return p;
+	}
+
+	private static List<String> describe(final List<? extends Plan> plans) {
+		List<String> descriptions = new ArrayList<>();
+		for (Plan plan : plans) {
+			StringBuilder b = new StringBuilder();
+			b.append(plan.getScore()).append(' ').append(plan.getType()).append(' ').append(plan.getAttributes());
+			for (PlanElement element : plan.getPlanElements()) {
+				if (element instanceof Activity) {
+					Activity a = (Activity) element;
+					b.append(" | ").append(a.getType()).append(' ').append(a.getLinkId()).append(' ').append(a.getFacilityId())
+							.append(' ').append(a.getCoord()).append(' ').append(a.getStartTime()).append(' ').append(a.getEndTime())
+							.append(' ').append(a.getMaximumDuration()).append(' ').append(a.getAttributes());
+				} else {
+					Leg l = (Leg) element;
+					Route r = l.getRoute();
+					b.append(" | ").append(l.getMode()).append(' ').append(l.getDepartureTime()).append(' ').append(l.getTravelTime())
+							.append(' ').append(l.getAttributes()).append(' ').append(r.getRouteType()).append(' ').append(r.getStartLinkId())
+							.append(' ').append(r.getEndLinkId()).append(' ').append(r.getDistance()).append(' ').append(r.getTravelTime());
+					if (r instanceof NetworkRoute) {
+						List<Id<Link>> linkIds = ((NetworkRoute) r).getLinkIds();
+						b.append(' ').append(linkIds).append(' ').append(((NetworkRoute) r).getVehicleId());
+					} else {
+						b.append(' ').append(r.getRouteDescription());
+					}
+				}
+			}
+			descriptions.add(b.toString());
+		}
+		return descriptions;
+	}
+
+}
@@ -38,6 +38,7 @@ import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -373,6 +374,56 @@ public class StrategyManagerTest {
 		Assert.assertEquals(1.0, weights.get(2), 1e-8);
 	}
 	
+	/**
+	 * The parallel plan selection must give the same results with any number of threads, and still hand the plans to
+	 * the modules in the order of the persons.
+	 */
+	@Test
+	public void testParallelSelection_independentOfNumberOfThreads() {
+		List<String> expected = runParallelSelection(1);
+		Assert.assertEquals(expected, runParallelSelection(4));
+		Assert.assertEquals(expected, runParallelSelection(7));
+	}
+
+	private static List<String> runParallelSelection(final int numberOfThreads) {
+		MatsimRandom.reset(4711);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < 2000; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int j = 0; j < 4; j++) {
+				Plan plan = PersonUtils.createAndAddPlan(person, j == 0);
+				plan.setScore(i % 7 == j ? null : Double.valueOf(j * 10 + i % 3));
+			}
+			population.addPerson(person);
+		}
+
+		final List<String> result = new ArrayList<>();
+		StrategyManager manager = new StrategyManager();
+		manager.setNumberOfSelectionThreads(numberOfThreads);
+		manager.setMaxPlansPerAgent(3);
+		PlanStrategyImpl innovation = new PlanStrategyImpl(new RandomPlanSelector<Plan, Person>());
+		innovation.addStrategyModule(new PlanStrategyModule() {
+			@Override
+			public void prepareReplanning(final ReplanningContext replanningContext) {
+			}
+			@Override
+			public void handlePlan(final Plan plan) {
+				result.add("handled " + plan.getPerson().getId());
+			}
+			@Override
+			public void finishReplanning() {
+			}
+		});
+		manager.addStrategyForDefaultSubpopulation(innovation, 0.3);
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new RandomPlanSelector<Plan, Person>()), 0.7);
+		manager.run(population, 1, null);
+
+		for (Person person : population.getPersons().values()) {
+			result.add(person.getId() + ": " + person.getPlans().size() + " plans, selected " + person.getSelectedPlan().getScore());
+		}
+		return result;
+	}
+
 	/**
 	 * A simple extension to the PlanStrategy which counts how often it was
 	 * called.
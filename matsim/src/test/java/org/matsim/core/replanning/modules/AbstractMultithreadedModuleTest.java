@@ -20,12 +20,19 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +67,116 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testLoadBalanced() {
+		for (boolean loadBalanced : new boolean[] { false, true }) {
+			final Map<Plan, AtomicInteger> handled = new ConcurrentHashMap<>();
+			AbstractMultithreadedModule testee = new AbstractMultithreadedModule(3, loadBalanced) {
+				@Override
+				public PlanAlgorithm getPlanAlgoInstance() {
+					return plan -> {
+						if (handled.size() % 10 == 0) {
+							// some expensive plans
+							try {
+								Thread.sleep(5);
+							} catch (InterruptedException e) {
+								throw new RuntimeException(e);
+							}
+						}
+						handled.computeIfAbsent(plan, p -> new AtomicInteger()).incrementAndGet();
+					};
+				}
+			};
+			for (int iteration = 0; iteration < 2; iteration++) {
+				handled.clear();
+				List<Plan> plans = new ArrayList<>();
+				testee.prepareReplanning(null);
+				for (int i = 0; i < 100; i++) {
+					Plan plan = PopulationUtils.createPlan();
+					plans.add(plan);
+					testee.handlePlan(plan);
+				}
+				testee.finishReplanning();
+				Assert.assertEquals(plans.size(), handled.size());
+				for (Plan plan : plans) {
+					Assert.assertEquals(1, handled.get(plan).get());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLoadBalancedConfig() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.global().setNumberOfThreads(2);
+		config.global().setLoadBalancedReplanning(true);
+
+		// while one thread is busy with the expensive first plan, the other one handles all the others
+		final Plan expensivePlan = PopulationUtils.createPlan();
+		final Map<Plan, String> handledBy = new ConcurrentHashMap<>();
+		AbstractMultithreadedModule testee = new AbstractMultithreadedModule(config.global()) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance() {
+				return plan -> {
+					if (plan == expensivePlan) {
+						try {
+							Thread.sleep(500);
+						} catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+					}
+					Assert.assertNull(handledBy.put(plan, Thread.currentThread().getName()));
+				};
+			}
+		};
+		List<Plan> plans = new ArrayList<>();
+		testee.prepareReplanning(null);
+		plans.add(expensivePlan);
+		testee.handlePlan(expensivePlan);
+		for (int i = 0; i < 20; i++) {
+			Plan plan = PopulationUtils.createPlan();
+			plans.add(plan);
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		Assert.assertEquals(plans.size(), handledBy.size());
+		for (Plan plan : plans.subList(1, plans.size())) {
+			Assert.assertNotEquals(handledBy.get(expensivePlan), handledBy.get(plan));
+		}
+
+		// modules may handle all plans at once instead
+		final List<Plan> handledPlans = new ArrayList<>();
+		testee = new AbstractMultithreadedModule(config.global()) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance() {
+				throw new RuntimeException("no threads expected");
+			}
+			@Override
+			protected void handlePlansLoadBalanced(List<Plan> plansToHandle) {
+				handledPlans.addAll(plansToHandle);
+			}
+		};
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		Assert.assertEquals(plans, handledPlans);
+
+		try {
+			DummyCrashingModule crashing = new DummyCrashingModule(config.global());
+			crashing.prepareReplanning(null);
+			crashing.handlePlan(null);
+			crashing.handlePlan(null);
+			crashing.handlePlan(null);
+			crashing.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,6 +191,9 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(GlobalConfigGroup globalConfigGroup) {
+			super(globalConfigGroup);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
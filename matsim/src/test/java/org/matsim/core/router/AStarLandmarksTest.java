@@ -20,10 +20,20 @@
 
 package org.matsim.core.router;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.core.router.util.PreProcessLandmarks;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
@@ -36,4 +46,128 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	public void testIncrementalUpdate() {
+		Network network = CCHRouterTest.createRandomGrid(12, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator);
+		preProcessData.setNumberOfThreads(2);
+		preProcessData.run(network);
+		assertEquals(0, preProcessData.update(travelTimeCostCalculator));
+
+		// some links get faster, some slower
+		Random random = new Random(42);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		for (int i = 0; i < 20; i++) {
+			Link faster = links.get(random.nextInt(links.size()));
+			faster.setFreespeed(faster.getFreespeed() * 2.0);
+			Link slower = links.get(random.nextInt(links.size()));
+			slower.setFreespeed(slower.getFreespeed() / 2.0);
+		}
+		assertTrue(preProcessData.update(travelTimeCostCalculator) > 0);
+
+		// the updated landmark costs are lower bounds of the exact ones, and at least as good as the ones before
+		PreProcessLandmarks exact = new PreProcessLandmarks(travelTimeCostCalculator);
+		exact.run(network);
+		Node[] landmarks = preProcessData.getLandmarks();
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < landmarks.length; i++) {
+				assertTrue(preProcessData.getNodeData(node).getMinLandmarkTravelTime(i) <= exact.getNodeData(node).getMinLandmarkTravelTime(i) + 1e-9);
+			}
+		}
+
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator aStar = new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path path = aStar.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			assertEquals(expected.travelCost, path.travelCost, 1e-6);
+		}
+	}
+
+	public void testUpdatedCopy() {
+		Network network = CCHRouterTest.createRandomGrid(10, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator);
+		preProcessData.setNumberOfThreads(2);
+		preProcessData.run(network);
+		assertSame(preProcessData, preProcessData.updatedCopy(travelTimeCostCalculator));
+
+		Node[] landmarks = preProcessData.getLandmarks();
+		Map<Node, double[]> before = new HashMap<>();
+		for (Node node : network.getNodes().values()) {
+			double[] costs = new double[landmarks.length];
+			for (int i = 0; i < landmarks.length; i++) {
+				costs[i] = preProcessData.getNodeData(node).getMinLandmarkTravelTime(i);
+			}
+			before.put(node, costs);
+		}
+
+		Random random = new Random(42);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		for (int i = 0; i < 20; i++) {
+			Link faster = links.get(random.nextInt(links.size()));
+			faster.setFreespeed(faster.getFreespeed() * 2.0);
+		}
+		PreProcessLandmarks copy = preProcessData.updatedCopy(travelTimeCostCalculator);
+		assertNotSame(preProcessData, copy);
+
+		// the original is unchanged, so routers using it are not disturbed
+		boolean changed = false;
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < landmarks.length; i++) {
+				assertEquals(before.get(node)[i], preProcessData.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(preProcessData.getNodeData(node).getDeadEndEntryNode(), copy.getNodeData(node).getDeadEndEntryNode());
+				changed |= copy.getNodeData(node).getMinLandmarkTravelTime(i) < before.get(node)[i];
+			}
+		}
+		assertTrue(changed);
+
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator aStar = new AStarLandmarks(network, copy, travelTimeCostCalculator);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		for (int i = 0; i < 100; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path path = aStar.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			assertEquals(expected.travelCost, path.travelCost, 1e-6);
+		}
+	}
+
+	public void testWriteAndRead() {
+		Network network = CCHRouterTest.createRandomGrid(8, 42);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator, 8);
+		preProcessData.run(network);
+		String filename = getOutputDirectory() + "landmarks.bin.gz";
+		preProcessData.write(filename);
+
+		PreProcessLandmarks read = new PreProcessLandmarks(travelTimeCostCalculator, 8);
+		assertTrue(read.read(network, filename));
+		assertEquals(preProcessData.getLandmarks().length, read.getLandmarks().length);
+		for (int i = 0; i < read.getLandmarks().length; i++) {
+			assertSame(preProcessData.getLandmarks()[i], read.getLandmarks()[i]);
+		}
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < read.getLandmarks().length; i++) {
+				assertEquals(preProcessData.getNodeData(node).getMinLandmarkTravelTime(i), read.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(preProcessData.getNodeData(node).getMaxLandmarkTravelTime(i), read.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+
+		assertFalse(new PreProcessLandmarks(travelTimeCostCalculator, 4).read(network, filename));
+		assertFalse(new PreProcessLandmarks(travelTimeCostCalculator, 8).read(CCHRouterTest.createRandomGrid(9, 42), filename));
+
+		// the factory replaces a landmarks file which does not fit the network
+		Network otherNetwork = CCHRouterTest.createRandomGrid(9, 42);
+		ControlerConfigGroup controlerConfig = new ControlerConfigGroup();
+		controlerConfig.setLandmarksFile(filename);
+		AStarLandmarksFactory.preProcessLandmarks(otherNetwork, travelTimeCostCalculator, null, controlerConfig);
+		assertTrue(new PreProcessLandmarks(travelTimeCostCalculator).read(otherNetwork, filename));
+		assertFalse(new PreProcessLandmarks(travelTimeCostCalculator).read(network, filename));
+	}
+
 }
@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalGraphDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class BidirectionalGraphDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new BidirectionalGraphDijkstra(new RoutingGraph(network), travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Congested in the peak hours, on some links more than on others.
+	 */
+	private static class PeakTravelTime implements TravelTime, TravelDisutility {
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double freespeedTime = link.getLength() / link.getFreespeed();
+			double peak = Math.max(0.0, 1.0 - Math.abs(time - 8 * 3600) / 3600);
+			return freespeedTime * (1.0 + peak * (link.getId().index() % 4));
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = CCHRouterTest.createRandomGrid(15, 4711);
+		PeakTravelTime travelTime = new PeakTravelTime();
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTime, travelTime);
+
+		PreProcessLandmarks landmarks = new PreProcessLandmarks(travelTime, 8);
+		landmarks.setNumberOfThreads(2);
+		landmarks.run(network);
+		LeastCostPathCalculator bidirectional = new BidirectionalGraphDijkstra(new RoutingGraph(network), travelTime, travelTime);
+		LeastCostPathCalculator alt = new BidirectionalGraphDijkstra(landmarks.getRoutingGraph(), travelTime, travelTime, landmarks);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			double departureTime = 6.5 * 3600 + random.nextInt(3 * 3600);
+			Path expected = dijkstra.calcLeastCostPath(from, to, departureTime, null, null);
+			for (LeastCostPathCalculator router : new LeastCostPathCalculator[] { bidirectional, alt }) {
+				Path path = router.calcLeastCostPath(from, to, departureTime, null, null);
+				if (expected == null) {
+					assertNull(path);
+					continue;
+				}
+				assertEquals(expected.travelCost, path.travelCost, 1e-6);
+				assertEquals(expected.travelTime, path.travelTime, 1e-6);
+				CCHRouterTest.assertPathIsConsistent(from, to, path);
+
+				// the path costs what the router says
+				double time = departureTime;
+				double cost = 0.0;
+				for (Link link : path.links) {
+					cost += travelTime.getLinkTravelDisutility(link, time, null, null);
+					time += travelTime.getLinkTravelTime(link, time, null, null);
+				}
+				assertEquals(path.travelCost, cost, 1e-6);
+				assertEquals(path.travelTime, time - departureTime, 1e-6);
+			}
+		}
+	}
+
+	public void testFactories() {
+		Network network = CCHRouterTest.createRandomGrid(8, 17);
+		PeakTravelTime travelTime = new PeakTravelTime();
+		assertTrue(new FastDijkstraFactory(false, FastRouterType.BIDIRECTIONAL).createPathCalculator(network, travelTime, travelTime)
+				instanceof BidirectionalGraphDijkstra);
+		FastAStarLandmarksFactory factory = new FastAStarLandmarksFactory(FastRouterType.BIDIRECTIONAL);
+		LeastCostPathCalculator first = factory.createPathCalculator(network, travelTime, travelTime);
+		LeastCostPathCalculator second = factory.createPathCalculator(network, travelTime, travelTime);
+		assertTrue(first instanceof BidirectionalGraphDijkstra);
+		assertNotSame(first, second);
+	}
+
+}
@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CCHRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class CCHRouterTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new CCHRouterFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createRandomGrid(12, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator cch = new CCHRouterFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path path = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			assertEquals(expected.travelCost, path.travelCost, 1e-6);
+			assertEquals(expected.travelTime, path.travelTime, 1e-6);
+			assertPathIsConsistent(from, to, path);
+		}
+	}
+
+	public void testTimeBins() {
+		Network network = createRandomGrid(8, 815);
+		final Link jammed = network.getLinks().get(Id.createLinkId("3_3_e"));
+		// the link is jammed in the morning peak
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				double freespeedTime = link.getLength() / link.getFreespeed();
+				return link == jammed && time >= 7 * 3600 && time < 9 * 3600 ? 100 * freespeedTime : freespeedTime;
+			}
+		};
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength() / link.getFreespeed();
+			}
+		};
+		LeastCostPathCalculator cch = new CCHRouterFactory(3600, 30 * 3600).createPathCalculator(network, disutility, travelTime);
+		Node from = jammed.getFromNode();
+		Node to = jammed.getToNode();
+
+		Path offPeak = cch.calcLeastCostPath(from, to, 6 * 3600, null, null);
+		assertEquals(1, offPeak.links.size());
+		assertSame(jammed, offPeak.links.get(0));
+
+		Path peak = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertFalse(peak.links.contains(jammed));
+		assertPathIsConsistent(from, to, peak);
+		double expectedTime = 0.0;
+		for (Link link : peak.links) {
+			expectedTime += link.getLength() / link.getFreespeed();
+		}
+		assertEquals(expectedTime, peak.travelTime, 1e-6);
+	}
+
+	public void testSharedCustomization() {
+		Network network = createRandomGrid(8, 4711);
+		final FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		CCHRouterFactory factory = new CCHRouterFactory(900, 30 * 3600);
+		final List<CountingDisutility> created = new ArrayList<>();
+		TravelDisutilityFactory disutilityFactory = timeCalculator -> {
+			CountingDisutility disutility = new CountingDisutility(travelTime);
+			created.add(disutility);
+			return disutility;
+		};
+		LeastCostPathCalculator firstRouter = factory.createPathCalculator(network, disutilityFactory, travelTime);
+		LeastCostPathCalculator secondRouter = factory.createPathCalculator(network, disutilityFactory, travelTime);
+		assertEquals(2, created.size());
+		CountingDisutility first = created.get(0);
+		CountingDisutility second = created.get(1);
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("7_7"));
+
+		Path path = firstRouter.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertTrue(first.count > path.links.size());
+		// the time bin is already customized for the disutility factory, so only the costs along the path are calculated
+		assertEquals(path.links.size(), secondRouter.calcLeastCostPath(from, to, 8 * 3600, null, null).links.size());
+		assertEquals(path.links.size(), second.count);
+
+		// a disutility given directly may have other costs, even if it is of the same class
+		CountingDisutility other = new CountingDisutility(travelTime);
+		factory.createPathCalculator(network, other, travelTime).calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertTrue(other.count > path.links.size());
+		// but routers with the same instance share the customization
+		int count = other.count;
+		factory.createPathCalculator(network, other, travelTime).calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(count + path.links.size(), other.count);
+
+		// after the travel times have changed, the time bin is customized again
+		factory.notifyIterationStarts(new IterationStartsEvent(null, 1));
+		factory.createPathCalculator(network, disutilityFactory, travelTime).calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertTrue(created.get(2).count > path.links.size());
+	}
+
+	private static class CountingDisutility implements TravelDisutility {
+		private final TravelDisutility delegate;
+		private int count = 0;
+
+		CountingDisutility(final TravelDisutility delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			this.count++;
+			return this.delegate.getLinkTravelDisutility(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+	public void testNoRoute() {
+		Network network = createRandomGrid(4, 1);
+		Node isolated = network.getFactory().createNode(Id.createNodeId("isolated"), new Coord(-1000.0, -1000.0));
+		network.addNode(isolated);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator cch = new CCHRouterFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		Node node = network.getNodes().get(Id.createNodeId("0_0"));
+		assertNull(cch.calcLeastCostPath(node, isolated, 0.0, null, null));
+		assertNull(cch.calcLeastCostPath(isolated, node, 0.0, null, null));
+		assertNotNull(cch.calcLeastCostPath(node, network.getNodes().get(Id.createNodeId("3_3")), 0.0, null, null));
+	}
+
+	static void assertPathIsConsistent(final Node from, final Node to, final Path path) {
+		assertEquals(path.links.size() + 1, path.nodes.size());
+		assertSame(from, path.nodes.get(0));
+		assertSame(to, path.nodes.get(path.nodes.size() - 1));
+		for (int i = 0; i < path.links.size(); i++) {
+			assertSame(path.nodes.get(i), path.links.get(i).getFromNode());
+			assertSame(path.nodes.get(i + 1), path.links.get(i).getToNode());
+		}
+	}
+
+	/**
+	 * A grid with random link lengths and speeds, some one-way streets, parallel links and loops.
+	 */
+	static Network createRandomGrid(final int size, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 1000.0, y * 1000.0)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					addLinks(network, random, node, network.getNodes().get(Id.createNodeId((x + 1) + "_" + y)), x + "_" + y + "_e");
+				}
+				if (y + 1 < size) {
+					addLinks(network, random, node, network.getNodes().get(Id.createNodeId(x + "_" + (y + 1))), x + "_" + y + "_n");
+				}
+				if (random.nextDouble() < 0.05) {
+					addLink(network, random, node, node, x + "_" + y + "_loop");
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Random random, final Node a, final Node b, final String id) {
+		double r = random.nextDouble();
+		if (r < 0.8 || a.getId().toString().startsWith("3_3")) {
+			addLink(network, random, a, b, id);
+			addLink(network, random, b, a, id + "_back");
+		} else if (r < 0.9) {
+			addLink(network, random, a, b, id);
+			addLink(network, random, a, b, id + "_parallel");
+		} else {
+			addLink(network, random, b, a, id + "_back");
+		}
+	}
+
+	private static void addLink(final Network network, final Random random, final Node from, final Node to, final String id) {
+		Link link = network.getFactory().createLink(Id.createLinkId(id), from, to);
+		link.setLength(1000.0 + random.nextInt(1000));
+		link.setFreespeed(10.0 + random.nextInt(20));
+		link.setCapacity(1000.0);
+		link.setNumberOfLanes(1.0);
+		network.addLink(link);
+	}
+
+}
@@ -0,0 +1,168 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingGraph;
+
+public class GraphDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new GraphDijkstra(new RoutingGraph(network), travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameRoutesAsDijkstra() {
+		Network network = CCHRouterTest.createRandomGrid(12, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessDijkstra preProcessData = new PreProcessDijkstra();
+		preProcessData.run(network);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		RoutingGraph graph = new RoutingGraph(network);
+		LeastCostPathCalculator graphDijkstra = new GraphDijkstra(graph, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator pruning = new GraphDijkstra(graph, travelTimeCostCalculator, travelTimeCostCalculator, preProcessData);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			for (LeastCostPathCalculator router : new LeastCostPathCalculator[] { graphDijkstra, pruning }) {
+				Path path = router.calcLeastCostPath(from, to, 8 * 3600, null, null);
+				assertEquals(expected.links, path.links);
+				assertEquals(expected.nodes, path.nodes);
+				assertEquals(expected.travelCost, path.travelCost, 1e-9);
+				assertEquals(expected.travelTime, path.travelTime, 1e-9);
+			}
+		}
+	}
+
+	public void testModeView() {
+		Network network = CCHRouterTest.createRandomGrid(6, 17);
+		Set<String> carAndBike = new HashSet<>();
+		carAndBike.add(TransportMode.car);
+		carAndBike.add(TransportMode.bike);
+		Random random = new Random(4);
+		for (Link link : network.getLinks().values()) {
+			if (random.nextDouble() < 0.7) {
+				link.setAllowedModes(carAndBike);
+			}
+		}
+		Network bikeNetwork = NetworkUtils.createNetwork();
+		new TransportModeNetworkFilter(network).filter(bikeNetwork, Collections.singleton(TransportMode.bike));
+
+		RoutingGraph graph = new RoutingGraph(network);
+		RoutingGraph bikeGraph = graph.getModeView(TransportMode.bike);
+		assertSame(bikeGraph, graph.getModeView(TransportMode.bike));
+		assertEquals(TransportMode.bike, bikeGraph.getMode());
+		assertEquals(network.getLinks().size(), bikeGraph.getLinkCount());
+		assertEquals(bikeNetwork.getLinks().size(), bikeGraph.getFirstOutLink(bikeGraph.getNodeCount()));
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(bikeNetwork, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator graphDijkstra = new GraphDijkstra(bikeGraph, travelTimeCostCalculator, travelTimeCostCalculator);
+		for (Node from : bikeNetwork.getNodes().values()) {
+			for (Node to : bikeNetwork.getNodes().values()) {
+				Path expected = dijkstra.calcLeastCostPath(from, to, 0.0, null, null);
+				// the view routes with the nodes of the full network
+				Path path = graphDijkstra.calcLeastCostPath(network.getNodes().get(from.getId()), network.getNodes().get(to.getId()), 0.0, null, null);
+				if (expected == null) {
+					assertNull(path);
+				} else {
+					assertEquals(expected.travelCost, path.travelCost, 1e-9);
+					List<Id<Link>> expectedIds = new ArrayList<>();
+					for (Link link : expected.links) {
+						expectedIds.add(link.getId());
+					}
+					List<Id<Link>> ids = new ArrayList<>();
+					for (Link link : path.links) {
+						assertTrue(link.getAllowedModes().contains(TransportMode.bike));
+						ids.add(link.getId());
+					}
+					assertEquals(expectedIds, ids);
+				}
+			}
+		}
+	}
+
+	public void testModeViewFactories() {
+		Network network = CCHRouterTest.createRandomGrid(6, 23);
+		Random random = new Random(5);
+		for (Link link : network.getLinks().values()) {
+			if (random.nextDouble() < 0.7) {
+				link.setAllowedModes(new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.bike)));
+			}
+		}
+		Network bikeNetwork = NetworkUtils.createNetwork();
+		new TransportModeNetworkFilter(network).filter(bikeNetwork, Collections.singleton(TransportMode.bike));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		// the default array routers do not route on mode views
+		assertNull(new FastDijkstraFactory().createPathCalculator(network, TransportMode.bike, travelTimeCostCalculator, travelTimeCostCalculator));
+		assertNull(new FastAStarLandmarksFactory().createPathCalculator(network, TransportMode.bike, travelTimeCostCalculator, travelTimeCostCalculator));
+
+		LeastCostPathCalculator dijkstra = new Dijkstra(bikeNetwork, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator[] routers = {
+				new FastDijkstraFactory(true, FastRouterType.CSR).createPathCalculator(network, TransportMode.bike, travelTimeCostCalculator, travelTimeCostCalculator),
+				new FastDijkstraFactory(false, FastRouterType.BIDIRECTIONAL).createPathCalculator(network, TransportMode.bike, travelTimeCostCalculator, travelTimeCostCalculator),
+				new FastAStarLandmarksFactory(FastRouterType.BIDIRECTIONAL).createPathCalculator(network, TransportMode.bike, travelTimeCostCalculator, travelTimeCostCalculator) };
+		for (Node from : bikeNetwork.getNodes().values()) {
+			for (Node to : bikeNetwork.getNodes().values()) {
+				Path expected = dijkstra.calcLeastCostPath(from, to, 0.0, null, null);
+				for (LeastCostPathCalculator router : routers) {
+					// the routing modules pass the nodes of the filtered network
+					Path path = router.calcLeastCostPath(from, to, 0.0, null, null);
+					if (expected == null) {
+						assertNull(path);
+					} else {
+						assertEquals(expected.travelCost, path.travelCost, 1e-9);
+						for (Link link : path.links) {
+							assertSame(network.getLinks().get(link.getId()), link);
+							assertTrue(link.getAllowedModes().contains(TransportMode.bike));
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphLeastCostPathTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.GraphLeastCostPathTree.Bounds;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.testcases.MatsimTestCase;
+
+public class GraphLeastCostPathTreeTest extends MatsimTestCase {
+
+	private Network network;
+	private FreespeedTravelTimeAndDisutility travelTimeCostCalculator;
+	private LeastCostPathCalculator dijkstra;
+	private List<Node> nodes;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.network = CCHRouterTest.createRandomGrid(10, 4711);
+		this.travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.dijkstra = new Dijkstra(this.network, this.travelTimeCostCalculator, this.travelTimeCostCalculator);
+		this.nodes = new ArrayList<>(this.network.getNodes().values());
+	}
+
+	public void testForwardAndBackward() {
+		GraphLeastCostPathTree tree = new GraphLeastCostPathTree(new RoutingGraph(this.network), this.travelTimeCostCalculator, this.travelTimeCostCalculator);
+		Random random = new Random(42);
+		for (int i = 0; i < 5; i++) {
+			Node root = this.nodes.get(random.nextInt(this.nodes.size()));
+
+			tree.calculate(root, 8 * 3600, null, null, Bounds.unbounded());
+			for (Node node : this.nodes) {
+				Path expected = this.dijkstra.calcLeastCostPath(root, node, 8 * 3600, null, null);
+				assertEquals(expected.travelCost, tree.getCost(node), 1e-6);
+				assertEquals(expected.travelTime, tree.getTravelTime(node), 1e-6);
+				assertEquals(8 * 3600 + expected.travelTime, tree.getTime(node), 1e-6);
+				CCHRouterTest.assertPathIsConsistent(root, node, tree.getPath(node));
+				assertEquals(expected.links, tree.getPath(node).links);
+			}
+
+			tree.calculateBackward(root, 8 * 3600, null, null, Bounds.unbounded());
+			for (Node node : this.nodes) {
+				Path expected = this.dijkstra.calcLeastCostPath(node, root, 0.0, null, null);
+				assertEquals(expected.travelCost, tree.getCost(node), 1e-6);
+				assertEquals(expected.travelTime, tree.getTravelTime(node), 1e-6);
+				assertEquals(8 * 3600 - expected.travelTime, tree.getTime(node), 1e-6);
+				Path path = tree.getPath(node);
+				CCHRouterTest.assertPathIsConsistent(node, root, path);
+				assertEquals(expected.travelCost, path.travelCost, 1e-6);
+			}
+		}
+	}
+
+	public void testBounds() {
+		GraphLeastCostPathTree tree = new GraphLeastCostPathTree(new RoutingGraph(this.network), this.travelTimeCostCalculator, this.travelTimeCostCalculator);
+		Node root = this.nodes.get(17);
+		tree.calculate(root, 0.0, null, null, Bounds.unbounded());
+		final List<Double> costs = new ArrayList<>();
+		final List<Double> travelTimes = new ArrayList<>();
+		for (Node node : this.nodes) {
+			costs.add(tree.getCost(node));
+			travelTimes.add(tree.getTravelTime(node));
+		}
+		assertEquals(this.nodes.size(), tree.getReachedNodeCount());
+
+		double maxCost = costs.get(50);
+		tree.calculate(root, 0.0, null, null, Bounds.unbounded().withMaxCost(maxCost));
+		for (int i = 0; i < this.nodes.size(); i++) {
+			assertEquals(costs.get(i) <= maxCost, tree.isReached(this.nodes.get(i)));
+		}
+		assertTrue(tree.getReachedNodeCount() < this.nodes.size());
+
+		double maxTravelTime = travelTimes.get(30);
+		tree.calculate(root, 0.0, null, null, Bounds.unbounded().withMaxTravelTime(maxTravelTime));
+		for (int i = 0; i < this.nodes.size(); i++) {
+			if (travelTimes.get(i) <= maxTravelTime) {
+				// the search ends at the first node exceeding the travel time, so others may also be unreached
+				assertTrue(!tree.isReached(this.nodes.get(i)) || tree.getTravelTime(this.nodes.get(i)) <= maxTravelTime);
+			} else {
+				assertFalse(tree.isReached(this.nodes.get(i)));
+			}
+		}
+
+		// the 3 nearest of 10 targets
+		List<Node> targets = new ArrayList<>(this.nodes.subList(20, 30));
+		tree.calculate(root, 0.0, null, null, Bounds.unbounded().withTargets(targets, 3));
+		List<Node> sorted = new ArrayList<>(targets);
+		sorted.sort(Comparator.comparingDouble(n -> costs.get(this.nodes.indexOf(n))));
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(i < 3, tree.isReached(sorted.get(i)));
+		}
+	}
+
+	public void testBatchMatrix() {
+		RoutingGraph graph = new RoutingGraph(this.network);
+		List<Node> origins = this.nodes.subList(0, 40);
+		List<Node> destinations = this.nodes.subList(30, 100);
+		LeastCostPathTreeBatch.Matrix matrix = new LeastCostPathTreeBatch(graph, this.travelTimeCostCalculator, this.travelTimeCostCalculator, 4)
+				.calcMatrix(origins, destinations, 8 * 3600);
+		for (int i = 0; i < origins.size(); i++) {
+			for (int j = 0; j < destinations.size(); j++) {
+				Path expected = this.dijkstra.calcLeastCostPath(origins.get(i), destinations.get(j), 8 * 3600, null, null);
+				assertEquals(expected.travelCost, matrix.getCost(i, j), 1e-6);
+				assertEquals(expected.travelTime, matrix.getTravelTime(i, j), 1e-6);
+			}
+		}
+	}
+
+	public void testBatchWithoutOrigins() {
+		LeastCostPathTreeBatch batch = new LeastCostPathTreeBatch(new RoutingGraph(this.network), this.travelTimeCostCalculator,
+				this.travelTimeCostCalculator, 4);
+		batch.calculate(Collections.<Node>emptyList(), 8 * 3600, true, null, null, Bounds.unbounded(), (i, origin, tree) -> {
+			fail("no tree expected");
+		});
+		LeastCostPathTreeBatch.Matrix matrix = batch.calcMatrix(Collections.<Node>emptyList(), this.nodes.subList(0, 10), 8 * 3600);
+		assertNotNull(matrix);
+	}
+
+}
@@ -139,6 +139,42 @@ public class NetworkRoutingModuleTest {
 		}
 	}
 
+	@Test
+	public void testRouteLegWithCache() {
+		Fixture f = new Fixture();
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0/3600, +6.0/3600, 0.0);
+		final LeastCostPathCalculator dijkstra = new Dijkstra(f.s.getNetwork(), freespeed, freespeed);
+		final int[] calls = { 0 };
+		LeastCostPathCalculator routeAlgo = (fromNode, toNode, starttime, person, vehicle) -> {
+			calls[0]++;
+			return dijkstra.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		};
+		RouteCache cache = new RouteCache(100, 900.0);
+		NetworkRoutingModule routingModule = new NetworkRoutingModule(TransportMode.car, f.s.getPopulation().getFactory(), f.s.getNetwork(),
+				routeAlgo, cache);
+
+		Activity fromAct = PopulationUtils.createActivityFromCoord("h", new Coord(0, 0));
+		fromAct.setLinkId(Id.create("1", Link.class));
+		Activity toAct = PopulationUtils.createActivityFromCoord("h", new Coord(0, 3000));
+		toAct.setLinkId(Id.create("3", Link.class));
+		Facility fromFacility = new ActivityWrapperFacility(fromAct);
+		Facility toFacility = new ActivityWrapperFacility(toAct);
+
+		Leg first = (Leg) routingModule.calcRoute(fromFacility, toFacility, 7.0*3600, null).get(0);
+		Leg second = (Leg) routingModule.calcRoute(fromFacility, toFacility, 7.0*3600 + 600, null).get(0);
+		Assert.assertEquals(1, calls[0]);
+		Assert.assertEquals(first.getTravelTime(), second.getTravelTime(), 1e-8);
+		Assert.assertEquals(((NetworkRoute) first.getRoute()).getLinkIds(), ((NetworkRoute) second.getRoute()).getLinkIds());
+		Assert.assertEquals(7.0*3600 + 600, second.getDepartureTime(), 1e-8);
+		Assert.assertEquals(0.5, cache.getHitRate(), 1e-8);
+
+		routingModule.calcRoute(fromFacility, toFacility, 7.0*3600 + 900, null); // next time bin
+		Assert.assertEquals(2, calls[0]);
+		cache.invalidate();
+		routingModule.calcRoute(fromFacility, toFacility, 7.0*3600, null);
+		Assert.assertEquals(3, calls[0]);
+	}
+
 	private static class Fixture {
 		public final Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
 
@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+public class RouteCacheTest {
+
+	private static Path createPath(double travelTime) {
+		return new Path(Collections.emptyList(), Collections.emptyList(), travelTime, travelTime);
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		RouteCache cache = new RouteCache(1000, 900.0);
+		Id<Link> a = Id.create("a", Link.class);
+		Id<Link> b = Id.create("b", Link.class);
+		Path path = createPath(10.0);
+
+		Assert.assertSame(path, cache.getPath("car", a, b, 0.0, () -> path));
+		Assert.assertSame(path, cache.getPath("car", a, b, 899.0, () -> createPath(20.0)));
+		Assert.assertNotSame(path, cache.getPath("car", a, b, 900.0, () -> createPath(20.0)));
+		Assert.assertNotSame(path, cache.getPath("bike", a, b, 0.0, () -> createPath(20.0)));
+		Assert.assertNotSame(path, cache.getPath("car", b, a, 0.0, () -> createPath(20.0)));
+		Assert.assertNull(cache.getPath("car", a, a, 0.0, () -> null));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(5, cache.getMisses());
+		Assert.assertEquals(4, cache.size());
+
+		cache.resetStatistics();
+		Assert.assertEquals(0.0, cache.getHitRate(), 1e-10);
+	}
+
+	@Test
+	public void testInvalidation() {
+		RouteCache cache = new RouteCache(1000, 900.0);
+		Id<Link> a = Id.create("a", Link.class);
+		Id<Link> b = Id.create("b", Link.class);
+		Path path = createPath(10.0);
+		cache.getPath("car", a, b, 0.0, () -> path);
+		int version = cache.getVersion();
+
+		cache.invalidate();
+		Assert.assertEquals(version + 1, cache.getVersion());
+		Assert.assertEquals(0, cache.size());
+		Assert.assertNotSame(path, cache.getPath("car", a, b, 0.0, () -> createPath(20.0)));
+	}
+
+	@Test
+	public void testEviction() {
+		RouteCache cache = new RouteCache(160, 900.0);
+		Id<Link> a = Id.create("a", Link.class);
+		for (int i = 0; i < 1000; i++) {
+			cache.getPath("car", a, Id.create(i, Link.class), 0.0, () -> createPath(1.0));
+			Assert.assertTrue(cache.size() <= 160);
+		}
+		Assert.assertTrue(cache.size() > 0);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final RouteCache cache = new RouteCache(100000, 900.0);
+		final AtomicInteger calculations = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					cache.getPath("car", Id.create(i, Link.class), Id.create(i + 1, Link.class), 0.0, () -> {
+						calculations.incrementAndGet();
+						return createPath(1.0);
+					});
+				}
+			});
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		Assert.assertEquals(4000, cache.getHits() + cache.getMisses());
+		Assert.assertEquals(calculations.get(), cache.getMisses());
+		Assert.assertEquals(1000, cache.size());
+	}
+
+}
@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelMatrixServiceTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestCase;
+import org.matsim.vehicles.Vehicle;
+
+public class TravelMatrixServiceTest extends MatsimTestCase {
+
+	private Network network;
+	private JammedTravelTime travelTime;
+	private TravelDisutility disutility;
+	private List<Node> origins;
+	private List<Node> destinations;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.network = CCHRouterTest.createRandomGrid(8, 815);
+		this.travelTime = new JammedTravelTime(this.network.getLinks().get(Id.createLinkId("3_3_e")));
+		this.disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return 2 * TravelMatrixServiceTest.this.travelTime.getLinkTravelTime(link, time, person, vehicle) + link.getLength() / 1000;
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 2 * link.getLength() / link.getFreespeed() + link.getLength() / 1000;
+			}
+		};
+		List<Node> nodes = new ArrayList<>(this.network.getNodes().values());
+		this.origins = nodes.subList(0, 20);
+		this.destinations = nodes.subList(10, 40);
+	}
+
+	public void testMatrixMatchesDijkstra() {
+		TravelMatrixService service = createService();
+		assertNull(service.getMatrix());
+		assertEquals(4, service.update());
+		assertMatrixIsCorrect(service.getMatrix());
+	}
+
+	public void testWriteAndRead() throws IOException {
+		TravelMatrixService service = createService();
+		service.update();
+		TravelMatrix matrix = service.getMatrix();
+		File file = new File(getOutputDirectory() + "matrix.bin");
+		matrix.write(file);
+
+		TravelMatrix read = TravelMatrix.read(file);
+		assertEquals(matrix.getOriginCount(), read.getOriginCount());
+		assertEquals(matrix.getDestinationCount(), read.getDestinationCount());
+		assertEquals(matrix.getTimeBinCount(), read.getTimeBinCount());
+		assertEquals(matrix.getTimeBinSize(), read.getTimeBinSize(), 0.0);
+		for (int b = 0; b < matrix.getTimeBinCount(); b++) {
+			for (int i = 0; i < this.origins.size(); i++) {
+				for (int j = 0; j < this.destinations.size(); j++) {
+					assertEquals(matrix.getTravelTime(b, i, j), read.getTravelTime(b, i, j), 0.0);
+					assertEquals(matrix.getDistance(b, i, j), read.getDistance(b, i, j), 0.0);
+					assertEquals(matrix.getCost(b, i, j), read.getCost(b, i, j), 0.0);
+				}
+			}
+		}
+	}
+
+	public void testIncrementalUpdate() {
+		TravelMatrixService service = createService();
+		assertEquals(4, service.update());
+		TravelMatrix first = service.getMatrix();
+		assertEquals(0, service.update());
+		assertNotSame(first, service.getMatrix());
+		assertMatrixIsCorrect(service.getMatrix());
+
+		// the jam moves to the evening, which only matters for the bins travelling through it
+		this.travelTime.jamStart = 16 * 3600;
+		this.travelTime.jamEnd = 18 * 3600;
+		int recalculated = service.update();
+		assertTrue(recalculated > 0);
+		assertTrue(recalculated < 4);
+		assertMatrixIsCorrect(service.getMatrix());
+
+		service.invalidate();
+		assertEquals(4, service.update());
+		assertMatrixIsCorrect(service.getMatrix());
+	}
+
+	private TravelMatrixService createService() {
+		// bins of 6 hours, i.e. departures at 3:00, 9:00, 15:00 and 21:00
+		return new TravelMatrixService(new RoutingGraph(this.network), this.travelTime, this.disutility, this.origins,
+				this.destinations, 6 * 3600, 4, 2);
+	}
+
+	private void assertMatrixIsCorrect(TravelMatrix matrix) {
+		LeastCostPathCalculator dijkstra = new Dijkstra(this.network, this.disutility, this.travelTime);
+		for (int b = 0; b < matrix.getTimeBinCount(); b++) {
+			double departureTime = matrix.getDepartureTime(b);
+			assertEquals(b, matrix.getTimeBin(departureTime));
+			for (int i = 0; i < this.origins.size(); i++) {
+				for (int j = 0; j < this.destinations.size(); j++) {
+					Path expected = dijkstra.calcLeastCostPath(this.origins.get(i), this.destinations.get(j), departureTime, null, null);
+					double distance = 0.0;
+					for (Link link : expected.links) {
+						distance += link.getLength();
+					}
+					assertEquals(expected.travelTime, matrix.getTravelTime(b, i, j), 1e-2);
+					assertEquals(expected.travelCost, matrix.getCost(b, i, j), 1e-2);
+					assertEquals(distance, matrix.getDistance(departureTime, i, j), 1e-2);
+				}
+			}
+		}
+	}
+
+	private static final class JammedTravelTime implements TravelTime {
+		private final Link jammed;
+		double jamStart = 8 * 3600;
+		double jamEnd = 10 * 3600;
+
+		JammedTravelTime(final Link jammed) {
+			this.jammed = jammed;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double freespeedTime = link.getLength() / link.getFreespeed();
+			return link == this.jammed && time >= this.jamStart && time < this.jamEnd ? 100 * freespeedTime : freespeedTime;
+		}
+	}
+
+}
@@ -22,6 +22,7 @@
 
 package org.matsim.core.router;
 
+import com.google.inject.Key;
 import junit.framework.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -29,11 +30,15 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.ControlerDefaults;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 public class TripRouterModuleTest {
@@ -56,4 +61,21 @@ public class TripRouterModuleTest {
         }
     }
 
+    /**
+     * The route cache is switched off in the default config, and must then not be created at all.
+     */
+    @Test
+    public void testControlerWithAndWithoutRouteCache() {
+        for (int routeCacheSize : new int[] { 0, 1000 }) {
+            Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+            config.controler().setOutputDirectory(matsimTestUtils.getOutputDirectory() + "routeCache" + routeCacheSize);
+            config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+            config.controler().setLastIteration(1);
+            config.plansCalcRoute().setRouteCacheSize(routeCacheSize);
+            Controler controler = new Controler(config);
+            controler.run();
+            Assert.assertEquals(routeCacheSize > 0, controler.getInjector().getBindings().containsKey(Key.get(RouteCache.class)));
+        }
+    }
+
 }
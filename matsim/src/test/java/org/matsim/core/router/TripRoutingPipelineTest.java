@@ -0,0 +1,242 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TripRoutingPipelineTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.Facility;
+
+public class TripRoutingPipelineTest {
+
+	@Test
+	public void testSameRoutesAsPlanRouter() {
+		Network network = createGrid(8, 4711);
+		RoutingGraph graph = new RoutingGraph(network);
+		for (PlansConfigGroup.ActivityDurationInterpretation interpretation : new PlansConfigGroup.ActivityDurationInterpretation[] {
+				PlansConfigGroup.ActivityDurationInterpretation.tryEndTimeThenDuration,
+				PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime }) {
+			for (double routingRandomness : new double[] { 0.0, 3.0 }) {
+				for (boolean batching : new boolean[] { false, true }) {
+					Config config = ConfigUtils.createConfig();
+					config.plans().setActivityDurationInterpretation(interpretation);
+					config.plansCalcRoute().setRoutingRandomness(routingRandomness);
+					config.plansCalcRoute().setBatchingTripsByOrigin(batching);
+					Provider<TripRouter> tripRouterProvider = createTripRouterProvider(config, network, graph);
+
+					List<Plan> expectedPlans = createPlans(network, 200, 13);
+					PlanRouter planRouter = new PlanRouter(tripRouterProvider.get());
+					for (Plan plan : expectedPlans) {
+						planRouter.run(plan);
+					}
+					List<Plan> plans = createPlans(network, 200, 13);
+					new TripRoutingPipeline(tripRouterProvider, null, 4).run(plans);
+
+					for (int i = 0; i < plans.size(); i++) {
+						assertSamePlan(expectedPlans.get(i), plans.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTripsOfOnePlanOnSeveralThreads() {
+		Network network = createGrid(3, 42);
+		Config config = ConfigUtils.createConfig();
+		config.plansCalcRoute().setRoutingRandomness(0.0);
+		final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		final AtomicInteger calls = new AtomicInteger();
+		RoutingModule slowModule = new RoutingModule() {
+			@Override
+			public List<? extends PlanElement> calcRoute(Facility<?> fromFacility, Facility<?> toFacility, double departureTime, Person person) {
+				calls.incrementAndGet();
+				threads.add(Thread.currentThread().getName());
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				Leg leg = PopulationUtils.createLeg(TransportMode.car);
+				leg.setDepartureTime(departureTime);
+				leg.setTravelTime(60.0);
+				return Collections.singletonList(leg);
+			}
+
+			@Override
+			public StageActivityTypes getStageActivityTypes() {
+				return EmptyStageActivityTypes.INSTANCE;
+			}
+		};
+		Provider<TripRouter> tripRouterProvider = () -> new TripRouter.Builder(config)
+				.putRoutingModule(TransportMode.car, () -> slowModule)
+				.builder();
+
+		// one plan whose activities all have end times, so all trips can be routed at the same time
+		Plan plan = createPlans(network, 1, 40).get(0);
+		List<TripStructureUtils.Trip> trips = TripStructureUtils.getTrips(plan, EmptyStageActivityTypes.INSTANCE);
+		for (TripStructureUtils.Trip trip : trips) {
+			if (trip.getOriginActivity().getEndTime() == Time.UNDEFINED_TIME) {
+				trip.getOriginActivity().setEndTime(12 * 3600.0);
+			}
+		}
+		int numberOfTrips = trips.size();
+		new TripRoutingPipeline(tripRouterProvider, null, 4).run(Collections.singletonList(plan));
+
+		Assert.assertEquals(numberOfTrips, calls.get());
+		Assert.assertTrue("the trips of the plan were routed by " + threads, threads.size() > 1);
+		for (Leg leg : TripStructureUtils.getLegs(plan)) {
+			Assert.assertEquals(60.0, leg.getTravelTime(), 1e-8);
+		}
+	}
+
+	private static Provider<TripRouter> createTripRouterProvider(final Config config, final Network network, final RoutingGraph graph) {
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(config.planCalcScore());
+		return () -> new TripRouter.Builder(config)
+				.putRoutingModule(TransportMode.car, () -> new NetworkRoutingModule(
+						TransportMode.car,
+						PopulationUtils.getFactory(),
+						network,
+						new GraphDijkstra(graph, freespeed, freespeed)))
+				.builder();
+	}
+
+	/**
+	 * Plans which start at a few links at a few times, so some first trips can be batched, and whose other activities
+	 * have end times or only durations.
+	 */
+	private static List<Plan> createPlans(final Network network, final int numberOfPlans, final int numberOfActivities) {
+		Random random = new Random(4);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < numberOfPlans; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = PopulationUtils.createPlan(person);
+			person.addPlan(plan);
+			double time = (7 + random.nextInt(2)) * 3600.0;
+			for (int a = 0; a < numberOfActivities; a++) {
+				Link link = a == 0 ? links.get(random.nextInt(3)) : links.get(random.nextInt(links.size()));
+				Activity activity = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", link.getId());
+				if (a == numberOfActivities - 1) {
+					break;
+				}
+				if (a == 0 || random.nextBoolean()) {
+					activity.setEndTime(time);
+				}
+				activity.setMaximumDuration(600.0 + random.nextInt(1800));
+				time += 3600.0;
+				PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+			}
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+	private static void assertSamePlan(final Plan expected, final Plan plan) {
+		Assert.assertEquals(expected.getPlanElements().size(), plan.getPlanElements().size());
+		for (int i = 0; i < plan.getPlanElements().size(); i++) {
+			PlanElement expectedElement = expected.getPlanElements().get(i);
+			PlanElement element = plan.getPlanElements().get(i);
+			if (expectedElement instanceof Leg) {
+				Leg expectedLeg = (Leg) expectedElement;
+				Leg leg = (Leg) element;
+				Assert.assertEquals(expectedLeg.getMode(), leg.getMode());
+				Assert.assertEquals(expectedLeg.getDepartureTime(), leg.getDepartureTime(), 1e-8);
+				Assert.assertEquals(expectedLeg.getTravelTime(), leg.getTravelTime(), 1e-8);
+				NetworkRoute expectedRoute = (NetworkRoute) expectedLeg.getRoute();
+				NetworkRoute route = (NetworkRoute) leg.getRoute();
+				Assert.assertEquals(expectedRoute.getStartLinkId(), route.getStartLinkId());
+				Assert.assertEquals(expectedRoute.getLinkIds(), route.getLinkIds());
+				Assert.assertEquals(expectedRoute.getEndLinkId(), route.getEndLinkId());
+			} else {
+				Assert.assertEquals(((Activity) expectedElement).getLinkId(), ((Activity) element).getLinkId());
+			}
+		}
+	}
+
+	/**
+	 * A grid of links in both directions with random lengths, so every link can be reached from every other.
+	 */
+	private static Network createGrid(final int size, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(network.getFactory().createNode(Id.createNodeId(x + "_" + y), new Coord(x * 1000.0, y * 1000.0)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node east = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					addLink(network, random, node, east);
+					addLink(network, random, east, node);
+				}
+				if (y + 1 < size) {
+					Node north = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					addLink(network, random, node, north);
+					addLink(network, random, north, node);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(final Network network, final Random random, final Node from, final Node to) {
+		Link link = network.getFactory().createLink(Id.createLinkId(from.getId() + "-" + to.getId()), from, to);
+		link.setLength(1000.0 + random.nextInt(1000));
+		link.setFreespeed(10.0 + random.nextInt(20));
+		link.setCapacity(1000.0);
+		link.setNumberOfLanes(1.0);
+		network.addLink(link);
+	}
+
+}
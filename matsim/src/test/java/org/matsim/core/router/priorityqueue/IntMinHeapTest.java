@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntMinHeapTest {
+
+	private static final int SIZE = 200;
+
+	private static List<IntMinHeap> createHeaps() {
+		List<IntMinHeap> heaps = new ArrayList<>();
+		heaps.add(new IntBinaryMinHeap(SIZE));
+		heaps.add(new IntFourAryMinHeap(SIZE));
+		heaps.add(new IntRadixMinHeap(SIZE, 0.5));
+		heaps.add(new IntRadixMinHeap(SIZE, 1e-6));
+		return heaps;
+	}
+
+	/**
+	 * Mixes insertions, decreases and removals like a Dijkstra does, i.e. never below the cost polled last, and
+	 * compares each heap to a naive search for the minimum.
+	 */
+	@Test
+	public void testMonotoneUse() {
+		for (IntMinHeap heap : createHeaps()) {
+			for (int round = 0; round < 3; round++) {
+				Random random = new Random(4711 + round);
+				double[] costs = new double[SIZE];
+				boolean[] contained = new boolean[SIZE];
+				double last = 0.0;
+				for (int step = 0; step < 5000; step++) {
+					int element = random.nextInt(SIZE);
+					int op = random.nextInt(10);
+					if (op < 6) {
+						// integer costs, so there are many ties
+						double cost = last + random.nextInt(20);
+						boolean expected = !contained[element] || cost < costs[element];
+						Assert.assertEquals(expected, heap.insertOrDecrease(element, cost));
+						if (expected) {
+							costs[element] = cost;
+							contained[element] = true;
+						}
+					} else if (op < 7) {
+						Assert.assertEquals(contained[element], heap.remove(element));
+						contained[element] = false;
+					} else if (!heap.isEmpty()) {
+						int min = -1;
+						for (int e = 0; e < SIZE; e++) {
+							if (contained[e] && (min < 0 || costs[e] < costs[min])) {
+								min = e;
+							}
+						}
+						Assert.assertEquals(costs[min], heap.peekCost(), 0.0);
+						Assert.assertEquals(min, heap.poll());
+						contained[min] = false;
+						last = costs[min];
+					}
+					Assert.assertEquals(contained[element], heap.contains(element));
+					if (contained[element]) {
+						Assert.assertEquals(costs[element], heap.getCost(element), 0.0);
+					}
+				}
+				final Set<Integer> elements = new HashSet<>();
+				heap.forEach(elements::add);
+				for (int e = 0; e < SIZE; e++) {
+					Assert.assertEquals(contained[e], elements.contains(e));
+				}
+				Assert.assertEquals(elements.size(), heap.size());
+				heap.clear();
+				Assert.assertTrue(heap.isEmpty());
+				for (int e = 0; e < SIZE; e++) {
+					Assert.assertFalse(heap.contains(e));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Costs below the ones already polled are not what the radix heap is made for, but must still come out in order.
+	 */
+	@Test
+	public void testNonMonotoneUse() {
+		for (IntMinHeap heap : createHeaps()) {
+			heap.insertOrDecrease(5, 10.0);
+			heap.insertOrDecrease(6, 20.0);
+			heap.insertOrDecrease(7, 30.0);
+			Assert.assertEquals(5, heap.poll());
+			heap.insertOrDecrease(8, 1.0);
+			heap.insertOrDecrease(7, 2.0);
+			heap.insertOrDecrease(9, 2.0);
+			heap.insertOrDecrease(3, Double.POSITIVE_INFINITY);
+			Assert.assertEquals(8, heap.poll());
+			Assert.assertEquals(7, heap.poll());
+			Assert.assertEquals(9, heap.poll());
+			Assert.assertEquals(6, heap.poll());
+			Assert.assertEquals(Double.POSITIVE_INFINITY, heap.peekCost(), 0.0);
+			Assert.assertEquals(3, heap.poll());
+			Assert.assertTrue(heap.isEmpty());
+		}
+	}
+
+	@Test
+	public void testIndexedMinHeap() {
+		for (IntMinHeap intHeap : createHeaps()) {
+			MinHeap<DummyHeapEntry> heap = new IndexedMinHeap<>(intHeap, SIZE, DummyHeapEntry::getArrayIndex);
+			DummyHeapEntry entry0 = new DummyHeapEntry(5);
+			DummyHeapEntry entry1 = new DummyHeapEntry(3);
+			DummyHeapEntry entry2 = new DummyHeapEntry(6);
+
+			Assert.assertNull(heap.peek());
+			Assert.assertNull(heap.poll());
+			Assert.assertTrue(heap.add(entry0, 5.0));
+			Assert.assertTrue(heap.add(entry1, 3.0));
+			Assert.assertFalse(heap.add(entry1, 1.0)); // already contained
+			Assert.assertTrue(heap.add(entry2, 3.0));
+			Assert.assertEquals(3, heap.size());
+			Assert.assertSame(entry1, heap.peek());
+
+			Assert.assertFalse(heap.decreaseKey(entry0, 6.0));
+			Assert.assertTrue(heap.decreaseKey(entry0, 1.0));
+			Assert.assertSame(entry0, heap.peek());
+
+			int count = 0;
+			for (Iterator<DummyHeapEntry> it = heap.iterator(); it.hasNext(); it.next()) {
+				count++;
+			}
+			Assert.assertEquals(3, count);
+
+			Assert.assertTrue(heap.remove(entry0));
+			Assert.assertFalse(heap.remove(entry0));
+			Assert.assertFalse(heap.remove(null));
+			Assert.assertSame(entry1, heap.poll()); // same cost as entry2, but smaller index
+			Assert.assertSame(entry2, heap.poll());
+			Assert.assertTrue(heap.isEmpty());
+
+			heap.add(entry0, 1.0);
+			heap.reset();
+			Assert.assertTrue(heap.isEmpty());
+			try {
+				heap.add(null, 1.0);
+				Assert.fail("missing NullPointerException.");
+			} catch (NullPointerException e) {
+				// expected
+			}
+		}
+	}
+
+	private static final class DummyHeapEntry implements HasIndex {
+		private final int index;
+
+		DummyHeapEntry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int getArrayIndex() {
+			return this.index;
+		}
+	}
+
+}
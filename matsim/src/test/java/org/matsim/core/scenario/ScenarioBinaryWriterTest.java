@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioBinaryWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.facilities.FacilitiesWriter;
+import org.matsim.facilities.MatsimFacilitiesReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleWriterV1;
+import org.matsim.vehicles.Vehicles;
+
+public class ScenarioBinaryWriterTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndLoad() {
+		Scenario original = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(original.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new MatsimFacilitiesReader(original).readFile("test/scenarios/equil/facilities.xml");
+		new PopulationReader(original).readFile("test/scenarios/equil/plans100.xml");
+
+		Node node = original.getNetwork().getNodes().get(Id.createNodeId("2"));
+		NetworkUtils.setType(node, "junction");
+		node.getAttributes().putAttribute("height", 12.5);
+		Link link = original.getNetwork().getLinks().get(Id.createLinkId("6"));
+		NetworkUtils.setOrigId(link, "six");
+		original.getNetwork().getAttributes().putAttribute("name", "equil");
+		original.getActivityFacilities().getFacilityAttributes().putAttribute("1", "size", 3);
+
+		Vehicles vehicles = original.getVehicles();
+		VehicleType car = vehicles.getFactory().createVehicleType(Id.create("car", VehicleType.class));
+		car.setLength(5.5);
+		car.setPcuEquivalents(1.5);
+		VehicleCapacity capacity = vehicles.getFactory().createVehicleCapacity();
+		capacity.setSeats(5);
+		car.setCapacity(capacity);
+		vehicles.addVehicleType(car);
+		vehicles.addVehicleType(vehicles.getFactory().createVehicleType(Id.create("bike", VehicleType.class)));
+		for (Person person : original.getPopulation().getPersons().values()) {
+			Id<Vehicle> vehicleId = Id.create(person.getId(), Vehicle.class);
+			vehicles.addVehicle(vehicles.getFactory().createVehicle(vehicleId, car));
+			vehicles.getVehicleAttributes().putAttribute(vehicleId.toString(), "owner", person.getId().toString());
+			person.getAttributes().putAttribute("age", 20 + person.getPlans().size());
+			original.getPopulation().getPersonAttributes().putAttribute(person.getId().toString(), "income", 1000L);
+		}
+
+		String filename = new File(utils.getOutputDirectory(), "equil" + ScenarioBinaryWriter.FILE_ENDING).getAbsolutePath();
+		ScenarioBinaryWriter writer = new ScenarioBinaryWriter(original);
+		writer.setChunkSize(7);
+		writer.setNumberOfThreads(3);
+		writer.write(filename);
+
+		// every part from the same file, each read on its own:
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(2);
+		config.network().setInputFile(filename);
+		config.facilities().setInputFile(filename);
+		config.plans().setInputFile(filename);
+		config.vehicles().setVehiclesFile(filename);
+		Scenario loaded = ScenarioUtils.loadScenario(config);
+
+		Assert.assertEquals(original.getPopulation().getPersons().size(), loaded.getPopulation().getPersons().size());
+		Assert.assertEquals("junction", NetworkUtils.getType(loaded.getNetwork().getNodes().get(Id.createNodeId("2"))));
+		Assert.assertEquals(12.5, loaded.getNetwork().getNodes().get(Id.createNodeId("2")).getAttributes().getAttribute("height"));
+		Assert.assertEquals("six", NetworkUtils.getOrigId(loaded.getNetwork().getLinks().get(Id.createLinkId("6"))));
+		Assert.assertEquals("equil", loaded.getNetwork().getAttributes().getAttribute("name"));
+		Assert.assertEquals(3, loaded.getActivityFacilities().getFacilityAttributes().getAttribute("1", "size"));
+		for (Person person : loaded.getPopulation().getPersons().values()) {
+			Person originalPerson = original.getPopulation().getPersons().get(person.getId());
+			Assert.assertEquals(originalPerson.getPlans().indexOf(originalPerson.getSelectedPlan()),
+					person.getPlans().indexOf(person.getSelectedPlan()));
+			Assert.assertEquals(20 + person.getPlans().size(), person.getAttributes().getAttribute("age"));
+			Assert.assertEquals(1000L, loaded.getPopulation().getPersonAttributes().getAttribute(person.getId().toString(), "income"));
+			Assert.assertEquals(person.getId().toString(),
+					loaded.getVehicles().getVehicleAttributes().getAttribute(person.getId().toString(), "owner"));
+		}
+
+		String outputDirectory = utils.getOutputDirectory();
+		new NetworkWriter(original.getNetwork()).write(outputDirectory + "network.original.xml");
+		new NetworkWriter(loaded.getNetwork()).write(outputDirectory + "network.loaded.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(outputDirectory + "network.original.xml", outputDirectory + "network.loaded.xml");
+
+		new FacilitiesWriter(original.getActivityFacilities()).write(outputDirectory + "facilities.original.xml");
+		new FacilitiesWriter(loaded.getActivityFacilities()).write(outputDirectory + "facilities.loaded.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(outputDirectory + "facilities.original.xml", outputDirectory + "facilities.loaded.xml");
+
+		new VehicleWriterV1(original.getVehicles()).writeFile(outputDirectory + "vehicles.original.xml");
+		new VehicleWriterV1(loaded.getVehicles()).writeFile(outputDirectory + "vehicles.loaded.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(outputDirectory + "vehicles.original.xml", outputDirectory + "vehicles.loaded.xml");
+
+		new PopulationWriter(original.getPopulation()).write(outputDirectory + "plans.original.xml");
+		new PopulationWriter(loaded.getPopulation()).write(outputDirectory + "plans.loaded.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(outputDirectory + "plans.original.xml", outputDirectory + "plans.loaded.xml");
+	}
+
+	@Test
+	public void testReadOnlySomeParts() {
+		Scenario original = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(original.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(original).readFile("test/scenarios/equil/plans100.xml");
+		String filename = new File(utils.getOutputDirectory(), "equil" + ScenarioBinaryWriter.FILE_ENDING).getAbsolutePath();
+		new ScenarioBinaryWriter(original).write(filename);
+
+		Config config = ConfigUtils.createConfig();
+		config.plans().setInputFile(filename);
+		Scenario loaded = ScenarioUtils.loadScenario(config);
+		Assert.assertEquals(0, loaded.getNetwork().getNodes().size());
+		Assert.assertEquals(100, loaded.getPopulation().getPersons().size());
+
+		Scenario complete = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ScenarioBinaryReader(complete).readFile(filename);
+		Assert.assertEquals(original.getNetwork().getLinks().size(), complete.getNetwork().getLinks().size());
+		Assert.assertEquals(100, complete.getPopulation().getPersons().size());
+	}
+
+}
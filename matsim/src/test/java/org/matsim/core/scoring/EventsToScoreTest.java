@@ -22,14 +22,23 @@ package org.matsim.core.scoring;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.ParallelEventsManagerImpl;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
@@ -58,6 +67,114 @@ public class EventsToScoreTest extends MatsimTestCase {
 		assertEquals(3.4, e2s.getAgentScore(person.getId()));
 	}
 
+	/**
+	 * Scores the same events with a single thread and with several shards, and compares the scores.
+	 */
+	public void testParallelScoring() {
+		double[] serial = scoreDays(false, false);
+		double[] parallel = scoreDays(true, false);
+		for (int i = 0; i < serial.length; i++) {
+			assertEquals(serial[i], parallel[i], 0.0);
+		}
+	}
+
+	/**
+	 * With a parallel events manager, the events, legs and activities are added to the shards by different threads.
+	 * Their order per agent then depends on the threads, so the stuck events, whose scoring depends on it, are left out.
+	 */
+	public void testParallelScoring_parallelEvents() {
+		double[] serial = scoreDays(false, false);
+		double[] parallel = scoreDays(true, true);
+		for (int i = 0; i < serial.length; i++) {
+			if (i % 10 != 0) {
+				assertEquals(serial[i], parallel[i], 1e-9);
+			}
+		}
+	}
+
+	private double[] scoreDays(final boolean parallelScoring, final boolean parallelEvents) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		config.global().setParallelScoring(parallelScoring);
+		for (String type : new String[] { "home", "work" }) {
+			PlanCalcScoreConfigGroup.ActivityParams params = new PlanCalcScoreConfigGroup.ActivityParams(type);
+			params.setTypicalDuration(8 * 3600);
+			config.planCalcScore().addActivityParams(params);
+		}
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Population population = scenario.getPopulation();
+		int n = 100;
+		for (int i = 0; i < n; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create("parallel" + i, Person.class));
+			person.addPlan(PopulationUtils.createPlan());
+			population.addPerson(person);
+		}
+		EventsManager events = parallelEvents ? new ParallelEventsManagerImpl(3) : EventsUtils.createEventsManager();
+		EventsToScore e2s = EventsToScore.createWithScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), events);
+		e2s.beginIteration(0);
+		events.initProcessing();
+		Id<Link> linkId = Id.createLinkId("1");
+		// all persons at once, so the events of the shards are interleaved
+		for (int i = 0; i < n; i++) {
+			Id<Person> personId = Id.create("parallel" + i, Person.class);
+			events.processEvent(new ActivityEndEvent(6 * 3600 + i * 60, personId, linkId, null, "home"));
+			events.processEvent(new PersonDepartureEvent(6 * 3600 + i * 60, personId, linkId, TransportMode.car));
+		}
+		for (int i = 0; i < n; i++) {
+			Id<Person> personId = Id.create("parallel" + i, Person.class);
+			events.processEvent(new PersonArrivalEvent(7 * 3600 + i * 90, personId, linkId, TransportMode.car));
+			events.processEvent(new ActivityStartEvent(7 * 3600 + i * 90, personId, linkId, null, "work"));
+			events.processEvent(new PersonMoneyEvent(12 * 3600, personId, -i));
+			if (i % 10 == 0 && !parallelEvents) {
+				events.processEvent(new PersonStuckEvent(14 * 3600, personId, linkId, TransportMode.car));
+			}
+		}
+		events.finishProcessing();
+		e2s.finish();
+		double[] scores = new double[n];
+		for (int i = 0; i < n; i++) {
+			scores[i] = population.getPersons().get(Id.create("parallel" + i, Person.class)).getSelectedPlan().getScore();
+		}
+		return scores;
+	}
+
+	public void testParallelScoring_exceptionPropagates() {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(2);
+		config.global().setParallelScoring(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		scenario.getPopulation().addPerson(person);
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsToScore e2s = EventsToScore.createWithoutScoreUpdating(scenario, new ScoringFunctionFactory() {
+			@Override
+			public ScoringFunction createNewScoringFunction(Person person) {
+				SumScoringFunction sumScoringFunction = new SumScoringFunction();
+				sumScoringFunction.addScoringFunction(new SumScoringFunction.MoneyScoring() {
+					@Override
+					public void addMoney(double amount) {
+						throw new IllegalStateException("no money, please");
+					}
+					@Override
+					public void finish() {}
+					@Override
+					public double getScore() {
+						return 0.0;
+					}
+				});
+				return sumScoringFunction;
+			}
+		}, events);
+		e2s.beginIteration(0);
+		events.processEvent(new PersonMoneyEvent(3600.0, person.getId(), 3.4));
+		try {
+			e2s.finish();
+			fail("missing exception.");
+		} catch (IllegalStateException e) {
+			assertEquals("no money, please", e.getMessage());
+		}
+	}
+
 	public void testMsaAveraging() {
 		Config config = ConfigUtils.createConfig() ;
 		
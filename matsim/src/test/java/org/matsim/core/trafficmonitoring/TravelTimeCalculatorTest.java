@@ -24,6 +24,9 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -49,6 +52,7 @@ import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.events.EventsManagerImpl;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.ParallelEventsManagerImpl;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.MutableScenario;
@@ -175,6 +179,178 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false);
 	}
 
+	public final void testTravelTimeCalculator_FlatArray_Optimistic() throws IOException {
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(getClassInputDirectory() + "link10_network.xml");
+		AbstractTravelTimeAggregator aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataFlatArrayFactory(scenario.getNetwork(), binSize, numSlots),
+				aggregator, binSize, endTime, compareFile, false);
+	}
+
+	public final void testTravelTimeCalculator_FlatArray_Pessimistic_LinearInterpolation() throws IOException {
+		int endTime = 12*3600;
+		int binSize = 1*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_pessimistic_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(getClassInputDirectory() + "link10_network.xml");
+		AbstractTravelTimeAggregator aggregator = new PessimisticTravelTimeAggregator(binSize, numSlots);
+		aggregator.connectTravelTimeGetter(new LinearInterpolatingTravelTimeGetter(numSlots, binSize));
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataFlatArrayFactory(scenario.getNetwork(), binSize, numSlots),
+				aggregator, binSize, endTime, compareFile, false);
+	}
+
+	public final void testTravelTimeDataFlatArray_views() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, 1.0);
+		final Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node1, 1000.0, 20.0, 3600.0, 1.0);
+		TravelTimeDataFlatArrayFactory factory = new TravelTimeDataFlatArrayFactory(network, 900, 4);
+		TravelTimeData data1 = factory.getTravelTimeData(factory.getLinkIndex(link1.getId()));
+		TravelTimeData data2 = factory.getTravelTimeData(factory.getLinkIndex(link2.getId()));
+		assertEquals(-1, factory.getLinkIndex(Id.create("notInNetwork", Link.class)));
+		assertTrue(factory.createTravelTimeData(link1.getId()) instanceof TravelTimeDataArray); // for link to link travel times
+
+		assertEquals(100.0, data1.getTravelTime(3, 0.0), 1e-9);
+		assertEquals(50.0, data2.getTravelTime(3, 0.0), 1e-9);
+
+		data1.addTravelTime(0, 100.0);
+		data1.addTravelTime(0, 110.0);
+		data1.addTravelTime(1, 120.0);
+		data2.addTravelTime(1, 60.0);
+		data2.setTravelTime(3, 70.0);
+		assertEquals(105.0, data1.getTravelTime(0, 0.0), 1e-9);
+		data1.addTravelTime(0, 120.0); // needs a new consolidation
+		assertEquals(110.0, data1.getTravelTime(0, 0.0), 1e-9);
+		assertEquals(120.0, data1.getTravelTime(1, 0.0), 1e-9);
+		assertEquals(100.0, data1.getTravelTime(2, 0.0), 1e-9);
+		assertEquals(60.0, data2.getTravelTime(1, 0.0), 1e-9);
+		assertEquals(70.0, data2.getTravelTime(3, 0.0), 1e-9);
+
+		// consolidated: not less than the travel time of the slot before minus the slot size
+		data2.addTravelTime(0, 1000.0);
+		assertEquals(100.0, data2.getTravelTime(1, 0.0), 1e-9);
+		data1.addTravelTime(2, Double.POSITIVE_INFINITY); // stuck with the pessimistic aggregator
+		assertEquals(Double.POSITIVE_INFINITY, data1.getTravelTime(2, 0.0), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, data1.getTravelTime(3, 0.0), 0.0);
+
+		// the slots of a link do not overlap with the ones of the other links
+		data1.resetTravelTimes();
+		assertEquals(100.0, data1.getTravelTime(0, 0.0), 1e-9);
+		assertEquals(100.0, data2.getTravelTime(1, 0.0), 1e-9);
+
+		factory.reset();
+		assertEquals(50.0, data2.getTravelTime(1, 0.0), 1e-9);
+	}
+
+	/**
+	 * The flat arrays are fed by several partitions of the vehicles in different threads of a parallel events manager,
+	 * and must result in the same travel times as the array based data fed by a single thread.
+	 */
+	public final void testTravelTimeCalculator_FlatArray_parallelPartitions() {
+		Network network = NetworkUtils.createNetwork();
+		int linkCount = 20;
+		Node prevNode = NetworkUtils.createAndAddNode(network, Id.create("0", Node.class), new Coord(0, 0));
+		List<Link> links = new ArrayList<>();
+		for (int i = 1; i <= linkCount; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 1000, 0));
+			links.add(NetworkUtils.createAndAddLink(network, Id.create(i, Link.class), prevNode, node, 1000.0, 20.0, 3600.0, 1.0));
+			prevNode = node;
+		}
+
+		List<Event> events = new ArrayList<>();
+		Random random = new Random(4711);
+		for (int v = 0; v < 500; v++) {
+			Id<Vehicle> vehId = Id.create("flat" + v, Vehicle.class);
+			Id<Person> personId = Id.create("flat" + v, Person.class);
+			int first = random.nextInt(linkCount - 1);
+			double time = random.nextInt(12 * 3600);
+			events.add(new VehicleEntersTrafficEvent(time, personId, links.get(first).getId(), vehId, TransportMode.car, 1.0));
+			events.add(new LinkLeaveEvent(time, vehId, links.get(first).getId()));
+			for (int l = first + 1; l < linkCount; l++) {
+				events.add(new LinkEnterEvent(time, vehId, links.get(l).getId()));
+				time += 50 + random.nextInt(300);
+				events.add(new LinkLeaveEvent(time, vehId, links.get(l).getId()));
+			}
+		}
+
+		Config config = ConfigUtils.createConfig();
+		TravelTimeCalculator expected = new TravelTimeCalculator(network, 900, 30 * 3600, config.travelTimeCalculator());
+		EventsManager sequential = EventsUtils.createEventsManager();
+		sequential.addHandler(expected);
+		for (Event e : events) {
+			sequential.processEvent(e);
+		}
+
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorFlatArray.name());
+		TravelTimeCalculator flat = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		ParallelEventsManagerImpl parallel = new ParallelEventsManagerImpl(4);
+		flat.addToEventsManager(parallel, 4);
+		assertEquals(3, flat.getAdditionalFlatArrayPartitions().size());
+		parallel.initProcessing();
+		for (Event e : events) {
+			parallel.processEvent(e);
+		}
+		parallel.finishProcessing();
+
+		for (Link link : links) {
+			for (int time = 0; time < 30 * 3600; time += 900) {
+				assertEquals(expected.getLinkTravelTime(link, time), flat.getLinkTravelTime(link, time), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * The factory set is also used for the link travel time data, not only for link to link travel times, but it
+	 * cannot be replaced once data was created.
+	 */
+	public final void testSetTravelTimeDataFactory_HashMap() {
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorHashMap.name());
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, 1.0);
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+
+		final List<TravelTimeData> created = new ArrayList<>();
+		final TravelTimeDataFactory hashMapFactory = new TravelTimeDataHashMapFactory(network);
+		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, 900, 12*3600, config.travelTimeCalculator());
+		ttcalc.setTravelTimeDataFactory(linkId -> {
+			TravelTimeData data = hashMapFactory.createTravelTimeData(linkId);
+			created.add(data);
+			return data;
+		});
+		ttcalc.handleEvent(new LinkEnterEvent(7*3600, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7*3600 + 200, vehId, link1.getId()));
+		assertEquals(1, created.size());
+		assertTrue(created.get(0) instanceof TravelTimeDataHashMap);
+		assertEquals(200.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7*3600 + 100, null, null), EPSILON);
+		assertEquals(100.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 9*3600, null, null), EPSILON);
+
+		try {
+			ttcalc.setTravelTimeDataFactory(hashMapFactory);
+			fail("expected IllegalStateException, the data collected so far would be lost.");
+		} catch (IllegalStateException e) {
+			log.info("caught expected exception: " + e.getMessage());
+		}
+		assertEquals(200.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7*3600 + 100, null, null), EPSILON);
+
+		// the same with the factory configured by the travel time calculator type
+		TravelTimeCalculator configured = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		configured.handleEvent(new LinkEnterEvent(7*3600, vehId, link1.getId()));
+		configured.handleEvent(new LinkLeaveEvent(7*3600 + 200, vehId, link1.getId()));
+		assertEquals(200.0, configured.getLinkTravelTimes().getLinkTravelTime(link1, 7*3600 + 100, null, null), EPSILON);
+		assertEquals(100.0, configured.getLinkTravelTimes().getLinkTravelTime(link1, 9*3600, null, null), EPSILON);
+	}
+
 	private final void doTravelTimeCalculatorTest(final MutableScenario scenario, final TravelTimeDataFactory ttDataFactory,
 			final AbstractTravelTimeAggregator aggregator, final int timeBinSize, final int endTime,
 			final String compareFile, final boolean generateNewData) throws IOException {
@@ -182,7 +358,9 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		String eventsFile = getClassInputDirectory() + "link10_events.xml";
 
 		Network network = scenario.getNetwork();
-		new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFile);
+		if (network.getLinks().isEmpty()) { // factories using the network need it before
+			new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFile);
+		}
 
 		EventsManagerImpl events = (EventsManagerImpl) EventsUtils.createEventsManager();
 		EventsCollector collector = new EventsCollector();
@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testSameTravelTimesAsTransitRouterImpl() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		TransitRouter dijkstra = new TransitRouterImpl(trConfig, f.schedule);
+		TransitRouter raptor = new RaptorTransitRouter(trConfig, f.schedule);
+
+		Random random = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			Coord fromCoord = new Coord(random.nextInt(40000), random.nextInt(10000));
+			Coord toCoord = new Coord(random.nextInt(40000), random.nextInt(10000));
+			double departureTime = 5.0 * 3600 + random.nextInt(4 * 3600);
+			List<Leg> expected = dijkstra.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), departureTime, null);
+			List<Leg> legs = raptor.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), departureTime, null);
+			assertEquals("different travel time from " + fromCoord + " to " + toCoord + " at " + departureTime,
+					getTravelTime(expected), getTravelTime(legs), MatsimTestCase.EPSILON);
+		}
+	}
+
+	@Test
+	public void testRangeQuery() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 5050);
+		double accessTime = CoordUtils.calcEuclideanDistance(fromCoord, f.schedule.getFacilities().get(Id.create("0", TransitStopFacility.class)).getCoord())
+				/ trConfig.getBeelineWalkSpeed();
+
+		// the blue line departs at *:06, *:26 and *:46
+		List<List<Leg>> journeys = router.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0 * 3600, 6.0 * 3600, null);
+		assertEquals(3, journeys.size());
+		double[] departures = { 5.0 * 3600 + 6.0 * 60, 5.0 * 3600 + 26.0 * 60, 5.0 * 3600 + 46.0 * 60 };
+		for (int i = 0; i < 3; i++) {
+			List<Leg> legs = journeys.get(i);
+			assertEquals(3, legs.size());
+			assertEquals(departures[i] - accessTime, legs.get(0).getDepartureTime(), MatsimTestCase.EPSILON);
+			assertEquals(TransportMode.pt, legs.get(1).getMode());
+			assertEquals(departures[i], legs.get(1).getDepartureTime(), MatsimTestCase.EPSILON);
+			assertEquals(23.0 * 60, legs.get(1).getTravelTime(), MatsimTestCase.EPSILON); // no waiting
+			ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+			assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+			assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		}
+
+		// the same journeys as single queries
+		for (int i = 0; i < 3; i++) {
+			List<Leg> legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), departures[i] - accessTime, null);
+			assertEquals(getTravelTime(journeys.get(i)), getTravelTime(legs), MatsimTestCase.EPSILON);
+		}
+
+		assertTrue(router.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0 * 3600 + 7.0 * 60, 5.0 * 3600 + 20.0 * 60, null).isEmpty());
+	}
+
+	/**
+	 * The direct line departs earlier and arrives later than the journey with a transfer, so it is only optimal in the
+	 * number of transfers. It must not be pruned by the arrival found for the later departure.
+	 */
+	@Test
+	public void testRangeQuery_lessTransfersArrivingLater() {
+		Fixture f = new Fixture();
+		TransitScheduleFactory sf = f.schedule.getFactory();
+		TransitStopFacility stopA = addStop(f.schedule, "A", new Coord(0, 0));
+		TransitStopFacility stopB = addStop(f.schedule, "B", new Coord(5000, 0));
+		TransitStopFacility stopC = addStop(f.schedule, "C", new Coord(10000, 0));
+		addLine(f.schedule, "direct", 7.0 * 3600, sf.createTransitRouteStop(stopA, 0.0, 0.0), sf.createTransitRouteStop(stopC, 3600.0, 3600.0));
+		addLine(f.schedule, "fast1", 7.0 * 3600 + 20.0 * 60, sf.createTransitRouteStop(stopA, 0.0, 0.0), sf.createTransitRouteStop(stopB, 600.0, 600.0));
+		addLine(f.schedule, "fast2", 7.0 * 3600 + 35.0 * 60, sf.createTransitRouteStop(stopB, 0.0, 0.0), sf.createTransitRouteStop(stopC, 600.0, 600.0));
+
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		List<List<Leg>> journeys = router.calcRoutes(new FakeFacility(new Coord(0, -100)), new FakeFacility(new Coord(10000, -100)),
+				6.5 * 3600, 7.5 * 3600, null);
+		assertEquals(2, journeys.size());
+		assertEquals(3, journeys.get(0).size());
+		assertEquals(Id.create("direct", TransitLine.class), ((ExperimentalTransitRoute) journeys.get(0).get(1).getRoute()).getLineId());
+		assertEquals(4, journeys.get(1).size());
+		assertEquals(Id.create("fast1", TransitLine.class), ((ExperimentalTransitRoute) journeys.get(1).get(1).getRoute()).getLineId());
+		assertEquals(Id.create("fast2", TransitLine.class), ((ExperimentalTransitRoute) journeys.get(1).get(2).getRoute()).getLineId());
+	}
+
+	/**
+	 * The transfer from B to C is only possible by walking along W, so the walk leg must cover this distance, and not
+	 * only the beeline from B to C.
+	 */
+	@Test
+	public void testTransferWalkAlongSeveralStops() {
+		Fixture f = new Fixture();
+		TransitScheduleFactory sf = f.schedule.getFactory();
+		TransitStopFacility stopA = addStop(f.schedule, "A", new Coord(0, 0));
+		TransitStopFacility stopB = addStop(f.schedule, "B", new Coord(5000, 0));
+		TransitStopFacility stopW = addStop(f.schedule, "W", new Coord(5060, 60));
+		TransitStopFacility stopC = addStop(f.schedule, "C", new Coord(5120, 0));
+		TransitStopFacility stopD = addStop(f.schedule, "D", new Coord(10000, 0));
+		TransitStopFacility stopX = addStop(f.schedule, "X", new Coord(5060, 3000));
+		addLine(f.schedule, "1", 7.0 * 3600, sf.createTransitRouteStop(stopA, 0.0, 0.0), sf.createTransitRouteStop(stopB, 600.0, 600.0));
+		addLine(f.schedule, "2", 7.0 * 3600 + 20.0 * 60, sf.createTransitRouteStop(stopC, 0.0, 0.0), sf.createTransitRouteStop(stopD, 600.0, 600.0));
+		addLine(f.schedule, "3", 8.0 * 3600, sf.createTransitRouteStop(stopW, 0.0, 0.0), sf.createTransitRouteStop(stopX, 600.0, 600.0));
+
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		assertTrue(CoordUtils.calcEuclideanDistance(stopB.getCoord(), stopC.getCoord()) > trConfig.getBeelineWalkConnectionDistance());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord(0, -100)), new FakeFacility(new Coord(10000, -100)), 6.9 * 3600, null);
+		assertEquals(5, legs.size());
+		Leg transfer = legs.get(2);
+		assertEquals(TransportMode.transit_walk, transfer.getMode());
+		double walkDistance = CoordUtils.calcEuclideanDistance(stopB.getCoord(), stopW.getCoord())
+				+ CoordUtils.calcEuclideanDistance(stopW.getCoord(), stopC.getCoord());
+		assertEquals(trConfig.getBeelineDistanceFactor() * walkDistance, transfer.getRoute().getDistance(), MatsimTestCase.EPSILON);
+		assertEquals(walkDistance / trConfig.getBeelineWalkSpeed() + trConfig.getAdditionalTransferTime(), transfer.getTravelTime(), MatsimTestCase.EPSILON);
+	}
+
+	private static TransitStopFacility addStop(final TransitSchedule schedule, final String id, final Coord coord) {
+		TransitStopFacility stop = schedule.getFactory().createTransitStopFacility(Id.create(id, TransitStopFacility.class), coord, false);
+		schedule.addStopFacility(stop);
+		return stop;
+	}
+
+	private static void addLine(final TransitSchedule schedule, final String id, final double departureTime, final TransitRouteStop... stops) {
+		TransitScheduleFactory sf = schedule.getFactory();
+		TransitLine line = sf.createTransitLine(Id.create(id, TransitLine.class));
+		TransitRoute route = sf.createTransitRoute(Id.create(id, TransitRoute.class), null, Arrays.asList(stops), "bus");
+		route.addDeparture(sf.createDeparture(Id.create(id, Departure.class), departureTime));
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+	}
+
+	@Test
+	public void testMultipleThreads() throws Exception {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouterFactory factory = new RaptorTransitRouterFactory(f.schedule, trConfig);
+
+		Random random = new Random(42);
+		final List<Coord[]> requests = new ArrayList<>();
+		final List<Double> times = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			requests.add(new Coord[] { new Coord(random.nextInt(40000), random.nextInt(10000)), new Coord(random.nextInt(40000), random.nextInt(10000)) });
+			times.add(5.0 * 3600 + random.nextInt(4 * 3600));
+		}
+		final List<Double> expected = routeAll(factory.get(), requests, times);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<Double>>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				final TransitRouter router = factory.get();
+				results.add(executor.submit(() -> routeAll(router, requests, times)));
+			}
+			for (Future<List<Double>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static List<Double> routeAll(final TransitRouter router, final List<Coord[]> requests, final List<Double> times) {
+		List<Double> travelTimes = new ArrayList<>();
+		for (int i = 0; i < requests.size(); i++) {
+			Coord[] request = requests.get(i);
+			travelTimes.add(getTravelTime(router.calcRoute(new FakeFacility(request[0]), new FakeFacility(request[1]), times.get(i), null)));
+		}
+		return travelTimes;
+	}
+
+	private static double getTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
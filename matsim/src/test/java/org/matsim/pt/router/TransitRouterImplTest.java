@@ -81,7 +81,7 @@ public class TransitRouterImplTest {
 	public static Collection<Object> createRouterTypes() {
 		Object[] router = new Object [] { 
 				"standard"
-//				,TransitRouterType.raptor
+				,"raptor"
 		};
 		return Arrays.asList(router);
 	}
@@ -133,6 +133,9 @@ public class TransitRouterImplTest {
 		case "standard":
 			router = new TransitRouterImpl(trConfig, schedule);
 			break;
+		case "raptor":
+			router = new RaptorTransitRouter(trConfig, schedule);
+			break;
 		default:
 			break;
 		}